@@ -41,6 +41,7 @@ plugins {
 rootProject.name = "jmeter"
 
 include(
+        "src:benchmark",
         "src:bom",
         "src:bshclient",
         "src:launcher",
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.vlsi.gradle.properties.dsl.props
+
+dependencies {
+    api(project(":src:dist"))
+}
+
+val createDist by project(":src:dist").tasks.existing(Task::class)
+
+val benchmarkDir = layout.buildDirectory.dir("benchmark")
+
+val benchmark by tasks.registering(JavaExec::class) {
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    description = "Measures the maximum throughput of the engine against in-process stub servers" +
+            " (add -Pbenchmark.baseline=<results.csv> to fail on regressions)"
+    // Functions are found by scanning lib/ext, so the distribution must be created
+    dependsOn(createDist)
+    classpath = sourceSets["main"].runtimeClasspath
+    main = "org.apache.jmeter.benchmark.EngineBenchmark"
+    workingDir = File(project.rootDir, "bin")
+    maxHeapSize = "1g"
+    systemProperty("java.awt.headless", "true")
+    systemProperty("log4j.configurationFile", rootDir.resolve("bin/log4j2.xml").absolutePath)
+    systemProperty("jmeter.logfile", benchmarkDir.get().file("benchmark.log").asFile.absolutePath)
+
+    // -Pbenchmark.threads=100 and so on are passed to the harness
+    fun passProperty(name: String) {
+        (project.findProperty(name) as? String)?.let { systemProperty(name, it) }
+    }
+
+    for (name in arrayOf(
+        "benchmark.plans",
+        "benchmark.threads",
+        "benchmark.warmup",
+        "benchmark.duration",
+        "benchmark.payload",
+        "benchmark.latency",
+        "benchmark.http.impl",
+        "benchmark.baseline",
+        "benchmark.max_regression"
+    )) {
+        passProperty(name)
+    }
+    args(rootDir.absolutePath, benchmarkDir.get().asFile.absolutePath)
+}
+
+val fileTableBenchmark by tasks.registering(JavaExec::class) {
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    description = "Measures the load time, memory and read throughput of the __CSVRead and __StringFromFile data files"
+    classpath = sourceSets["main"].runtimeClasspath
+    main = "org.apache.jmeter.benchmark.FileTableBenchmark"
+    workingDir = File(project.rootDir, "bin")
+    maxHeapSize = "4g"
+    systemProperty("java.awt.headless", "true")
+    systemProperty("log4j.configurationFile", rootDir.resolve("bin/log4j2.xml").absolutePath)
+    systemProperty("jmeter.logfile", benchmarkDir.get().file("file_table.log").asFile.absolutePath)
+
+    for (name in arrayOf(
+        "benchmark.file_table.size_mb",
+        "benchmark.file_table.columns",
+        "benchmark.file_table.mmap",
+        "benchmark.file_table.lists",
+        "benchmark.threads",
+        "benchmark.duration"
+    )) {
+        (project.findProperty(name) as? String)?.let { systemProperty(name, it) }
+    }
+    args(rootDir.absolutePath, benchmarkDir.get().asFile.absolutePath)
+}
+
+// The benchmark takes a couple of minutes, so it is part of the release qualification only
+if (props.bool("release", default = false) || props.bool("benchmark", default = false)) {
+    tasks.named(LifecycleBasePlugin.CHECK_TASK_NAME).configure {
+        dependsOn(benchmark)
+    }
+}
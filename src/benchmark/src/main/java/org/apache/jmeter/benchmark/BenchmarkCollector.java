@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleMonitor;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.apache.jmeter.testelement.TestStateListener;
+
+/**
+ * Listener added to each benchmark plan to measure the engine while it runs.
+ * <p>
+ * Measures start once the warm-up period is over and stop at the end of the
+ * measurement window, before the threads are stopped, so neither JIT compilation
+ * nor the ramp-down are counted. Over the window it computes:
+ * <ul>
+ * <li>the number of samples per second</li>
+ * <li>the bytes allocated by the JMeter threads, read from the JVM per thread counters</li>
+ * <li>the time spent in garbage collection</li>
+ * <li>per sampler, the time spent by the engine between the end of the previous sample of
+ * the thread and the start of this one: controllers, pre and post processors, assertions
+ * and listeners. The sample time itself is mostly spent waiting for the stub server
+ * and is reported separately</li>
+ * </ul>
+ */
+final class BenchmarkCollector extends AbstractTestElement
+        implements SampleListener, SampleMonitor, TestStateListener, NoThreadClone {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Timings of one JMeter thread, only updated by that thread */
+    private static final class ThreadTimings {
+        private final Thread thread;
+        private final Map<String, LatencyHistogram> overhead = new HashMap<>();
+        private final Map<String, LatencyHistogram> sampleTime = new HashMap<>();
+        private long lastEnd;
+        private long start;
+        private long allocatedAtStart = -1;
+
+        ThreadTimings(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    private final transient ThreadLocal<ThreadTimings> timings = ThreadLocal.withInitial(this::register);
+    private final transient ConcurrentLinkedQueue<ThreadTimings> allTimings = new ConcurrentLinkedQueue<>();
+    private final transient LongAdder samples = new LongAdder();
+    private final transient LongAdder errors = new LongAdder();
+    private final transient CountDownLatch ended = new CountDownLatch(1);
+
+    private final String plan;
+    private final int threads;
+    private final long warmupMillis;
+    private final long measureMillis;
+
+    private transient ScheduledExecutorService scheduler;
+    private volatile boolean measuring;
+    private long windowStart;
+    private long windowEnd;
+    private long gcTimeAtStart;
+    private long gcCountAtStart;
+    private long gcTime;
+    private long gcCount;
+    private long allocatedBytes;
+
+    /**
+     * @param plan          name of the measured plan
+     * @param threads       number of threads of the plan
+     * @param warmupMillis  time to wait after the start of the test before measuring
+     * @param measureMillis duration of the measure
+     */
+    BenchmarkCollector(String plan, int threads, long warmupMillis, long measureMillis) {
+        this.plan = plan;
+        this.threads = threads;
+        this.warmupMillis = warmupMillis;
+        this.measureMillis = measureMillis;
+        setName("BenchmarkCollector"); // $NON-NLS-1$
+    }
+
+    private ThreadTimings register() {
+        ThreadTimings threadTimings = new ThreadTimings(Thread.currentThread());
+        allTimings.add(threadTimings);
+        return threadTimings;
+    }
+
+    @Override
+    public void testStarted() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "BenchmarkCollector-" + plan); // $NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.schedule(this::startWindow, warmupMillis, TimeUnit.MILLISECONDS);
+        scheduler.schedule(this::endWindow, warmupMillis + measureMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void testStarted(String host) {
+        testStarted();
+    }
+
+    @Override
+    public void testEnded() {
+        scheduler.shutdownNow();
+        if (measuring) {
+            // The test ended before the end of the window
+            endWindow();
+        }
+        ended.countDown();
+    }
+
+    @Override
+    public void testEnded(String host) {
+        testEnded();
+    }
+
+    private synchronized void startWindow() {
+        List<ThreadTimings> registered = new ArrayList<>(allTimings);
+        long[] allocated = allocatedBytes(registered);
+        for (int i = 0; i < allocated.length; i++) {
+            registered.get(i).allocatedAtStart = allocated[i];
+        }
+        gcTimeAtStart = gcTime();
+        gcCountAtStart = gcCount();
+        windowStart = System.nanoTime();
+        measuring = true;
+    }
+
+    private synchronized void endWindow() {
+        if (!measuring) {
+            return;
+        }
+        measuring = false;
+        windowEnd = System.nanoTime();
+        gcTime = gcTime() - gcTimeAtStart;
+        gcCount = gcCount() - gcCountAtStart;
+        List<ThreadTimings> registered = new ArrayList<>(allTimings);
+        long[] allocated = allocatedBytes(registered);
+        long total = 0;
+        for (int i = 0; i < allocated.length; i++) {
+            long atStart = registered.get(i).allocatedAtStart;
+            if (allocated[i] >= 0) {
+                total += allocated[i] - Math.max(0, atStart);
+            }
+        }
+        allocatedBytes = total;
+    }
+
+    @Override
+    public void sampleStarting(Sampler sampler) {
+        long now = System.nanoTime();
+        ThreadTimings threadTimings = timings.get();
+        if (measuring && threadTimings.lastEnd != 0) {
+            histogram(threadTimings.overhead, sampler).record(now - threadTimings.lastEnd);
+        }
+        threadTimings.start = now;
+    }
+
+    @Override
+    public void sampleEnded(Sampler sampler) {
+        long now = System.nanoTime();
+        ThreadTimings threadTimings = timings.get();
+        if (measuring) {
+            histogram(threadTimings.sampleTime, sampler).record(now - threadTimings.start);
+        }
+        threadTimings.lastEnd = now;
+    }
+
+    private static LatencyHistogram histogram(Map<String, LatencyHistogram> histograms, Sampler sampler) {
+        return histograms.computeIfAbsent(sampler.getName(), k -> new LatencyHistogram());
+    }
+
+    @Override
+    public void sampleOccurred(SampleEvent e) {
+        if (measuring) {
+            samples.increment();
+            if (!e.getResult().isSuccessful()) {
+                errors.increment();
+            }
+        }
+    }
+
+    @Override
+    public void sampleStarted(SampleEvent e) {
+        // not used
+    }
+
+    @Override
+    public void sampleStopped(SampleEvent e) {
+        // not used
+    }
+
+    /**
+     * Wait for the end of the test and compute the result of the measure
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @return the result, or {@code null} if the test did not end in time
+     * @throws InterruptedException when interrupted while waiting
+     */
+    BenchmarkResult awaitResult(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!ended.await(timeout, unit)) {
+            return null;
+        }
+        Map<String, LatencyHistogram> overhead = new TreeMap<>();
+        Map<String, LatencyHistogram> sampleTime = new TreeMap<>();
+        for (ThreadTimings threadTimings : allTimings) {
+            merge(overhead, threadTimings.overhead);
+            merge(sampleTime, threadTimings.sampleTime);
+        }
+        synchronized (this) {
+            long elapsedNanos = windowEnd - windowStart;
+            return new BenchmarkResult(plan, threads, samples.sum(), errors.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), allocatedBytes, gcTime, gcCount,
+                    overhead, sampleTime);
+        }
+    }
+
+    private static void merge(Map<String, LatencyHistogram> into, Map<String, LatencyHistogram> from) {
+        for (Map.Entry<String, LatencyHistogram> entry : from.entrySet()) {
+            into.computeIfAbsent(entry.getKey(), k -> new LatencyHistogram()).add(entry.getValue());
+        }
+    }
+
+    /**
+     * @return bytes allocated by each thread since it started, -1 for threads that ended
+     */
+    private static long[] allocatedBytes(List<ThreadTimings> registered) {
+        long[] ids = new long[registered.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = registered.get(i).thread.getId();
+        }
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(ids);
+        }
+        long[] unknown = new long[ids.length];
+        Arrays.fill(unknown, -1);
+        return unknown;
+    }
+
+    private static long gcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+}
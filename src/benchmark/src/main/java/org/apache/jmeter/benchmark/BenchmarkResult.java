@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures of one benchmark plan, taken over the measurement window
+ */
+final class BenchmarkResult {
+
+    static final String CSV_HEADER = "plan,threads,samples,errors,duration_ms,samples_per_second," // $NON-NLS-1$
+            + "allocated_bytes_per_sample,allocation_mb_per_second,gc_time_ms,gc_count"; // $NON-NLS-1$
+
+    static final String OVERHEAD_CSV_HEADER = "plan,sampler,samples,overhead_p50_us,overhead_p99_us," // $NON-NLS-1$
+            + "overhead_max_us,sample_p50_us,sample_p99_us"; // $NON-NLS-1$
+
+    private final String plan;
+    private final int threads;
+    private final long samples;
+    private final long errors;
+    private final long durationMillis;
+    private final long allocatedBytes;
+    private final long gcTimeMillis;
+    private final long gcCount;
+    private final Map<String, LatencyHistogram> overhead;
+    private final Map<String, LatencyHistogram> sampleTime;
+
+    BenchmarkResult(String plan, int threads, long samples, long errors, long durationMillis,
+            long allocatedBytes, long gcTimeMillis, long gcCount,
+            Map<String, LatencyHistogram> overhead, Map<String, LatencyHistogram> sampleTime) {
+        this.plan = plan;
+        this.threads = threads;
+        this.samples = samples;
+        this.errors = errors;
+        this.durationMillis = durationMillis;
+        this.allocatedBytes = allocatedBytes;
+        this.gcTimeMillis = gcTimeMillis;
+        this.gcCount = gcCount;
+        this.overhead = overhead;
+        this.sampleTime = sampleTime;
+    }
+
+    String getPlan() {
+        return plan;
+    }
+
+    long getSamples() {
+        return samples;
+    }
+
+    long getErrors() {
+        return errors;
+    }
+
+    double getSamplesPerSecond() {
+        return durationMillis <= 0 ? 0 : samples * 1000.0 / durationMillis;
+    }
+
+    double getAllocatedBytesPerSample() {
+        return samples == 0 ? 0 : (double) allocatedBytes / samples;
+    }
+
+    double getAllocationMegabytesPerSecond() {
+        return durationMillis <= 0 ? 0 : allocatedBytes / 1048576.0 * 1000 / durationMillis;
+    }
+
+    /**
+     * @return the 99th percentile of the engine overhead of all the samplers, in nanoseconds
+     */
+    long getOverheadP99() {
+        LatencyHistogram all = new LatencyHistogram();
+        for (LatencyHistogram histogram : overhead.values()) {
+            all.add(histogram);
+        }
+        return all.getValueAtPercentile(99);
+    }
+
+    String toCsv() {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.1f,%.1f,%.1f,%d,%d", // $NON-NLS-1$
+                plan, threads, samples, errors, durationMillis, getSamplesPerSecond(),
+                getAllocatedBytesPerSample(), getAllocationMegabytesPerSecond(), gcTimeMillis, gcCount);
+    }
+
+    List<String> overheadToCsv() {
+        List<String> lines = new ArrayList<>(overhead.size());
+        for (Map.Entry<String, LatencyHistogram> entry : overhead.entrySet()) {
+            LatencyHistogram gap = entry.getValue();
+            LatencyHistogram sample = sampleTime.getOrDefault(entry.getKey(), new LatencyHistogram());
+            lines.add(String.format(Locale.ROOT, "%s,\"%s\",%d,%.1f,%.1f,%.1f,%.1f,%.1f", // $NON-NLS-1$
+                    plan, entry.getKey().replace("\"", "\"\""), gap.getCount(), // $NON-NLS-1$ $NON-NLS-2$
+                    micros(gap.getValueAtPercentile(50)), micros(gap.getValueAtPercentile(99)),
+                    micros(gap.getMax()), micros(sample.getValueAtPercentile(50)),
+                    micros(sample.getValueAtPercentile(99))));
+        }
+        return Collections.unmodifiableList(lines);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%-6s %10.1f samples/s %8d errors %10.1f B/sample %8.1f MB/s %6d ms GC (%d) overhead p99 %8.1f us",
+                plan, getSamplesPerSecond(), errors, getAllocatedBytesPerSample(),
+                getAllocationMegabytesPerSecond(), gcTimeMillis, gcCount, micros(getOverheadP99()));
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.JMeter;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.save.SaveService;
+import org.apache.jmeter.services.FileServer;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the maximum throughput of the engine itself.
+ * <p>
+ * Canned plans using the HTTP, TCP and Java Request samplers, and HTTP fed by a CSV Data Set,
+ * are run headless by {@link StandardJMeterEngine} against {@link NioMirrorServer} instances
+ * started in the same JVM, so the target is never the bottleneck.
+ * For each plan, the samples per second, the allocation rate, the GC time and the engine overhead
+ * per sampler are reported on the console and written as CSV to the output directory.
+ * <p>
+ * When a baseline result file is given, the run fails if the throughput of a plan dropped, or its
+ * allocations per sample rose, by more than the accepted ratio, so regressions are caught during
+ * release qualification rather than by users.
+ * <p>
+ * Settings are read from system properties:
+ * <ul>
+ * <li>{@code benchmark.plans}: plans to run, default {@code java,http,tcp,csv}</li>
+ * <li>{@code benchmark.threads}: threads of each plan, default 20</li>
+ * <li>{@code benchmark.warmup}: seconds to run before measuring, default 5</li>
+ * <li>{@code benchmark.duration}: seconds to measure, default 20</li>
+ * <li>{@code benchmark.payload}: size in bytes of the responses of the stub servers, default 1024</li>
+ * <li>{@code benchmark.latency}: latency in milliseconds of the stub servers, default 0</li>
+ * <li>{@code benchmark.http.impl}: HTTP sampler implementation, default from {@code jmeter.httpsampler}</li>
+ * <li>{@code benchmark.baseline}: results.csv of a previous run to compare with</li>
+ * <li>{@code benchmark.max_regression}: accepted regression ratio, default 0.1</li>
+ * </ul>
+ */
+public final class EngineBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(EngineBenchmark.class);
+
+    private static final String RESULTS_FILE = "results.csv"; // $NON-NLS-1$
+    private static final String OVERHEAD_FILE = "overhead.csv"; // $NON-NLS-1$
+    private static final int CSV_LINES = 1000;
+    /** Time given to the threads to stop after the end of the scheduled duration */
+    private static final long END_TIMEOUT_SECONDS = 60;
+
+    private final File home;
+    private final File outputDir;
+    private final int threads = Integer.getInteger("benchmark.threads", 20); // $NON-NLS-1$
+    private final int warmupSeconds = Integer.getInteger("benchmark.warmup", 5); // $NON-NLS-1$
+    private final int durationSeconds = Integer.getInteger("benchmark.duration", 20); // $NON-NLS-1$
+
+    private EngineBenchmark(File home, File outputDir) {
+        this.home = home;
+        this.outputDir = outputDir;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: EngineBenchmark <jmeter home> <output directory>"); // NOSONAR
+            System.exit(2);
+        }
+        int status;
+        try {
+            status = new EngineBenchmark(new File(args[0]).getAbsoluteFile(), new File(args[1]).getAbsoluteFile())
+                    .run() ? 0 : 1;
+        } catch (Exception e) { // NOSONAR
+            log.error("Benchmark failed", e);
+            e.printStackTrace(); // NOSONAR
+            status = 1;
+        }
+        // Samplers may leave non daemon threads behind
+        System.exit(status);
+    }
+
+    /**
+     * @return {@code true} when all the plans ran without error nor regression
+     */
+    private boolean run() throws Exception {
+        JMeterUtils.setJMeterHome(home.getPath());
+        JMeterUtils.loadJMeterProperties(new File(home, "bin/jmeter.properties").getPath()); // $NON-NLS-1$
+        JMeterUtils.initLocale();
+        String httpImpl = System.getProperty("benchmark.http.impl", ""); // $NON-NLS-1$ $NON-NLS-2$
+        if (!httpImpl.isEmpty()) {
+            JMeterUtils.setProperty("jmeter.httpsampler", httpImpl); // $NON-NLS-1$
+        }
+
+        File planDir = new File(outputDir, "plans"); // $NON-NLS-1$
+        Files.createDirectories(planDir.toPath());
+        File csvFile = writeCsvData(new File(planDir, "paths.csv")); // $NON-NLS-1$
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        try (NioMirrorServer http = startServer(NioMirrorServer.Protocol.HTTP);
+             NioMirrorServer tcp = startServer(NioMirrorServer.Protocol.LINE)) {
+            JMeterUtils.setProperty("benchmark.threads", Integer.toString(threads)); // $NON-NLS-1$
+            JMeterUtils.setProperty("benchmark.duration", // $NON-NLS-1$
+                    Integer.toString(warmupSeconds + durationSeconds + 1));
+            JMeterUtils.setProperty("benchmark.http.port", Integer.toString(http.getLocalPort())); // $NON-NLS-1$
+            JMeterUtils.setProperty("benchmark.tcp.port", Integer.toString(tcp.getLocalPort())); // $NON-NLS-1$
+            JMeterUtils.setProperty("benchmark.csv.file", csvFile.getPath()); // $NON-NLS-1$
+
+            for (String plan : System.getProperty("benchmark.plans", "java,http,tcp,csv").split(",")) { // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+                results.add(runPlan(plan.trim(), planDir));
+            }
+        }
+
+        writeResults(results);
+        return check(results);
+    }
+
+    private NioMirrorServer startServer(NioMirrorServer.Protocol protocol) throws IOException {
+        NioMirrorServer server = new NioMirrorServer(protocol, 0);
+        server.setPayloadSize(Integer.getInteger("benchmark.payload", 1024)); // $NON-NLS-1$
+        server.setLatencyMillis(Long.getLong("benchmark.latency", 0)); // $NON-NLS-1$
+        server.start();
+        return server;
+    }
+
+    private static File writeCsvData(File file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < CSV_LINES; i++) {
+                writer.write("/csv/" + i + "," + i); // $NON-NLS-1$ $NON-NLS-2$
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    private BenchmarkResult runPlan(String plan, File planDir) throws Exception {
+        File planFile = new File(planDir, plan + ".jmx"); // $NON-NLS-1$
+        try (InputStream in = EngineBenchmark.class.getResourceAsStream(plan + ".jmx")) { // $NON-NLS-1$
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown benchmark plan: " + plan);
+            }
+            Files.copy(in, planFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        FileServer.getFileServer().setBaseForScript(planFile);
+        HashTree tree = JMeter.convertSubTree(SaveService.loadTree(planFile), true);
+        BenchmarkCollector collector = new BenchmarkCollector(plan, threads,
+                TimeUnit.SECONDS.toMillis(warmupSeconds), TimeUnit.SECONDS.toMillis(durationSeconds));
+        tree.add(tree.getArray()[0], collector);
+
+        log.info("Running benchmark plan {} with {} threads", plan, threads);
+        System.out.println("Running " + plan + " plan for " // NOSONAR
+                + (warmupSeconds + durationSeconds) + " seconds"); // $NON-NLS-1$
+        StandardJMeterEngine engine = new StandardJMeterEngine();
+        engine.configure(tree);
+        engine.runTest();
+        BenchmarkResult result = collector.awaitResult(
+                warmupSeconds + durationSeconds + END_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (result == null) {
+            engine.stopTest(true);
+            throw new IllegalStateException("Benchmark plan " + plan + " did not end in time");
+        }
+        System.out.println(result); // NOSONAR
+        return result;
+    }
+
+    private void writeResults(List<BenchmarkResult> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<String> overheadLines = new ArrayList<>();
+        lines.add(BenchmarkResult.CSV_HEADER);
+        overheadLines.add(BenchmarkResult.OVERHEAD_CSV_HEADER);
+        for (BenchmarkResult result : results) {
+            lines.add(result.toCsv());
+            overheadLines.addAll(result.overheadToCsv());
+        }
+        Files.write(new File(outputDir, RESULTS_FILE).toPath(), lines, StandardCharsets.UTF_8);
+        Files.write(new File(outputDir, OVERHEAD_FILE).toPath(), overheadLines, StandardCharsets.UTF_8);
+        System.out.println("Results written to " + outputDir); // NOSONAR
+    }
+
+    private static boolean check(List<BenchmarkResult> results) throws IOException {
+        boolean success = true;
+        for (BenchmarkResult result : results) {
+            if (result.getSamples() == 0 || result.getErrors() > 0) {
+                System.err.println("Plan " + result.getPlan() + " produced " + result.getSamples() // NOSONAR
+                        + " samples with " + result.getErrors() + " errors"); // $NON-NLS-1$
+                success = false;
+            }
+        }
+        String baseline = System.getProperty("benchmark.baseline", ""); // $NON-NLS-1$ $NON-NLS-2$
+        if (baseline.isEmpty()) {
+            return success;
+        }
+        double maxRegression = Double.parseDouble(System.getProperty("benchmark.max_regression", "0.1")); // $NON-NLS-1$ $NON-NLS-2$
+        Map<String, double[]> baselines = readBaseline(new File(baseline));
+        for (BenchmarkResult result : results) {
+            double[] base = baselines.get(result.getPlan());
+            if (base == null) {
+                continue;
+            }
+            if (result.getSamplesPerSecond() < base[0] * (1 - maxRegression)) {
+                System.err.println(String.format(Locale.ROOT, // NOSONAR
+                        "Plan %s: throughput dropped from %.1f to %.1f samples/s",
+                        result.getPlan(), base[0], result.getSamplesPerSecond()));
+                success = false;
+            }
+            if (result.getAllocatedBytesPerSample() > base[1] * (1 + maxRegression)) {
+                System.err.println(String.format(Locale.ROOT, // NOSONAR
+                        "Plan %s: allocations rose from %.1f to %.1f bytes per sample",
+                        result.getPlan(), base[1], result.getAllocatedBytesPerSample()));
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * @return samples per second and allocated bytes per sample, by plan
+     */
+    static Map<String, double[]> readBaseline(File file) throws IOException {
+        Map<String, double[]> baselines = new HashMap<>();
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            String[] columns = line.split(","); // $NON-NLS-1$
+            if (columns.length > 6) {
+                baselines.put(columns[0], new double[]{
+                        Double.parseDouble(columns[5]), Double.parseDouble(columns[6])});
+            }
+        }
+        return baselines;
+    }
+}
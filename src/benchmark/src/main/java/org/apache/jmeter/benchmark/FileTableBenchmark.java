@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jmeter.functions.FileRowColContainer;
+import org.apache.jmeter.functions.FileWrapper;
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Measures the load time, the memory and the read throughput of the data files of
+ * {@code __CSVRead} and {@code __StringFromFile}.
+ * <p>
+ * A delimited file is generated, then loaded both as lists of Strings, as these functions
+ * used to do, and by {@link FileRowColContainer}. For each, the load time, the heap retained
+ * after a full GC and the mapped memory are reported. The rows are then read through {@link FileWrapper}
+ * by concurrent threads, each taking the next row and all its columns, as {@code __CSVRead} does.
+ * <p>
+ * Settings are read from system properties:
+ * <ul>
+ * <li>{@code benchmark.file_table.size_mb}: size of the generated file, default 256</li>
+ * <li>{@code benchmark.file_table.columns}: columns per row, default 8</li>
+ * <li>{@code benchmark.file_table.mmap}: whether the file is memory mapped rather than read in the heap,
+ * default true</li>
+ * <li>{@code benchmark.file_table.lists}: whether to also load the file as lists of Strings, default true</li>
+ * <li>{@code benchmark.threads}: reading threads, default 20</li>
+ * <li>{@code benchmark.duration}: seconds to read, default 10</li>
+ * </ul>
+ */
+public final class FileTableBenchmark {
+
+    private static final String RESULTS_FILE = "file_table.csv"; // $NON-NLS-1$
+    private static final String CSV_HEADER = "store,bytes,rows,load_ms,heap_bytes,mapped_bytes,rows_per_second"; // $NON-NLS-1$
+
+    private final File outputDir;
+    private final long sizeBytes = Long.getLong("benchmark.file_table.size_mb", 256) * 1024 * 1024; // $NON-NLS-1$
+    private final int columns = Integer.getInteger("benchmark.file_table.columns", 8); // $NON-NLS-1$
+    private final int threads = Integer.getInteger("benchmark.threads", 20); // $NON-NLS-1$
+    private final int durationSeconds = Integer.getInteger("benchmark.duration", 10); // $NON-NLS-1$
+
+    private FileTableBenchmark(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: FileTableBenchmark <jmeter home> <output directory>"); // NOSONAR
+            System.exit(2);
+        }
+        int status = 0;
+        try {
+            File home = new File(args[0]).getAbsoluteFile();
+            JMeterUtils.setJMeterHome(home.getPath());
+            JMeterUtils.loadJMeterProperties(new File(home, "bin/jmeter.properties").getPath()); // $NON-NLS-1$
+            // Read once, when the first table is loaded
+            boolean mmap = Boolean.parseBoolean(System.getProperty("benchmark.file_table.mmap", "true")); // $NON-NLS-1$ $NON-NLS-2$
+            JMeterUtils.setProperty("file_table.mmap_threshold", mmap ? "0" : Long.toString(Long.MAX_VALUE)); // $NON-NLS-1$ $NON-NLS-2$
+            new FileTableBenchmark(new File(args[1]).getAbsoluteFile()).run();
+        } catch (Exception e) { // NOSONAR
+            e.printStackTrace(); // NOSONAR
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    private void run() throws Exception {
+        Files.createDirectories(outputDir.toPath());
+        File data = new File(outputDir, "file_table_data.csv"); // $NON-NLS-1$
+        System.out.println("Generating " + (sizeBytes >> 20) + " MB in " + data); // NOSONAR
+        writeData(data);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(CSV_HEADER);
+        if (Boolean.parseBoolean(System.getProperty("benchmark.file_table.lists", "true"))) { // $NON-NLS-1$ $NON-NLS-2$
+            lines.add(measureLists(data));
+        }
+        lines.add(measureContainer(data));
+        Files.write(new File(outputDir, RESULTS_FILE).toPath(), lines, StandardCharsets.UTF_8);
+        System.out.println("Results written to " + outputDir); // NOSONAR
+    }
+
+    private void writeData(File file) throws IOException {
+        char[] cell = new char[12];
+        long written = 0;
+        long row = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            while (written < sizeBytes) {
+                StringBuilder line = new StringBuilder(columns * 16);
+                for (int c = 0; c < columns; c++) {
+                    if (c > 0) {
+                        line.append(',');
+                    }
+                    Arrays.fill(cell, (char) ('a' + (row + c) % 26));
+                    line.append(row).append('_').append(cell, 0, (int) (1 + (row * 31 + c) % cell.length));
+                }
+                writer.write(line.toString());
+                writer.newLine();
+                written += line.length() + 1;
+                row++;
+            }
+        }
+    }
+
+    /**
+     * Load the file as the functions used to: a list of Strings per row
+     */
+    private String measureLists(File data) throws IOException {
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        List<List<String>> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(data.toPath(), Charset.defaultCharset())) {
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                rows.add(new ArrayList<>(Arrays.asList(line.split(",", -1)))); // $NON-NLS-1$
+            }
+        }
+        long loadNanos = System.nanoTime() - start;
+        long heap = usedHeap() - heapBefore;
+        String result = report("lists", data.length(), rows.size(), loadNanos, heap, 0, Double.NaN); // $NON-NLS-1$
+        rows.clear();
+        return result;
+    }
+
+    private String measureContainer(File data) throws Exception {
+        long heapBefore = usedHeap();
+        long mappedBefore = mappedMemory();
+        long start = System.nanoTime();
+        FileRowColContainer container = new FileRowColContainer(data.getPath(), ","); // $NON-NLS-1$
+        long loadNanos = System.nanoTime() - start;
+        long heap = usedHeap() - heapBefore;
+        long mapped = mappedMemory() - mappedBefore;
+
+        LongAdder rowsRead = new LongAdder();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        String file = data.getPath();
+        Thread[] readers = new Thread[threads];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                // Shares the table loaded above
+                FileWrapper.open(file, file);
+                while (System.nanoTime() < end) {
+                    for (int c = 0; c < columns; c++) {
+                        FileWrapper.getColumn(file, c);
+                    }
+                    FileWrapper.endRow(file);
+                    rowsRead.increment();
+                }
+            }, "FileTableBenchmark-" + i); // $NON-NLS-1$
+            readers[i].start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        double rowsPerSecond = rowsRead.sum() / (double) durationSeconds;
+        return report("packed", data.length(), container.getSize(), loadNanos, heap, mapped, rowsPerSecond); // $NON-NLS-1$
+    }
+
+    private static String report(String store, long bytes, int rows, long loadNanos, long heap, long mapped,
+            double rowsPerSecond) {
+        System.out.println(String.format(Locale.ROOT, // NOSONAR
+                "%-6s %,d rows loaded in %,d ms, heap %,d MB, mapped %,d MB, %,.0f rows/s",
+                store, rows, TimeUnit.NANOSECONDS.toMillis(loadNanos), heap >> 20, mapped >> 20, rowsPerSecond));
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%.1f", // $NON-NLS-1$
+                store, bytes, rows, TimeUnit.NANOSECONDS.toMillis(loadNanos), heap, mapped, rowsPerSecond);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc(); // NOSONAR
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long mappedMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("mapped".equals(pool.getName())) { // $NON-NLS-1$
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,531 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non blocking stub server used as the target of the engine benchmark.
+ * <p>
+ * Connections are accepted by one thread and spread over a few selector threads,
+ * so a handful of threads can serve thousands of keep-alive connections without
+ * becoming the bottleneck of the measure.
+ * Every request is answered with a fixed payload, or with the request itself
+ * in mirror mode, after an optional latency that is scheduled in the selector
+ * loop instead of blocking a thread.
+ * <p>
+ * Two protocols are understood:
+ * <ul>
+ * <li>{@link Protocol#HTTP}: HTTP/1.1 requests with an optional {@code Content-Length} body,
+ * connections are kept alive unless the client sends {@code Connection: close}</li>
+ * <li>{@link Protocol#LINE}: each request ends with {@code '\n'}, so does each response,
+ * which is what the TCP sampler expects with {@code tcp.eolByte=10}</li>
+ * </ul>
+ */
+public class NioMirrorServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(NioMirrorServer.class);
+
+    /** Request framing understood by the server */
+    public enum Protocol {
+        HTTP,
+        LINE
+    }
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private static final byte[] HEADERS_END = {'\r', '\n', '\r', '\n'};
+    private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.US_ASCII); // $NON-NLS-1$
+    private static final byte[] CONNECTION_CLOSE = "connection: close".getBytes(StandardCharsets.US_ASCII); // $NON-NLS-1$
+
+    private final Protocol protocol;
+    private final int port;
+    private int ioThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private int payloadSize = 1024;
+    private long latencyMillis;
+    private boolean mirror;
+
+    private final LongAdder requests = new LongAdder();
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private Worker[] workers;
+    private volatile boolean running;
+
+    /**
+     * @param protocol framing of the requests
+     * @param port     port to listen on, 0 to pick a free one
+     */
+    public NioMirrorServer(Protocol protocol, int port) {
+        this.protocol = protocol;
+        this.port = port;
+    }
+
+    /**
+     * @param ioThreads number of selector threads serving the connections
+     */
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = Math.max(1, ioThreads);
+    }
+
+    /**
+     * @param payloadSize size in bytes of the body of each response, ignored in mirror mode
+     */
+    public void setPayloadSize(int payloadSize) {
+        this.payloadSize = Math.max(0, payloadSize);
+    }
+
+    /**
+     * @param latencyMillis delay between the end of a request and its response
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+    }
+
+    /**
+     * @param mirror {@code true} to answer with the bytes of the request instead of the payload
+     */
+    public void setMirror(boolean mirror) {
+        this.mirror = mirror;
+    }
+
+    /**
+     * Bind the port on the loopback address and start serving
+     *
+     * @throws IOException when the port can not be bound
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        running = true;
+        byte[] response = protocol == Protocol.HTTP ? httpResponse(payload()) : lineResponse(payload());
+        workers = new Worker[ioThreads];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(Selector.open(), response);
+            Thread thread = new Thread(workers[i], "NioMirrorServer-" + protocol + "-" + i); // $NON-NLS-1$ $NON-NLS-2$
+            thread.setDaemon(true);
+            thread.start();
+        }
+        acceptor = new Thread(this::accept, "NioMirrorServer-" + protocol + "-acceptor"); // $NON-NLS-1$ $NON-NLS-2$
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("{} stub server listening on port {} (payload: {} bytes, latency: {} ms, mirror: {})",
+                protocol, getLocalPort(), payloadSize, latencyMillis, mirror);
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return number of requests answered since the server started
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        if (workers != null) {
+            for (Worker worker : workers) {
+                worker.selector.wakeup();
+            }
+        }
+        if (acceptor != null) {
+            try {
+                acceptor.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private byte[] payload() {
+        byte[] payload = new byte[payloadSize];
+        Arrays.fill(payload, (byte) 'x');
+        return payload;
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                workers[next].register(channel);
+                next = (next + 1) % workers.length;
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Failed to accept a connection", e);
+                }
+            }
+        }
+    }
+
+    static byte[] httpResponse(byte[] body) {
+        byte[] head = ("HTTP/1.1 200 OK\r\n" // $NON-NLS-1$
+                + "Content-Type: text/plain\r\n" // $NON-NLS-1$
+                + "Content-Length: " + body.length + "\r\n\r\n") // $NON-NLS-1$ $NON-NLS-2$
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] response = Arrays.copyOf(head, head.length + body.length);
+        System.arraycopy(body, 0, response, head.length, body.length);
+        return response;
+    }
+
+    static byte[] lineResponse(byte[] body) {
+        byte[] response = Arrays.copyOf(body, body.length + 1);
+        response[body.length] = '\n';
+        return response;
+    }
+
+    /**
+     * Find the length of the first complete HTTP request held by the buffer
+     *
+     * @param buf   bytes received, between 0 and {@code limit}
+     * @param limit number of bytes received
+     * @return length of the request or -1 when it is not complete yet
+     */
+    static int httpRequestLength(byte[] buf, int limit) {
+        int headersEnd = indexOf(buf, 0, limit, HEADERS_END);
+        if (headersEnd < 0) {
+            return -1;
+        }
+        int length = headersEnd + HEADERS_END.length;
+        int contentLength = headerValue(buf, headersEnd);
+        if (contentLength > 0) {
+            length += contentLength;
+        }
+        return length <= limit ? length : -1;
+    }
+
+    /**
+     * @return the value of the Content-Length header, or -1 when absent
+     */
+    private static int headerValue(byte[] buf, int headersEnd) {
+        int pos = indexOfIgnoreCase(buf, 0, headersEnd, CONTENT_LENGTH);
+        if (pos < 0) {
+            return -1;
+        }
+        pos += CONTENT_LENGTH.length;
+        while (pos < headersEnd && buf[pos] == ' ') {
+            pos++;
+        }
+        int value = 0;
+        while (pos < headersEnd && buf[pos] >= '0' && buf[pos] <= '9') {
+            value = value * 10 + (buf[pos++] - '0');
+        }
+        return value;
+    }
+
+    static boolean wantsClose(byte[] buf, int length) {
+        return indexOfIgnoreCase(buf, 0, length, CONNECTION_CLOSE) >= 0;
+    }
+
+    private static int indexOf(byte[] buf, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buf[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int indexOfIgnoreCase(byte[] buf, int from, int to, byte[] lowerCasePattern) {
+        outer:
+        for (int i = from; i <= to - lowerCasePattern.length; i++) {
+            for (int j = 0; j < lowerCasePattern.length; j++) {
+                byte b = buf[i + j];
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (b != lowerCasePattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int lineLength(byte[] buf, int limit) {
+        for (int i = 0; i < limit; i++) {
+            if (buf[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /** A response waiting for its due time or for the socket to accept more bytes */
+    private static final class Response {
+        private final ByteBuffer bytes;
+        private final long dueNanos;
+        private final boolean close;
+
+        Response(ByteBuffer bytes, long dueNanos, boolean close) {
+            this.bytes = bytes;
+            this.dueNanos = dueNanos;
+            this.close = close;
+        }
+    }
+
+    private static final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private byte[] in = new byte[READ_BUFFER_SIZE];
+        private int received;
+        private final Queue<Response> responses = new ArrayDeque<>();
+        private boolean scheduled;
+        private long scheduledNanos;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /** Selector loop serving a share of the connections */
+    private final class Worker implements Runnable {
+        private final Selector selector;
+        private final byte[] response;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final PriorityQueue<Connection> delayed =
+                new PriorityQueue<>((a, b) -> Long.compare(a.scheduledNanos, b.scheduledNanos));
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        Worker(Selector selector, byte[] response) {
+            this.selector = selector;
+            this.response = response;
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    if (delayed.isEmpty()) {
+                        selector.select();
+                    } else {
+                        long waitNanos = delayed.peek().scheduledNanos - System.nanoTime();
+                        if (waitNanos > 0) {
+                            // Round up so the loop does not spin until the response is due
+                            selector.select(TimeUnit.NANOSECONDS.toMillis(waitNanos + 999_999));
+                        } else {
+                            selector.selectNow();
+                        }
+                    }
+                    registerPending();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                    flushDelayed();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                log.warn("Stub server worker stopped", e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly((Connection) key.attachment());
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close selector", e);
+                }
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                Connection connection = new Connection(channel);
+                try {
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (IOException e) {
+                    log.debug("Failed to register connection", e);
+                    closeQuietly(connection);
+                }
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    read(connection);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(connection);
+                }
+            } catch (IOException e) {
+                log.debug("Closing connection after error", e);
+                closeQuietly(connection);
+            }
+        }
+
+        private void read(Connection connection) throws IOException {
+            readBuffer.clear();
+            int read = connection.channel.read(readBuffer);
+            if (read < 0) {
+                closeQuietly(connection);
+                return;
+            }
+            readBuffer.flip();
+            if (connection.received + read > connection.in.length) {
+                connection.in = Arrays.copyOf(connection.in,
+                        Math.max(connection.in.length * 2, connection.received + read));
+            }
+            readBuffer.get(connection.in, connection.received, read);
+            connection.received += read;
+            boolean answered = false;
+            int length;
+            while ((length = requestLength(connection)) > 0) {
+                answer(connection, length);
+                answered = true;
+            }
+            if (answered) {
+                flush(connection);
+            }
+        }
+
+        private int requestLength(Connection connection) {
+            return protocol == Protocol.HTTP
+                    ? httpRequestLength(connection.in, connection.received)
+                    : lineLength(connection.in, connection.received);
+        }
+
+        private void answer(Connection connection, int length) {
+            byte[] in = connection.in;
+            ByteBuffer bytes;
+            if (mirror) {
+                byte[] request = Arrays.copyOf(in, length);
+                bytes = ByteBuffer.wrap(protocol == Protocol.HTTP
+                        ? httpResponse(request)
+                        : request);
+            } else {
+                bytes = ByteBuffer.wrap(response);
+            }
+            boolean close = protocol == Protocol.HTTP && wantsClose(in, length);
+            long due = latencyMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(latencyMillis) : 0;
+            connection.responses.add(new Response(bytes, due, close));
+            System.arraycopy(in, length, in, 0, connection.received - length);
+            connection.received -= length;
+            requests.increment();
+        }
+
+        /**
+         * Write the responses that are due, in order, until the socket buffer is full
+         */
+        private void flush(Connection connection) throws IOException {
+            long now = System.nanoTime();
+            Response head;
+            while ((head = connection.responses.peek()) != null) {
+                if (head.dueNanos > now) {
+                    if (!connection.scheduled) {
+                        connection.scheduled = true;
+                        connection.scheduledNanos = head.dueNanos;
+                        delayed.add(connection);
+                    }
+                    break;
+                }
+                connection.channel.write(head.bytes);
+                if (head.bytes.hasRemaining()) {
+                    connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                connection.responses.poll();
+                if (head.close) {
+                    closeQuietly(connection);
+                    return;
+                }
+            }
+            connection.key.interestOps(SelectionKey.OP_READ);
+        }
+
+        private void flushDelayed() {
+            long now = System.nanoTime();
+            Connection connection;
+            while ((connection = delayed.peek()) != null && connection.scheduledNanos <= now) {
+                delayed.poll();
+                connection.scheduled = false;
+                if (!connection.channel.isOpen()) {
+                    continue;
+                }
+                try {
+                    flush(connection);
+                } catch (IOException e) {
+                    log.debug("Closing connection after error", e);
+                    closeQuietly(connection);
+                }
+            }
+        }
+
+        private void closeQuietly(Connection connection) {
+            if (connection == null) {
+                return;
+            }
+            if (connection.key != null) {
+                connection.key.cancel();
+            }
+            connection.responses.clear();
+            try {
+                connection.channel.close();
+            } catch (IOException e) {
+                log.debug("Failed to close connection", e);
+            }
+        }
+    }
+}
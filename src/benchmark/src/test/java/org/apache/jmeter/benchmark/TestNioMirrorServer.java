@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class TestNioMirrorServer {
+
+    private static String readResponse(InputStream in, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        while (out.size() < length) {
+            int read = in.read(buffer, 0, Math.min(buffer.length, length - out.size()));
+            if (read < 0) {
+                break;
+            }
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static NioMirrorServer start(NioMirrorServer.Protocol protocol, int payloadSize) throws IOException {
+        NioMirrorServer server = new NioMirrorServer(protocol, 0);
+        server.setIoThreads(1);
+        server.setPayloadSize(payloadSize);
+        server.start();
+        return server;
+    }
+
+    @Test
+    public void testHttpKeepAliveWithBody() throws Exception {
+        String expected = new String(NioMirrorServer.httpResponse("xxxx".getBytes(StandardCharsets.US_ASCII)),
+                StandardCharsets.US_ASCII);
+        try (NioMirrorServer server = start(NioMirrorServer.Protocol.HTTP, 4);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+            OutputStream out = socket.getOutputStream();
+            // Two pipelined requests, the first one split in two writes
+            out.write("POST / HTTP/1.1\r\nHost: a\r\ncontent-length: 5\r\n\r\nab".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(50);
+            out.write("cde".getBytes(StandardCharsets.US_ASCII));
+            out.write("GET / HTTP/1.1\r\nHost: a\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            assertEquals(expected + expected, readResponse(in, expected.length() * 2));
+            assertEquals(2, server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testHttpConnectionClose() throws Exception {
+        try (NioMirrorServer server = start(NioMirrorServer.Protocol.HTTP, 0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+            socket.getOutputStream().write(
+                    "GET / HTTP/1.1\r\nConnection: Close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            String response = readResponse(in, Integer.MAX_VALUE);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+        }
+    }
+
+    @Test
+    public void testLineMirrorWithLatency() throws Exception {
+        try (NioMirrorServer server = new NioMirrorServer(NioMirrorServer.Protocol.LINE, 0);
+             Socket socket = new Socket()) {
+            server.setMirror(true);
+            server.setLatencyMillis(100);
+            server.start();
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()));
+            long start = System.nanoTime();
+            socket.getOutputStream().write("ping\npong\n".getBytes(StandardCharsets.US_ASCII));
+            assertEquals("ping\npong\n", readResponse(socket.getInputStream(), 10));
+            assertTrue(System.nanoTime() - start >= 100_000_000L, "Response sent before the latency");
+        }
+    }
+
+    @Test
+    public void testHttpRequestLength() {
+        byte[] request = "GET / HTTP/1.1\r\nContent-Length: 3\r\n\r\nabcGET".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(-1, NioMirrorServer.httpRequestLength(request, 20));
+        assertEquals(-1, NioMirrorServer.httpRequestLength(request, 38));
+        assertEquals(40, NioMirrorServer.httpRequestLength(request, request.length));
+    }
+}
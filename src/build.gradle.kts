@@ -16,6 +16,7 @@
  */
 
 val skipMavenPublication = setOf(
+    ":src:benchmark",
     ":src:bshclient",
     ":src:dist",
     ":src:dist-check",
@@ -19,8 +19,10 @@ package org.apache.jmeter.assertions;
 
 import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.jmeter.extractor.json.JsonDocumentCache;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractTestElement;
 import org.apache.jmeter.testelement.ThreadListener;
@@ -29,8 +31,8 @@ import org.apache.oro.text.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
+import net.minidev.json.JSONValue;
 
 import com.jayway.jsonpath.JsonPath;
 
@@ -106,15 +108,17 @@ public class JSONPathAssertion extends AbstractTestElement implements Serializab
         return getPropertyAsBoolean(ISREGEX, true);
     }
 
-    private void doAssert(String jsonString) {
-        Object value = JsonPath.read(jsonString, getJsonPath());
+    private void doAssert(SampleResult samplerResult) {
+        // The response is parsed once for all the JSON elements
+        Object document = JsonDocumentCache.getJsonPathDocument(samplerResult);
+        Object value = JsonPath.using(JsonDocumentCache.getJsonPathConfiguration()).parse(document).read(getJsonPath());
 
         if (!isJsonValidationBool()) {
             return;
         }
 
-        if (value instanceof JSONArray) {
-            if (arrayMatched((JSONArray) value)) {
+        if (value instanceof List) {
+            if (arrayMatched((List<?>) value)) {
                 return;
             }
         } else {
@@ -137,7 +141,7 @@ public class JSONPathAssertion extends AbstractTestElement implements Serializab
         }
     }
 
-    private boolean arrayMatched(JSONArray value) {
+    private boolean arrayMatched(List<?> value) {
         if (value.isEmpty() && "[]".equals(getExpectedValue())) {
             return true;
         }
@@ -175,7 +179,7 @@ public class JSONPathAssertion extends AbstractTestElement implements Serializab
 
         if (!isInvert()) {
             try {
-                doAssert(responseData);
+                doAssert(samplerResult);
             } catch (Exception e) {
                 log.debug("Assertion failed", e);
                 result.setFailure(true);
@@ -183,7 +187,7 @@ public class JSONPathAssertion extends AbstractTestElement implements Serializab
             }
         } else {
             try {
-                doAssert(responseData);
+                doAssert(samplerResult);
                 result.setFailure(true);
                 if (isJsonValidationBool()) {
                     if (isExpectNull()) {
@@ -208,6 +212,8 @@ public class JSONPathAssertion extends AbstractTestElement implements Serializab
         } else if (subj instanceof Map) {
             //noinspection unchecked
             str = new JSONObject((Map<String, ?>) subj).toJSONString();
+        } else if (subj instanceof List) {
+            str = JSONValue.toJSONString(subj);
         } else if (subj instanceof Double || subj instanceof Float) {
             str = decimalFormatter.get().format(subj);
         } else {
@@ -26,6 +26,7 @@ import org.apache.jmeter.testelement.AbstractScopedAssertion;
 import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.testelement.property.StringProperty;
 import org.apache.jmeter.util.XPathUtil;
+import org.apache.jmeter.util.XmlDocumentCache;
 
 import net.sf.saxon.s9api.SaxonApiException;
 
@@ -66,8 +67,14 @@ public class XPath2Assertion extends AbstractScopedAssertion implements Serializ
             return result.setResultForNull();
         }
         try {
-            XPathUtil.computeAssertionResultUsingSaxon(result, responseData, getXPathString(),
-                    getNamespaces(),isNegated());
+            if (isScopeVariable()) {
+                XPathUtil.computeAssertionResultUsingSaxon(result, responseData, getXPathString(),
+                        getNamespaces(),isNegated());
+            } else {
+                // The tree is shared with the other XPath2 elements applied to the sample
+                XPathUtil.computeAssertionResultUsingSaxon(result, XmlDocumentCache.getXdmNode(response),
+                        getXPathString(), getNamespaces(), isNegated());
+            }
         } catch (CompletionException|SaxonApiException e) { // NOSONAR We handle exception within result failure message
             result.setError(true);
             // CompletionException happens if caching fails
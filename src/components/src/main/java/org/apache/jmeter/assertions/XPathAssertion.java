@@ -21,16 +21,20 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractScopedAssertion;
 import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.testelement.property.StringProperty;
+import org.apache.jmeter.util.StreamingXPath;
 import org.apache.jmeter.util.TidyException;
 import org.apache.jmeter.util.XPathUtil;
+import org.apache.jmeter.util.XmlDocumentCache;
 import org.apache.jorphan.util.JOrphanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -95,11 +99,20 @@ public class XPathAssertion extends AbstractScopedAssertion implements Serializa
                 log.debug("Validation is set to {}, Whitespace is set to {}, Tolerant is set to {}", isValidating(),
                     isWhitespace(), isTolerant());
             }
-            boolean isXML = JOrphanUtils.isXML(responseData);
+            if (computeStreamedResult(result, responseData)) {
+                return result;
+            }
+            if (isScopeVariable()) {
+                boolean isXML = JOrphanUtils.isXML(responseData);
 
-            doc = XPathUtil.makeDocument(new ByteArrayInputStream(responseData), isValidating(),
-                    isWhitespace(), isNamespace(), isTolerant(), isQuiet(), showWarnings() , reportErrors(), isXML
-                    , isDownloadDTDs());
+                doc = XPathUtil.makeDocument(new ByteArrayInputStream(responseData), isValidating(),
+                        isWhitespace(), isNamespace(), isTolerant(), isQuiet(), showWarnings() , reportErrors(), isXML
+                        , isDownloadDTDs());
+            } else {
+                // The tree is shared with the other XPath elements applied to the sample
+                doc = XmlDocumentCache.getDocument(response, false, isValidating(), isWhitespace(), isNamespace(),
+                        isTolerant(), isQuiet(), showWarnings(), reportErrors(), isDownloadDTDs());
+            }
         } catch (SAXException e) {
             log.debug("Caught sax exception.", e);
             result.setError(true);
@@ -130,6 +143,34 @@ public class XPathAssertion extends AbstractScopedAssertion implements Serializa
         return result;
     }
 
+    /**
+     * Compute the result without building a tree when the XPath is a simple absolute path
+     * and the parser options do not change the result.
+     *
+     * @return false if the document must be parsed, for instance when it is not well-formed
+     */
+    private boolean computeStreamedResult(AssertionResult result, byte[] responseData) {
+        if (isValidating() || isNamespace() || isTolerant()) {
+            return false;
+        }
+        StreamingXPath xpath = StreamingXPath.compile(getXPathString());
+        if (xpath == null) {
+            return false;
+        }
+        try {
+            List<String> values = xpath.evaluate(new ByteArrayInputStream(responseData));
+            if (values == null) {
+                return false;
+            }
+            XPathUtil.computeAssertionResult(result, values.size(), getXPathString(), isNegated());
+            return true;
+        } catch (XMLStreamException e) {
+            // let the parser report the error
+            log.debug("Streaming XPath {} failed, parsing the document", getXPathString(), e);
+            return false;
+        }
+    }
+
     /**
      * Get The XPath String that will be used in matching the document
      *
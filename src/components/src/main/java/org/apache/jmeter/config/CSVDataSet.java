@@ -56,6 +56,7 @@ import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.StringProperty;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.VariableSymbols;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.util.JMeterStopThreadException;
 import org.apache.jorphan.util.JOrphanUtils;
@@ -381,13 +382,14 @@ public class CSVDataSet extends ConfigTestElement
 
 
     /**
-     * trim content of array varNames
+     * trim content of array varNames and give the names a slot in {@link VariableSymbols}
      *
      * @param varsNames
      */
     private void trimVarNames(String[] varsNames) {
         for (int i = 0; i < varsNames.length; i++) {
             varsNames[i] = varsNames[i].trim();
+            VariableSymbols.intern(varsNames[i]);
         }
     }
 
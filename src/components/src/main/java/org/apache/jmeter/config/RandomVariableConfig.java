@@ -28,6 +28,7 @@ import org.apache.jmeter.engine.util.NoThreadClone;
 import org.apache.jmeter.gui.TestElementMetadata;
 import org.apache.jmeter.testbeans.TestBean;
 import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jmeter.threads.EngineProfiler;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.slf4j.Logger;
@@ -107,29 +108,39 @@ public class RandomVariableConfig extends ConfigTestElement
     @Override
     public void iterationStart(LoopIterationEvent iterEvent) {
         Random randGen;
-        if (getPerThread()){
-            randGen = perThreadRandom.get();
-        } else {
-            synchronized(this){
+        int currentRange;
+        long currentMinimum;
+        String name;
+        String format;
+        // Read all the shared state under a single monitor entry per iteration
+        long lockStart = EngineProfiler.start();
+        synchronized(this){
+            EngineProfiler.recordBlocked(this, lockStart);
+            if (perThread){
+                randGen = perThreadRandom.get();
+            } else {
                 if (globalRandom == null){
                     init();
                     globalRandom = createRandom();
                 }
                 randGen=globalRandom;
             }
+            currentRange = range;
+            currentMinimum = minimum;
+            name = variableName;
+            format = outputFormat;
         }
-        if (range <=0){
+        if (currentRange <=0){
             return;
         }
-       long nextRand = minimum + randGen.nextInt(range);
+       long nextRand = currentMinimum + randGen.nextInt(currentRange);
        // Cannot use getThreadContext() as we are not cloned per thread
        JMeterVariables variables = JMeterContextService.getContext().getVariables();
-       variables.put(getVariableName(), formatNumber(nextRand));
+       variables.put(name, formatNumber(nextRand, format));
     }
 
     // Use format to create number; if it fails, use the default
-    private String formatNumber(long value){
-        String format = getOutputFormat();
+    private static String formatNumber(long value, String format){
         if (format != null && format.length() > 0) {
             try {
                 DecimalFormat myFormatter = new DecimalFormat(format);
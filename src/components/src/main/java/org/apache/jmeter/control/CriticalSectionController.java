@@ -25,6 +25,7 @@ import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.ThreadListener;
 import org.apache.jmeter.testelement.property.StringProperty;
+import org.apache.jmeter.threads.EngineProfiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -136,7 +137,9 @@ public class CriticalSectionController extends GenericController implements
             if (this.currentLock == null) {
                 this.currentLock = getOrCreateLock();
             }
+            long lockStart = EngineProfiler.start();
             this.currentLock.lock();
+            EngineProfiler.recordWaited(this, lockStart);
             long endTime = System.currentTimeMillis();
             if (log.isDebugEnabled()) {
                 log.debug("Thread ('{}') acquired lock: '{}' in Critical Section Controller {}  in: {} ms",
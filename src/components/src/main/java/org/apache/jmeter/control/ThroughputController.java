@@ -30,6 +30,7 @@ import org.apache.jmeter.shulie.consts.ThroughputConstants;
 import org.apache.jmeter.shulie.util.DesUtil;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.property.*;
+import org.apache.jmeter.threads.EngineProfiler;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -202,7 +203,9 @@ public class ThroughputController
     @SuppressWarnings("SynchronizeOnNonFinalField")
     private int getExecutions() {
         if (!isPerThread()) {
+            long lockStart = EngineProfiler.start();
             synchronized (counterLock) {
+                EngineProfiler.recordBlocked(this, lockStart);
                 return globalNumExecutions.intValue();
             }
         }
@@ -259,7 +262,9 @@ public class ThroughputController
     @SuppressWarnings("SynchronizeOnNonFinalField")
     public void iterationStart(LoopIterationEvent iterEvent) {
         if (!isPerThread()) {
+            long lockStart = EngineProfiler.start();
             synchronized (counterLock) {
+                EngineProfiler.recordBlocked(this, lockStart);
                 globalIteration.incr();
                 runThisTime = decide(globalNumExecutions.intValue(), globalIteration.intValue());
                 if (runThisTime) {
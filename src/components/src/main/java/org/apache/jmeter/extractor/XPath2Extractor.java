@@ -31,6 +31,7 @@ import org.apache.jmeter.testelement.property.IntegerProperty;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.apache.jmeter.util.XPathUtil;
+import org.apache.jmeter.util.XmlDocumentCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -128,7 +129,9 @@ public class XPath2Extractor
                 List<SampleResult> samples = getSampleList(previousResult);
                 int size = samples.size();
                 for(int i = 0;i<size;i++) {
-                    getValuesForXPath(getXPathQuery(), matches, matchNumber,previousResult.getResponseDataAsString());
+                    // The tree is shared with the other XPath2 elements applied to the sample
+                    XPathUtil.putValuesForXPathInListUsingSaxon(XmlDocumentCache.getXdmNode(previousResult),
+                            getXPathQuery(), matches, getFragment(), matchNumber, getNamespaces());
                 }
             }
             final int matchCount = matches.size();
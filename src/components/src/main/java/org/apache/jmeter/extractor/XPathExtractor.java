@@ -20,11 +20,13 @@ package org.apache.jmeter.extractor;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
 
 import org.apache.jmeter.assertions.AssertionResult;
@@ -35,8 +37,10 @@ import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.testelement.property.IntegerProperty;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.StreamingXPath;
 import org.apache.jmeter.util.TidyException;
 import org.apache.jmeter.util.XPathUtil;
+import org.apache.jmeter.util.XmlDocumentCache;
 import org.apache.jorphan.util.JMeterError;
 import org.apache.jorphan.util.JOrphanUtils;
 import org.slf4j.Logger;
@@ -129,7 +133,7 @@ public class XPathExtractor extends AbstractScopedTestElement implements
             if (isScopeVariable()){
                 String inputString=vars.get(getVariableName());
                 if(inputString != null) {
-                    if(inputString.length()>0) {
+                    if(inputString.length()>0 && !putStreamedValues(inputString, matches, matchNumber)) {
                         Document d =  parseResponse(inputString);
                         getValuesForXPath(d,getXPathQuery(), matches, matchNumber);
                     }
@@ -142,8 +146,12 @@ public class XPathExtractor extends AbstractScopedTestElement implements
             } else {
                 List<SampleResult> samples = getSampleList(previousResult);
                 for (SampleResult res : samples) {
-                    Document d = parseResponse(res.getResponseDataAsString());
-                    getValuesForXPath(d,getXPathQuery(), matches, matchNumber);
+                    if (!putStreamedValues(res.getResponseDataAsString(), matches, matchNumber)) {
+                        // The tree is shared with the other XPath elements applied to the sample
+                        Document d = XmlDocumentCache.getDocument(res, true, false, false, useNameSpace(),
+                                isTolerant(), isQuiet(), showWarnings(), reportErrors(), isDownloadDTDs());
+                        getValuesForXPath(d,getXPathQuery(), matches, matchNumber);
+                    }
                 }
             }
             final int matchCount = matches.size();
@@ -309,6 +317,36 @@ public class XPathExtractor extends AbstractScopedTestElement implements
               ,isXML, isDownloadDTDs());
     }
 
+    /**
+     * Extract values without building a tree when the query is a simple absolute path
+     * and the parser options do not change the result.
+     * @param unicodeData the document
+     * @param matchStrings list of matched strings (may include nulls)
+     * @param matchNumber int Match Number
+     * @return false if the document must be parsed, for instance when it is not well-formed
+     */
+    private boolean putStreamedValues(String unicodeData, List<String> matchStrings, int matchNumber) {
+        if (getFragment() || useNameSpace() || isTolerant()) {
+            return false;
+        }
+        StreamingXPath xpath = StreamingXPath.compile(getXPathQuery());
+        if (xpath == null) {
+            return false;
+        }
+        try {
+            List<String> values = xpath.evaluate(new StringReader(unicodeData));
+            if (values == null) {
+                return false;
+            }
+            XPathUtil.putValuesInList(values, matchStrings, matchNumber);
+            return true;
+        } catch (XMLStreamException e) {
+            // let the parser report the error
+            log.debug("Streaming XPath {} failed, parsing the document", getXPathQuery(), e);
+            return false;
+        }
+    }
+
     /**
      * Extract value from Document d by XPath query.
      * @param d the document
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.extractor.json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.jayway.jsonpath.spi.json.JsonSmartJsonProvider;
+
+/**
+ * Parses the response of a sample once for all the JSON Extractors, JSON Assertions,
+ * JMESPath Extractors and JMESPath Assertions applied to it.
+ * <p>
+ * Parsed documents are stored on the {@link SampleResult} with
+ * {@link SampleResult#getParsedResponse(String, Function)}, one per tree type:
+ * JSONPath documents built by the configured {@link JsonProvider} ({@code jsonpath.json_provider}:
+ * {@code smart} (default), {@code jackson} or a class name) and Jackson trees for JMESPath.
+ * Parse failures are cached too, so a non JSON response is only parsed once.
+ * <p>
+ * Parse times and reuse counts are logged at debug level.
+ */
+public final class JsonDocumentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonDocumentCache.class);
+
+    /** Set to false to parse the response in each element */
+    private static final boolean ENABLED = JMeterUtils.getPropDefault("json.parse_cache", true); // $NON-NLS-1$
+
+    static final String JSON_PATH_FORMAT = "json-path"; // $NON-NLS-1$
+
+    static final String JACKSON_FORMAT = "jackson"; // $NON-NLS-1$
+
+    private static final Configuration JSON_PATH_CONFIGURATION = Configuration.defaultConfiguration()
+            .jsonProvider(createJsonProvider(JMeterUtils.getPropDefault("jsonpath.json_provider", "smart"))); // $NON-NLS-1$
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Parsed response and its statistics for one sample
+     */
+    static final class ParsedDocument {
+        private final Object document;
+        private final RuntimeException failure;
+        private final long parseNanos;
+        private int uses;
+
+        ParsedDocument(Object document, RuntimeException failure, long parseNanos) {
+            this.document = document;
+            this.failure = failure;
+            this.parseNanos = parseNanos;
+        }
+
+        int getHits() {
+            return uses - 1;
+        }
+
+        long getParseNanos() {
+            return parseNanos;
+        }
+    }
+
+    private JsonDocumentCache() {
+        super();
+    }
+
+    static JsonProvider createJsonProvider(String name) {
+        switch (name.trim()) {
+            case "": // $NON-NLS-1$
+            case "smart": // $NON-NLS-1$
+                return new JsonSmartJsonProvider();
+            case "jackson": // $NON-NLS-1$
+                return new JacksonJsonProvider();
+            default:
+                try {
+                    return (JsonProvider) ClassUtils.getClass(name.trim()).newInstance();
+                } catch (Exception | LinkageError e) {
+                    log.warn("Could not create JSON provider '{}', using json-smart", name, e);
+                    return new JsonSmartJsonProvider();
+                }
+        }
+    }
+
+    /**
+     * @return configuration whose provider matches the documents returned by {@link #getJsonPathDocument(SampleResult)}
+     */
+    public static Configuration getJsonPathConfiguration() {
+        return JSON_PATH_CONFIGURATION;
+    }
+
+    /**
+     * @param result sample whose response is parsed
+     * @return the response parsed for JSONPath, shared with the other elements applied to the sample
+     */
+    public static Object getJsonPathDocument(SampleResult result) {
+        return get(result, JSON_PATH_FORMAT, JSON_PATH_CONFIGURATION.jsonProvider()::parse);
+    }
+
+    /**
+     * @param result sample whose response is parsed
+     * @return the response parsed as a Jackson tree for JMESPath, shared with the other elements applied to the sample
+     * @throws IOException if the response is not valid JSON
+     */
+    public static JsonNode getJsonNode(SampleResult result) throws IOException {
+        try {
+            return get(result, JACKSON_FORMAT, json -> {
+                try {
+                    return OBJECT_MAPPER.readValue(json, JsonNode.class);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T get(SampleResult result, String format, Function<String, T> parser) {
+        if (!ENABLED) {
+            return parser.apply(result.getResponseDataAsString());
+        }
+        ParsedDocument parsed = result.getParsedResponse(format, json -> parse(json, parser));
+        parsed.uses++;
+        if (log.isDebugEnabled()) {
+            if (parsed.uses == 1) {
+                log.debug("Parsed response of '{}' as {} in {} us", result.getSampleLabel(), format,
+                        TimeUnit.NANOSECONDS.toMicros(parsed.parseNanos));
+            } else {
+                log.debug("Reused {} document of '{}', hits: {}, parse time saved: {} us", format,
+                        result.getSampleLabel(), parsed.getHits(),
+                        TimeUnit.NANOSECONDS.toMicros(parsed.parseNanos * parsed.getHits()));
+            }
+        }
+        if (parsed.failure != null) {
+            throw parsed.failure;
+        }
+        return (T) parsed.document;
+    }
+
+    private static ParsedDocument parse(String json, Function<String, ?> parser) {
+        long start = System.nanoTime();
+        Object document = null;
+        RuntimeException failure = null;
+        try {
+            document = parser.apply(json);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        return new ParsedDocument(document, failure, System.nanoTime() - start);
+    }
+
+    /**
+     * @param result sample
+     * @param format {@link #JSON_PATH_FORMAT} or {@link #JACKSON_FORMAT}
+     * @return parse statistics of the sample, {@code null} if not parsed in this format
+     */
+    static ParsedDocument getStatistics(SampleResult result, String format) {
+        return result.getParsedResponse(format, json -> null);
+    }
+}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.extractor.json.JsonDocumentCache;
 import org.apache.jmeter.processor.PostProcessor;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractScopedTestElement;
@@ -73,7 +74,11 @@ public class JMESPathExtractor extends AbstractScopedTestElement
 
         try {
             JsonNode result = null;
-            JsonNode actualObj = OBJECT_MAPPER.readValue(jsonResponse, JsonNode.class);
+            // The response of the previous sample is parsed once for all the JSON elements
+            SampleResult previousResult = isScopeVariable() ? null : context.getPreviousResult();
+            JsonNode actualObj = previousResult != null
+                    ? JsonDocumentCache.getJsonNode(previousResult)
+                    : OBJECT_MAPPER.readValue(jsonResponse, JsonNode.class);
             result = JMESPathCache.getInstance().get(jsonPathExpression).search(actualObj);
             if (result.isNull()) {
                 handleNullResult(vars, refName, defaultValue, matchNumber);
@@ -24,11 +24,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.jmeter.extractor.json.JsonDocumentCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
+import net.minidev.json.JSONValue;
 
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
@@ -44,7 +46,7 @@ public class JSONManager {
 
     private static final Logger log = LoggerFactory.getLogger(JSONManager.class);
     private static final Configuration DEFAULT_CONFIGURATION =
-            Configuration.defaultConfiguration().addOptions(Option.ALWAYS_RETURN_LIST);
+            JsonDocumentCache.getJsonPathConfiguration().addOptions(Option.ALWAYS_RETURN_LIST);
     /**
      * This Map can hardly grow above 10 elements as it is used within JSONPostProcessor to
      * store the computed JsonPath for the set of JSON Path Expressions.
@@ -69,14 +71,26 @@ public class JSONManager {
      */
     public List<Object> extractWithJsonPath(String jsonString, String jsonPath)
             throws ParseException {
+        return extractWithJsonPath(DEFAULT_CONFIGURATION.jsonProvider().parse(jsonString), jsonPath);
+    }
+
+    /**
+     *
+     * @param document JSON document already parsed, see {@link JsonDocumentCache}
+     * @param jsonPath JSON-PATH expression
+     * @return List of JSON Strings of the extracted data
+     * @throws ParseException when parsing fails
+     */
+    public List<Object> extractWithJsonPath(Object document, String jsonPath)
+            throws ParseException {
         JsonPath jsonPathParser = getJsonPath(jsonPath);
         List<Object> extractedObjects;
         try {
-            extractedObjects = jsonPathParser.read(jsonString,
+            extractedObjects = jsonPathParser.read(document,
                     DEFAULT_CONFIGURATION);
         } catch (PathNotFoundException e) {
             if(log.isDebugEnabled()) {
-                log.debug("Could not find JSON Path {} in [{}]: {}", jsonPath, jsonString, e.getLocalizedMessage());
+                log.debug("Could not find JSON Path {} in [{}]: {}", jsonPath, document, e.getLocalizedMessage());
             }
             return Collections.emptyList();
         }
@@ -95,6 +109,9 @@ public class JSONManager {
         if (obj instanceof JSONArray) {
             return ((JSONArray)obj).toJSONString();
         }
+        if (obj instanceof List) {
+            return JSONValue.toJSONString(obj);
+        }
         return obj == null ? "" : obj.toString(); //$NON-NLS-1$
     }
 
@@ -22,6 +22,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.extractor.json.JsonDocumentCache;
 import org.apache.jmeter.processor.PostProcessor;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractScopedTestElement;
@@ -63,6 +64,8 @@ public class JSONPostProcessor
         JMeterContext context = getThreadContext();
         JMeterVariables vars = context.getVariables();
         String jsonResponse = extractJsonResponse(context, vars);
+        // The response of the previous sample is parsed once for all the JSON elements
+        SampleResult previousResult = isScopeVariable() ? null : context.getPreviousResult();
         String[] refNames = getRefNames().split(SEPARATOR);
         String[] jsonPathExpressions = getJsonPathExpressions().split(SEPARATOR);
         String[] defaultValues = getDefaultValues().split(SEPARATOR);
@@ -79,8 +82,10 @@ public class JSONPostProcessor
                 if (StringUtils.isEmpty(jsonResponse)) {
                     handleEmptyResponse(vars, defaultValues, i, currentRefName);
                 } else {
-                    List<Object> extractedValues = localMatcher.get()
-                            .extractWithJsonPath(jsonResponse, currentJsonPath);
+                    List<Object> extractedValues = previousResult != null
+                            ? localMatcher.get().extractWithJsonPath(
+                                    JsonDocumentCache.getJsonPathDocument(previousResult), currentJsonPath)
+                            : localMatcher.get().extractWithJsonPath(jsonResponse, currentJsonPath);
                     // if no values extracted, default value added
                     if (extractedValues.isEmpty()) {
                         handleEmptyResult(vars, defaultValues, i, matchNumber, currentRefName);
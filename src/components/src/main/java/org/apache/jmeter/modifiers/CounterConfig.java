@@ -27,6 +27,7 @@ import org.apache.jmeter.testelement.AbstractTestElement;
 import org.apache.jmeter.testelement.ThreadListener;
 import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.testelement.property.LongProperty;
+import org.apache.jmeter.threads.EngineProfiler;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.slf4j.Logger;
@@ -93,7 +94,9 @@ public class CounterConfig extends AbstractTestElement
         long end = getEnd();
         long increment = getIncrement();
         if (!isPerUser()) {
+            long lockStart = EngineProfiler.start();
             synchronized (this) {
+                EngineProfiler.recordBlocked(this, lockStart);
                 if (globalCounter == Long.MIN_VALUE || globalCounter > end) {
                     globalCounter = start;
                 }
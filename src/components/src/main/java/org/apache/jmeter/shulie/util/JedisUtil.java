@@ -67,6 +67,15 @@ public class JedisUtil {
         return redisUtil.hget(key, hashKey);
     }
 
+    public static void hset(String key, String hashKey, String value) {
+        RedisUtil redisUtil = getRedisUtil();
+        if (null == redisUtil) {
+            logger.error("redisUtil没有初始化!");
+            return;
+        }
+        redisUtil.hset(key, hashKey, value);
+    }
+
     public static String get(String key) {
         RedisUtil redisUtil = getRedisUtil();
         if (null == redisUtil) {
@@ -23,6 +23,7 @@ import java.beans.Introspector;
 import java.util.ResourceBundle;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.jmeter.gui.GUIMenuSortOrder;
 import org.apache.jmeter.gui.TestElementMetadata;
@@ -35,6 +36,7 @@ import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.StringProperty;
 import org.apache.jmeter.threads.AbstractThreadGroup;
 import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.timers.ratelimit.GlobalRateLimiter;
 import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -187,6 +189,9 @@ public class ConstantThroughputTimer extends AbstractTestElement implements Time
      */
     @Override
     public long delay() {
+        if (GlobalRateLimiter.ENABLED) {
+            return globalDelay();
+        }
         long currentTime = System.currentTimeMillis();
 
         /*
@@ -203,6 +208,33 @@ public class ConstantThroughputTimer extends AbstractTestElement implements Time
         return currentTarget - currentTime;
     }
 
+    /**
+     * Delay paced by the global rate limiter of the timer, shared by all the pods of the test.
+     * The limiter spaces the samples of all the threads it paces evenly, so the shared and
+     * non shared calculation modes behave the same: the target is shared by all the active threads,
+     * by those of the thread group, or is multiplied by the active threads of the group for this thread only.
+     */
+    private long globalDelay() {
+        AbstractThreadGroup group = JMeterContextService.getContext().getThreadGroup();
+        double podTargetRate = getThroughput() / 60;
+        GlobalRateLimiter limiter;
+        switch (mode) {
+            case AllActiveThreads:
+            case AllActiveThreads_Shared:
+                limiter = GlobalRateLimiter.forTimer(null, this);
+                break;
+            case ThisThreadOnly:
+                podTargetRate *= Math.max(1, group.getNumberOfThreads());
+                limiter = GlobalRateLimiter.forTimer(group, this);
+                break;
+            default:
+                limiter = GlobalRateLimiter.forTimer(group, this);
+                break;
+        }
+        long start = limiter.nextStartNanos(podTargetRate);
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(start - System.nanoTime()));
+    }
+
     /**
      * Calculate the target time by adding the result of private method
      * <code>calculateDelay()</code> to the given <code>currentTime</code>
@@ -355,7 +387,9 @@ public class ConstantThroughputTimer extends AbstractTestElement implements Time
      */
     @Override
     public void testEnded() {
-        //NOOP
+        if (GlobalRateLimiter.ENABLED) {
+            GlobalRateLimiter.stopAll();
+        }
     }
 
     /**
@@ -371,7 +405,7 @@ public class ConstantThroughputTimer extends AbstractTestElement implements Time
      */
     @Override
     public void testEnded(String host) {
-        //NOOP
+        testEnded();
     }
 
     // For access from test code
@@ -42,7 +42,9 @@ import org.apache.jmeter.testelement.property.StringProperty;
 import org.apache.jmeter.threads.AbstractThreadGroup;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.timers.ConstantThroughputTimer;
-import org.apache.jmeter.timers.Timer;
+import org.apache.jmeter.timers.ScheduledTimer;
+import org.apache.jmeter.timers.TimerService;
+import org.apache.jmeter.timers.ratelimit.GlobalRateLimiter;
 import org.apache.jorphan.util.JMeterStopThreadException;
 import org.apiguardian.api.API;
 import org.slf4j.Logger;
@@ -55,7 +57,7 @@ import org.slf4j.LoggerFactory;
  */
 @GUIMenuSortOrder(3)
 @TestElementMetadata(labelResource = "displayName")
-public class PreciseThroughputTimer extends AbstractTestElement implements Cloneable, Timer, TestStateListener, TestBean, ThroughputProvider, DurationProvider {
+public class PreciseThroughputTimer extends AbstractTestElement implements Cloneable, ScheduledTimer, TestStateListener, TestBean, ThroughputProvider, DurationProvider {
     private static final Logger log = LoggerFactory.getLogger(PreciseThroughputTimer.class);
 
     private static final long serialVersionUID = 4;
@@ -134,13 +136,14 @@ public class PreciseThroughputTimer extends AbstractTestElement implements Clone
         // NOOP
         testStartedMap.clear();
         dynamicThroughputMap.clear();
+        if (GlobalRateLimiter.ENABLED) {
+            GlobalRateLimiter.stopAll();
+        }
     }
 
     @Override
     public void testEnded(String s) {
-        // NOOP
-        testStartedMap.clear();
-        dynamicThroughputMap.clear();
+        testEnded();
     }
 
     private boolean valuesAreEqualWithAb(Double a, Double b) {
@@ -152,13 +155,19 @@ public class PreciseThroughputTimer extends AbstractTestElement implements Clone
         return Math.abs(a - b) < PRECISION;
     }
 
-    private void resetThroughput() {
+    /**
+     * Apply the dynamic TPS target of the thread group, if it changed
+     *
+     * @param restartEvents whether the events of the thread group are generated again from now,
+     *                      which the global rate limiter does not need as it paces the samples itself
+     */
+    private void resetThroughput(boolean restartEvents) {
         AbstractThreadGroup tg = getThreadContext().getThreadGroup();
         if (null == tg) {
             return;
         }
         String threadGroupTestName = tg.getName();
-        Double dynamicTps = DynamicContext.getTpsTargetLevel(threadGroupTestName);
+        Double dynamicTps = getDynamicTps(threadGroupTestName);
         if (null == dynamicTps || dynamicTps <= 0) {
             return;
         }
@@ -173,24 +182,85 @@ public class PreciseThroughputTimer extends AbstractTestElement implements Clone
             testStarted = System.currentTimeMillis();
             dynamicThroughputMap.put(tg, dynamicTps);
             testStartedMap.put(tg, testStarted);
-            groupEvents.clear();
+            if (restartEvents) {
+                groupEvents.clear();
+            }
         }
     }
 
+    /**
+     * @param threadGroupName name of the thread group
+     * @return TPS target set while the test runs, or {@code null}
+     */
+    Double getDynamicTps(String threadGroupName) {
+        return DynamicContext.getTpsTargetLevel(threadGroupName);
+    }
+
     @Override
     public long delay() {
-        resetThroughput();
-        double nextEvent;
-        EventProducer events = getEventProducer();
-        synchronized (events) {
-            nextEvent = events.next();
-        }
+        double nextEventTime = nextEventTime();
         long now = System.currentTimeMillis();
-        long delay = (long) (nextEvent * TimeUnit.SECONDS.toMillis(1) + getTestStarted() - now);
+        long delay = (long) (nextEventTime - now);
         if (log.isDebugEnabled()) {
             log.debug("Calculated delay is {}", delay);
         }
         delay = Math.max(0, delay);
+        checkEndTime(now, delay);
+        return delay;
+    }
+
+    /**
+     * Unlike {@link #delay()}, the start time of the next event is not rounded
+     * to the millisecond and is returned even if it is already past.
+     */
+    @Override
+    public long nextStartNanos() {
+        if (GlobalRateLimiter.ENABLED) {
+            long start = globalStartNanos();
+            long delay = TimeUnit.NANOSECONDS.toMillis(start - System.nanoTime());
+            checkEndTime(System.currentTimeMillis(), Math.max(0, delay));
+            return start;
+        }
+        double nextEventTime = nextEventTime();
+        long now = System.currentTimeMillis();
+        checkEndTime(now, Math.max(0, (long) (nextEventTime - now)));
+        return TimerService.getInstance().toNanoTime(nextEventTime);
+    }
+
+    /**
+     * @return time of the next event of the thread group, in milliseconds since epoch
+     */
+    private double nextEventTime() {
+        if (GlobalRateLimiter.ENABLED) {
+            return TimerService.getInstance().toEpochMillis(globalStartNanos());
+        }
+        resetThroughput(true);
+        double nextEvent;
+        EventProducer events = getEventProducer();
+        synchronized (events) {
+            nextEvent = events.next();
+        }
+        return nextEvent * TimeUnit.SECONDS.toMillis(1) + getTestStarted();
+    }
+
+    /**
+     * @return start time of the next sample paced by the global rate limiter of the timer in its thread group,
+     *         shared by all the pods of the test, in {@link System#nanoTime()} units
+     */
+    private long globalStartNanos() {
+        AbstractThreadGroup tg = getThreadContext().getThreadGroup();
+        return GlobalRateLimiter.forTimer(tg, this).nextStartNanos(globalPodTargetRate());
+    }
+
+    /**
+     * @return target of the thread group for this pod, in samples per second, following the dynamic TPS
+     */
+    double globalPodTargetRate() {
+        resetThroughput(false);
+        return getThroughput() / getThroughputPeriod();
+    }
+
+    private void checkEndTime(long now, long delay) {
         long endTime = getThreadContext().getThread().getEndTime();
         if (endTime > 0 && now + delay > endTime) {
             throw new JMeterStopThreadException("The thread is scheduled to stop in " +
@@ -199,8 +269,6 @@ public class PreciseThroughputTimer extends AbstractTestElement implements Clone
                     " Terminating the thread manually."
             );
         }
-//        log.info("delay="+delay+", nextEvent="+nextEvent+", now="+getTestStarted()+", testStarted="+testStarted+", time="+(now - getTestStarted())+", throughput="+getThroughput());
-        return delay;
     }
 
     private EventProducer getEventProducer() {
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.timers.ratelimit;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coordinator in which every pod computes its own lease from the usages published by all the pods.
+ * <p>
+ * The split is deterministic, so the pods agree on it as long as they read the same usages:
+ * the target is shared max-min fairly on the demands, increased by a headroom so that a pod can grow,
+ * and what the demands leave is shared equally. Pods which did not report for three leases are ignored.
+ */
+public abstract class AbstractRateCoordinator implements RateCoordinator {
+
+    private static final int LIVE_LEASES = 3;
+
+    private final double headroom;
+
+    /**
+     * @param headroom part added to the demand of a pod when sharing the target, e.g. 0.2 for 20%
+     */
+    protected AbstractRateCoordinator(double headroom) {
+        this.headroom = headroom;
+    }
+
+    /**
+     * Publish the usage of a pod to the other pods
+     *
+     * @param key   thread group the rate applies to
+     * @param podId pod the usage is for
+     * @param usage usage to publish
+     * @throws IOException when the shared state can not be written
+     */
+    protected abstract void publish(String key, String podId, PodUsage usage) throws IOException;
+
+    /**
+     * @param key thread group the rate applies to
+     * @return the usages published by the pods, by pod
+     * @throws IOException when the shared state can not be read
+     */
+    protected abstract Map<String, PodUsage> readAll(String key) throws IOException;
+
+    @Override
+    public Lease renew(String key, String podId, PodUsage usage, double clusterTargetRate, long leaseMillis)
+            throws IOException {
+        publish(key, podId, usage);
+        long liveSince = usage.getHeartbeatMillis() - LIVE_LEASES * leaseMillis;
+        Map<String, Double> demands = new HashMap<>();
+        double achieved = 0;
+        for (Map.Entry<String, PodUsage> entry : readAll(key).entrySet()) {
+            PodUsage podUsage = entry.getValue();
+            if (podUsage.getHeartbeatMillis() >= liveSince) {
+                demands.put(entry.getKey(), podUsage.getDemandRate());
+                achieved += podUsage.getAchievedRate();
+            }
+        }
+        if (!demands.containsKey(podId)) {
+            // Without its own usage, the pod can not trust that it read the usages of the others
+            throw new IOException("Usage of pod " + podId + " could not be read back for " + key);
+        }
+        Map<String, Double> rates = allocate(clusterTargetRate, demands, headroom);
+        return new Lease(rates.get(podId), leaseMillis, clusterTargetRate, achieved, demands.size());
+    }
+
+    @Override
+    public void release(String key, String podId) throws IOException {
+        publish(key, podId, new PodUsage(0, 0, 0));
+    }
+
+    /**
+     * Share a target between pods, max-min fairly on their demands increased by the headroom,
+     * then equally for what remains
+     *
+     * @param target   rate to share
+     * @param demands  demand of each pod, {@link Double#NaN} if unknown i.e. unlimited
+     * @param headroom part added to the demands
+     * @return the rate of each pod, summing to the target
+     */
+    static Map<String, Double> allocate(double target, Map<String, Double> demands, double headroom) {
+        List<Map.Entry<String, Double>> wants = new ArrayList<>(demands.size());
+        for (Map.Entry<String, Double> entry : demands.entrySet()) {
+            double demand = entry.getValue();
+            double want = Double.isNaN(demand) ? Double.POSITIVE_INFINITY : Math.max(0, demand) * (1 + headroom);
+            wants.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), want));
+        }
+        wants.sort(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Double> rates = new HashMap<>();
+        double remaining = Math.max(0, target);
+        int left = wants.size();
+        for (Map.Entry<String, Double> want : wants) {
+            double rate = Math.min(want.getValue(), remaining / left);
+            rates.put(want.getKey(), rate);
+            remaining -= rate;
+            left--;
+        }
+        if (remaining > 0 && !rates.isEmpty()) {
+            double extra = remaining / rates.size();
+            rates.replaceAll((pod, rate) -> rate + extra);
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.timers.ratelimit;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jmeter.shulie.util.DataUtil;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.shulie.jmeter.tool.executors.ExecutorServiceFactory;
+
+/**
+ * Paces the samples of a throughput timer of this pod at the rate leased by a {@link RateCoordinator},
+ * so that the pods of a test together reach the target of the timer, whatever their start time,
+ * failures or speed.
+ * <p>
+ * Used by the Constant Throughput Timer and the Precise Throughput Timer when {@code global_rate.enabled} is set.
+ * The target they compute is the target of the pod, the cluster target being that times {@code global_rate.pod_count}.
+ * There is a limiter per timer of a thread group, or per timer for timers pacing all the thread groups.
+ * They are identified on all the pods by the names of the thread group and of the timer,
+ * so these names must be unique: a limiter refuses to be shared by two thread groups or two timers.
+ * The samples of all the threads using the limiter are spaced evenly at the leased rate, without lock,
+ * and the lease is renewed in the background every {@code global_rate.lease_ms}, reporting how many samples
+ * were started and how many were queued waiting for the rate. If the coordinator fails,
+ * the pod keeps pacing alone at its own target.
+ * <p>
+ * Until all the pods have reported, or for at most {@code global_rate.start_grace_ms} after the start
+ * of the limiter, a pod does not lease more than its own target, so that the first pods started do not
+ * take the share of the pods still starting.
+ * <p>
+ * The cluster error, between the rate achieved by all the pods and the target, is logged every
+ * {@code global_rate.report_interval} and when the test ends.
+ */
+public final class GlobalRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(GlobalRateLimiter.class);
+
+    /** true if the throughput timers pace through the global rate limiter */
+    public static final boolean ENABLED = JMeterUtils.getPropDefault("global_rate.enabled", false); // $NON-NLS-1$
+
+    private static final String COORDINATOR = JMeterUtils.getPropDefault("global_rate.coordinator", "redis"); // $NON-NLS-1$ // $NON-NLS-2$
+
+    private static final long LEASE_MILLIS = Math.max(100L, JMeterUtils.getPropDefault("global_rate.lease_ms", 1000L)); // $NON-NLS-1$
+
+    private static final int POD_COUNT = Math.max(1, JMeterUtils.getPropDefault("global_rate.pod_count", 1)); // $NON-NLS-1$
+
+    private static final double HEADROOM =
+            Double.parseDouble(JMeterUtils.getPropDefault("global_rate.headroom", "0.2")); // $NON-NLS-1$ // $NON-NLS-2$
+
+    private static final long REPORT_MILLIS = JMeterUtils.getPropDefault("global_rate.report_interval", 30000L); // $NON-NLS-1$
+
+    private static final long START_GRACE_MILLIS = JMeterUtils.getPropDefault("global_rate.start_grace_ms", 30000L); // $NON-NLS-1$
+
+    /** Interval used when the rate is 0 */
+    private static final long MAX_INTERVAL_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private static final ConcurrentMap<String, GlobalRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    /** Timer which got each limiter in the current thread, to detect timers sharing a name */
+    private static final ThreadLocal<Map<String, TestElement>> THREAD_TIMERS = ThreadLocal.withInitial(HashMap::new);
+
+    private static RateCoordinator coordinator;
+
+    private final String key;
+    /** Thread group of the timers, {@code null} if they pace all the thread groups */
+    private final AbstractThreadGroup group;
+    private final String podId;
+    private final RateCoordinator rateCoordinator;
+    private final int podCount;
+    private final long leaseMillis;
+    private final long startGraceMillis;
+    private final ScheduledExecutorService executor;
+
+    /** Start time of the last sample scheduled, in {@link System#nanoTime()} units */
+    private final AtomicLong schedule = new AtomicLong();
+    /** Samples scheduled since the last renewal */
+    private final LongAdder arrivals = new LongAdder();
+    private volatile long intervalNanos;
+    private volatile double podTargetRate;
+    private volatile boolean started;
+    private volatile Lease lease;
+
+    // Only accessed by start() and renew(), which are synchronized
+    private long startMillis;
+    private boolean firstLease = true;
+    private double queuedAtLastRenewal;
+    private boolean coordinatorFailed;
+    private long lastReportMillis;
+    private double sumAbsoluteError;
+    private long errorCount;
+    private ScheduledFuture<?> renewal;
+
+    GlobalRateLimiter(String key, AbstractThreadGroup group, String podId, RateCoordinator rateCoordinator,
+            int podCount, long leaseMillis, long startGraceMillis, ScheduledExecutorService executor) {
+        this.key = key;
+        this.group = group;
+        this.podId = podId;
+        this.rateCoordinator = rateCoordinator;
+        this.podCount = podCount;
+        this.leaseMillis = leaseMillis;
+        this.startGraceMillis = startGraceMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * @param group thread group paced by the timer, {@code null} if the timer paces all the thread groups
+     * @param timer timer, the clone of the current thread
+     * @return the limiter of the timer for this pod
+     * @throws IllegalStateException if another thread group or timer has the same name
+     */
+    public static GlobalRateLimiter forTimer(AbstractThreadGroup group, TestElement timer) {
+        String key = toKey(group == null ? null : group.getName(), timer.getName());
+        GlobalRateLimiter limiter = LIMITERS.get(key);
+        if (limiter == null) {
+            limiter = LIMITERS.computeIfAbsent(key, k -> new GlobalRateLimiter(k, group, DataUtil.getPodNo(),
+                    getCoordinator(), POD_COUNT, LEASE_MILLIS, START_GRACE_MILLIS,
+                    ExecutorServiceFactory.GLOBAL_SCHEDULE_EXECUTOR_SERVICE));
+        }
+        limiter.checkOwner(group, timer);
+        return limiter;
+    }
+
+    /**
+     * @param groupName name of the thread group, {@code null} for all the thread groups
+     * @param timerName name of the timer
+     * @return the key of the limiter, the same on all the pods
+     */
+    static String toKey(String groupName, String timerName) {
+        return (groupName == null ? "*" : groupName) + '/' + timerName; // $NON-NLS-1$
+    }
+
+    /**
+     * Check that the limiter is not shared by thread groups or timers which only have the same name
+     */
+    void checkOwner(AbstractThreadGroup timerGroup, TestElement timer) {
+        if (timerGroup != group) {
+            throw new IllegalStateException("Global rate limiter " + key // $NON-NLS-1$
+                    + " is used by two thread groups with the same name, rename one of them"); // $NON-NLS-1$
+        }
+        TestElement previous = THREAD_TIMERS.get().putIfAbsent(key, timer);
+        if (previous != null && previous != timer) {
+            throw new IllegalStateException("Global rate limiter " + key // $NON-NLS-1$
+                    + " is used by two timers with the same name, rename one of them"); // $NON-NLS-1$
+        }
+    }
+
+    private static synchronized RateCoordinator getCoordinator() {
+        if (coordinator == null) {
+            if ("local".equalsIgnoreCase(COORDINATOR)) { // $NON-NLS-1$
+                coordinator = new InProcessRateCoordinator(HEADROOM);
+            } else {
+                coordinator = new RedisRateCoordinator(HEADROOM, POD_COUNT);
+            }
+            log.info("Global rate coordinator: {}, pods: {}, lease: {} ms", COORDINATOR, POD_COUNT, LEASE_MILLIS);
+        }
+        return coordinator;
+    }
+
+    /**
+     * Stop the limiters of the test, giving their share back to the other pods
+     */
+    public static void stopAll() {
+        for (GlobalRateLimiter limiter : LIMITERS.values()) {
+            limiter.stop();
+        }
+        LIMITERS.clear();
+    }
+
+    /**
+     * Schedule the next sample of the thread group
+     *
+     * @param podTargetRate target of the thread group for this pod, in samples per second
+     * @return the start time of the sample in {@link System#nanoTime()} units, may be in the past
+     */
+    public long nextStartNanos(double podTargetRate) {
+        if (podTargetRate != this.podTargetRate) {
+            this.podTargetRate = podTargetRate;
+        }
+        if (!started) {
+            start();
+        }
+        arrivals.increment();
+        long interval = intervalNanos;
+        long now = System.nanoTime();
+        long previous;
+        long next;
+        do {
+            previous = schedule.get();
+            next = Math.max(now, previous + interval);
+        } while (!schedule.compareAndSet(previous, next));
+        return next;
+    }
+
+    /**
+     * @return the current lease, {@code null} before the first one or if the coordinator failed
+     */
+    public Lease getLease() {
+        return lease;
+    }
+
+    private synchronized void start() {
+        if (started) {
+            return;
+        }
+        intervalNanos = toIntervalNanos(podTargetRate);
+        schedule.set(System.nanoTime() - intervalNanos);
+        startMillis = System.currentTimeMillis();
+        renew();
+        renewal = executor.scheduleAtFixedRate(this::renew, leaseMillis, leaseMillis, TimeUnit.MILLISECONDS);
+        started = true;
+    }
+
+    /**
+     * Report the usage of the last lease and apply the next one
+     */
+    synchronized void renew() {
+        long nowMillis = System.currentTimeMillis();
+        double leaseSeconds = leaseMillis / 1000.0;
+        long count = arrivals.sumThenReset();
+        double queued = Math.max(0, schedule.get() - System.nanoTime()) / (double) intervalNanos;
+        double achievedRate = Math.max(0, count - queued + queuedAtLastRenewal) / leaseSeconds;
+        queuedAtLastRenewal = queued;
+        // Unknown demand on the first lease, so that a new pod gets a fair share at once
+        double demandRate = firstLease ? Double.NaN : achievedRate + queued / leaseSeconds;
+        firstLease = false;
+        try {
+            Lease next = rateCoordinator.renew(key, podId, new PodUsage(demandRate, achievedRate, nowMillis),
+                    podTargetRate * podCount, leaseMillis);
+            if (next.getLivePods() < podCount && nowMillis - startMillis < startGraceMillis) {
+                // The missing pods may still be starting, do not take their share
+                next = next.withMaxRate(podTargetRate);
+            }
+            intervalNanos = toIntervalNanos(next.getRate());
+            lease = next;
+            if (coordinatorFailed) {
+                log.info("Global rate coordinator available again for {}", key);
+                coordinatorFailed = false;
+            }
+            sumAbsoluteError += Math.abs(next.getClusterError());
+            errorCount++;
+            if (nowMillis - lastReportMillis >= REPORT_MILLIS) {
+                lastReportMillis = nowMillis;
+                log.info("Global rate of {}: {}", key, next);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!coordinatorFailed) {
+                log.warn("Global rate coordinator failed for {}, pacing at the target of the pod", key, e);
+                coordinatorFailed = true;
+            }
+            intervalNanos = toIntervalNanos(podTargetRate);
+            lease = null;
+        }
+    }
+
+    private synchronized void stop() {
+        if (renewal != null) {
+            renewal.cancel(false);
+        }
+        if (!started) {
+            return;
+        }
+        try {
+            rateCoordinator.release(key, podId);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not release the global rate lease of {}", key, e);
+        }
+        if (log.isInfoEnabled() && errorCount > 0) {
+            log.info("Global rate of {}: mean absolute cluster error {}% over {} leases, last {}", key,
+                    String.format("%.1f", sumAbsoluteError / errorCount * 100), errorCount, lease); // $NON-NLS-1$
+        }
+    }
+
+    static long toIntervalNanos(double rate) {
+        if (rate <= 0 || Double.isNaN(rate)) {
+            return MAX_INTERVAL_NANOS;
+        }
+        return Math.max(1L, Math.min(MAX_INTERVAL_NANOS, (long) (TimeUnit.SECONDS.toNanos(1) / rate)));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.timers.ratelimit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coordinator for the pods of a single JVM, used for tests and single pod runs
+ */
+public class InProcessRateCoordinator extends AbstractRateCoordinator {
+
+    private final Map<String, Map<String, PodUsage>> usages = new ConcurrentHashMap<>();
+
+    /**
+     * @param headroom part added to the demand of a pod when sharing the target
+     */
+    public InProcessRateCoordinator(double headroom) {
+        super(headroom);
+    }
+
+    @Override
+    protected void publish(String key, String podId, PodUsage usage) {
+        usages.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(podId, usage);
+    }
+
+    @Override
+    protected Map<String, PodUsage> readAll(String key) {
+        Map<String, PodUsage> pods = usages.get(key);
+        return pods == null ? new HashMap<>() : new HashMap<>(pods);
+    }
+}
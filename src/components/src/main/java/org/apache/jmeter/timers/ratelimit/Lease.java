@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.timers.ratelimit;
+
+/**
+ * Rate granted to a pod until its next renewal, with the state of the cluster when it was granted
+ */
+public final class Lease {
+
+    private final double rate;
+    private final long durationMillis;
+    private final double clusterTargetRate;
+    private final double clusterAchievedRate;
+    private final int livePods;
+
+    /**
+     * @param rate                samples per second the pod may start
+     * @param durationMillis      duration of the lease
+     * @param clusterTargetRate   target of all the pods, in samples per second
+     * @param clusterAchievedRate samples per second started by all the live pods during their previous lease
+     * @param livePods            number of pods sharing the target
+     */
+    public Lease(double rate, long durationMillis, double clusterTargetRate, double clusterAchievedRate, int livePods) {
+        this.rate = rate;
+        this.durationMillis = durationMillis;
+        this.clusterTargetRate = clusterTargetRate;
+        this.clusterAchievedRate = clusterAchievedRate;
+        this.livePods = livePods;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public double getClusterTargetRate() {
+        return clusterTargetRate;
+    }
+
+    public double getClusterAchievedRate() {
+        return clusterAchievedRate;
+    }
+
+    public int getLivePods() {
+        return livePods;
+    }
+
+    /**
+     * @param maxRate maximum rate of the pod
+     * @return this lease, or a copy of it with the rate lowered to {@code maxRate}
+     */
+    Lease withMaxRate(double maxRate) {
+        if (rate <= maxRate) {
+            return this;
+        }
+        return new Lease(maxRate, durationMillis, clusterTargetRate, clusterAchievedRate, livePods);
+    }
+
+    /**
+     * @return relative error of the achieved rate of the cluster, negative when it is below the target,
+     *         0 if there is no target
+     */
+    public double getClusterError() {
+        if (clusterTargetRate <= 0) {
+            return 0;
+        }
+        return (clusterAchievedRate - clusterTargetRate) / clusterTargetRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rate=%.2f/s, cluster target=%.2f/s, achieved=%.2f/s, error=%+.1f%%, pods=%d", // $NON-NLS-1$
+                rate, clusterTargetRate, clusterAchievedRate, getClusterError() * 100, livePods);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.timers.ratelimit;
+
+/**
+ * Usage of a pod during a lease, as published to the other pods
+ */
+public final class PodUsage {
+
+    private static final char SEPARATOR = ';';
+
+    private final double demandRate;
+    private final double achievedRate;
+    private final long heartbeatMillis;
+
+    /**
+     * @param demandRate      samples per second the pod would have started without limit,
+     *                        {@link Double#NaN} if unknown
+     * @param achievedRate    samples per second the pod started
+     * @param heartbeatMillis time of the report, 0 if the pod stopped
+     */
+    public PodUsage(double demandRate, double achievedRate, long heartbeatMillis) {
+        this.demandRate = demandRate;
+        this.achievedRate = achievedRate;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    public double getDemandRate() {
+        return demandRate;
+    }
+
+    public double getAchievedRate() {
+        return achievedRate;
+    }
+
+    public long getHeartbeatMillis() {
+        return heartbeatMillis;
+    }
+
+    /**
+     * @return the usage as {@code demand;achieved;heartbeat}
+     */
+    public String encode() {
+        return Double.toString(demandRate) + SEPARATOR + achievedRate + SEPARATOR + heartbeatMillis;
+    }
+
+    /**
+     * @param value value returned by {@link #encode()}, may be {@code null}
+     * @return the usage, or {@code null} if the value is missing or malformed
+     */
+    public static PodUsage decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        int first = value.indexOf(SEPARATOR);
+        int second = value.indexOf(SEPARATOR, first + 1);
+        if (first < 0 || second < 0) {
+            return null;
+        }
+        try {
+            return new PodUsage(
+                    Double.parseDouble(value.substring(0, first)),
+                    Double.parseDouble(value.substring(first + 1, second)),
+                    Long.parseLong(value.substring(second + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.timers.ratelimit;
+
+import java.io.IOException;
+
+/**
+ * Coordinates the rate of a thread group across the pods of a test.
+ * <p>
+ * Each pod renews its lease every lease period, reporting how many samples it started
+ * and would have started during the previous one. The coordinator splits the cluster target
+ * between the live pods according to these reports and returns the rate the pod may run at
+ * until its next renewal.
+ */
+public interface RateCoordinator {
+
+    /**
+     * Report the usage of a pod and get its next lease
+     *
+     * @param key               thread group the rate applies to
+     * @param podId             pod renewing its lease
+     * @param usage             usage of the pod during its previous lease
+     * @param clusterTargetRate target of all the pods, in samples per second
+     * @param leaseMillis       duration of the lease
+     * @return the next lease of the pod
+     * @throws IOException when the shared state can not be read or written
+     */
+    Lease renew(String key, String podId, PodUsage usage, double clusterTargetRate, long leaseMillis) throws IOException;
+
+    /**
+     * Give back the share of a pod which stops, so that it is split between the other pods
+     *
+     * @param key   thread group the rate applies to
+     * @param podId pod which stops
+     * @throws IOException when the shared state can not be written
+     */
+    void release(String key, String podId) throws IOException;
+}
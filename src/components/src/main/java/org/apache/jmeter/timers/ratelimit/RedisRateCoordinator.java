@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.timers.ratelimit;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jmeter.shulie.util.JedisUtil;
+
+/**
+ * Coordinator sharing the usages of the pods in the Redis of the scene, through {@link JedisUtil}.
+ * <p>
+ * The usages of a thread group are held in a hash, one field per pod number, from 1 to the pod count.
+ * Each pod only writes its own field, so no atomic operation is needed.
+ * As {@link JedisUtil} only logs when Redis is not initialised, this is checked first
+ * so that the pod does not believe it is alone in the cluster.
+ */
+public class RedisRateCoordinator extends AbstractRateCoordinator {
+
+    private static final String KEY_PREFIX = ":GLOBAL_RATE:"; // $NON-NLS-1$
+
+    private final int podCount;
+
+    /**
+     * @param headroom part added to the demand of a pod when sharing the target
+     * @param podCount number of pods of the test
+     */
+    public RedisRateCoordinator(double headroom, int podCount) {
+        super(headroom);
+        this.podCount = podCount;
+    }
+
+    private static String redisKey(String key) {
+        return JedisUtil.getRedisMasterKey() + KEY_PREFIX + key;
+    }
+
+    private static void checkRedis() throws IOException {
+        if (JedisUtil.getRedisUtil() == null) {
+            throw new IOException("Redis is not initialised"); // $NON-NLS-1$
+        }
+    }
+
+    @Override
+    protected void publish(String key, String podId, PodUsage usage) throws IOException {
+        checkRedis();
+        JedisUtil.hset(redisKey(key), podId, usage.encode());
+    }
+
+    @Override
+    protected Map<String, PodUsage> readAll(String key) throws IOException {
+        checkRedis();
+        String redisKey = redisKey(key);
+        Map<String, PodUsage> usages = new HashMap<>();
+        for (int pod = 1; pod <= podCount; pod++) {
+            String podId = Integer.toString(pod);
+            PodUsage usage = PodUsage.decode(JedisUtil.hget(redisKey, podId));
+            if (usage != null) {
+                usages.put(podId, usage);
+            }
+        }
+        return usages;
+    }
+}
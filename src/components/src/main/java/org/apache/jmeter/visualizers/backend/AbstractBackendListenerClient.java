@@ -17,11 +17,13 @@
 
 package org.apache.jmeter.visualizers.backend;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jmeter.config.Arguments;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.EngineProfiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +63,9 @@ public abstract class AbstractBackendListenerClient implements BackendListenerCl
     private UserMetric userMetrics = new UserMetric();
 
     private ConcurrentHashMap<String, SamplerMetric> metricsPerSampler = new ConcurrentHashMap<>();
+
+    private Map<String, EngineProfiler.Profile> lastEngineProfile = Collections.emptyMap();
+
     /* Implements BackendListenerClient.setupTest(BackendListenerContext) */
     @Override
     public void setupTest(BackendListenerContext context) throws Exception {
@@ -69,6 +74,7 @@ public abstract class AbstractBackendListenerClient implements BackendListenerCl
         }
         metricsPerSampler.clear();
         userMetrics.clear();
+        lastEngineProfile = Collections.emptyMap();
     }
 
     /* Implements BackendListenerClient.teardownTest(BackendListenerContext) */
@@ -146,4 +152,21 @@ public abstract class AbstractBackendListenerClient implements BackendListenerCl
     protected UserMetric getUserMetrics() {
         return userMetrics;
     }
+
+    /**
+     * Get the engine profile of the elements since the previous call, empty unless {@code engine.profiler} is enabled.
+     * Must be called once per interval, by a single thread.
+     *
+     * @return Map where key is {@link EngineProfiler.Profile#getKey()}
+     * @see EngineProfiler
+     */
+    protected Map<String, EngineProfiler.Profile> getEngineProfileForInterval() {
+        if (!EngineProfiler.ENABLED) {
+            return Collections.emptyMap();
+        }
+        Map<String, EngineProfiler.Profile> current = EngineProfiler.snapshot();
+        Map<String, EngineProfiler.Profile> interval = EngineProfiler.difference(current, lastEngineProfile);
+        lastEngineProfile = current;
+        return interval;
+    }
 }
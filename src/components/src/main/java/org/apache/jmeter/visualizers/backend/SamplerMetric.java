@@ -101,6 +101,12 @@ public class SamplerMetric {
      * add 次数
      */
     private long count = 0;
+    /**
+     * Corrected latencies of the samples having an intended start time (precise pacing)
+     */
+    private long correctedCount = 0;
+    private long sumCorrectedLatency = 0;
+    private long maxCorrectedLatency = 0;
 
     /**
      *
@@ -204,6 +210,12 @@ public class SamplerMetric {
         addNetworkData(result, isCumulated);
         //添加sumRt计算 add by lipeng
         this.sumRt += result.getTime();
+        if (result.getIntendedStartTime() > 0) {
+            long correctedLatency = result.getCorrectedLatency();
+            correctedCount++;
+            sumCorrectedLatency += correctedLatency;
+            maxCorrectedLatency = Math.max(maxCorrectedLatency, correctedLatency);
+        }
     }
 
     /**
@@ -300,12 +312,38 @@ public class SamplerMetric {
         sumRt = 0;
         sumActiveThreads = 0;
         count = 0;
+        correctedCount = 0;
+        sumCorrectedLatency = 0;
+        maxCorrectedLatency = 0;
     }
 
     public int getActiveThreads() {
         return (int) Math.round(NumberUtil.divide(sumActiveThreads, count));
     }
 
+    /**
+     * @return number of samples of the current time slot having a corrected latency,
+     *          i.e. run with precise pacing
+     */
+    public synchronized long getCorrectedCount() {
+        return correctedCount;
+    }
+
+    /**
+     * @return mean time from intended start to end for the current time slot,
+     *          see {@link SampleResult#getCorrectedLatency()}
+     */
+    public synchronized double getCorrectedMean() {
+        return NumberUtil.divide(sumCorrectedLatency, correctedCount);
+    }
+
+    /**
+     * @return max time from intended start to end for the current time slot
+     */
+    public synchronized long getCorrectedMax() {
+        return maxCorrectedLatency;
+    }
+
     /**
      * Get the number of total requests for the current time slot
      *
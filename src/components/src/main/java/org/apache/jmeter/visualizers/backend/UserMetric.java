@@ -48,7 +48,7 @@ public class UserMetric {
     public synchronized void add(SampleResult result) {
         sumAllActiveThreadNum += result.getAllThreads();
         count++;
-        usersStats.addValue(JMeterContextService.getThreadCounts().activeThreads);
+        usersStats.addValue(JMeterContextService.getNumberOfThreads());
     }
 
     /**
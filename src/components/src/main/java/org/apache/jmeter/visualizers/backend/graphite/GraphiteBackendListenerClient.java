@@ -35,6 +35,7 @@ import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.config.Arguments;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.EngineProfiler;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.visualizers.backend.AbstractBackendListenerClient;
 import org.apache.jmeter.visualizers.backend.BackendListenerContext;
@@ -77,6 +78,14 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
     private static final String METRIC_STARTED_THREADS = "startedT"; //$NON-NLS-1$
     private static final String METRIC_FINISHED_THREADS = "endedT"; //$NON-NLS-1$
 
+    private static final String ENGINE_CONTEXT_NAME = "engine"; //$NON-NLS-1$
+    private static final String METRIC_ENGINE_INVOCATIONS = "invocations"; //$NON-NLS-1$
+    private static final String METRIC_ENGINE_TIME = "timeNs"; //$NON-NLS-1$
+    private static final String METRIC_ENGINE_BLOCKED_COUNT = "blocked.count"; //$NON-NLS-1$
+    private static final String METRIC_ENGINE_BLOCKED_TIME = "blocked.timeNs"; //$NON-NLS-1$
+    private static final String METRIC_ENGINE_WAITED_COUNT = "waited.count"; //$NON-NLS-1$
+    private static final String METRIC_ENGINE_WAITED_TIME = "waited.timeNs"; //$NON-NLS-1$
+
     // Response time Metrics
     private static final String METRIC_SEPARATOR = "."; //$NON-NLS-1$
     private static final String METRIC_OK_PREFIX = "ok"; //$NON-NLS-1$
@@ -92,6 +101,8 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
     private static final String METRIC_MAX_RESPONSE_TIME = "max"; //$NON-NLS-1$
     private static final String METRIC_AVG_RESPONSE_TIME = "avg"; //$NON-NLS-1$
     private static final String METRIC_PERCENTILE = "pct"; //$NON-NLS-1$
+    private static final String METRIC_CORRECTED_MAX_RESPONSE_TIME = "cmax"; //$NON-NLS-1$
+    private static final String METRIC_CORRECTED_AVG_RESPONSE_TIME = "cavg"; //$NON-NLS-1$
 
     private static final String METRIC_OK_COUNT             = METRIC_OK_PREFIX+METRIC_SEPARATOR+METRIC_COUNT;
     private static final String METRIC_OK_MIN_RESPONSE_TIME = METRIC_OK_PREFIX+METRIC_SEPARATOR+METRIC_MIN_RESPONSE_TIME;
@@ -110,6 +121,8 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
     private static final String METRIC_ALL_MAX_RESPONSE_TIME = METRIC_ALL_PREFIX+METRIC_SEPARATOR+METRIC_MAX_RESPONSE_TIME;
     private static final String METRIC_ALL_AVG_RESPONSE_TIME = METRIC_ALL_PREFIX+METRIC_SEPARATOR+METRIC_AVG_RESPONSE_TIME;
     private static final String METRIC_ALL_PERCENTILE_PREFIX = METRIC_ALL_PREFIX+METRIC_SEPARATOR+METRIC_PERCENTILE;
+    private static final String METRIC_ALL_CORRECTED_MAX_RESPONSE_TIME = METRIC_ALL_PREFIX+METRIC_SEPARATOR+METRIC_CORRECTED_MAX_RESPONSE_TIME;
+    private static final String METRIC_ALL_CORRECTED_AVG_RESPONSE_TIME = METRIC_ALL_PREFIX+METRIC_SEPARATOR+METRIC_CORRECTED_AVG_RESPONSE_TIME;
 
     private static final String METRIC_ALL_HITS_COUNT        = METRIC_HITS_PREFIX+METRIC_SEPARATOR+METRIC_COUNT;
     private static final String METRIC_ALL_SENT_BYTES        = METRIC_SENT_BYTES_PREFIX+METRIC_SEPARATOR+METRIC_BYTES;
@@ -178,10 +191,35 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
         graphiteMetricsManager.addMetric(timestampInSeconds, TEST_CONTEXT_NAME,
                 METRIC_FINISHED_THREADS,
                 Integer.toString(userMetric.getFinishedThreads()));
+        addEngineProfile(timestampInSeconds);
 
         graphiteMetricsManager.writeAndSendMetrics();
     }
 
+    /**
+     * Add the engine profile of the interval, one context per element
+     *
+     * @param timestampInSeconds long
+     */
+    private void addEngineProfile(long timestampInSeconds) {
+        for (EngineProfiler.Profile profile : getEngineProfileForInterval().values()) {
+            String contextName = ENGINE_CONTEXT_NAME + METRIC_SEPARATOR
+                    + AbstractGraphiteMetricsSender.sanitizeString(profile.getKey());
+            graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                    METRIC_ENGINE_INVOCATIONS, Long.toString(profile.getInvocations()));
+            graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                    METRIC_ENGINE_TIME, Long.toString(profile.getTimeNanos()));
+            graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                    METRIC_ENGINE_BLOCKED_COUNT, Long.toString(profile.getBlockedCount()));
+            graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                    METRIC_ENGINE_BLOCKED_TIME, Long.toString(profile.getBlockedNanos()));
+            graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                    METRIC_ENGINE_WAITED_COUNT, Long.toString(profile.getWaitedCount()));
+            graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                    METRIC_ENGINE_WAITED_TIME, Long.toString(profile.getWaitedNanos()));
+        }
+    }
+
     /**
      * Add request metrics to metrics manager.
      * Note if total number of requests is 0, no response time metrics are sent.
@@ -256,6 +294,15 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
                     entry.getKey(),
                     Double.toString(metric.getAllPercentile(entry.getValue())));
         }
+        // Only with precise pacing: time from intended start, including the time spent waiting behind late threads
+        if (metric.getCorrectedCount() > 0) {
+            graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                    METRIC_ALL_CORRECTED_MAX_RESPONSE_TIME,
+                    Long.toString(metric.getCorrectedMax()));
+            graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                    METRIC_ALL_CORRECTED_AVG_RESPONSE_TIME,
+                    Double.toString(metric.getCorrectedMean()));
+        }
     }
 
     /** @return the samplersList */
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.extractor.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonSmartJsonProvider;
+
+public class TestJsonDocumentCache {
+
+    private static SampleResult createResult(String response) {
+        SampleResult result = new SampleResult();
+        result.setResponseData(response, "UTF-8");
+        return result;
+    }
+
+    @Test
+    public void testDocumentIsParsedOnce() {
+        SampleResult result = createResult("{\"a\":[1,2]}");
+        assertNull(JsonDocumentCache.getStatistics(result, JsonDocumentCache.JSON_PATH_FORMAT));
+        Object document = JsonDocumentCache.getJsonPathDocument(result);
+        assertSame(document, JsonDocumentCache.getJsonPathDocument(result));
+        assertSame(document, JsonDocumentCache.getJsonPathDocument(result));
+        assertEquals(2, JsonDocumentCache.getStatistics(result, JsonDocumentCache.JSON_PATH_FORMAT).getHits());
+    }
+
+    @Test
+    public void testEachTreeTypeIsCachedSeparately() throws IOException {
+        SampleResult result = createResult("{\"a\":1}");
+        JsonDocumentCache.getJsonPathDocument(result);
+        JsonNode node = JsonDocumentCache.getJsonNode(result);
+        assertSame(node, JsonDocumentCache.getJsonNode(result));
+        assertEquals(1, node.get("a").asInt());
+        assertEquals(0, JsonDocumentCache.getStatistics(result, JsonDocumentCache.JSON_PATH_FORMAT).getHits());
+        assertEquals(1, JsonDocumentCache.getStatistics(result, JsonDocumentCache.JACKSON_FORMAT).getHits());
+    }
+
+    @Test
+    public void testFailureIsCached() {
+        SampleResult result = createResult("not json {");
+        InvalidJsonException first = assertThrows(InvalidJsonException.class,
+                () -> JsonDocumentCache.getJsonPathDocument(result));
+        InvalidJsonException second = assertThrows(InvalidJsonException.class,
+                () -> JsonDocumentCache.getJsonPathDocument(result));
+        assertSame(first, second);
+        assertThrows(IOException.class, () -> JsonDocumentCache.getJsonNode(result));
+    }
+
+    @Test
+    public void testNewResponseDataInvalidatesDocument() {
+        SampleResult result = createResult("{\"a\":1}");
+        Object document = JsonDocumentCache.getJsonPathDocument(result);
+        result.setResponseData("{\"a\":2}", "UTF-8");
+        assertNotSame(document, JsonDocumentCache.getJsonPathDocument(result));
+        assertEquals(0, JsonDocumentCache.getStatistics(result, JsonDocumentCache.JSON_PATH_FORMAT).getHits());
+    }
+
+    @Test
+    public void testCreateJsonProvider() {
+        assertEquals(JsonSmartJsonProvider.class, JsonDocumentCache.createJsonProvider("smart").getClass());
+        assertEquals(JacksonJsonProvider.class, JsonDocumentCache.createJsonProvider(" jackson ").getClass());
+        assertEquals(JsonSmartJsonProvider.class, JsonDocumentCache.createJsonProvider("no.such.Provider").getClass());
+    }
+}
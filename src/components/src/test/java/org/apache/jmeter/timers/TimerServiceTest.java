@@ -17,6 +17,8 @@
 
 package org.apache.jmeter.timers;
 
+import java.util.concurrent.TimeUnit;
+
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.Description;
@@ -75,4 +77,28 @@ public class TimerServiceTest {
                 sut.adjustDelay(1000L, -1), CoreMatchers.is(1000L));
     }
 
+    @Test
+    public void testSleepUntil() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(5);
+        sut.sleepUntil(deadline);
+        MatcherAssert.assertThat("TimerService should not return before the deadline",
+                System.nanoTime() - deadline >= 0, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void testSleepUntilPastDeadline() throws InterruptedException {
+        long start = System.nanoTime();
+        sut.sleepUntil(start - TimeUnit.SECONDS.toNanos(1));
+        MatcherAssert.assertThat("TimerService should return immediately for a past deadline",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), isAlmost(0L, 100L));
+    }
+
+    @Test
+    public void testNanoTimeConversionKeepsSubMillisecondDifferences() {
+        long now = System.currentTimeMillis();
+        MatcherAssert.assertThat(sut.toNanoTime(now + 0.25) - sut.toNanoTime(now),
+                isAlmost(TimeUnit.MICROSECONDS.toNanos(250), TimeUnit.MICROSECONDS.toNanos(1)));
+        MatcherAssert.assertThat(sut.toEpochMillis(sut.toNanoTime(now)), isAlmost(now, 2L));
+    }
+
 }
@@ -23,7 +23,10 @@ import static org.junit.Assert.fail;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.ThreadGroup;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -122,6 +125,33 @@ public class PreciseThroughputTimerTest {
         verifyExactThroughput(/*seed=*/ 4389853422207095555L, /*testDuration=*/ 21, /*throughput=*/ 26, /*throughputInterval=*/ 79, /*batchSize=*/ 1);
     }
 
+    @Test
+    public void testGlobalTargetFollowsDynamicTps() {
+        AtomicReference<Double> dynamicTps = new AtomicReference<>();
+        PreciseThroughputTimer timer = new PreciseThroughputTimer() {
+            @Override
+            Double getDynamicTps(String threadGroupName) {
+                return dynamicTps.get();
+            }
+        };
+        timer.setThroughput(120);
+        timer.setThroughputPeriod(60);
+        ThreadGroup threadGroup = new ThreadGroup();
+        threadGroup.setName("tg");
+        JMeterContextService.getContext().setThreadGroup(threadGroup);
+        try {
+            timer.testStarted();
+            assertEquals(2, timer.globalPodTargetRate(), 1e-9);
+            dynamicTps.set(300.0);
+            assertEquals(5, timer.globalPodTargetRate(), 1e-9);
+            dynamicTps.set(600.0);
+            assertEquals(10, timer.globalPodTargetRate(), 1e-9);
+        } finally {
+            timer.testEnded();
+            JMeterContextService.getContext().setThreadGroup(null);
+        }
+    }
+
     private void verifyExactThroughput(
             long seed, int testDuration, int throughput, int throughputInterval, int batchSize) {
         // 5 per second, and we specify the test duration as 1 second
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.timers.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.timers.ConstantThroughputTimer;
+import org.junit.jupiter.api.Test;
+
+public class TestGlobalRateLimiter {
+
+    @Test
+    public void testAllocateCapsSlowPodsAndSplitsTheRest() {
+        Map<String, Double> demands = new HashMap<>();
+        demands.put("1", 10.0);
+        demands.put("2", Double.NaN);
+        demands.put("3", 500.0);
+        Map<String, Double> rates = AbstractRateCoordinator.allocate(300, demands, 0);
+        assertEquals(10, rates.get("1"), 1e-9);
+        assertEquals(145, rates.get("2"), 1e-9);
+        assertEquals(145, rates.get("3"), 1e-9);
+    }
+
+    @Test
+    public void testAllocateGivesWhatRemainsEqually() {
+        Map<String, Double> demands = new HashMap<>();
+        demands.put("1", 10.0);
+        demands.put("2", 20.0);
+        Map<String, Double> rates = AbstractRateCoordinator.allocate(100, demands, 0.5);
+        assertEquals(15 + 27.5, rates.get("1"), 1e-9);
+        assertEquals(30 + 27.5, rates.get("2"), 1e-9);
+    }
+
+    @Test
+    public void testReleasedPodGivesItsShareBack() throws Exception {
+        InProcessRateCoordinator coordinator = new InProcessRateCoordinator(0);
+        long now = System.currentTimeMillis();
+        coordinator.renew("tg", "1", new PodUsage(Double.NaN, 0, now), 100, 1000);
+        Lease lease = coordinator.renew("tg", "2", new PodUsage(Double.NaN, 0, now), 100, 1000);
+        assertEquals(50, lease.getRate(), 1e-9);
+        assertEquals(2, lease.getLivePods());
+
+        coordinator.release("tg", "1");
+        lease = coordinator.renew("tg", "2", new PodUsage(80, 80, now), 100, 1000);
+        assertEquals(100, lease.getRate(), 1e-9);
+        assertEquals(1, lease.getLivePods());
+        assertEquals(-0.2, lease.getClusterError(), 1e-9);
+    }
+
+    @Test
+    public void testPodUsageEncoding() {
+        PodUsage usage = PodUsage.decode(new PodUsage(Double.NaN, 12.5, 42).encode());
+        assertTrue(Double.isNaN(usage.getDemandRate()));
+        assertEquals(12.5, usage.getAchievedRate(), 1e-9);
+        assertEquals(42, usage.getHeartbeatMillis());
+    }
+
+    private static long[] startThreeSamples(GlobalRateLimiter limiter) {
+        return new long[] { limiter.nextStartNanos(10), limiter.nextStartNanos(10), limiter.nextStartNanos(10) };
+    }
+
+    private static void assertSpacing(long intervalMillis, long[] starts) {
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(intervalMillis), starts[1] - starts[0]);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(intervalMillis), starts[2] - starts[1]);
+    }
+
+    @Test
+    public void testSamplesAreSpacedByTheLease() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            GlobalRateLimiter limiter = new GlobalRateLimiter("tg", null, "1", new InProcessRateCoordinator(0), 2,
+                    60000, 0, executor);
+            long[] starts = startThreeSamples(limiter);
+            // Alone in the cluster after the start grace period, the pod leases the target of the two pods
+            assertEquals(20, limiter.getLease().getRate(), 1e-9);
+            assertSpacing(50, starts);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPodDoesNotTakeTheShareOfStartingPods() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            GlobalRateLimiter limiter = new GlobalRateLimiter("tg", null, "1", new InProcessRateCoordinator(0), 2,
+                    60000, 60000, executor);
+            long[] starts = startThreeSamples(limiter);
+            assertEquals(10, limiter.getLease().getRate(), 1e-9);
+            assertEquals(20, limiter.getLease().getClusterTargetRate(), 1e-9);
+            assertSpacing(100, starts);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPodPacesAtItsTargetWhenTheCoordinatorFails() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            // Reads no usages, as the Redis coordinator would without Redis
+            AbstractRateCoordinator failing = new AbstractRateCoordinator(0) {
+                @Override
+                protected void publish(String key, String podId, PodUsage usage) {
+                    // lost
+                }
+
+                @Override
+                protected Map<String, PodUsage> readAll(String key) {
+                    return new HashMap<>();
+                }
+            };
+            GlobalRateLimiter limiter = new GlobalRateLimiter("tg", null, "1", failing, 2, 60000, 0, executor);
+            long[] starts = startThreeSamples(limiter);
+            assertNull(limiter.getLease());
+            assertSpacing(100, starts);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLimiterIsNotSharedByTimersWithTheSameName() {
+        GlobalRateLimiter limiter = new GlobalRateLimiter(GlobalRateLimiter.toKey("tg", "timer"), null, "1",
+                new InProcessRateCoordinator(0), 1, 1000, 0, null);
+        ConstantThroughputTimer timer = new ConstantThroughputTimer();
+        limiter.checkOwner(null, timer);
+        limiter.checkOwner(null, timer);
+        assertThrows(IllegalStateException.class, () -> limiter.checkOwner(null, new ConstantThroughputTimer()));
+        assertEquals("*/timer", GlobalRateLimiter.toKey(null, "timer"));
+    }
+
+    @Test
+    public void testToIntervalNanos() {
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), GlobalRateLimiter.toIntervalNanos(10));
+        assertEquals(TimeUnit.HOURS.toNanos(1), GlobalRateLimiter.toIntervalNanos(0));
+        assertEquals(TimeUnit.HOURS.toNanos(1), GlobalRateLimiter.toIntervalNanos(Double.NaN));
+    }
+}
@@ -47,4 +47,27 @@ public class TestSamplingStatCalculator {
         ssc.addSample(res);
         Assert.assertEquals(5,ssc.getAvgPageBytes(),0);
     }
+
+    @Test
+    public void testConcurrentAddSample() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    SampleResult res = SampleResult.createTestSample(1000 + i, 1010 + i);
+                    res.setSuccessful(i % 10 != 0);
+                    ssc.addSample(res);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(4000, ssc.getCount());
+        Assert.assertEquals(400, ssc.getErrorCount());
+        Assert.assertEquals(0.1, ssc.getErrorPercentage(), 0.0001);
+        Assert.assertEquals(10L, ssc.getMedian());
+        Assert.assertEquals(1009, ssc.getElapsed());
+    }
 }
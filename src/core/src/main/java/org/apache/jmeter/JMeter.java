@@ -94,10 +94,12 @@ import org.apache.jmeter.util.BeanShellInterpreter;
 import org.apache.jmeter.util.BeanShellServer;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.util.ShutdownClient;
+import org.apache.jmeter.util.StartupTimings;
 import org.apache.jorphan.collections.HashTree;
 import org.apache.jorphan.collections.SearchByClass;
 import org.apache.jorphan.gui.ComponentUtil;
 import org.apache.jorphan.gui.JMeterUIDefaults;
+import org.apache.jorphan.reflect.ClassFinder;
 import org.apache.jorphan.reflect.ClassTools;
 import org.apache.jorphan.util.HeapDumper;
 import org.apache.jorphan.util.JMeterException;
@@ -355,6 +357,11 @@ public class JMeter implements JMeterPlugin {
      */
     private boolean deleteResultFile = false;
 
+    /**
+     * Duration of each startup phase, logged just before the test starts
+     */
+    private StartupTimings startupTimings = new StartupTimings();
+
     public JMeter() {
         super();
     }
@@ -473,6 +480,7 @@ public class JMeter implements JMeterPlugin {
         }
         try {
             initializeProperties(parser); // Also initialises JMeter logging
+            startupTimings.endPhase("properties");
 
             log.info(" >>> 当前pod序号为：{} <<<<<", System.getProperty("pod.number"));
 
@@ -510,6 +518,11 @@ public class JMeter implements JMeterPlugin {
             setProxy(parser);
 
             updateClassLoader();
+            String classIndexDir = JMeterUtils.getPropDefault("classfinder.index.dir", ""); // $NON-NLS-1$
+            if (!classIndexDir.trim().isEmpty()) {
+                ClassFinder.setIndexCacheDirectory(new File(classIndexDir.trim()));
+            }
+            startupTimings.endPhase("classloader");
             if (log.isDebugEnabled()) {
                 String jcp = System.getProperty("java.class.path");// $NON-NLS-1$
                 String[] bits = jcp.split(File.pathSeparator);
@@ -999,8 +1012,10 @@ public class JMeter implements JMeterPlugin {
         driver.remoteProps = this.remoteProps;
         driver.remoteStop = this.remoteStop;
         driver.deleteResultFile = this.deleteResultFile;
+        driver.startupTimings = this.startupTimings;
 
         PluginManager.install(this, false);
+        startupTimings.endPhase("plugins");
 
         String remoteHostsString = null;
         if (remoteStart != null) {
@@ -1028,6 +1043,7 @@ public class JMeter implements JMeterPlugin {
             FileServer.getFileServer().setBaseForScript(f);
 
             HashTree tree = SaveService.loadTree(f);
+            startupTimings.endPhase("plan-load");
 
             @SuppressWarnings("deprecation") // Deliberate use of deprecated ctor
                     JMeterTreeModel treeModel = new JMeterTreeModel(new Object());// NOSONAR Create non-GUI version to avoid headless problems
@@ -1046,6 +1062,7 @@ public class JMeter implements JMeterPlugin {
             // Ensure tree is interpreted (ReplaceableControllers are replaced)
             // For GUI runs this is done in Start.java
             HashTree clonedTree = convertSubTree(tree, true);
+            startupTimings.endPhase("tree-convert");
 
             Summariser summariser = null;
             String summariserName = JMeterUtils.getPropDefault("summariser.name", "");//$NON-NLS-1$
@@ -1096,6 +1113,8 @@ public class JMeter implements JMeterPlugin {
                 clonedTree.add(clonedTree.getArray()[0], new ListenToTest(
                         org.apache.jmeter.JMeter.ListenToTest.RunMode.LOCAL, false, reportGenerator));
                 engine.configure(clonedTree);
+                startupTimings.endPhase("engine-configure");
+                log.info("Startup timings: {}", startupTimings);
                 long now = System.currentTimeMillis();
                 println("Starting standalone test @ " + new Date(now) + " (" + now + ")");
                 engines.add(engine);
@@ -0,0 +1,609 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.control;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.apache.jmeter.engine.util.CompoundVariable;
+import org.apache.jmeter.testelement.property.FunctionProperty;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.VariableSymbols;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Condition of {@link IfController} and {@link WhileController} parsed once and evaluated
+ * against the thread variables, without going through a script engine or functions.
+ * <p>
+ * Supported conditions are made of:
+ * <ul>
+ * <li>variable references: <code>${count}</code>, whose value must be a boolean or a number,
+ * as it is substituted in the condition</li>
+ * <li>string literals, which may reference variables: <code>"${name}"</code>, number literals,
+ * <code>true</code> and <code>false</code></li>
+ * <li>comparisons: <code>== != === !== &lt; &lt;= &gt; &gt;=</code>, compared as in JavaScript</li>
+ * <li>boolean logic: <code>&amp;&amp; || !</code> and parentheses</li>
+ * </ul>
+ * A condition may also be wrapped in a single <code>__jexl3</code>, <code>__jexl2</code>
+ * or <code>__javaScript</code> function call with one parameter.
+ * Other conditions are evaluated as before, and a warning is logged once per condition.
+ * A compiled condition is also evaluated as before when it cannot give the same result, for instance
+ * when a variable referenced outside a string literal holds a value which is not a boolean or a number.
+ */
+final class CompiledCondition {
+
+    private static final Logger log = LoggerFactory.getLogger(CompiledCondition.class);
+
+    /** Set to false to evaluate all the conditions with the script engine or the functions */
+    private static final boolean ENABLED = JMeterUtils.getPropDefault("condition.compile", true); // $NON-NLS-1$
+
+    private static final String[] FUNCTIONS = {"__jexl3", "__jexl2", "__javaScript"}; // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+
+    private static final Pattern NUMBER = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?"); // $NON-NLS-1$
+
+    /** Conditions which could not be compiled, to warn once */
+    private static final Set<String> WARNED = ConcurrentHashMap.newKeySet();
+
+    private final String source;
+
+    private final Node root;
+
+    private CompiledCondition(String source, Node root) {
+        this.source = source;
+        this.root = root;
+    }
+
+    /**
+     * Compiled condition of a controller, compiled again when the condition changes
+     */
+    static final class Holder {
+        private String source;
+        private boolean functionOnly;
+        private CompiledCondition compiled;
+
+        /**
+         * @param elementName  name of the controller, for logging
+         * @param property     condition property
+         * @param functionOnly see {@link CompiledCondition#compile(String, String, boolean)}
+         * @return the compiled condition or {@code null} if it must be evaluated as before
+         */
+        CompiledCondition get(String elementName, JMeterProperty property, boolean functionOnly) {
+            String condition = getRawCondition(property);
+            if (!condition.equals(source) || functionOnly != this.functionOnly) {
+                compiled = compile(elementName, condition, functionOnly);
+                source = condition;
+                this.functionOnly = functionOnly;
+            }
+            return compiled;
+        }
+    }
+
+    /**
+     * @param property condition property, before functions and variables are replaced
+     * @return the condition as written by the user
+     */
+    static String getRawCondition(JMeterProperty property) {
+        Object value = property.getObjectValue();
+        if (property instanceof FunctionProperty && value instanceof CompoundVariable) {
+            return ((CompoundVariable) value).getRawParameters().trim();
+        }
+        return property.getStringValue().trim();
+    }
+
+    /**
+     * Compile a condition, or log a warning once if it must be evaluated as before
+     *
+     * @param elementName  name of the controller, for logging
+     * @param condition    condition as written by the user
+     * @param functionOnly only accept conditions wrapped in a function, as the controller
+     *                     does not evaluate the replaced condition as an expression
+     * @return the compiled condition or {@code null}
+     */
+    static CompiledCondition compile(String elementName, String condition, boolean functionOnly) {
+        if (!ENABLED || condition.isEmpty()) {
+            return null;
+        }
+        String expression = unwrapFunction(condition);
+        if (expression == null) {
+            if (functionOnly && !condition.contains("${__")) { // $NON-NLS-1$
+                // plain value, nothing to compile
+                return null;
+            }
+            expression = functionOnly ? null : condition;
+        }
+        Node root = null;
+        if (expression != null) {
+            try {
+                root = new Parser(expression).parse();
+            } catch (IllegalArgumentException e) {
+                log.debug("{}: cannot compile [{}]: {}", elementName, condition, e.getMessage());
+            }
+        }
+        if (root == null) {
+            if (WARNED.add(condition)) {
+                log.warn("{}: condition [{}] is not supported by the compiled conditions, evaluating it"
+                        + " with the script engine or functions, which is slower", elementName, condition);
+            }
+            return null;
+        }
+        return new CompiledCondition(condition, root);
+    }
+
+    /**
+     * @param condition raw condition
+     * @return the parameter of the wrapping function or {@code null}
+     */
+    private static String unwrapFunction(String condition) {
+        for (String function : FUNCTIONS) {
+            String prefix = "${" + function + "("; // $NON-NLS-1$
+            if (condition.startsWith(prefix) && condition.endsWith(")}")) { // $NON-NLS-1$
+                return condition.substring(prefix.length(), condition.length() - 2);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the condition as written by the user
+     */
+    String getSource() {
+        return source;
+    }
+
+    /**
+     * @param elementName name of the controller, for logging
+     * @return the value of the condition or {@code null} if it must be evaluated as before
+     *          with the current values of the variables
+     */
+    Boolean evaluate(String elementName) {
+        try {
+            boolean result = isTrue(root.evaluate(JMeterContextService.getContext().getVariables()));
+            log.debug("    >> evaluate Condition -  [{}] results is  [{}]", source, result);
+            return result;
+        } catch (IllegalArgumentException e) {
+            log.debug("{}: evaluating [{}] as before: {}", elementName, source, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isTrue(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return number != 0 && !Double.isNaN(number);
+        }
+        throw new IllegalArgumentException("expected a boolean but got '" + value + "'");
+    }
+
+    private static double toNumber(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        String text = value.toString().trim();
+        if (text.isEmpty()) {
+            return 0;
+        }
+        return NUMBER.matcher(text).matches() ? Double.parseDouble(text) : Double.NaN;
+    }
+
+    /**
+     * @param text value of a variable
+     * @return the value as it would be read once substituted in the condition
+     */
+    private static Object typed(String text) {
+        String trimmed = text.trim();
+        if ("true".equals(trimmed)) { // $NON-NLS-1$
+            return Boolean.TRUE;
+        }
+        if ("false".equals(trimmed)) { // $NON-NLS-1$
+            return Boolean.FALSE;
+        }
+        if (NUMBER.matcher(trimmed).matches()) {
+            return Double.valueOf(trimmed);
+        }
+        return text;
+    }
+
+    private interface Node {
+        Object evaluate(JMeterVariables variables);
+
+        /** @return if the node always gives a boolean, so it can be used as a condition */
+        default boolean isBoolean() {
+            return true;
+        }
+    }
+
+    private static String lookup(JMeterVariables variables, int index, String name) {
+        String value = null;
+        if (variables != null) {
+            value = index == VariableSymbols.NO_SLOT ? variables.get(name) : variables.get(index);
+        }
+        // same as an unknown variable left in place by the replacement
+        return value == null ? "${" + name + "}" : value; // $NON-NLS-1$
+    }
+
+    private static final class Literal implements Node {
+        private final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(JMeterVariables variables) {
+            return value;
+        }
+
+        @Override
+        public boolean isBoolean() {
+            return value instanceof Boolean;
+        }
+    }
+
+    private static final class Variable implements Node {
+        private final String name;
+        private final int index;
+
+        Variable(String name) {
+            this.name = name;
+            this.index = VariableSymbols.intern(name);
+        }
+
+        @Override
+        public Object evaluate(JMeterVariables variables) {
+            Object value = typed(lookup(variables, index, name));
+            if (value instanceof String) {
+                // substituted text is code for the script engine, not a string
+                throw new IllegalArgumentException("${" + name + "} is not a boolean or a number"); // $NON-NLS-1$
+            }
+            return value;
+        }
+
+        @Override
+        public boolean isBoolean() {
+            return false;
+        }
+    }
+
+    /**
+     * String literal made of constant parts and variable names
+     */
+    private static final class Template implements Node {
+        private final String[] constants;
+        private final String[] names;
+        private final int[] indexes;
+
+        Template(List<String> constants, List<String> names) {
+            this.constants = constants.toArray(new String[0]);
+            this.names = names.toArray(new String[0]);
+            this.indexes = names.stream().mapToInt(VariableSymbols::intern).toArray();
+        }
+
+        @Override
+        public Object evaluate(JMeterVariables variables) {
+            if (names.length == 0) {
+                return constants[0];
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < names.length; i++) {
+                sb.append(constants[i]).append(lookup(variables, indexes[i], names[i]));
+            }
+            return sb.append(constants[names.length]).toString();
+        }
+
+        @Override
+        public boolean isBoolean() {
+            return false;
+        }
+    }
+
+    private static final class Not implements Node {
+        private final Node operand;
+
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public Object evaluate(JMeterVariables variables) {
+            return !isTrue(operand.evaluate(variables));
+        }
+    }
+
+    private static final class Logical implements Node {
+        private final boolean and;
+        private final Node left;
+        private final Node right;
+
+        Logical(boolean and, Node left, Node right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object evaluate(JMeterVariables variables) {
+            boolean result = isTrue(left.evaluate(variables));
+            if (result == and) {
+                result = isTrue(right.evaluate(variables));
+            }
+            return result;
+        }
+    }
+
+    private static final class Comparison implements Node {
+        private final String operator;
+        private final Node left;
+        private final Node right;
+
+        Comparison(String operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object evaluate(JMeterVariables variables) {
+            Object l = left.evaluate(variables);
+            Object r = right.evaluate(variables);
+            switch (operator) {
+                case "==": // $NON-NLS-1$
+                    return looseEquals(l, r);
+                case "!=": // $NON-NLS-1$
+                    return !looseEquals(l, r);
+                case "===": // $NON-NLS-1$
+                    return l.getClass() == r.getClass() && looseEquals(l, r);
+                case "!==": // $NON-NLS-1$
+                    return l.getClass() != r.getClass() || !looseEquals(l, r);
+                default:
+                    return compare(l, r);
+            }
+        }
+
+        private static boolean looseEquals(Object l, Object r) {
+            if (l instanceof String && r instanceof String || l instanceof Boolean && r instanceof Boolean) {
+                return l.equals(r);
+            }
+            return toNumber(l) == toNumber(r);
+        }
+
+        private boolean compare(Object l, Object r) {
+            int comparison;
+            if (l instanceof String && r instanceof String) {
+                comparison = ((String) l).compareTo((String) r);
+            } else {
+                double ln = toNumber(l);
+                double rn = toNumber(r);
+                if (Double.isNaN(ln) || Double.isNaN(rn)) {
+                    return false;
+                }
+                comparison = Double.compare(ln, rn);
+            }
+            switch (operator) {
+                case "<": // $NON-NLS-1$
+                    return comparison < 0;
+                case "<=": // $NON-NLS-1$
+                    return comparison <= 0;
+                case ">": // $NON-NLS-1$
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser, throws {@link IllegalArgumentException} on unsupported syntax
+     */
+    private static final class Parser {
+        private static final String[] OPERATORS = {"===", "!==", "==", "!=", "<=", ">=", "<", ">"}; // $NON-NLS-1$
+
+        private final String input;
+        private int pos;
+
+        Parser(String input) {
+            this.input = input;
+        }
+
+        Node parse() {
+            Node node = parseOr();
+            skipSpaces();
+            if (pos != input.length()) {
+                throw error("unexpected character");
+            }
+            if (!node.isBoolean()) {
+                throw error("not a condition");
+            }
+            return node;
+        }
+
+        private Node parseOr() {
+            Node node = parseAnd();
+            while (consume("||")) { // $NON-NLS-1$
+                node = new Logical(false, node, parseAnd());
+            }
+            return node;
+        }
+
+        private Node parseAnd() {
+            Node node = parseComparison();
+            while (consume("&&")) { // $NON-NLS-1$
+                node = new Logical(true, node, parseComparison());
+            }
+            return node;
+        }
+
+        private Node parseComparison() {
+            Node left = parseUnary();
+            for (String operator : OPERATORS) {
+                if (consume(operator)) {
+                    return new Comparison(operator, left, parseUnary());
+                }
+            }
+            return left;
+        }
+
+        private Node parseUnary() {
+            skipSpaces();
+            if (peek() == '!' && !input.startsWith("!=", pos)) { // $NON-NLS-1$
+                pos++;
+                return new Not(parseUnary());
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            skipSpaces();
+            char c = peek();
+            if (c == '(') {
+                pos++;
+                Node node = parseOr();
+                if (!consume(")")) { // $NON-NLS-1$
+                    throw error("missing )");
+                }
+                return node;
+            }
+            if (c == '"' || c == '\'') {
+                return parseString(c);
+            }
+            if (input.startsWith("${", pos)) { // $NON-NLS-1$
+                return new Variable(parseVariableName());
+            }
+            if (c == '-' || c == '.' || Character.isDigit(c)) {
+                return parseNumber();
+            }
+            if (consumeWord("true")) { // $NON-NLS-1$
+                return new Literal(Boolean.TRUE);
+            }
+            if (consumeWord("false")) { // $NON-NLS-1$
+                return new Literal(Boolean.FALSE);
+            }
+            throw error("unexpected character");
+        }
+
+        private Node parseNumber() {
+            int start = pos;
+            if (peek() == '-') {
+                pos++;
+            }
+            while (pos < input.length() && (Character.isDigit(input.charAt(pos)) || input.charAt(pos) == '.'
+                    || input.charAt(pos) == 'e' || input.charAt(pos) == 'E'
+                    || (input.charAt(pos) == '-' || input.charAt(pos) == '+')
+                        && (input.charAt(pos - 1) == 'e' || input.charAt(pos - 1) == 'E'))) {
+                pos++;
+            }
+            String text = input.substring(start, pos);
+            if (!NUMBER.matcher(text).matches()) {
+                throw error("invalid number");
+            }
+            return new Literal(Double.valueOf(text));
+        }
+
+        /**
+         * @return the name of the variable referenced at the current position
+         */
+        private String parseVariableName() {
+            int end = input.indexOf('}', pos);
+            if (end < 0) {
+                throw error("missing }");
+            }
+            String name = input.substring(pos + 2, end);
+            // functions, nested references and properties are left to the functions
+            if (name.isEmpty() || name.startsWith("__") || name.indexOf('$') >= 0 || name.indexOf('{') >= 0 // $NON-NLS-1$
+                    || name.indexOf('(') >= 0) {
+                throw error("unsupported reference");
+            }
+            pos = end + 1;
+            return name;
+        }
+
+        private Node parseString(char quote) {
+            pos++;
+            List<String> constants = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= input.length()) {
+                    throw error("unterminated string");
+                }
+                char c = input.charAt(pos);
+                if (c == quote) {
+                    pos++;
+                    constants.add(sb.toString());
+                    return new Template(constants, names);
+                }
+                if (c == '\\' && pos + 1 < input.length()) {
+                    char escaped = input.charAt(pos + 1);
+                    sb.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+                    pos += 2;
+                } else if (input.startsWith("${", pos)) { // $NON-NLS-1$
+                    constants.add(sb.toString());
+                    sb.setLength(0);
+                    names.add(parseVariableName());
+                } else {
+                    sb.append(c);
+                    pos++;
+                }
+            }
+        }
+
+        private boolean consume(String token) {
+            skipSpaces();
+            if (input.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean consumeWord(String word) {
+            int end = pos + word.length();
+            if (input.startsWith(word, pos)
+                    && (end == input.length() || !Character.isJavaIdentifierPart(input.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        private char peek() {
+            return pos < input.length() ? input.charAt(pos) : 0;
+        }
+
+        private void skipSpaces() {
+            while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.apache.jmeter.engine.event.LoopIterationListener;
 import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.testelement.AbstractTestElement;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.EngineProfiler;
 import org.apache.jmeter.threads.TestCompilerHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -395,7 +396,9 @@ public class GenericController extends AbstractTestElement implements Controller
     protected void fireIterationStart() {
         LoopIterationEvent event = new LoopIterationEvent(this, getIterCount());
         for (LoopIterationListener item : iterationListeners) {
+            long start = EngineProfiler.start();
             item.iterationStart(event);
+            EngineProfiler.record(item, start);
         }
     }
 
@@ -125,6 +125,8 @@ public class IfController extends GenericController implements Serializable, Thr
 
     private static JsEvaluator JAVASCRIPT_EVALUATOR = USE_RHINO_ENGINE ? new RhinoJsEngine() : new NashornJsEngine();
 
+    private transient CompiledCondition.Holder compiledCondition;
+
     /**
      * Initialization On Demand Holder pattern
      */
@@ -226,10 +228,16 @@ public class IfController extends GenericController implements Serializable, Thr
         // so then we just pass the control to the next item inside the if control
         boolean result = true;
         if(isEvaluateAll() || isFirst()) {
-            result = isUseExpression() ?
-                    evaluateExpression(getCondition())
-                    :
-                    evaluateCondition(getCondition());
+            CompiledCondition compiled = getCompiledCondition();
+            Boolean compiledResult = compiled != null ? compiled.evaluate(getName()) : null;
+            if (compiledResult != null) {
+                result = compiledResult;
+            } else {
+                result = isUseExpression() ?
+                        evaluateExpression(getCondition())
+                        :
+                        evaluateCondition(getCondition());
+            }
         }
 
         if (result) {
@@ -244,6 +252,17 @@ public class IfController extends GenericController implements Serializable, Thr
         }
     }
 
+    /**
+     * @return the condition parsed once, or {@code null} if it is evaluated by the script engine or functions
+     */
+    private CompiledCondition getCompiledCondition() {
+        if (compiledCondition == null) {
+            compiledCondition = new CompiledCondition.Holder();
+        }
+        // an expression is only compiled when wrapped in a function, as it is not evaluated otherwise
+        return compiledCondition.get(getName(), getProperty(CONDITION), isUseExpression());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -40,6 +40,8 @@ public class WhileController extends GenericController implements Serializable,
 
     private boolean breakLoop;
 
+    private transient CompiledCondition.Holder compiledCondition;
+
     public WhileController() {
         super();
     }
@@ -59,6 +61,17 @@ public class WhileController extends GenericController implements Serializable,
         if(breakLoop) {
             return true;
         }
+        if (compiledCondition == null) {
+            compiledCondition = new CompiledCondition.Holder();
+        }
+        // only conditions wrapped in a function are compiled, blank and LAST are not
+        CompiledCondition compiled = compiledCondition.get(getName(), getProperty(CONDITION), true);
+        Boolean compiledResult = compiled != null ? compiled.evaluate(getName()) : null;
+        if (compiledResult != null) {
+            boolean res = !compiledResult;
+            log.debug("Condition value: '{}'", res);
+            return res;
+        }
         String cnd = getCondition().trim();
         log.debug("Condition string: '{}'", cnd);
         boolean res;
@@ -27,6 +27,7 @@ import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.TestPlan;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.VariableSymbols;
 import org.apache.jmeter.visualizers.backend.Backend;
 import org.apache.jorphan.collections.HashTree;
 import org.apache.jorphan.collections.HashTreeTraverser;
@@ -112,6 +113,7 @@ public class PreCompiler implements HashTreeTraverser {
         arguments.setRunningVersion(true);
         Map<String, String> args = arguments.getArgumentsAsMap();
         replacer.addVariables(args);
+        args.keySet().forEach(VariableSymbols::intern);
         return args;
     }
 
@@ -124,6 +126,7 @@ public class PreCompiler implements HashTreeTraverser {
         testPlan.prepareForPreCompile(); //A hack to make user-defined variables in the testplan element more dynamic
         Map<String, String> args = testPlan.getUserDefinedVariables();
         replacer.setUserDefinedVariables(args);
+        args.keySet().forEach(VariableSymbols::intern);
         JMeterVariables vars = new JMeterVariables();
         vars.putAll(args);
         return vars;
@@ -27,6 +27,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.jmeter.JMeter;
+import org.apache.jmeter.samplers.RequestCapturePolicy;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.testbeans.TestBean;
 import org.apache.jmeter.testbeans.TestBeanHelper;
@@ -34,6 +35,7 @@ import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.TestPlan;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.EngineProfiler;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.ListenerNotifier;
 import org.apache.jmeter.threads.PostThreadGroup;
@@ -197,6 +199,7 @@ public class StandardJMeterEngine implements JMeterEngine, Runnable {
     }
 
     private void notifyTestListenersOfStart(SearchByClass<TestStateListener> testListeners) {
+        EngineProfiler.testStarted();
         for (TestStateListener tl : testListeners.getSearchResults()) {
             if (tl instanceof TestBean) {
                 TestBeanHelper.prepare((TestElement) tl);
@@ -222,6 +225,7 @@ public class StandardJMeterEngine implements JMeterEngine, Runnable {
                 log.warn("Error encountered during shutdown of "+tl.toString(),e);
             }
         }
+        EngineProfiler.testEnded();
         if (host != null) {
             log.info("Test has ended on host {} ", host);
             long now=System.currentTimeMillis();
@@ -360,6 +364,7 @@ public class StandardJMeterEngine implements JMeterEngine, Runnable {
         try {
             PreCompiler compiler = new PreCompiler();
             test.traverse(compiler);
+            RequestCapturePolicy.configure(test);
         } catch (RuntimeException e) {
             log.error("Error occurred compiling the tree:",e);
             JMeterUtils.reportErrorToUser("Error occurred compiling the tree: - see log file", e);
@@ -20,17 +20,23 @@ package org.apache.jmeter.engine.util;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.VariableSymbols;
 
 public class SimpleVariable {
 
     private String name;
 
+    // Slot of the name, resolved once so reading the variable does not look the name up
+    private int index;
+
     public SimpleVariable(String name) {
         this.name = name;
+        this.index = indexOf(name);
     }
 
     public SimpleVariable() {
         this.name = ""; //$NON-NLS-1$
+        this.index = VariableSymbols.NO_SLOT;
     }
 
     public String getName() {
@@ -39,6 +45,11 @@ public class SimpleVariable {
 
     public void setName(String name) {
         this.name = name;
+        this.index = indexOf(name);
+    }
+
+    private static int indexOf(String name) {
+        return name == null || name.isEmpty() ? VariableSymbols.NO_SLOT : VariableSymbols.intern(name);
     }
 
     /**
@@ -50,7 +61,7 @@ public class SimpleVariable {
         JMeterVariables vars = getVariables();
 
         if (vars != null) {
-            ret = vars.get(name);
+            ret = index == VariableSymbols.NO_SLOT ? vars.get(name) : vars.get(index);
         }
 
         if (ret == null) {
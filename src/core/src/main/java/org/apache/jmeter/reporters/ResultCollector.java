@@ -202,6 +202,34 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         return getPropertyAsString(FILENAME);
     }
 
+    /**
+     * @return true if the request headers of the samples are shown or saved by this collector
+     */
+    public boolean readsRequestHeaders() {
+        return readsRequestData(getSaveConfig().saveRequestHeaders());
+    }
+
+    /**
+     * @return true if the sampler data (including the request body) is shown or saved by this collector
+     */
+    public boolean readsSamplerData() {
+        return readsRequestData(getSaveConfig().saveSamplerData());
+    }
+
+    private boolean readsRequestData(boolean savedInXml) {
+        if (getVisualizer() != null) {
+            return true;
+        }
+        if (getFilename().isEmpty()) {
+            return false;
+        }
+        if (getSaveConfig().saveAsXml()) {
+            return savedInXml;
+        }
+        // CSV files are written by the PTL writer, which reads the request headers and query string
+        return PressurePtlFileConfig.defaultConfig != null && PressurePtlFileConfig.defaultConfig.isPtlEnable();
+    }
+
     /**
      * Get the state of error logging
      *
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.samplers;
+
+import java.util.Locale;
+
+import org.apache.jmeter.reporters.ResultCollector;
+import org.apache.jmeter.reporters.ResultSaver;
+import org.apache.jmeter.reporters.Summariser;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.SearchByClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides how samplers record the request headers and the request body of their results.
+ * <p>
+ * The {@code sampleresult.request_capture} property selects the policy:
+ * <ul>
+ * <li>{@code eager}: the strings are built when the sample is taken</li>
+ * <li>{@code lazy} (default): the structured request data is kept and the strings are only built
+ * when they are read</li>
+ * <li>{@code skip}: nothing is recorded</li>
+ * <li>{@code auto}: {@code lazy} for the data read by a listener of the test plan, {@code skip} otherwise.
+ * Assertions and extractors do not count as readers, the Cache Manager gets the headers sent
+ * from the sampler.</li>
+ * </ul>
+ */
+public final class RequestCapturePolicy {
+    private static final Logger log = LoggerFactory.getLogger(RequestCapturePolicy.class);
+
+    /** How a part of the request is recorded */
+    public enum Mode {
+        EAGER,
+        LAZY,
+        SKIP
+    }
+
+    private static final String POLICY =
+            JMeterUtils.getPropDefault("sampleresult.request_capture", "lazy").trim().toLowerCase(Locale.ROOT); // $NON-NLS-1$
+
+    private static final boolean AUTO = "auto".equals(POLICY); // $NON-NLS-1$
+
+    private static volatile Mode headersMode = parse(POLICY);
+
+    private static volatile Mode bodyMode = headersMode;
+
+    private RequestCapturePolicy() {
+        // utility class
+    }
+
+    private static Mode parse(String policy) {
+        switch (policy) {
+            case "eager": // $NON-NLS-1$
+                return Mode.EAGER;
+            case "skip": // $NON-NLS-1$
+                return Mode.SKIP;
+            case "lazy": // $NON-NLS-1$
+            case "auto": // $NON-NLS-1$
+                return Mode.LAZY;
+            default:
+                log.warn("Unknown sampleresult.request_capture value '{}', using lazy", policy);
+                return Mode.LAZY;
+        }
+    }
+
+    /**
+     * @return how the request headers are recorded
+     */
+    public static Mode getHeadersMode() {
+        return headersMode;
+    }
+
+    /**
+     * @return how the request body is recorded
+     */
+    public static Mode getBodyMode() {
+        return bodyMode;
+    }
+
+    /**
+     * Compute the modes of the {@code auto} policy from the listeners of the test plan.
+     * Listeners other than {@link ResultCollector}, {@link Summariser} and {@link ResultSaver}
+     * are assumed to read everything.
+     * Does nothing for the other policies.
+     *
+     * @param test the test plan about to run
+     */
+    public static void configure(HashTree test) {
+        if (!AUTO) {
+            return;
+        }
+        SearchByClass<SampleListener> listeners = new SearchByClass<>(SampleListener.class);
+        test.traverse(listeners);
+        boolean headers = false;
+        boolean body = false;
+        for (SampleListener listener : listeners.getSearchResults()) {
+            if (listener instanceof ResultCollector) {
+                ResultCollector collector = (ResultCollector) listener;
+                headers |= collector.readsRequestHeaders();
+                body |= collector.readsSamplerData();
+            } else if (!(listener instanceof Summariser) && !(listener instanceof ResultSaver)) {
+                headers = true;
+                body = true;
+            }
+        }
+        headersMode = headers ? Mode.LAZY : Mode.SKIP;
+        bodyMode = body ? Mode.LAZY : Mode.SKIP;
+        log.info("Request capture: headers={}, body={}", headersMode, bodyMode);
+    }
+}
@@ -17,10 +17,13 @@
 
 package org.apache.jmeter.samplers;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.VariableSymbols;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.util.JMeterError;
 import org.slf4j.Logger;
@@ -43,9 +46,17 @@ public class SampleEvent implements Serializable {
     // List of variable names to be saved in JTL files
     private static volatile String[] variableNames = new String[0];
 
+    // Slots of the variable names in VariableSymbols, same order as variableNames
+    private static volatile int[] variableSlots = new int[0];
+
     // The values. Entries may be null, but there will be the correct number.
+    // Values of the interned names are read from the snapshot until the event is serialized.
     private final String[] values;
 
+    private transient JMeterVariables.Snapshot snapshot;
+
+    private transient int[] snapshotSlots;
+
     // The hostname cannot change during a run, so safe to cache it just once
     static {
         HOSTNAME=JMeterUtils.getLocalHostName();
@@ -58,7 +69,13 @@ public class SampleEvent implements Serializable {
      */
     public static void initSampleVariables() {
         String vars = JMeterUtils.getProperty(SAMPLE_VARIABLES);
-        variableNames=vars != null ? vars.split(",") : new String[0];
+        String[] names = vars != null ? vars.split(",") : new String[0];
+        int[] slots = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            slots[i] = VariableSymbols.intern(names[i]);
+        }
+        variableSlots = slots;
+        variableNames = names;
         if (log.isInfoEnabled()) {
             log.info("List of sample_variables: {}", Arrays.toString(variableNames));
         }
@@ -148,9 +165,35 @@ public class SampleEvent implements Serializable {
     }
 
     private void saveVars(JMeterVariables vars){
-        for(int i = 0; i < variableNames.length; i++){
-            values[i] = vars.get(variableNames[i]);
+        if (values.length == 0) {
+            return;
+        }
+        String[] names = variableNames;
+        int[] slots = variableSlots;
+        if (slots.length != values.length || names.length != values.length) {
+            // sample_variables changed while the event was created
+            return;
+        }
+        boolean interned = false;
+        for (int i = 0; i < values.length; i++) {
+            if (slots[i] == VariableSymbols.NO_SLOT) {
+                values[i] = vars.get(names[i]);
+            } else {
+                interned = true;
+            }
+        }
+        if (interned) {
+            snapshot = vars.snapshot();
+            snapshotSlots = slots;
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getVarValue(i);
         }
+        snapshot = null;
+        out.defaultWriteObject();
     }
 
     /**
@@ -184,7 +227,11 @@ public class SampleEvent implements Serializable {
      */
     public String getVarValue(int i){
         try {
-            return values[i];
+            String value = values[i];
+            if (value == null && snapshot != null && snapshotSlots[i] != VariableSymbols.NO_SLOT) {
+                return snapshot.get(snapshotSlots[i]);
+            }
+            return value;
         } catch (ArrayIndexOutOfBoundsException e) {
             throw new JMeterError("Check the sample_variable settings!", e);
         }
@@ -17,6 +17,8 @@
 
 package org.apache.jmeter.samplers;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
@@ -24,11 +26,14 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.apache.jmeter.assertions.AssertionResult;
 import org.apache.jmeter.gui.Searchable;
@@ -197,6 +202,9 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
 
     private String requestHeaders = "";
 
+    // Builds requestHeaders when they are first read, see RequestCapturePolicy
+    private transient Supplier<String> requestHeadersSupplier;
+
     /**
      * timeStamp == 0 means either not yet initialised or no stamp available (e.g. when loading a results file)
      * the time stamp - can be start or end
@@ -223,6 +231,9 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
 
     private String queryString = ""; // never null
 
+    // Builds queryString when it is first read, see RequestCapturePolicy
+    private transient Supplier<String> queryStringSupplier;
+
     private String mqTraceId;
 
     public String getMqTraceId() {
@@ -239,6 +250,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      * @param value -
      */
     public void setQueryString(String value) {
+        queryStringSupplier = null;
         if (value == null) {
             queryString = "";// $NON-NLS-1$
         } else {
@@ -246,9 +258,28 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         }
     }
 
+    /**
+     * Save the query string, built only when it is read
+     *
+     * @param supplier builds the query string, may return {@code null}
+     */
+    public void setQueryStringSupplier(Supplier<String> supplier) {
+        queryStringSupplier = supplier;
+    }
+
     public String getQueryString() {
+        buildQueryString();
         return queryString;
     }
+
+    private void buildQueryString() {
+        Supplier<String> supplier = queryStringSupplier;
+        if (supplier != null) {
+            String value = supplier.get();
+            queryString = value == null ? "" : value; // $NON-NLS-1$
+            queryStringSupplier = null;
+        }
+    }
     //add end
 
     //添加mq的topic和partition  add by xr.l 2021.06.29
@@ -338,6 +369,11 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     private long connectTime = 0;
 
+    /**
+     * time the timers scheduled the sample to start, 0 if unknown
+     */
+    private long intendedStartTime = 0;
+
     /**
      * Way to signal what to do on Test
      */
@@ -407,6 +443,9 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     private transient volatile String responseDataAsString;
 
+    // Parsed forms of the response data shared by post-processors and assertions, by format
+    private transient Map<String, Object> parsedResponses;
+
     public SampleResult() {
         this(USE_NANO_TIME, NANOTHREAD_SLEEP);
     }
@@ -446,9 +485,11 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         label = res.label;//OK
         latency = res.latency;
         connectTime = res.connectTime;
+        intendedStartTime = res.intendedStartTime;
         location = res.location;//OK
         parent = res.parent;
         pauseTime = res.pauseTime;
+        res.buildRequestHeaders();
         requestHeaders = res.requestHeaders;//OK
         responseCode = res.responseCode;//OK
         responseData = res.responseData;//OK
@@ -848,6 +889,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     public void setResponseData(byte[] response) {
         responseDataAsString = null;
+        parsedResponses = null;
         responseData = response == null ? EMPTY_BA : response;
     }
 
@@ -861,6 +903,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
     @Deprecated
     public void setResponseData(String response) {
         responseDataAsString = null;
+        parsedResponses = null;
         try {
             responseData = response.getBytes(getDataEncodingWithDefault());
         } catch (UnsupportedEncodingException e) {
@@ -877,6 +920,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     public void setResponseData(final String response, final String encoding) {
         responseDataAsString = null;
+        parsedResponses = null;
         String encodeUsing = encoding != null ? encoding : DEFAULT_CHARSET;
         try {
             responseData = response.getBytes(encodeUsing);
@@ -921,6 +965,33 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         }
     }
 
+    /**
+     * Get a parsed form of the response data, parsing it on first use, so post-processors
+     * and assertions working on the same response share one parsed document.
+     * The cache is cleared when the response data is replaced.
+     * <p>
+     * Callers must not modify the returned document.
+     *
+     * @param format identifies the parser and the type of the parsed document
+     * @param parser parses the response data as returned by {@link #getResponseDataAsString()}
+     * @param <T>    type of the parsed document
+     * @return the parsed document, {@code null} results are not cached
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getParsedResponse(String format, Function<String, T> parser) {
+        if (parsedResponses == null) {
+            parsedResponses = new HashMap<>(4);
+        }
+        T parsed = (T) parsedResponses.get(format);
+        if (parsed == null) {
+            parsed = parser.apply(getResponseDataAsString());
+            if (parsed != null) {
+                parsedResponses.put(format, parsed);
+            }
+        }
+        return parsed;
+    }
+
     public void setSamplerData(String s) {
         samplerData = s;
     }
@@ -1117,9 +1188,18 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      * @return the request headers
      */
     public String getRequestHeaders() {
+        buildRequestHeaders();
         return requestHeaders;
     }
 
+    private void buildRequestHeaders() {
+        Supplier<String> supplier = requestHeadersSupplier;
+        if (supplier != null) {
+            requestHeaders = supplier.get();
+            requestHeadersSupplier = null;
+        }
+    }
+
     /**
      * @return the response headers
      */
@@ -1132,9 +1212,17 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      *               request headers
      */
     public void setRequestHeaders(String string) {
+        requestHeadersSupplier = null;
         requestHeaders = string;
     }
 
+    /**
+     * @param supplier builds the request headers when they are first read
+     */
+    public void setRequestHeadersSupplier(Supplier<String> supplier) {
+        requestHeadersSupplier = supplier;
+    }
+
     /**
      * @param string -
      *               response headers
@@ -1452,6 +1540,45 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         this.connectTime = time;
     }
 
+    /**
+     * @return the time the timers scheduled this sample to start, 0 if unknown.
+     *          Only set when precise pacing is enabled
+     */
+    public long getIntendedStartTime() {
+        return intendedStartTime;
+    }
+
+    /**
+     * @param intendedStartTime time the timers scheduled this sample to start
+     */
+    public void setIntendedStartTime(long intendedStartTime) {
+        this.intendedStartTime = intendedStartTime;
+    }
+
+    /**
+     * Elapsed time measured from the intended start of the sample instead of its actual start.
+     * It includes the time the sample was delayed because the thread was late on its schedule,
+     * which {@link #getTime()} hides when the system under test stalls.
+     *
+     * @return the corrected latency, or the elapsed time if the intended start time is unknown
+     */
+    public long getCorrectedLatency() {
+        if (intendedStartTime <= 0 || intendedStartTime >= startTime) {
+            return getTime();
+        }
+        return getTime() + startTime - intendedStartTime;
+    }
+
+    /**
+     * This is only intended for use by SampleResultConverter and CSVSaveService!
+     * Must be called after the start time and the elapsed time are set.
+     *
+     * @param correctedLatency The corrected latency to set.
+     */
+    public void setCorrectedLatency(long correctedLatency) {
+        intendedStartTime = correctedLatency > getTime() ? startTime - (correctedLatency - getTime()) : 0;
+    }
+
     /**
      * This is only intended for use by SampleResultConverter!
      *
@@ -1639,12 +1766,15 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     public void cleanAfterSample() {
         this.responseDataAsString = null;
+        this.parsedResponses = null;
     }
 
     @Override
     public Object clone() {
         try {
-            return super.clone();
+            SampleResult clone = (SampleResult) super.clone();
+            clone.parsedResponses = null;
+            return clone;
         } catch (CloneNotSupportedException e) {
             throw new IllegalStateException("This should not happen");
         }
@@ -1706,4 +1836,11 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
     public void setTestLogicalAction(TestLogicalAction testLogicalAction) {
         this.testLogicalAction = testLogicalAction;
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // Build the lazy request data, the suppliers are not serializable
+        buildRequestHeaders();
+        buildQueryString();
+        out.defaultWriteObject();
+    }
 }
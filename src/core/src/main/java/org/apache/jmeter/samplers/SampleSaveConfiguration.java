@@ -218,6 +218,8 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
 
     private static final String SAVE_IDLE_TIME       = "jmeter.save.saveservice.idle_time"; // $NON_NLS-1$
 
+    private static final String SAVE_CORRECTED_LATENCY = "jmeter.save.saveservice.corrected_latency"; // $NON_NLS-1$
+
     // Defaults from properties:
     private static final boolean TIME;
     private static final boolean TIMESTAMP;
@@ -278,6 +280,8 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
 
     private static final boolean IDLE_TIME;
 
+    private static final boolean CORRECTED_LATENCY;
+
     public static final String DEFAULT_DELIMITER = ","; // $NON_NLS-1$
 
     // Read in the properties having to do with saving from a properties file.
@@ -378,6 +382,8 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         SAMPLE_COUNT=TRUE.equalsIgnoreCase(props.getProperty(SAVE_SAMPLE_COUNT, FALSE));
 
         IDLE_TIME=TRUE.equalsIgnoreCase(props.getProperty(SAVE_IDLE_TIME, TRUE));
+
+        CORRECTED_LATENCY=TRUE.equalsIgnoreCase(props.getProperty(SAVE_CORRECTED_LATENCY, FALSE));
     }
 
     private static final SampleSaveConfiguration STATIC_SAVE_CONFIGURATION = new SampleSaveConfiguration();
@@ -417,6 +423,7 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         "SampleCount", // Sample and Error Count
         "Hostname",
         "IdleTime",
+        "CorrectedLatency",
         "RequestHeaders", // XML
         "SamplerData", // XML
         "ResponseHeaders", // XML
@@ -463,6 +470,8 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
 
     private boolean idleTime = IDLE_TIME;
 
+    private boolean correctedLatency = CORRECTED_LATENCY;
+
     // Does not appear to be used (yet)
     private int assertionsResultsToSave = ASSERTIONS_RESULT_TO_SAVE;
 
@@ -504,6 +513,7 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         fileName = value;
         hostname = value;
         idleTime = value;
+        correctedLatency = value;
         label = value;
         latency = value;
         message = value;
@@ -652,6 +662,7 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
             s.hostname == hostname &&
             s.sampleCount == sampleCount &&
             s.idleTime == idleTime &&
+            s.correctedLatency == correctedLatency &&
             s.threadCounts == threadCounts;
 
         boolean stringValues = false;
@@ -702,6 +713,7 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         hash = 31 * hash + (dateFormat != null  ? dateFormat.hashCode() : 0);
         hash = 31 * hash + (sampleCount ? 1 : 0);
         hash = 31 * hash + (idleTime ? 1 : 0);
+        hash = 31 * hash + (correctedLatency ? 1 : 0);
 
         return hash;
     }
@@ -1012,4 +1024,12 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
     public void setIdleTime(boolean save) {
         idleTime = save;
     }
+
+    public boolean saveCorrectedLatency() {
+        return correctedLatency;
+    }
+
+    public void setCorrectedLatency(boolean save) {
+        correctedLatency = save;
+    }
 }
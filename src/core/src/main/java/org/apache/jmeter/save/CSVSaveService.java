@@ -100,6 +100,7 @@ public final class CSVSaveService {
     public static final String CSV_ENCODING = "Encoding"; // $NON-NLS-1$
     public static final String CSV_HOSTNAME = "Hostname"; // $NON-NLS-1$
     public static final String CSV_IDLETIME = "IdleTime"; // $NON-NLS-1$
+    public static final String CSV_CORRECTED_LATENCY = "CorrectedLatency"; // $NON-NLS-1$
 
     // Used to enclose variable name labels, to distinguish from any of the
     // above labels
@@ -361,6 +362,12 @@ public final class CSVSaveService {
                 result.setConnectTime(Long.parseLong(text));
             }
 
+            if (saveConfig.saveCorrectedLatency()) {
+                field = CSV_CORRECTED_LATENCY;
+                text = parts[i++];
+                result.setCorrectedLatency(Long.parseLong(text));
+            }
+
             if (i + saveConfig.getVarCount() < parts.length) {
                 log.warn("Line: {}. Found {} fields, expected {}. Extra fields have been ignored.", lineNumber,
                         parts.length, i);
@@ -418,6 +425,7 @@ public final class CSVSaveService {
         appendFields(saveConfig.saveHostname(), text, delim, CSV_HOSTNAME);
         appendFields(saveConfig.saveIdleTime(), text, delim, CSV_IDLETIME);
         appendFields(saveConfig.saveConnectTime(), text, delim, CSV_CONNECT_TIME);
+        appendFields(saveConfig.saveCorrectedLatency(), text, delim, CSV_CORRECTED_LATENCY);
 
         for (int i = 0; i < SampleEvent.getVarCount(); i++) {
             text.append(VARIABLE_NAME_QUOTE_CHAR);
@@ -483,6 +491,7 @@ public final class CSVSaveService {
         headerLabelMethods.put(CSV_HOSTNAME, new Functor("setHostname"));
         headerLabelMethods.put(CSV_IDLETIME, new Functor("setIdleTime"));
         headerLabelMethods.put(CSV_CONNECT_TIME, new Functor("setConnectTime"));
+        headerLabelMethods.put(CSV_CORRECTED_LATENCY, new Functor("setCorrectedLatency"));
     }
 
     /**
@@ -897,6 +906,10 @@ public final class CSVSaveService {
             text.append(sample.getConnectTime());
         }
 
+        if (saveConfig.saveCorrectedLatency()) {
+            text.append(sample.getCorrectedLatency());
+        }
+
         for (int i = 0; i < SampleEvent.getVarCount(); i++) {
             text.append(event.getVarValue(i));
         }
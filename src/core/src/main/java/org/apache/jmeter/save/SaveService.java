@@ -18,6 +18,7 @@
 package org.apache.jmeter.save;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -29,6 +30,7 @@ import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -419,12 +421,28 @@ public class SaveService {
 
     /**
      * Load a Test tree (JMX file)
+     * <p>
+     * When the property {@code jmeter.save.snapshot.dir} is set, a binary snapshot of the
+     * parsed tree is kept in that folder and reused as long as the file content is unchanged.
      * @param file the JMX file
      * @return the loaded tree
      * @throws IOException if there is a problem reading the file or processing it
      */
     public static HashTree loadTree(File file) throws IOException {
         log.info("Loading file: {}", file);
+        TreeSnapshotCache snapshots = TreeSnapshotCache.fromProperties(
+                fileVersion + '|' + propertiesVersion + '|' + fileEncoding + '|' + JMeterUtils.getJMeterVersion());
+        if (snapshots != null) {
+            byte[] content = Files.readAllBytes(file.toPath());
+            HashTree tree = snapshots.load(content);
+            if (tree == null) {
+                tree = readTree(new ByteArrayInputStream(content), file);
+                if (tree != null) {
+                    snapshots.store(content, tree);
+                }
+            }
+            return tree;
+        }
         try (InputStream inputStream = new FileInputStream(file);
                 BufferedInputStream bufferedInputStream =
                     new BufferedInputStream(inputStream)){
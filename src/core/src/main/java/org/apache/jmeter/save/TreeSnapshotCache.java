@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.save;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.BooleanProperty;
+import org.apache.jmeter.testelement.property.CollectionProperty;
+import org.apache.jmeter.testelement.property.DoubleProperty;
+import org.apache.jmeter.testelement.property.FloatProperty;
+import org.apache.jmeter.testelement.property.IntegerProperty;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.testelement.property.LongProperty;
+import org.apache.jmeter.testelement.property.MapProperty;
+import org.apache.jmeter.testelement.property.MultiProperty;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.testelement.property.StringProperty;
+import org.apache.jmeter.testelement.property.TestElementProperty;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary snapshots of parsed test plans, used by {@link SaveService#loadTree(File)}
+ * to skip the XStream parse when the same plan is loaded again.
+ * <p>
+ * A snapshot is keyed by the SHA-256 of the plan file content and of the
+ * saveservice configuration, so any change to either yields a miss.
+ * Elements are rebuilt the same way as {@code TestElementConverter} does:
+ * default constructor followed by {@link TestElement#setProperty(JMeterProperty)}
+ * for every saved property. Plans holding property types that cannot be
+ * encoded are simply not snapshotted.
+ */
+final class TreeSnapshotCache {
+    private static final Logger log = LoggerFactory.getLogger(TreeSnapshotCache.class);
+
+    /** Folder holding snapshots, disabled when empty */
+    private static final String SNAPSHOT_DIR_PROPERTY = "jmeter.save.snapshot.dir"; // $NON-NLS-1$
+
+    private static final String SNAPSHOT_SUFFIX = ".jmxs"; // $NON-NLS-1$
+
+    private static final int MAGIC = 0x4A4D5853; // JMXS
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_BOOLEAN = 2;
+    private static final byte TAG_INTEGER = 3;
+    private static final byte TAG_LONG = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_DOUBLE = 6;
+    private static final byte TAG_COLLECTION = 7;
+    private static final byte TAG_MAP = 8;
+    private static final byte TAG_ELEMENT = 9;
+
+    private final File directory;
+    private final String configurationKey;
+
+    TreeSnapshotCache(File directory, String configurationKey) {
+        this.directory = directory;
+        this.configurationKey = configurationKey;
+    }
+
+    /**
+     * @param configurationKey describes the saveservice configuration the snapshots depend on
+     * @return the configured cache, or {@code null} if snapshots are disabled
+     */
+    static TreeSnapshotCache fromProperties(String configurationKey) {
+        String dir = JMeterUtils.getPropDefault(SNAPSHOT_DIR_PROPERTY, ""); // $NON-NLS-1$
+        if (dir.trim().isEmpty()) {
+            return null;
+        }
+        return new TreeSnapshotCache(new File(dir.trim()), configurationKey);
+    }
+
+    /**
+     * @param planContent raw content of the plan file
+     * @return the tree saved for this content, or {@code null} on a miss or if the snapshot is unusable
+     */
+    HashTree load(byte[] planContent) {
+        File snapshot = snapshotFile(planContent);
+        if (snapshot == null || !snapshot.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(snapshot.toPath());
+                DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            HashTree tree = readSnapshot(data);
+            log.info("Loaded test plan from snapshot {}", snapshot);
+            return tree;
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            log.warn("Ignoring unusable test plan snapshot {}, message: {}", snapshot, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Save a freshly parsed tree. Must be called before the tree is modified.
+     * Failures are logged and otherwise ignored.
+     *
+     * @param planContent raw content of the plan file
+     * @param tree        the tree parsed from {@code planContent}
+     */
+    void store(byte[] planContent, HashTree tree) {
+        File snapshot = snapshotFile(planContent);
+        if (snapshot == null) {
+            return;
+        }
+        File tmp = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                log.warn("Could not create test plan snapshot directory {}", directory);
+                return;
+            }
+            tmp = File.createTempFile(snapshot.getName(), ".tmp", directory); // $NON-NLS-1$
+            try (OutputStream out = Files.newOutputStream(tmp.toPath());
+                    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+                writeSnapshot(data, tree);
+            }
+            Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+            log.info("Saved test plan snapshot {}", snapshot);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.info("Test plan snapshot not saved, message: {}", e.getLocalizedMessage());
+        } finally {
+            if (tmp != null && !tmp.delete()) {
+                log.debug("Could not delete {}", tmp);
+            }
+        }
+    }
+
+    private File snapshotFile(byte[] planContent) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256"); // $NON-NLS-1$
+            digest.update(configurationKey.getBytes(StandardCharsets.UTF_8));
+            digest.update(planContent);
+            return new File(directory, JOrphanUtils.baToHexString(digest.digest()) + SNAPSHOT_SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            log.warn("Test plan snapshots disabled, message: {}", e.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    static void writeSnapshot(DataOutputStream out, HashTree tree) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeTree(out, tree);
+    }
+
+    static HashTree readSnapshot(DataInputStream in) throws IOException, ReflectiveOperationException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a test plan snapshot or unsupported format version");
+        }
+        return readTree(in);
+    }
+
+    private static void writeTree(DataOutputStream out, HashTree tree) throws IOException {
+        out.writeUTF(tree.getClass().getName());
+        out.writeInt(tree.list().size());
+        for (Object key : tree.list()) {
+            if (!(key instanceof TestElement)) {
+                throw new UnsupportedOperationException("Unsupported tree node " + key.getClass().getName());
+            }
+            writeElement(out, (TestElement) key);
+            writeTree(out, tree.getTree(key));
+        }
+    }
+
+    private static HashTree readTree(DataInputStream in) throws IOException, ReflectiveOperationException {
+        HashTree tree = (HashTree) newInstance(in.readUTF());
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            TestElement element = readElement(in);
+            tree.set(element, readTree(in));
+        }
+        return tree;
+    }
+
+    private static void writeElement(DataOutputStream out, TestElement element) throws IOException {
+        out.writeUTF(element.getClass().getName());
+        writeProperties(out, element.propertyIterator());
+    }
+
+    private static TestElement readElement(DataInputStream in) throws IOException, ReflectiveOperationException {
+        TestElement element = (TestElement) newInstance(in.readUTF());
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            element.setProperty(readProperty(in));
+        }
+        return element;
+    }
+
+    private static void writeProperties(DataOutputStream out, PropertyIterator iterator) throws IOException {
+        // The number of properties is not known up front, so count while buffering
+        List<JMeterProperty> properties = new ArrayList<>();
+        while (iterator.hasNext()) {
+            properties.add(iterator.next());
+        }
+        out.writeInt(properties.size());
+        for (JMeterProperty property : properties) {
+            writeProperty(out, property);
+        }
+    }
+
+    private static void writeProperty(DataOutputStream out, JMeterProperty property) throws IOException {
+        Class<?> type = property.getClass();
+        if (type == StringProperty.class) {
+            out.writeByte(TAG_STRING);
+            writeString(out, property.getName());
+            writeString(out, property.getStringValue());
+        } else if (type == BooleanProperty.class) {
+            out.writeByte(TAG_BOOLEAN);
+            writeString(out, property.getName());
+            out.writeBoolean(property.getBooleanValue());
+        } else if (type == IntegerProperty.class) {
+            out.writeByte(TAG_INTEGER);
+            writeString(out, property.getName());
+            out.writeInt(property.getIntValue());
+        } else if (type == LongProperty.class) {
+            out.writeByte(TAG_LONG);
+            writeString(out, property.getName());
+            out.writeLong(property.getLongValue());
+        } else if (type == FloatProperty.class) {
+            out.writeByte(TAG_FLOAT);
+            writeString(out, property.getName());
+            out.writeFloat(property.getFloatValue());
+        } else if (type == DoubleProperty.class) {
+            out.writeByte(TAG_DOUBLE);
+            writeString(out, property.getName());
+            out.writeDouble(property.getDoubleValue());
+        } else if (type == CollectionProperty.class || type == MapProperty.class) {
+            out.writeByte(type == CollectionProperty.class ? TAG_COLLECTION : TAG_MAP);
+            writeString(out, property.getName());
+            writeProperties(out, ((MultiProperty) property).iterator());
+        } else if (type == TestElementProperty.class) {
+            out.writeByte(TAG_ELEMENT);
+            writeString(out, property.getName());
+            writeElement(out, ((TestElementProperty) property).getElement());
+        } else {
+            throw new UnsupportedOperationException("Unsupported property type " + type.getName());
+        }
+    }
+
+    private static JMeterProperty readProperty(DataInputStream in) throws IOException, ReflectiveOperationException {
+        byte tag = in.readByte();
+        String name = readString(in);
+        switch (tag) {
+            case TAG_STRING:
+                return new StringProperty(name, readString(in));
+            case TAG_BOOLEAN:
+                return new BooleanProperty(name, in.readBoolean());
+            case TAG_INTEGER:
+                return new IntegerProperty(name, in.readInt());
+            case TAG_LONG:
+                return new LongProperty(name, in.readLong());
+            case TAG_FLOAT:
+                return new FloatProperty(name, in.readFloat());
+            case TAG_DOUBLE:
+                return new DoubleProperty(name, in.readDouble());
+            case TAG_COLLECTION:
+            case TAG_MAP:
+                MultiProperty multi = tag == TAG_COLLECTION ? new CollectionProperty() : new MapProperty();
+                multi.setName(name);
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    multi.addProperty(readProperty(in));
+                }
+                return multi;
+            case TAG_ELEMENT:
+                // Same sequence as TestElementPropertyConverter: create the element, then add its properties
+                String className = in.readUTF();
+                TestElementProperty prop = new TestElementProperty(name, (TestElement) newInstance(className));
+                int props = in.readInt();
+                for (int i = 0; i < props; i++) {
+                    prop.addProperty(readProperty(in));
+                }
+                return prop;
+            default:
+                throw new IOException("Unknown property tag " + tag);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        // writeUTF is limited to 64K, which is not enough for large script bodies
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Object newInstance(String className) throws ReflectiveOperationException {
+        return Class.forName(className, true, Thread.currentThread().getContextClassLoader())
+                .getDeclaredConstructor().newInstance();
+    }
+}
@@ -20,7 +20,6 @@ package org.apache.jmeter.threads;
 import java.io.Serializable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jmeter.control.Controller;
 import org.apache.jmeter.control.LoopController;
@@ -77,8 +76,9 @@ public abstract class AbstractThreadGroup extends AbstractTestElement
     public static final String IS_SAME_USER_ON_NEXT_ITERATION = "ThreadGroup.same_user_on_next_iteration";
 
 
-    private final AtomicInteger numberOfThreads = new AtomicInteger(0); // Number of active threads in this group
-    private final AtomicInteger numberOfSleepThreads = new AtomicInteger(0); // Number of active threads in this group
+    private final ConcurrencyCounter numberOfThreads = new ConcurrencyCounter(); // Number of active threads in this group
+    private final ConcurrencyCounter numberOfSleepThreads = new ConcurrencyCounter(); // Number of sleeping threads in this group
+    private final ConcurrencyCounter numberOfSamplingThreads = new ConcurrencyCounter(); // Number of threads running a sampler
 
     /** {@inheritDoc} */
     @Override
@@ -186,14 +186,14 @@ public abstract class AbstractThreadGroup extends AbstractTestElement
      * Increment the number of active threads
      */
     void incrNumberOfThreads() {
-        numberOfThreads.incrementAndGet();
+        numberOfThreads.increment();
     }
 
     /**
      * Decrement the number of active threads
      */
     void decrNumberOfThreads() {
-        numberOfThreads.decrementAndGet();
+        numberOfThreads.decrement();
     }
 
     /**
@@ -205,18 +205,58 @@ public abstract class AbstractThreadGroup extends AbstractTestElement
         return numberOfThreads.get();
     }
 
-    public synchronized void incrNumberOfSleepThreads() {
-        numberOfSleepThreads.incrementAndGet();
+    public void incrNumberOfSleepThreads() {
+        numberOfSleepThreads.increment();
     }
 
-    public synchronized void descNumberOfSleepThreads() {
-        numberOfSleepThreads.decrementAndGet();
+    public void descNumberOfSleepThreads() {
+        numberOfSleepThreads.decrement();
     }
 
     public int getNumberOfSleepThreads() {
         return numberOfSleepThreads.get();
     }
 
+    /**
+     * Get the number of active threads which are not sleeping in a timer or ramp-up delay
+     *
+     * @return the number of awake threads
+     */
+    public int getNumberOfAwakeThreads() {
+        return numberOfThreads.get() - numberOfSleepThreads.get();
+    }
+
+    void incrNumberOfSamplingThreads() {
+        numberOfSamplingThreads.increment();
+    }
+
+    void decrNumberOfSamplingThreads() {
+        numberOfSamplingThreads.decrement();
+    }
+
+    /**
+     * Get the number of threads currently running a sampler
+     *
+     * @return the number of in-flight samples
+     */
+    public int getNumberOfSamplingThreads() {
+        return numberOfSamplingThreads.get();
+    }
+
+    /**
+     * @return snapshot of the active threads of this group, to compute time-weighted averages
+     */
+    public ConcurrencyCounter.Snapshot getActiveThreadsSnapshot() {
+        return numberOfThreads.snapshot();
+    }
+
+    /**
+     * @return snapshot of the threads of this group running a sampler, to compute time-weighted averages
+     */
+    public ConcurrencyCounter.Snapshot getSamplingThreadsSnapshot() {
+        return numberOfSamplingThreads.snapshot();
+    }
+
     /**
      * Get the number of threads.
      *
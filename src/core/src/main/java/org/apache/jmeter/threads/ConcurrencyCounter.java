@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of threads in a given state (active, sleeping, sampling...) updated without shared locks.
+ * <p>
+ * Updates go to a cell picked from the id of the calling thread, so threads changing state at
+ * the same time only contend when they share a cell. Each cell is versioned like a sequence lock:
+ * a snapshot is retried if any cell was updated while it was read, updates never wait for snapshots.
+ * The value and its integral are thus read consistently, at the cost of retries for the reader when
+ * threads change state at a very high rate. {@link #get()} does not check versions and may miss
+ * concurrent updates.
+ * <p>
+ * The counter also integrates its value over time, so the time-weighted average number of
+ * threads between two {@link Snapshot}s can be computed, whatever the number of changes in between.
+ * <p>
+ * The counter is runtime state: a deserialized counter starts again from zero.
+ */
+public final class ConcurrencyCounter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int CELL_COUNT = cellCount();
+
+    private final long originNanos = System.nanoTime();
+
+    private final transient Cell[] cells = newCells();
+
+    private static int cellCount() {
+        int wanted = Math.min(64, 2 * Runtime.getRuntime().availableProcessors());
+        return Integer.highestOneBit(Math.max(1, wanted - 1)) << 1;
+    }
+
+    private static Cell[] newCells() {
+        Cell[] result = new Cell[CELL_COUNT];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new Cell();
+        }
+        return result;
+    }
+
+    private long nowMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - originNanos);
+    }
+
+    /**
+     * A thread enters the state
+     */
+    public void increment() {
+        update(1);
+    }
+
+    /**
+     * A thread leaves the state
+     */
+    public void decrement() {
+        update(-1);
+    }
+
+    private void update(long countDelta) {
+        Cell cell = cells[(int) Thread.currentThread().getId() & (CELL_COUNT - 1)];
+        long version = cell.version.get();
+        // An odd version means another thread mapped to this cell is updating it
+        while ((version & 1) != 0 || !cell.version.compareAndSet(version, version + 1)) {
+            version = cell.version.get();
+        }
+        // Time is read once the cell is held, so a snapshot sees the update if and only if it happened before
+        cell.timeSum -= countDelta * nowMicros();
+        cell.count += countDelta;
+        cell.version.set(version + 2);
+    }
+
+    /**
+     * @return number of threads in the state
+     */
+    public int get() {
+        long value = 0;
+        for (Cell cell : cells) {
+            value += cell.count;
+        }
+        return (int) value;
+    }
+
+    /**
+     * @return the current value and its integral over time, to compute averages
+     */
+    public Snapshot snapshot() {
+        long[] versions = new long[cells.length];
+        while (true) {
+            if (!readVersions(versions)) {
+                continue;
+            }
+            long now = nowMicros();
+            long value = 0;
+            long timeSum = 0;
+            for (Cell cell : cells) {
+                value += cell.count;
+                timeSum += cell.timeSum;
+            }
+            if (sameVersions(versions)) {
+                return new Snapshot(this, now, (int) value, timeSum + value * now);
+            }
+        }
+    }
+
+    /**
+     * @return false if a cell is being updated
+     */
+    private boolean readVersions(long[] versions) {
+        for (int i = 0; i < cells.length; i++) {
+            long version = cells[i].version.get();
+            if ((version & 1) != 0) {
+                return false;
+            }
+            versions[i] = version;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if no cell was updated since {@link #readVersions(long[])}
+     */
+    private boolean sameVersions(long[] versions) {
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i].version.get() != versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Object readResolve() {
+        return new ConcurrencyCounter();
+    }
+
+    /**
+     * Part of the counter updated by a subset of the threads
+     */
+    private static final class Cell {
+        /** Odd while the cell is being updated */
+        private final AtomicLong version = new AtomicLong();
+
+        private volatile long count;
+
+        /**
+         * Sum of the times (in microseconds since origin) threads left the state,
+         * minus the sum of the times they entered it.
+         * Adding count * now gives the integral of count over time since origin.
+         */
+        private volatile long timeSum;
+    }
+
+    /**
+     * Value of a {@link ConcurrencyCounter} at a point in time
+     */
+    public static final class Snapshot {
+        private final ConcurrencyCounter counter;
+        private final long timeMicros;
+        private final int value;
+        private final long integral;
+
+        Snapshot(ConcurrencyCounter counter, long timeMicros, int value, long integral) {
+            this.counter = counter;
+            this.timeMicros = timeMicros;
+            this.value = value;
+            this.integral = integral;
+        }
+
+        /**
+         * @return number of threads in the state when the snapshot was taken
+         */
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Time-weighted average number of threads between a previous snapshot of the same counter and this one.
+         *
+         * @param previous earlier snapshot of the same counter, may be {@code null}
+         * @return the average, or the value of this snapshot if no time elapsed
+         *          or if the previous snapshot comes from another counter
+         */
+        public double averageSince(Snapshot previous) {
+            if (previous == null || previous.counter != counter || timeMicros <= previous.timeMicros) {
+                return value;
+            }
+            return (double) (integral - previous.integral) / (timeMicros - previous.timeMicros);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in profiler of the time the engine spends in the test elements around the samples:
+ * pre-processors, timer computations, post-processors, assertions and listeners,
+ * and of the time the threads are blocked on the monitors or waiting on the locks of the elements.
+ * <p>
+ * Enabled by the {@code engine.profiler} property, otherwise the calls only cost a branch on a constant.
+ * The counters are held per thread and per element, so recording takes no lock,
+ * and are summed per element name and class by {@link #snapshot()}.
+ * The time an invocation spends waiting for monitors and locks is only counted as blocked or waited time,
+ * so it is not counted twice in {@link Profile#getTotalNanos()}.
+ * Backend listener clients export the difference between two snapshots every interval,
+ * the totals are logged, and written to the {@code engine.profiler.report} CSV file if set, at the end of the test.
+ * <p>
+ * Typical use around an engine call:
+ * <pre>
+ * long start = EngineProfiler.start();
+ * postProcessor.process();
+ * EngineProfiler.record(postProcessor, start);
+ * </pre>
+ * and around a monitor:
+ * <pre>
+ * long start = EngineProfiler.start();
+ * synchronized (lock) {
+ *     EngineProfiler.recordBlocked(this, start);
+ *     ...
+ * }
+ * </pre>
+ */
+public final class EngineProfiler {
+
+    private static final Logger log = LoggerFactory.getLogger(EngineProfiler.class);
+
+    /** true if the profiler records */
+    public static final boolean ENABLED = JMeterUtils.getPropDefault("engine.profiler", false); // $NON-NLS-1$
+
+    private static final String REPORT_FILE = JMeterUtils.getPropDefault("engine.profiler.report", ""); // $NON-NLS-1$ // $NON-NLS-2$
+
+    static final int INVOCATIONS = 0;
+    static final int TIME = 1;
+    static final int BLOCKED_COUNT = 2;
+    static final int BLOCKED_TIME = 3;
+    static final int WAITED_COUNT = 4;
+    static final int WAITED_TIME = 5;
+    private static final int COUNTER_COUNT = 6;
+
+    /** Counters of all the threads since the start of the test */
+    private static final Queue<ElementCounters> COUNTERS = new ConcurrentLinkedQueue<>();
+
+    /** Incremented at each test start, so that the threads drop the counters of the previous test */
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    private static final ThreadLocal<ThreadCounters> THREAD_COUNTERS = ThreadLocal.withInitial(ThreadCounters::new);
+
+    private EngineProfiler() {
+        super();
+    }
+
+    /**
+     * @return the start time in nanoseconds to pass to a record method, 0 if the profiler is disabled
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Record an invocation of an element
+     *
+     * @param element element which was invoked
+     * @param start   value returned by {@link #start()} before the invocation
+     */
+    public static void record(Object element, long start) {
+        if (ENABLED) {
+            addInvocation(element, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Record the entry in a monitor ({@code synchronized}) of an element
+     *
+     * @param element element owning the monitor
+     * @param start   value returned by {@link #start()} before trying to enter the monitor
+     */
+    public static void recordBlocked(Object element, long start) {
+        if (ENABLED) {
+            addLock(element, BLOCKED_COUNT, BLOCKED_TIME, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Record the acquisition of a {@link java.util.concurrent.locks.Lock} of an element
+     *
+     * @param element element owning the lock
+     * @param start   value returned by {@link #start()} before trying to acquire the lock
+     */
+    public static void recordWaited(Object element, long start) {
+        if (ENABLED) {
+            addLock(element, WAITED_COUNT, WAITED_TIME, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Record an invocation, without the time spent during it waiting for monitors and locks,
+     * as that time is already counted as blocked or waited time
+     */
+    static void addInvocation(Object element, long start, long end) {
+        ThreadCounters threadCounters = THREAD_COUNTERS.get();
+        long nanos = end - start - threadCounters.takeLockNanosSince(start);
+        add(threadCounters, element, INVOCATIONS, TIME, Math.max(0, nanos));
+    }
+
+    static void addLock(Object element, int count, int time, long start, long end) {
+        ThreadCounters threadCounters = THREAD_COUNTERS.get();
+        threadCounters.addLock(start, end - start);
+        add(threadCounters, element, count, time, end - start);
+    }
+
+    static void add(Object element, int count, int time, long nanos) {
+        add(THREAD_COUNTERS.get(), element, count, time, nanos);
+    }
+
+    private static void add(ThreadCounters threadCounters, Object element, int count, int time, long nanos) {
+        ElementCounters counters = threadCounters.get(element);
+        counters.add(count, 1);
+        counters.add(time, nanos);
+    }
+
+    /**
+     * Drop the counters of the previous test, called when the test starts
+     */
+    public static void testStarted() {
+        if (ENABLED) {
+            reset();
+        }
+    }
+
+    static void reset() {
+        GENERATION.incrementAndGet();
+        COUNTERS.clear();
+    }
+
+    /**
+     * Log the totals of the test, and write them to the {@code engine.profiler.report} file if set,
+     * called when the test ends
+     */
+    public static void testEnded() {
+        if (!ENABLED) {
+            return;
+        }
+        List<Profile> profiles = new ArrayList<>(snapshot().values());
+        profiles.sort(Comparator.comparingLong(Profile::getTotalNanos).reversed());
+        if (log.isInfoEnabled()) {
+            StringBuilder report = new StringBuilder("Engine profile, time spent per element:");
+            for (Profile profile : profiles) {
+                report.append(System.lineSeparator()).append(profile);
+            }
+            log.info(report.toString());
+        }
+        if (!REPORT_FILE.isEmpty()) {
+            writeReport(new File(REPORT_FILE), profiles);
+        }
+    }
+
+    private static void writeReport(File file, List<Profile> profiles) {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writer.println("element,class,invocations,timeNanos,blockedCount,blockedNanos,waitedCount,waitedNanos"); // $NON-NLS-1$
+            for (Profile profile : profiles) {
+                writer.println(quote(profile.getName()) + ',' + profile.getKind() + ',' + profile.getInvocations()
+                        + ',' + profile.getTimeNanos() + ',' + profile.getBlockedCount() + ',' + profile.getBlockedNanos()
+                        + ',' + profile.getWaitedCount() + ',' + profile.getWaitedNanos());
+            }
+            log.info("Engine profile written to {}", file);
+        } catch (IOException e) {
+            log.error("Could not write engine profile to {}", file, e);
+        }
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"'; // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    /**
+     * @return the counters since the start of the test summed per element, by {@link Profile#getKey()}
+     */
+    public static Map<String, Profile> snapshot() {
+        Map<String, Profile> profiles = new TreeMap<>();
+        for (ElementCounters counters : COUNTERS) {
+            Profile profile = profiles.computeIfAbsent(counters.kind + '.' + counters.name,
+                    k -> new Profile(counters.kind, counters.name, new long[COUNTER_COUNT]));
+            for (int i = 0; i < COUNTER_COUNT; i++) {
+                profile.values[i] += counters.values.get(i);
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * @param current  a snapshot
+     * @param previous an earlier snapshot, may be empty
+     * @return the counters from the earlier snapshot to the current one, without the elements not invoked since
+     */
+    public static Map<String, Profile> difference(Map<String, Profile> current, Map<String, Profile> previous) {
+        Map<String, Profile> interval = new TreeMap<>();
+        for (Profile profile : current.values()) {
+            Profile delta = profile.minus(previous.get(profile.getKey()));
+            if (delta.getInvocations() > 0 || delta.getBlockedCount() > 0 || delta.getWaitedCount() > 0) {
+                interval.put(delta.getKey(), delta);
+            }
+        }
+        return interval;
+    }
+
+    /** Elements invoked by a thread during the current test */
+    private static final class ThreadCounters {
+        /** Lock waits kept until the next invocation is recorded, the oldest being dropped beyond */
+        private static final int MAX_LOCKS = 16;
+
+        private final Map<Object, ElementCounters> byElement = new IdentityHashMap<>();
+        private int generation = GENERATION.get();
+        private final long[] lockStarts = new long[MAX_LOCKS];
+        private final long[] lockNanos = new long[MAX_LOCKS];
+        private int locks;
+
+        void addLock(long start, long nanos) {
+            if (locks == MAX_LOCKS) {
+                System.arraycopy(lockStarts, 1, lockStarts, 0, MAX_LOCKS - 1);
+                System.arraycopy(lockNanos, 1, lockNanos, 0, MAX_LOCKS - 1);
+                locks--;
+            }
+            lockStarts[locks] = start;
+            lockNanos[locks] = nanos;
+            locks++;
+        }
+
+        /**
+         * @param start start of an invocation which just ended
+         * @return time spent waiting for monitors and locks during the invocation, forgetting the waits recorded
+         */
+        long takeLockNanosSince(long start) {
+            long nanos = 0;
+            for (int i = 0; i < locks; i++) {
+                if (lockStarts[i] - start >= 0) {
+                    nanos += lockNanos[i];
+                }
+            }
+            locks = 0;
+            return nanos;
+        }
+
+        ElementCounters get(Object element) {
+            int current = GENERATION.get();
+            if (generation != current) {
+                byElement.clear();
+                generation = current;
+            }
+            ElementCounters counters = byElement.get(element);
+            if (counters == null) {
+                counters = new ElementCounters(element);
+                byElement.put(element, counters);
+                COUNTERS.add(counters);
+            }
+            return counters;
+        }
+    }
+
+    /** Counters of an element for a thread, only updated by that thread */
+    private static final class ElementCounters {
+        private final String kind;
+        private final String name;
+        private final AtomicLongArray values = new AtomicLongArray(COUNTER_COUNT);
+
+        ElementCounters(Object element) {
+            this.kind = element.getClass().getSimpleName();
+            this.name = element instanceof TestElement ? ((TestElement) element).getName() : kind;
+        }
+
+        void add(int counter, long delta) {
+            // single writer, so no need for an atomic addition
+            values.lazySet(counter, values.get(counter) + delta);
+        }
+    }
+
+    /**
+     * Counters of an element, for all the threads
+     */
+    public static final class Profile {
+        private final String kind;
+        private final String name;
+        private final long[] values;
+
+        Profile(String kind, String name, long[] values) {
+            this.kind = kind;
+            this.name = name;
+            this.values = values;
+        }
+
+        /**
+         * @return the key of the element, its simple class name and its name separated by a dot
+         */
+        public String getKey() {
+            return kind + '.' + name;
+        }
+
+        /**
+         * @return the simple class name of the element
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the name of the element
+         */
+        public String getName() {
+            return name;
+        }
+
+        public long getInvocations() {
+            return values[INVOCATIONS];
+        }
+
+        /**
+         * @return nanoseconds spent in the invocations of the element,
+         *         without the time they waited for monitors and locks
+         */
+        public long getTimeNanos() {
+            return values[TIME];
+        }
+
+        /**
+         * @return number of entries in the monitors of the element
+         */
+        public long getBlockedCount() {
+            return values[BLOCKED_COUNT];
+        }
+
+        /**
+         * @return nanoseconds spent waiting to enter the monitors of the element
+         */
+        public long getBlockedNanos() {
+            return values[BLOCKED_TIME];
+        }
+
+        /**
+         * @return number of acquisitions of the locks of the element
+         */
+        public long getWaitedCount() {
+            return values[WAITED_COUNT];
+        }
+
+        /**
+         * @return nanoseconds spent waiting to acquire the locks of the element
+         */
+        public long getWaitedNanos() {
+            return values[WAITED_TIME];
+        }
+
+        /**
+         * @return time spent in the element and waiting for its monitors and locks, in nanoseconds
+         */
+        public long getTotalNanos() {
+            return getTimeNanos() + getBlockedNanos() + getWaitedNanos();
+        }
+
+        Profile minus(Profile previous) {
+            if (previous == null) {
+                return this;
+            }
+            long[] delta = new long[COUNTER_COUNT];
+            for (int i = 0; i < COUNTER_COUNT; i++) {
+                delta[i] = values[i] - previous.values[i];
+            }
+            return new Profile(kind, name, delta);
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + ": invocations=" + getInvocations()
+                    + ", time=" + TimeUnit.NANOSECONDS.toMillis(getTimeNanos()) + "ms"
+                    + ", blocked=" + TimeUnit.NANOSECONDS.toMillis(getBlockedNanos()) + "ms/" + getBlockedCount()
+                    + ", waited=" + TimeUnit.NANOSECONDS.toMillis(getWaitedNanos()) + "ms/" + getWaitedCount();
+        }
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.apache.jmeter.threads;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import org.apache.jmeter.util.JMeterUtils;
 
 /**
@@ -29,14 +31,12 @@ public final class JMeterContextService {
     //@GuardedBy(JMeterContextService.class)
     private static long testStart = 0;
 
-    //@GuardedBy(JMeterContextService.class)
-    private static int numberOfActiveThreads = 0;
+    // Updated by every thread start, stop, sleep and wake up, so no lock is taken
+    private static volatile ConcurrencyCounter numberOfActiveThreads = new ConcurrencyCounter();
 
-    //@GuardedBy(JMeterContextService.class)
-    private static int numberOfThreadsStarted = 0;
+    private static final LongAdder numberOfThreadsStarted = new LongAdder();
 
-    //@GuardedBy(JMeterContextService.class)
-    private static int numberOfThreadsFinished = 0;
+    private static final LongAdder numberOfThreadsFinished = new LongAdder();
 
     //@GuardedBy(JMeterContextService.class)
     private static int totalThreads = 0;
@@ -85,7 +85,7 @@ public final class JMeterContextService {
      */
     public static synchronized void startTest() {
         if (testStart == 0) {
-            numberOfActiveThreads = 0;
+            numberOfActiveThreads = new ConcurrencyCounter();
             testStart = System.currentTimeMillis();
             JMeterUtils.setProperty("TESTSTART.MS",Long.toString(testStart));// $NON-NLS-1$
         }
@@ -94,44 +94,57 @@ public final class JMeterContextService {
     /**
      * Increment number of active threads.
      */
-    static synchronized void incrNumberOfThreads() {
-        numberOfActiveThreads++;
-        numberOfThreadsStarted++;
+    static void incrNumberOfThreads() {
+        numberOfActiveThreads.increment();
+        numberOfThreadsStarted.increment();
     }
 
     /**
      * Decrement number of active threads.
      */
-    static synchronized void decrNumberOfThreads() {
-        numberOfActiveThreads--;
-        numberOfThreadsFinished++;
+    static void decrNumberOfThreads() {
+        numberOfActiveThreads.decrement();
+        numberOfThreadsFinished.increment();
     }
 
     /**
      * 线程调用sleep时不算线程数
      */
-    static synchronized void sleepThread() {
-        numberOfActiveThreads--;
+    static void sleepThread() {
+        numberOfActiveThreads.decrement();
     }
 
     /**
      * 线程被唤醒时继续计算线程数
      */
-    static synchronized void wakupThread() {
-        numberOfActiveThreads++;
+    static void wakupThread() {
+        numberOfActiveThreads.increment();
     }
 
     /**
      * Get the number of currently active threads
      * @return active thread count
      */
-    public static synchronized int getNumberOfThreads() {
-        return numberOfActiveThreads;
+    public static int getNumberOfThreads() {
+        return numberOfActiveThreads.get();
+    }
+
+    /**
+     * Snapshot of the active thread count, to compute the time-weighted
+     * average number of active threads between two calls
+     * with {@link ConcurrencyCounter.Snapshot#averageSince(ConcurrencyCounter.Snapshot)}.
+     * Snapshots taken before {@link #startTest()} must not be mixed with later ones.
+     *
+     * @return snapshot of the active thread count
+     */
+    public static ConcurrencyCounter.Snapshot getActiveThreadsSnapshot() {
+        return numberOfActiveThreads.snapshot();
     }
 
     // return all the associated counts together
-    public static synchronized ThreadCounts getThreadCounts() {
-        return new ThreadCounts(numberOfActiveThreads, numberOfThreadsStarted, numberOfThreadsFinished);
+    public static ThreadCounts getThreadCounts() {
+        return new ThreadCounts(numberOfActiveThreads.get(),
+                (int) numberOfThreadsStarted.sum(), (int) numberOfThreadsFinished.sum());
     }
 
     /**
@@ -168,8 +181,8 @@ public final class JMeterContextService {
      */
     public static synchronized void clearTotalThreads() {
         totalThreads = 0;
-        numberOfThreadsStarted = 0;
-        numberOfThreadsFinished = 0;
+        numberOfThreadsStarted.reset();
+        numberOfThreadsFinished.reset();
     }
 
     /**
@@ -50,6 +50,7 @@ import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.TestIterationListener;
 import org.apache.jmeter.testelement.ThreadListener;
 import org.apache.jmeter.threads.JMeterContext.TestLogicalAction;
+import org.apache.jmeter.timers.ScheduledTimer;
 import org.apache.jmeter.timers.Timer;
 import org.apache.jmeter.timers.TimerService;
 import org.apache.jmeter.util.JMeterUtils;
@@ -89,6 +90,10 @@ public class JMeterThread implements Runnable, Interruptible {
 
     private static final boolean APPLY_TIMER_FACTOR = Float.compare(TIMER_FACTOR,ONE_AS_FLOAT) != 0;
 
+    /** Wait for timers with nanosecond precision and record the intended start time of samples */
+    private static final boolean PRECISE_PACING =
+            JMeterUtils.getPropDefault("jmeterthread.precise_pacing", false); // $NON-NLS-1$
+
     private final Controller threadGroupLoopController;
 
     private final HashTree testTree;
@@ -149,6 +154,9 @@ public class JMeterThread implements Runnable, Interruptible {
 
     private volatile Sampler currentSamplerForInterruption;
 
+    // Start time of the next sample intended by the timers, in System.nanoTime() units, 0 if unknown
+    private long intendedStartNanos;
+
     private final ReentrantLock interruptLock = new ReentrantLock(); // ensure that interrupt cannot overlap with shutdown
 
     public JMeterThread(HashTree test, JMeterThreadMonitor monitor, ListenerNotifier note) {
@@ -570,12 +578,14 @@ public class JMeterThread implements Runnable, Interruptible {
         if (running) {
             Sampler sampler = pack.getSampler();
             result = doSampling(threadContext, sampler);
+            if (result != null && intendedStartNanos != 0) {
+                result.setIntendedStartTime(TIMER_SERVICE.toEpochMillis(intendedStartNanos));
+            }
         }
         // If we got any results, then perform processing on the result
         if (result != null) {
             if (!result.isIgnore()) {
-//                int nbActiveThreadsInThreadGroup = threadGroup.getNumberOfThreads();
-                int nbActiveThreadsInThreadGroup = threadGroup.getNumberOfThreads() - threadGroup.getNumberOfSleepThreads();
+                int nbActiveThreadsInThreadGroup = threadGroup.getNumberOfAwakeThreads();
                 int nbTotalActiveThreads = JMeterContextService.getNumberOfThreads();
                 fillThreadInformation(result, nbActiveThreadsInThreadGroup, nbTotalActiveThreads);
                 SampleResult[] subResults = result.getSubResults();
@@ -646,9 +656,11 @@ public class JMeterThread implements Runnable, Interruptible {
                 sampleMonitor.sampleStarting(sampler);
             }
         }
+        threadGroup.incrNumberOfSamplingThreads();
         try {
             return sampler.sample(null);
         } finally {
+            threadGroup.decrNumberOfSamplingThreads();
             if (!sampleMonitors.isEmpty()) {
                 for (SampleMonitor sampleMonitor : sampleMonitors) {
                     sampleMonitor.sampleEnded(sampler);
@@ -663,7 +675,7 @@ public class JMeterThread implements Runnable, Interruptible {
             SamplePackage transactionPack, JMeterContext threadContext) {
         // Get the transaction sample result
         SampleResult transactionResult = transactionSampler.getTransactionResult();
-        int nbActiveThreadsInThreadGroup = threadGroup.getNumberOfThreads() - threadGroup.getNumberOfSleepThreads();
+        int nbActiveThreadsInThreadGroup = threadGroup.getNumberOfAwakeThreads();
         int nbTotalActiveThreads = JMeterContextService.getNumberOfThreads();
         fillThreadInformation(transactionResult, nbActiveThreadsInThreadGroup, nbTotalActiveThreads);
 
@@ -897,6 +909,7 @@ public class JMeterThread implements Runnable, Interruptible {
 
     private void checkAssertions(List<Assertion> assertions, SampleResult parent, JMeterContext threadContext) {
         for (Assertion assertion : assertions) {
+            long start = EngineProfiler.start();
             TestBeanHelper.prepare((TestElement) assertion);
             if (assertion instanceof AbstractScopedAssertion) {
                 AbstractScopedAssertion scopedAssertion = (AbstractScopedAssertion) assertion;
@@ -913,6 +926,7 @@ public class JMeterThread implements Runnable, Interruptible {
             } else {
                 processAssertion(parent, assertion);
             }
+            EngineProfiler.record(assertion, start);
         }
         setLastSampleOk(threadContext.getVariables(), parent.isSuccessful());
     }
@@ -965,8 +979,10 @@ public class JMeterThread implements Runnable, Interruptible {
 
     private void runPostProcessors(List<PostProcessor> extractors) {
         for (PostProcessor ex : extractors) {
+            long start = EngineProfiler.start();
             TestBeanHelper.prepare((TestElement) ex);
             ex.process();
+            EngineProfiler.record(ex, start);
         }
     }
 
@@ -975,8 +991,10 @@ public class JMeterThread implements Runnable, Interruptible {
             if (log.isDebugEnabled()) {
                 log.debug("Running preprocessor: {}", ((AbstractTestElement) ex).getName());
             }
+            long start = EngineProfiler.start();
             TestBeanHelper.prepare((TestElement) ex);
             ex.process();
+            EngineProfiler.record(ex, start);
         }
     }
 
@@ -990,18 +1008,14 @@ public class JMeterThread implements Runnable, Interruptible {
      * @param timers to be used for calculating the delay
      */
     private void delay(List<Timer> timers) {
+        if (PRECISE_PACING) {
+            pace(timers);
+            return;
+        }
         long totalDelay = 0;
         for (Timer timer : timers) {
             TestBeanHelper.prepare((TestElement) timer);
-            long delay = timer.delay();
-            if (APPLY_TIMER_FACTOR && timer.isModifiable()) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Applying TIMER_FACTOR:{} on timer:{} for thread:{}", TIMER_FACTOR,
-                            ((TestElement) timer).getName(), getThreadName());
-                }
-                delay = Math.round(delay * TIMER_FACTOR);
-            }
-            totalDelay += delay;
+            totalDelay += timerDelay(timer);
         }
         if (totalDelay > 0) {
             try {
@@ -1030,10 +1044,80 @@ public class JMeterThread implements Runnable, Interruptible {
         }
     }
 
+    private long timerDelay(Timer timer) {
+        long start = EngineProfiler.start();
+        long delay = timer.delay();
+        EngineProfiler.record(timer, start);
+        if (APPLY_TIMER_FACTOR && timer.isModifiable()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Applying TIMER_FACTOR:{} on timer:{} for thread:{}", TIMER_FACTOR,
+                        ((TestElement) timer).getName(), getThreadName());
+            }
+            delay = Math.round(delay * TIMER_FACTOR);
+        }
+        return delay;
+    }
+
+    /**
+     * Precise pacing variant of {@link #delay(List)}.
+     * {@link ScheduledTimer}s give the intended start time, which is kept even if already past,
+     * the delays of the other timers are added to it.
+     * The thread then parks and spins until the intended start time.
+     *
+     * @param timers to be used for calculating the intended start time
+     */
+    private void pace(List<Timer> timers) {
+        if (timers.isEmpty()) {
+            intendedStartNanos = 0;
+            return;
+        }
+        long now = System.nanoTime();
+        long scheduledStart = now;
+        boolean scheduled = false;
+        long totalDelay = 0;
+        for (Timer timer : timers) {
+            TestBeanHelper.prepare((TestElement) timer);
+            if (timer instanceof ScheduledTimer) {
+                long profilerStart = EngineProfiler.start();
+                long start = ((ScheduledTimer) timer).nextStartNanos();
+                EngineProfiler.record(timer, profilerStart);
+                scheduledStart = scheduled ? Math.max(scheduledStart, start) : start;
+                scheduled = true;
+            } else {
+                totalDelay += timerDelay(timer);
+            }
+        }
+        long intendedStart = scheduledStart + TimeUnit.MILLISECONDS.toNanos(totalDelay);
+        intendedStartNanos = intendedStart;
+        if (intendedStart - now <= 0) {
+            return;
+        }
+        // We reduce pause to ensure end of test is not delayed by a sleep ending after test scheduled end
+        // See Bug 60049
+        if (scheduler && endTime > 0 && TIMER_SERVICE.toEpochMillis(intendedStart) > endTime) {
+            log.debug("The delay would be longer than the scheduled period, so stop thread now.");
+            running = false;
+            return;
+        }
+        try {
+            JMeterContextService.sleepThread();
+            threadGroup.incrNumberOfSleepThreads();
+            TIMER_SERVICE.sleepUntil(intendedStart);
+        } catch (InterruptedException e) {
+            log.warn("The delay timer was interrupted - probably did not wait as long as intended.");
+            Thread.currentThread().interrupt();
+        } finally {
+            JMeterContextService.wakupThread();
+            threadGroup.descNumberOfSleepThreads();
+        }
+    }
+
     void notifyTestListeners() {
         threadVars.incIteration();
         for (TestIterationListener listener : testIterationStartListeners) {
+            long start = EngineProfiler.start();
             listener.testIterationStart(new LoopIterationEvent(threadGroupLoopController, threadVars.getIteration()));
+            EngineProfiler.record(listener, start);
             if (listener instanceof TestElement) {
                 ((TestElement) listener).recoverRunningVersion();
             }
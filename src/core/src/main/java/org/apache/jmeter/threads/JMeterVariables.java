@@ -17,6 +17,7 @@
 
 package org.apache.jmeter.threads;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -29,8 +30,33 @@ import org.apache.jmeter.util.JMeterUtils;
 /**
  * Class which defines JMeter variables.
  * These are similar to properties, but they are local to a single thread.
+ * <p>
+ * Names get a slot in {@link VariableSymbols} when they are first stored, or when they are
+ * referenced by the test plan, and their values are held in chunks of an array indexed by slot.
+ * Only the names which do not fit in the symbol table are held in a map.
+ * Callers which resolved a slot once, like compiled variable references, use the index-based
+ * accessors and skip the name lookup.
+ * <p>
+ * The chunks are shared with the {@link Snapshot}s taken by {@link #snapshot()}: taking a snapshot
+ * does not copy anything, and a write after it only copies the chunk it changes.
  */
 public class JMeterVariables {
+    private static final int CHUNK_BITS = 5;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final Object[][] NO_CHUNKS = new Object[0][];
+
+    // Values of the interned names, slot i is in chunks[i >>> CHUNK_BITS][i & (CHUNK_SIZE - 1)]
+    private Object[][] chunks = NO_CHUNKS;
+
+    // Chunks copied since the last snapshot, the others must be copied before a write
+    private boolean[] ownedChunks = new boolean[0];
+
+    // true when a snapshot references chunks, the array of chunks must then be copied before a write
+    private boolean chunksShared;
+
+    // Values of the names without a slot, once the symbol table is full
     private final Map<String, Object> variables = new HashMap<>();
 
     private int iteration = 0;
@@ -45,6 +71,12 @@ public class JMeterVariables {
 
     static final String VAR_IS_SAME_USER_KEY = "__jmv_SAME_USER";
 
+    static {
+        for (String property : PRE_LOAD) {
+            VariableSymbols.intern(property);
+        }
+    }
+
     /**
      * Constructor, that preloads the variables from the JMeter properties
      */
@@ -56,7 +88,7 @@ public class JMeterVariables {
         for (String property : PRE_LOAD) {
             String value = JMeterUtils.getProperty(property);
             if (value != null) {
-                variables.put(property, value);
+                set(property, value);
             }
         }
     }
@@ -90,7 +122,15 @@ public class JMeterVariables {
      * @return the variable value, or {@code null} if there was no such variable
      */
     public Object remove(String key) {
-        return variables.remove(key);
+        int index = VariableSymbols.indexOf(key);
+        if (index == VariableSymbols.NO_SLOT) {
+            return variables.isEmpty() ? null : variables.remove(key);
+        }
+        Object value = slot(chunks, index);
+        if (value != null) {
+            writableChunk(index)[index & (CHUNK_SIZE - 1)] = null;
+        }
+        return value;
     }
 
     /**
@@ -100,7 +140,7 @@ public class JMeterVariables {
      * @param value the variable value
      */
     public void put(String key, String value) {
-        variables.put(key, value);
+        set(key, value);
     }
 
     /**
@@ -110,7 +150,27 @@ public class JMeterVariables {
      * @param value the variable value
      */
     public void putObject(String key, Object value) {
-        variables.put(key, value);
+        set(key, value);
+    }
+
+    /**
+     * Creates or updates a variable with a String value.
+     *
+     * @param index the slot of the variable name, from {@link VariableSymbols#intern(String)}
+     * @param value the variable value
+     */
+    public void put(int index, String value) {
+        putObject(index, value);
+    }
+
+    /**
+     * Creates or updates a variable with a value that does not have to be a String.
+     *
+     * @param index the slot of the variable name, from {@link VariableSymbols#intern(String)}
+     * @param value the variable value
+     */
+    public void putObject(int index, Object value) {
+        writableChunk(index)[index & (CHUNK_SIZE - 1)] = value;
     }
 
     /**
@@ -118,7 +178,7 @@ public class JMeterVariables {
      * @param vars map with the entries to be updated
      */
     public void putAll(Map<String, ?> vars) {
-        variables.putAll(vars);
+        vars.forEach(this::set);
     }
 
     /**
@@ -126,7 +186,82 @@ public class JMeterVariables {
      * @param vars {@link JMeterVariables} with the entries to be updated
      */
     public void putAll(JMeterVariables vars) {
-        putAll(vars.variables);
+        putAll(vars.toMap());
+    }
+
+    private void set(String key, Object value) {
+        int index = VariableSymbols.intern(key);
+        if (index == VariableSymbols.NO_SLOT) {
+            variables.put(key, value);
+        } else {
+            putObject(index, value);
+        }
+    }
+
+    private Object lookup(String key) {
+        int index = VariableSymbols.indexOf(key);
+        if (index != VariableSymbols.NO_SLOT) {
+            return slot(chunks, index);
+        }
+        return variables.isEmpty() ? null : variables.get(key);
+    }
+
+    private static Object slot(Object[][] chunks, int index) {
+        int chunk = index >>> CHUNK_BITS;
+        if (index < 0 || chunk >= chunks.length || chunks[chunk] == null) {
+            return null;
+        }
+        return chunks[chunk][index & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * @param index slot that will be written
+     * @return the chunk holding the slot, copied if it is shared with a snapshot
+     */
+    private Object[] writableChunk(int index) {
+        int chunk = index >>> CHUNK_BITS;
+        if (chunksShared || chunk >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length));
+            ownedChunks = chunksShared ? new boolean[chunks.length] : Arrays.copyOf(ownedChunks, chunks.length);
+            chunksShared = false;
+        }
+        Object[] values = chunks[chunk];
+        if (values == null) {
+            values = new Object[CHUNK_SIZE];
+        } else if (!ownedChunks[chunk]) {
+            values = values.clone();
+        } else {
+            return values;
+        }
+        chunks[chunk] = values;
+        ownedChunks[chunk] = true;
+        return values;
+    }
+
+    private Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>(variables);
+        Object[][] current = chunks;
+        for (int chunk = 0; chunk < current.length; chunk++) {
+            Object[] values = current[chunk];
+            for (int i = 0; values != null && i < values.length; i++) {
+                if (values[i] != null) {
+                    map.put(VariableSymbols.nameOf((chunk << CHUNK_BITS) + i), values[i]);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Take a read-only snapshot of the values of the interned names.
+     * This is cheap: the values are not copied, the next update only copies the chunk it changes.
+     * Values that are not Strings are converted when they are read from the snapshot.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        chunksShared = true;
+        return new Snapshot(chunks);
     }
 
     /**
@@ -136,7 +271,20 @@ public class JMeterVariables {
      * @return the value of the variable or a toString called on it if it's non String, or {@code null} if it does not exist
      */
     public String get(String key) {
-        Object o = variables.get(key);
+        return toString(lookup(key));
+    }
+
+    /**
+     * Gets the value of a variable, converted to a String.
+     *
+     * @param index the slot of the variable name, from {@link VariableSymbols#intern(String)}
+     * @return the value of the variable or a toString called on it if it's non String, or {@code null} if it does not exist
+     */
+    public String get(int index) {
+        return toString(slot(chunks, index));
+    }
+
+    private static String toString(Object o) {
         if(o instanceof String) {
             return (String) o;
         } else if (o != null) {
@@ -153,30 +301,60 @@ public class JMeterVariables {
      * @return the value of the variable, or {@code null} if it does not exist
      */
     public Object getObject(String key) {
-        return variables.get(key);
+        return lookup(key);
     }
 
     /**
-     * Gets a read-only Iterator over the variables.
+     * Gets the value of a variable (not converted to String).
+     *
+     * @param index the slot of the variable name, from {@link VariableSymbols#intern(String)}
+     * @return the value of the variable, or {@code null} if it does not exist
+     */
+    public Object getObject(int index) {
+        return slot(chunks, index);
+    }
+
+    /**
+     * Gets a read-only Iterator over a copy of the variables.
      *
      * @return the iterator
      */
     public Iterator<Entry<String, Object>> getIterator(){
-        return Collections.unmodifiableMap(variables).entrySet().iterator() ;
+        return entrySet().iterator();
     }
 
     // Used by DebugSampler
     /**
-     * @return an unmodifiable view of the entries contained in {@link JMeterVariables}
+     * @return an unmodifiable copy of the entries contained in {@link JMeterVariables}
      */
     public Set<Entry<String, Object>> entrySet(){
-        return Collections.unmodifiableMap(variables).entrySet();
+        return Collections.unmodifiableMap(toMap()).entrySet();
     }
 
     /**
      * @return boolean true if user is the same on next iteration of Thread loop, false otherwise
      */
     public boolean isSameUserOnNextIteration() {
-        return Boolean.TRUE.equals(variables.get(VAR_IS_SAME_USER_KEY));
+        return Boolean.TRUE.equals(lookup(VAR_IS_SAME_USER_KEY));
+    }
+
+    /**
+     * Values of the interned variables at the time {@link JMeterVariables#snapshot()} was called
+     */
+    public static final class Snapshot {
+        private final Object[][] chunks;
+
+        private Snapshot(Object[][] chunks) {
+            this.chunks = chunks;
+        }
+
+        /**
+         * @param index slot index from {@link VariableSymbols#intern(String)}
+         * @return the value of the slot converted to a String, or {@code null} if it was not set
+         */
+        public String get(int index) {
+            Object o = slot(chunks, index);
+            return o == null ? null : o.toString();
+        }
     }
 }
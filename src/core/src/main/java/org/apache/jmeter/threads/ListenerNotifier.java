@@ -53,6 +53,7 @@ public class ListenerNotifier implements Serializable {
      */
     public void notifyListeners(SampleEvent res, List<SampleListener> listeners) {
         for (SampleListener sampleListener : listeners) {
+            long start = EngineProfiler.start();
             try {
                 TestBeanHelper.prepare((TestElement) sampleListener);
                 sampleListener.sampleOccurred(res);
@@ -60,6 +61,7 @@ public class ListenerNotifier implements Serializable {
                 log.error("Detected problem in Listener.", e);
                 log.info("Continuing to process further listeners");
             }
+            EngineProfiler.record(sampleListener, start);
         }
     }
 
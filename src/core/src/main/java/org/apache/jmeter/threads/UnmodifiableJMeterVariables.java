@@ -77,6 +77,16 @@ class UnmodifiableJMeterVariables extends JMeterVariables {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void put(int index, String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void putObject(int index, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void putAll(Map<String, ?> vars) {
         throw new UnsupportedOperationException();
@@ -92,6 +102,11 @@ class UnmodifiableJMeterVariables extends JMeterVariables {
         return variables.get(key);
     }
 
+    @Override
+    public String get(int index) {
+        return variables.get(index);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -119,6 +134,11 @@ class UnmodifiableJMeterVariables extends JMeterVariables {
         return variables.getObject(key);
     }
 
+    @Override
+    public Object getObject(int index) {
+        return variables.getObject(index);
+    }
+
     @Override
     public Iterator<Entry<String, Object>> getIterator() {
         return variables.getIterator();
@@ -129,6 +149,11 @@ class UnmodifiableJMeterVariables extends JMeterVariables {
         return variables.entrySet();
     }
 
+    @Override
+    public Snapshot snapshot() {
+        return variables.snapshot();
+    }
+
     public String toString() {
         return variables.toString();
     }
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.threads;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Global table of the variable names, interned when the test plan is compiled
+ * (user defined variables, CSV columns, {@code sample_variables}, variable references...)
+ * or when a variable is first stored.
+ * <p>
+ * Each interned name gets a stable slot index, so {@link JMeterVariables} can hold
+ * its value in a plain array instead of a hash map entry per thread, and compiled
+ * references can read it without looking the name up.
+ * <p>
+ * The table only grows, up to the {@code variables.symbols.max} property.
+ * Names that do not fit are still supported, they are stored in a map.
+ */
+public final class VariableSymbols {
+    private static final Logger log = LoggerFactory.getLogger(VariableSymbols.class);
+
+    /** Returned for a name that has no slot */
+    public static final int NO_SLOT = -1;
+
+    private static final int MAX_SYMBOLS =
+            JMeterUtils.getPropDefault("variables.symbols.max", 4096); // $NON-NLS-1$
+
+    private static final Map<String, Integer> INDEXES = new ConcurrentHashMap<>();
+
+    // Slot index to name, only written under the class lock
+    private static volatile String[] names = new String[0];
+
+    private VariableSymbols() {
+        // utility class
+    }
+
+    /**
+     * Give a slot to the variable name, if it does not already have one.
+     *
+     * @param name the variable name
+     * @return the slot index of the name, or {@link #NO_SLOT} if the table is full
+     */
+    public static int intern(String name) {
+        if (name == null) {
+            return NO_SLOT;
+        }
+        Integer index = INDEXES.get(name);
+        if (index != null) {
+            return index;
+        }
+        synchronized (VariableSymbols.class) {
+            index = INDEXES.get(name);
+            if (index != null) {
+                return index;
+            }
+            String[] current = names;
+            if (current.length >= MAX_SYMBOLS) {
+                log.debug("Variable symbol table is full ({}), {} will be stored in a map", MAX_SYMBOLS, name);
+                return NO_SLOT;
+            }
+            String[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = name;
+            // Publish the name before the index, so readers of an index always find its name
+            names = grown;
+            INDEXES.put(name, current.length);
+            return current.length;
+        }
+    }
+
+    /**
+     * @param name the variable name
+     * @return the slot index of the name, or {@link #NO_SLOT} if it was not interned
+     */
+    public static int indexOf(String name) {
+        if (name == null) {
+            return NO_SLOT;
+        }
+        Integer index = INDEXES.get(name);
+        return index == null ? NO_SLOT : index;
+    }
+
+    /**
+     * @param index a slot index returned by {@link #intern(String)}
+     * @return the name of the slot
+     */
+    public static String nameOf(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return the number of interned names
+     */
+    public static int size() {
+        return names.length;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.timers;
+
+/**
+ * Timer computing delays from a schedule of intended start times, like throughput timers.
+ * <p>
+ * When precise pacing is enabled ({@code jmeterthread.precise_pacing=true}), the thread asks
+ * the timer for the intended start time instead of a delay. The intended start time is kept
+ * even if it is already past, so the time a sample waited behind a late thread is reported as
+ * part of its corrected latency.
+ */
+public interface ScheduledTimer extends Timer {
+    /**
+     * Compute the intended start time of the next sample.
+     * Called instead of {@link #delay()} in precise pacing mode.
+     *
+     * @return intended start time in {@link System#nanoTime()} units, may be in the past
+     */
+    long nextStartNanos();
+}
@@ -17,8 +17,12 @@
 
 package org.apache.jmeter.timers;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterThread;
+import org.apache.jmeter.util.JMeterUtils;
 
 /**
  * Manages logic related to timers and pauses
@@ -26,6 +30,20 @@ import org.apache.jmeter.threads.JMeterThread;
  */
 public class TimerService {
 
+    /**
+     * Below this remaining time, {@link #sleepUntil(long)} spins instead of parking,
+     * as parking usually overshoots by tens of microseconds
+     */
+    private static final long SPIN_THRESHOLD_NANOS =
+            JMeterUtils.getPropDefault("timer.spin_threshold_nanos", 100_000L); // $NON-NLS-1$
+
+    /**
+     * Difference between the wall clock and {@link System#nanoTime()}, in nanoseconds.
+     * Computed once so conversions keep sub-millisecond differences between instants.
+     */
+    private final long epochToNanoTimeOffset =
+            TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+
     private TimerService() {
         super();
     }
@@ -106,4 +124,43 @@ public class TimerService {
         return initialDelay;
     }
 
+    /**
+     * Wait until the deadline with sub-millisecond precision: park the thread
+     * until the deadline is close, then spin.
+     *
+     * @param deadlineNanos deadline in {@link System#nanoTime()} units
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > SPIN_THRESHOLD_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        while (deadlineNanos - System.nanoTime() > 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * @param epochMillis wall clock time in milliseconds, may have a fractional part
+     * @return the same instant in {@link System#nanoTime()} units
+     */
+    public long toNanoTime(double epochMillis) {
+        long wholeMillis = (long) Math.floor(epochMillis);
+        long fractionNanos = (long) ((epochMillis - wholeMillis) * TimeUnit.MILLISECONDS.toNanos(1));
+        return TimeUnit.MILLISECONDS.toNanos(wholeMillis) + fractionNanos - epochToNanoTimeOffset;
+    }
+
+    /**
+     * @param nanoTime instant in {@link System#nanoTime()} units
+     * @return the same instant as wall clock time in milliseconds
+     */
+    public long toEpochMillis(long nanoTime) {
+        return TimeUnit.NANOSECONDS.toMillis(nanoTime + epochToNanoTimeOffset);
+    }
 }
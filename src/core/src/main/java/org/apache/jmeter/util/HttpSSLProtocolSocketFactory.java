@@ -116,6 +116,19 @@ public class HttpSSLProtocolSocketFactory
         }
     }
 
+    /*
+     * Socket factory for a new connection to the server, which may have to make a full handshake
+     * if the session cache is shared
+     */
+    private SSLSocketFactory getSSLSocketFactory(String host, int port) throws IOException {
+        try {
+            SSLContext sslContext = ((JsseSSLManager)SSLManager.getInstance()).getContext(host, port);
+            return sslContext.getSocketFactory();
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("Rethrown as IOE", ex);
+        }
+    }
+
     /*
      * Wraps the socket in a slow SSL socket if necessary
      */
@@ -176,7 +189,7 @@ public class HttpSSLProtocolSocketFactory
 
     @Override
     public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
-        SSLSocketFactory sslfac = getSSLSocketFactory();
+        SSLSocketFactory sslfac = getSSLSocketFactory(host, port);
         Socket sock=sslfac.createSocket(s, host,port, autoClose);
         configureSocket(sock);
         return wrapSocket(sock);
@@ -184,7 +197,7 @@ public class HttpSSLProtocolSocketFactory
 
     @Override
     public Socket createSocket(String host, int port) throws IOException, UnknownHostException {
-        SSLSocketFactory sslfac = getSSLSocketFactory();
+        SSLSocketFactory sslfac = getSSLSocketFactory(host, port);
         Socket sock=sslfac.createSocket(host,port);
         configureSocket(sock);
         return wrapSocket(sock);
@@ -193,7 +206,7 @@ public class HttpSSLProtocolSocketFactory
     @Override
     public Socket createSocket(String host, int port, InetAddress inetAddress, int localPort)
             throws IOException, UnknownHostException {
-        SSLSocketFactory sslfac = getSSLSocketFactory();
+        SSLSocketFactory sslfac = getSSLSocketFactory(host, port);
         Socket sock=sslfac.createSocket(host, port, inetAddress, localPort);
         configureSocket(sock);
         return wrapSocket(sock);
@@ -62,6 +62,16 @@ public class JsseSSLManager extends SSLManager {
     private static final boolean SHARED_SESSION_CONTEXT =
         JMeterUtils.getPropDefault("https.sessioncontext.shared",false); // $NON-NLS-1$
 
+    // Share the per-thread contexts between the threads of a same client certificate alias
+    private static final boolean SHARED_SESSION_CACHE =
+        !SHARED_SESSION_CONTEXT && JMeterUtils.getPropDefault("https.sessioncache.shared", false); // $NON-NLS-1$
+
+    private static final int SESSION_CACHE_SIZE =
+        JMeterUtils.getPropDefault("https.sessioncache.size", 1024); // $NON-NLS-1$
+
+    private static final double RESUMPTION_RATIO =
+        Double.parseDouble(JMeterUtils.getPropDefault("https.sessioncache.resumption_ratio", "1.0")); // $NON-NLS-1$ // $NON-NLS-2$
+
     /**
      * Characters per second, used to slow down sockets
      */
@@ -70,7 +80,11 @@ public class JsseSSLManager extends SSLManager {
     static {
         if (log.isInfoEnabled()) {
             log.info("Using default SSL protocol: {}", DEFAULT_SSL_PROTOCOL);
-            log.info("SSL session context: {}", SHARED_SESSION_CONTEXT ? "shared" : "per-thread");
+            log.info("SSL session context: {}", SHARED_SESSION_CONTEXT ? "shared"
+                    : SHARED_SESSION_CACHE ? "shared per client certificate alias" : "per-thread");
+            if (SHARED_SESSION_CACHE) {
+                log.info("SSL session cache size: {}, resumption ratio: {}", SESSION_CACHE_SIZE, RESUMPTION_RATIO);
+            }
 
             if (CPS > 0) {
                 log.info("Setting up HTTPS SlowProtocol, cps={}", CPS);
@@ -87,6 +101,7 @@ public class JsseSSLManager extends SSLManager {
 
     private SSLContext defaultContext; // If we are using a single session
     private ThreadLocal<SSLContext> threadlocal; // Otherwise
+    private SharedSessionContexts sessionContexts; // Contexts per client certificate alias, if sessions are shared
 
     /**
      * Create the SSLContext, and wrap all the X509KeyManagers with
@@ -107,6 +122,9 @@ public class JsseSSLManager extends SSLManager {
                 this.defaultContext = createContext();
             } else {
                 this.threadlocal = new ThreadLocal<>();
+                if (SHARED_SESSION_CACHE) {
+                    this.sessionContexts = new SharedSessionContexts(SESSION_CACHE_SIZE, RESUMPTION_RATIO);
+                }
             }
 
             HttpsURLConnection.setDefaultSSLSocketFactory(new HttpSSLProtocolSocketFactory(CPS));
@@ -153,7 +171,13 @@ public class JsseSSLManager extends SSLManager {
 
     /**
      * Returns the SSLContext we are using. This is either a context per thread,
+     * a context per client certificate alias when {@code https.sessioncache.shared} is set,
      * or, for backwards compatibility, a single shared context.
+     * <p>
+     * When the session cache is shared, the context is looked up from the alias current at each call,
+     * as the alias variable may change during the thread's life. Without alias variable, contexts
+     * are only shared if the keystore holds at most one alias: otherwise the threads present
+     * different aliases, and keep a context per thread.
      *
      * @return The Context value
      * @throws GeneralSecurityException
@@ -167,6 +191,10 @@ public class JsseSSLManager extends SSLManager {
             return this.defaultContext;
         }
 
+        if (isSharedIdentity()) {
+            return sessionContexts.get(getKeyStore().getThreadAlias(), this::createContext);
+        }
+
         SSLContext sslContext = this.threadlocal.get();
         if (sslContext == null) {
             if (log.isDebugEnabled()){
@@ -181,8 +209,44 @@ public class JsseSSLManager extends SSLManager {
         return sslContext;
     }
 
+    /**
+     * @return {@code true} if the current thread uses a context shared per client certificate alias
+     */
+    private boolean isSharedIdentity() {
+        if (sessionContexts == null) {
+            return false;
+        }
+        JmeterKeyStore keys = getKeyStore();
+        return keys.getThreadAlias() != null || keys.getAliasCount() <= 1;
+    }
+
+    /**
+     * Returns the SSLContext to use for a new connection to a server.
+     * When the session cache is shared, the connections which are not allowed to resume a session,
+     * according to {@code https.sessioncache.resumption_ratio}, get a context of their alias kept
+     * for full handshakes, so the sessions the other connections may resume are not invalidated.
+     *
+     * @param host
+     *            name of the server
+     * @param port
+     *            port of the server
+     * @return The Context value
+     * @throws GeneralSecurityException
+     *             when constructing the context fails
+     */
+    public SSLContext getContext(String host, int port) throws GeneralSecurityException {
+        if (host == null || SHARED_SESSION_CONTEXT || !isSharedIdentity()) {
+            return getContext();
+        }
+        return sessionContexts.getForConnection(getKeyStore().getThreadAlias(), this::createContext, host, port);
+    }
+
     /**
      * Resets the SSLContext if using per-thread contexts.
+     * When the session cache is shared, a new user does not get an empty session cache:
+     * it keeps using the context of its current client certificate alias,
+     * the sessions being kept, and {@code https.sessioncache.resumption_ratio} decides
+     * whether its connections resume them.
      *
      */
     public void resetContext() {
@@ -192,6 +256,18 @@ public class JsseSSLManager extends SSLManager {
         }
     }
 
+    /**
+     * Drops the contexts shared per client certificate alias, and so their sessions,
+     * after logging how many full handshakes the resumption ratio forced
+     */
+    void clearSharedSessions() {
+        if (sessionContexts != null && sessionContexts.size() > 0) {
+            log.info("Shared SSL session caches: {} client identities, {} full handshakes forced by the resumption ratio",
+                    sessionContexts.size(), sessionContexts.getForcedFullHandshakes());
+            sessionContexts.clear();
+        }
+    }
+
     /*
      *
      * Creates new SSL context
@@ -90,6 +90,16 @@ public abstract class SSLManager {
         SSLManager.manager = null;
     }
 
+    /**
+     * Drops the TLS sessions shared between threads, if the manager was created,
+     * so that they are not resumed by the next test run in the same JVM
+     */
+    public static synchronized void clearSharedSessions() {
+        if (manager instanceof JsseSSLManager) {
+            ((JsseSSLManager) manager).clearSharedSessions();
+        }
+    }
+
     public abstract void setContext(HttpURLConnection conn);
 
     /**
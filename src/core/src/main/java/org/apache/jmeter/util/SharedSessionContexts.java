@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.util;
+
+import java.security.GeneralSecurityException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SSL contexts shared by the threads presenting the same client identity, so that their
+ * TLS sessions, and TLS 1.3 tickets, can be resumed by the other threads of the same identity.
+ * <p>
+ * The identity is the client certificate alias taken from a variable by the Keystore Configuration,
+ * threads without such a variable share a single context. The client session cache of each context
+ * holds at most {@code https.sessioncache.size} sessions.
+ * <p>
+ * A new connection may resume a cached session with the probability given by
+ * {@code https.sessioncache.resumption_ratio}. The other connections use a second context of the
+ * identity, the sessions of which are invalidated before each handshake, so that they make a full
+ * handshake without invalidating the sessions the other threads may resume.
+ */
+final class SharedSessionContexts {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedSessionContexts.class);
+
+    /** Key of the context of the threads without client certificate alias variable */
+    private static final String NO_IDENTITY = ""; // $NON-NLS-1$
+
+    /** Creates a context, the managers of which pick the alias of the current thread */
+    @FunctionalInterface
+    interface ContextFactory {
+        SSLContext create() throws GeneralSecurityException;
+    }
+
+    private final Map<String, SSLContext> contexts = new ConcurrentHashMap<>();
+    /** Contexts of the connections which are not allowed to resume a session */
+    private final Map<String, SSLContext> fullHandshakeContexts = new ConcurrentHashMap<>();
+    private final int cacheSize;
+    private final double resumptionRatio;
+    private final LongAdder forcedFullHandshakes = new LongAdder();
+
+    /**
+     * @param cacheSize       maximum number of sessions cached by each context, 0 for no limit
+     * @param resumptionRatio probability that a connection may resume a cached session, from 0 to 1
+     */
+    SharedSessionContexts(int cacheSize, double resumptionRatio) {
+        this.cacheSize = cacheSize;
+        this.resumptionRatio = Math.max(0, Math.min(1, resumptionRatio));
+    }
+
+    /**
+     * Get the context of an identity, creating it on first use
+     *
+     * @param identity client certificate alias, may be {@code null}
+     * @param factory  creates the context
+     * @return the context shared by the threads of the identity
+     * @throws GeneralSecurityException when the context can not be created
+     */
+    SSLContext get(String identity, ContextFactory factory) throws GeneralSecurityException {
+        return get(contexts, identity, factory, cacheSize);
+    }
+
+    /**
+     * Get the context for a new connection to a server, deciding whether it may resume a session.
+     * If not, the context returned is the one of the identity for full handshakes,
+     * and its cached sessions for the server are invalidated.
+     *
+     * @param identity client certificate alias, may be {@code null}
+     * @param factory  creates the contexts
+     * @param host     name of the server
+     * @param port     port of the server
+     * @return the context to use for the connection
+     * @throws GeneralSecurityException when the context can not be created
+     */
+    SSLContext getForConnection(String identity, ContextFactory factory, String host, int port)
+            throws GeneralSecurityException {
+        if (resumptionRatio >= 1 || ThreadLocalRandom.current().nextDouble() < resumptionRatio) {
+            return get(identity, factory);
+        }
+        // Its sessions are never meant to be resumed, so keep a single one
+        SSLContext context = get(fullHandshakeContexts, identity, factory, 1);
+        int invalidated = invalidate(context.getClientSessionContext(), host, port);
+        forcedFullHandshakes.increment();
+        if (log.isDebugEnabled()) {
+            log.debug("Full handshake forced for {}:{}, {} sessions invalidated", host, port, invalidated);
+        }
+        return context;
+    }
+
+    private static SSLContext get(Map<String, SSLContext> contexts, String identity, ContextFactory factory,
+            int cacheSize) throws GeneralSecurityException {
+        String key = identity == null ? NO_IDENTITY : identity;
+        SSLContext context = contexts.get(key);
+        if (context != null) {
+            return context;
+        }
+        synchronized (contexts) {
+            context = contexts.get(key);
+            if (context == null) {
+                context = factory.create();
+                context.getClientSessionContext().setSessionCacheSize(cacheSize);
+                contexts.put(key, context);
+                log.debug("Created shared SSL context for identity '{}'", key);
+            }
+            return context;
+        }
+    }
+
+    /**
+     * Invalidate the sessions established with a server
+     *
+     * @return number of invalidated sessions
+     */
+    static int invalidate(SSLSessionContext sessionContext, String host, int port) {
+        int invalidated = 0;
+        for (Enumeration<byte[]> ids = sessionContext.getIds(); ids.hasMoreElements();) {
+            SSLSession session = sessionContext.getSession(ids.nextElement());
+            if (session != null && port == session.getPeerPort() && host.equalsIgnoreCase(session.getPeerHost())) {
+                session.invalidate();
+                invalidated++;
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * @return number of shared contexts, i.e. of identities seen
+     */
+    int size() {
+        return contexts.size();
+    }
+
+    /**
+     * @return number of connections which were not allowed to resume a session
+     */
+    long getForcedFullHandshakes() {
+        return forcedFullHandshakes.sum();
+    }
+
+    /**
+     * Drop the contexts, and so their sessions, and reset the count of forced full handshakes
+     */
+    void clear() {
+        contexts.clear();
+        fullHandshakeContexts.clear();
+        forcedFullHandshakes.reset();
+    }
+}
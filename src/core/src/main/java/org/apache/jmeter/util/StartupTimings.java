@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each startup phase takes, from process start to the first sample.
+ * <p>
+ * Each call to {@link #endPhase(String)} closes the phase that started with the
+ * previous call (or with the creation of this object).
+ * Not thread-safe, startup runs on a single thread.
+ */
+public class StartupTimings {
+
+    private final long startNanos;
+    private long phaseStartNanos;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    public StartupTimings() {
+        startNanos = System.nanoTime();
+        phaseStartNanos = startNanos;
+    }
+
+    /**
+     * Close the current phase and start a new one.
+     *
+     * @param name name of the phase that just ended
+     */
+    public void endPhase(String name) {
+        long now = System.nanoTime();
+        phases.merge(name, now - phaseStartNanos, Long::sum);
+        phaseStartNanos = now;
+    }
+
+    /**
+     * @return elapsed milliseconds per phase, in the order phases ended
+     */
+    public Map<String, Long> getPhasesMillis() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        phases.forEach((name, nanos) -> result.put(name, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        return result;
+    }
+
+    /**
+     * @return elapsed milliseconds since this object was created
+     */
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(100);
+        getPhasesMillis().forEach((name, millis) -> sb.append(name).append('=').append(millis).append(" ms, "));
+        sb.append("total=").append(getTotalMillis()).append(" ms"); // $NON-NLS-1$
+        return sb.toString();
+    }
+}
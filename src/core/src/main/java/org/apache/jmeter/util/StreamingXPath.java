@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Evaluates simple absolute XPath 1.0 expressions while reading the document with StAX,
+ * without building a tree.
+ * <p>
+ * Supported expressions are made of child steps with an unprefixed name and an optional
+ * position, optionally ending with an attribute step, like {@code /Envelope/Body/item[2]/@id}.
+ * As with a namespace unaware DOM parser, names are matched against the local part of
+ * the names written in the document, whatever their prefix. Values are the ones returned by {@link XPathUtil#putValuesForXPathInList}
+ * for non fragment extraction: the value of the first child of selected elements and
+ * the value of selected attributes.
+ * <p>
+ * The whole document is read, so malformed documents are still rejected.
+ * Documents with a DTD are not handled, as entities they declare would need to be expanded.
+ */
+public final class StreamingXPath {
+
+    /** Set to false to always parse the document */
+    private static final boolean ENABLED = JMeterUtils.getPropDefault("xpath.streaming", true); // $NON-NLS-1$
+
+    private static final Pattern STEP = Pattern.compile("([A-Za-z_][\\w.\\-]*)(?:\\[([1-9]\\d{0,8})])?"); // $NON-NLS-1$
+
+    private static final Pattern ATTRIBUTE = Pattern.compile("@([A-Za-z_][\\w.\\-]*)"); // $NON-NLS-1$
+
+    /** The JDK reader reports CDATA sections as characters unless asked, but they are distinct DOM nodes */
+    private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event"; // $NON-NLS-1$
+
+    /** Namespace unaware StAX factories, which are not guaranteed to be thread-safe */
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORIES = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        if (factory.isPropertySupported(REPORT_CDATA)) {
+            factory.setProperty(REPORT_CDATA, Boolean.TRUE);
+        }
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setXMLResolver((publicId, systemId, baseUri, namespace) -> new ByteArrayInputStream(new byte[0]));
+        return factory;
+    });
+
+    private final String[] names;
+
+    /** 1-based position of each step, 0 for all */
+    private final int[] positions;
+
+    /** Name of the final attribute step, {@code null} to select elements */
+    private final String attribute;
+
+    private StreamingXPath(String[] names, int[] positions, String attribute) {
+        this.names = names;
+        this.positions = positions;
+        this.attribute = attribute;
+    }
+
+    /**
+     * @param expression XPath expression
+     * @return the compiled expression or {@code null} if it is not a simple absolute path or streaming is disabled
+     */
+    public static StreamingXPath compile(String expression) {
+        if (!ENABLED || StringUtils.isBlank(expression)) {
+            return null;
+        }
+        String trimmed = expression.trim();
+        if (trimmed.length() < 2 || trimmed.charAt(0) != '/' || trimmed.endsWith("/")) { // $NON-NLS-1$
+            return null;
+        }
+        String[] steps = trimmed.substring(1).split("/", -1); // $NON-NLS-1$
+        String attribute = null;
+        int count = steps.length;
+        Matcher attributeMatcher = ATTRIBUTE.matcher(steps[count - 1]);
+        if (attributeMatcher.matches()) {
+            attribute = attributeMatcher.group(1);
+            count--;
+            if (count == 0 || "xmlns".equals(attribute)) { // $NON-NLS-1$
+                return null;
+            }
+        }
+        String[] names = new String[count];
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            Matcher matcher = STEP.matcher(steps[i]);
+            if (!matcher.matches()) {
+                return null;
+            }
+            names[i] = matcher.group(1);
+            positions[i] = matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2));
+        }
+        return new StreamingXPath(names, positions, attribute);
+    }
+
+    /**
+     * @param xml document
+     * @return the values of the selected nodes in document order, or {@code null} if the document has a DTD
+     * @throws XMLStreamException when the document is not well-formed
+     */
+    public List<String> evaluate(Reader xml) throws XMLStreamException {
+        return evaluate(INPUT_FACTORIES.get().createXMLStreamReader(xml));
+    }
+
+    /**
+     * @param xml document, its encoding is detected as a parser does
+     * @return the values of the selected nodes in document order, or {@code null} if the document has a DTD
+     * @throws XMLStreamException when the document is not well-formed
+     */
+    public List<String> evaluate(InputStream xml) throws XMLStreamException {
+        return evaluate(INPUT_FACTORIES.get().createXMLStreamReader(xml));
+    }
+
+    private List<String> evaluate(XMLStreamReader reader) throws XMLStreamException {
+        try {
+            List<String> values = new ArrayList<>();
+            int[] counters = new int[names.length];
+            // number of open elements, and number of them matching the leading steps
+            int depth = 0;
+            int matched = 0;
+            // an element was selected and its first child gives its value
+            boolean capturing = false;
+            StringBuilder text = null;
+            int textEvent = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.SPACE) {
+                    event = XMLStreamConstants.CHARACTERS;
+                }
+                if (capturing) {
+                    if (text != null && event == textEvent) {
+                        // a text node may be reported in several events
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        continue;
+                    }
+                    if (text != null) {
+                        values.add(text.toString());
+                        capturing = false;
+                        text = null;
+                    } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                        text = new StringBuilder(reader.getText());
+                        textEvent = event;
+                        continue;
+                    } else if (event == XMLStreamConstants.COMMENT) {
+                        values.add(reader.getText());
+                        capturing = false;
+                        continue;
+                    } else if (event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                        values.add(reader.getPIData());
+                        capturing = false;
+                        continue;
+                    } else {
+                        // empty element or element child, whose value is null
+                        values.add(null);
+                        capturing = false;
+                    }
+                }
+                switch (event) {
+                    case XMLStreamConstants.DTD:
+                        return null;
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (matched == depth && depth < names.length
+                                && names[depth].equals(localPart(reader.getLocalName()))) {
+                            int position = ++counters[depth];
+                            if (positions[depth] == 0 || positions[depth] == position) {
+                                matched++;
+                                if (matched < names.length) {
+                                    counters[matched] = 0;
+                                } else if (attribute == null) {
+                                    capturing = true;
+                                } else {
+                                    addAttributeValue(reader, values);
+                                }
+                            }
+                        }
+                        depth++;
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        depth--;
+                        matched = Math.min(matched, depth);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return values;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void addAttributeValue(XMLStreamReader reader, List<String> values) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = reader.getAttributeLocalName(i);
+            // namespace declarations are not attributes for XPath
+            if (attribute.equals(localPart(name)) && !name.startsWith("xmlns:") // $NON-NLS-1$
+                    && !"xmlns".equals(reader.getAttributePrefix(i))) { // $NON-NLS-1$
+                values.add(reader.getAttributeValue(i));
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param name name reported by a namespace unaware reader, which may include the prefix
+     * @return the name without its prefix
+     */
+    private static String localPart(String name) {
+        int colon = name.indexOf(':');
+        return colon < 0 ? name : name.substring(colon + 1);
+    }
+}
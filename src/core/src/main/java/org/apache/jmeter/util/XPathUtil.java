@@ -103,11 +103,34 @@ public class XPathUtil {
         return PROCESSOR;
     }
 
-    private static DocumentBuilderFactory documentBuilderFactory;
+    /**
+     * Document builder factories of the current thread, indexed by {@link #optionsIndex(boolean, boolean, boolean)}.
+     * Factories are not thread-safe, so each thread configures its own instead of sharing a synchronized one.
+     */
+    private static final ThreadLocal<DocumentBuilderFactory[]> DOCUMENT_BUILDER_FACTORIES =
+            ThreadLocal.withInitial(() -> new DocumentBuilderFactory[8]);
+
+    /**
+     * Document builders of the current thread, indexed by {@link #optionsIndex(boolean, boolean, boolean)}
+     * plus 8 when external DTDs are downloaded. They are reset before each parse.
+     */
+    private static final ThreadLocal<DocumentBuilder[]> DOCUMENT_BUILDERS =
+            ThreadLocal.withInitial(() -> new DocumentBuilder[16]);
+
+    /**
+     * Saxon document builders of the current thread.
+     * Sharing of a DocumentBuilder across multiple threads is not recommended.
+     */
+    private static final ThreadLocal<net.sf.saxon.s9api.DocumentBuilder> SAXON_DOCUMENT_BUILDERS =
+            ThreadLocal.withInitial(PROCESSOR::newDocumentBuilder);
+
+    private static int optionsIndex(boolean validate, boolean whitespace, boolean namespace) {
+        return (validate ? 1 : 0) | (whitespace ? 2 : 0) | (namespace ? 4 : 0);
+    }
 
     /**
      * Returns a suitable document builder factory.
-     * Caches the factory in case the next caller wants the same options.
+     * Caches the factory of each combination of options for the current thread.
      *
      * @param validate should the parser validate documents?
      * @param whitespace should the parser eliminate whitespace in element content?
@@ -115,19 +138,21 @@ public class XPathUtil {
      *
      * @return javax.xml.parsers.DocumentBuilderFactory
      */
-    private static synchronized DocumentBuilderFactory makeDocumentBuilderFactory(boolean validate, boolean whitespace,
+    private static DocumentBuilderFactory makeDocumentBuilderFactory(boolean validate, boolean whitespace,
             boolean namespace) throws ParserConfigurationException {
-        if (XPathUtil.documentBuilderFactory == null || documentBuilderFactory.isValidating() != validate
-                || documentBuilderFactory.isNamespaceAware() != namespace
-                || documentBuilderFactory.isIgnoringElementContentWhitespace() != whitespace) {
+        DocumentBuilderFactory[] factories = DOCUMENT_BUILDER_FACTORIES.get();
+        int index = optionsIndex(validate, whitespace, namespace);
+        DocumentBuilderFactory factory = factories[index];
+        if (factory == null) {
             // configure the document builder factory
-            documentBuilderFactory = DocumentBuilderFactory.newInstance();
-            documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            documentBuilderFactory.setValidating(validate);
-            documentBuilderFactory.setNamespaceAware(namespace);
-            documentBuilderFactory.setIgnoringElementContentWhitespace(whitespace);
+            factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setValidating(validate);
+            factory.setNamespaceAware(namespace);
+            factory.setIgnoringElementContentWhitespace(whitespace);
+            factories[index] = factory;
         }
-        return XPathUtil.documentBuilderFactory;
+        return factory;
     }
 
     /**
@@ -143,11 +168,39 @@ public class XPathUtil {
     public static DocumentBuilder makeDocumentBuilder(boolean validate, boolean whitespace, boolean namespace, boolean downloadDTDs)
             throws ParserConfigurationException {
         DocumentBuilder builder = makeDocumentBuilderFactory(validate, whitespace, namespace).newDocumentBuilder();
+        configureDocumentBuilder(builder, validate, downloadDTDs);
+        return builder;
+    }
+
+    private static void configureDocumentBuilder(DocumentBuilder builder, boolean validate, boolean downloadDTDs) {
         builder.setErrorHandler(new MyErrorHandler(validate, false));
         if (!downloadDTDs) {
             EntityResolver er = (publicId, systemId) -> new InputSource(new ByteArrayInputStream(new byte[0]));
             builder.setEntityResolver(er);
         }
+    }
+
+    /**
+     * Get the document builder of the current thread for these options,
+     * the builder must not be kept nor used by another thread.
+     */
+    private static DocumentBuilder getPooledDocumentBuilder(boolean validate, boolean whitespace, boolean namespace,
+            boolean downloadDTDs) throws ParserConfigurationException {
+        DocumentBuilder[] builders = DOCUMENT_BUILDERS.get();
+        int index = optionsIndex(validate, whitespace, namespace) + (downloadDTDs ? 8 : 0);
+        DocumentBuilder builder = builders[index];
+        if (builder != null) {
+            try {
+                // reset also clears the error handler and the entity resolver
+                builder.reset();
+                configureDocumentBuilder(builder, validate, downloadDTDs);
+                return builder;
+            } catch (UnsupportedOperationException e) { // NOSONAR Builder can not be reused
+                log.debug("Document builder {} can not be reset, creating a new one", builder.getClass());
+            }
+        }
+        builder = makeDocumentBuilder(validate, whitespace, namespace, downloadDTDs);
+        builders[index] = builder;
         return builder;
     }
 
@@ -205,7 +258,7 @@ public class XPathUtil {
         if (tolerant) {
             doc = tidyDoc(stream, quiet, showWarnings, report_errors, isXml, tidyOut);
         } else {
-            doc = makeDocumentBuilder(validate, whitespace, namespace, downloadDTDs).parse(stream);
+            doc = getPooledDocumentBuilder(validate, whitespace, namespace, downloadDTDs).parse(stream);
         }
         return doc;
     }
@@ -380,10 +433,7 @@ public class XPathUtil {
         if (objectType == XObject.CLASS_NODESET) {
             NodeList matches = xObject.nodelist();
             int length = matches.getLength();
-            int indexToMatch = matchNumber;
-            if(matchNumber == 0 && length>0) {
-                indexToMatch = JMeterUtils.getRandomInt(length)+1;
-            }
+            int indexToMatch = getIndexToMatch(length, matchNumber);
             for (int i = 0 ; i < length; i++) {
                 Node match = matches.item(i);
                 if(indexToMatch >= 0 && indexToMatch != (i+1)) {
@@ -412,74 +462,124 @@ public class XPathUtil {
         }
     }
 
+    /**
+     * Build a Saxon tree with the document builder of the current thread
+     *
+     * @param xml XML content
+     * @return the tree
+     * @throws SaxonApiException when the content is not well-formed
+     */
+    public static XdmNode buildXdmNode(String xml) throws SaxonApiException {
+        try (StringReader reader = new StringReader(xml)) {
+            return SAXON_DOCUMENT_BUILDERS.get().build(new SAXSource(new InputSource(reader)));
+        }
+    }
+
+    private static XPathExecutable getXPathExecutable(String xPathQuery, String namespaces) {
+        if (StringUtils.isEmpty(xPathQuery)) {
+            log.warn("Error : {}", JMeterUtils.getResString("xpath2_extractor_empty_query"));
+            return null;
+        }
+        // check the cache, keyed by query and namespaces
+        return XPATH_CACHE.get(ImmutablePair.of(xPathQuery, namespaces));
+    }
+
+    /**
+     * Put in matchStrings the values selected by a streamed XPath, see {@link StreamingXPath}
+     * @param values values of all the selected nodes, in document order
+     * @param matchStrings List of strings that will be filled
+     * @param matchNumber match number
+     */
+    public static void putValuesInList(List<String> values, List<String> matchStrings, int matchNumber) {
+        int indexToMatch = getIndexToMatch(values.size(), matchNumber);
+        if (indexToMatch < 0) {
+            matchStrings.addAll(values);
+        } else if (indexToMatch > 0 && indexToMatch <= values.size()) {
+            matchStrings.add(values.get(indexToMatch - 1));
+        }
+    }
+
+    private static int getIndexToMatch(int length, int matchNumber) {
+        if (matchNumber == 0 && length > 0) {
+            return JMeterUtils.getRandomInt(length) + 1;
+        }
+        return matchNumber;
+    }
+
     public static void putValuesForXPathInListUsingSaxon(
             String xmlFile, String xPathQuery,
             List<String> matchStrings, boolean fragment,
             int matchNumber, String namespaces)
             throws SaxonApiException, FactoryConfigurationError {
-
-        // generating the cache key
-        final ImmutablePair<String, String> key = ImmutablePair.of(xPathQuery, namespaces);
-
-        //check the cache
-        XPathExecutable xPathExecutable;
-        if(StringUtils.isNotEmpty(xPathQuery)) {
-            xPathExecutable = XPATH_CACHE.get(key);
-        }
-        else {
-            log.warn("Error : {}", JMeterUtils.getResString("xpath2_extractor_empty_query"));
-            return;
+        XPathExecutable xPathExecutable = getXPathExecutable(xPathQuery, namespaces);
+        if (xPathExecutable != null) {
+            putValuesForXPathInListUsingSaxon(xPathExecutable, buildXdmNode(xmlFile), matchStrings, fragment, matchNumber);
         }
+    }
 
-        try (StringReader reader = new StringReader(xmlFile)) {
-            // We could instantiate it once but might trigger issues in the future
-            // Sharing of a DocumentBuilder across multiple threads is not recommended.
-            // However, in the current implementation sharing a DocumentBuilder (once initialized)
-            // will only cause problems if a SchemaValidator is used.
-            net.sf.saxon.s9api.DocumentBuilder builder = PROCESSOR.newDocumentBuilder();
-            XdmNode xdmNode = builder.build(new SAXSource(new InputSource(reader)));
+    /**
+     * Put in matchStrings results of evaluation on an already built Saxon tree
+     * @param xdmNode XML document, see {@link #buildXdmNode(String)}
+     * @param xPathQuery XPath Query
+     * @param matchStrings List of strings that will be filled
+     * @param fragment return fragment
+     * @param matchNumber match number
+     * @param namespaces Space separated set of prefix=namespace
+     * @throws SaxonApiException when the xpath query can not be evaluated
+     */
+    public static void putValuesForXPathInListUsingSaxon(
+            XdmNode xdmNode, String xPathQuery,
+            List<String> matchStrings, boolean fragment,
+            int matchNumber, String namespaces)
+            throws SaxonApiException {
+        XPathExecutable xPathExecutable = getXPathExecutable(xPathQuery, namespaces);
+        if (xPathExecutable != null) {
+            putValuesForXPathInListUsingSaxon(xPathExecutable, xdmNode, matchStrings, fragment, matchNumber);
+        }
+    }
 
-            if(xPathExecutable!=null) {
-                XPathSelector selector = null;
-                try {
-                    selector = xPathExecutable.load();
-                    selector.setContextItem(xdmNode);
-                    XdmValue nodes = selector.evaluate();
-                    int length = nodes.size();
-                    int indexToMatch = matchNumber;
-                    // In case we need to extract everything
-                    if(matchNumber < 0) {
-                        for(XdmItem item : nodes) {
-                            if(fragment) {
-                                matchStrings.add(item.toString());
-                            }
-                            else {
-                                matchStrings.add(item.getStringValue());
-                            }
-                        }
-                    } else {
-                        if(indexToMatch <= length) {
-                            if(matchNumber == 0 && length>0) {
-                                indexToMatch = JMeterUtils.getRandomInt(length)+1;
-                            }
-                            XdmItem item = nodes.itemAt(indexToMatch-1);
-                            matchStrings.add(fragment ? item.toString() : item.getStringValue());
-                        } else {
-                            if(log.isWarnEnabled()) {
-                                log.warn("Error : {}{}", JMeterUtils.getResString("xpath2_extractor_match_number_failure"),indexToMatch);
-                            }
-                        }
+    private static void putValuesForXPathInListUsingSaxon(
+            XPathExecutable xPathExecutable, XdmNode xdmNode,
+            List<String> matchStrings, boolean fragment, int matchNumber)
+            throws SaxonApiException {
+        XPathSelector selector = null;
+        try {
+            selector = xPathExecutable.load();
+            selector.setContextItem(xdmNode);
+            XdmValue nodes = selector.evaluate();
+            int length = nodes.size();
+            int indexToMatch = matchNumber;
+            // In case we need to extract everything
+            if(matchNumber < 0) {
+                for(XdmItem item : nodes) {
+                    if(fragment) {
+                        matchStrings.add(item.toString());
+                    }
+                    else {
+                        matchStrings.add(item.getStringValue());
                     }
-                } finally {
-                    if(selector != null) {
-                        try {
-                            selector.getUnderlyingXPathContext().setContextItem(null);
-                        } catch (Exception e) { // NOSONAR Ignored on purpose
-                            // NOOP
-                        }
+                }
+            } else {
+                if(indexToMatch <= length) {
+                    if(matchNumber == 0 && length>0) {
+                        indexToMatch = JMeterUtils.getRandomInt(length)+1;
+                    }
+                    XdmItem item = nodes.itemAt(indexToMatch-1);
+                    matchStrings.add(fragment ? item.toString() : item.getStringValue());
+                } else {
+                    if(log.isWarnEnabled()) {
+                        log.warn("Error : {}{}", JMeterUtils.getResString("xpath2_extractor_match_number_failure"),indexToMatch);
                     }
                 }
             }
+        } finally {
+            if(selector != null) {
+                try {
+                    selector.getUnderlyingXPathContext().setContextItem(null);
+                } catch (Exception e) { // NOSONAR Ignored on purpose
+                    // NOOP
+                }
+            }
         }
     }
 
@@ -625,22 +725,12 @@ public class XPathUtil {
                 NodeList nodeList = xObject.nodelist();
                 final int len = (nodeList != null) ? nodeList.getLength() : 0;
                 log.debug("nodeList length {}", len);
-                // length == 0 means nodelist is null
-                if (len == 0) {
-                    log.debug("nodeList is null or empty. No match by xpath expression: {}", xPathExpression);
-                    result.setFailure(!isNegated);
-                    result.setFailureMessage("No Nodes Matched " + xPathExpression);
-                    return;
-                }
                 if (log.isDebugEnabled() && !isNegated) {
                     for (int i = 0; i < len; i++) {
                         log.debug("nodeList[{}]: {}", i, nodeList.item(i));
                     }
                 }
-                result.setFailure(isNegated);
-                if (isNegated) {
-                    result.setFailureMessage("Specified XPath was found... Turn off negate if this is not desired");
-                }
+                computeAssertionResult(result, len, xPathExpression, isNegated);
                 return;
             case XObject.CLASS_BOOLEAN:
                 boolean resultOfEval = xObject.bool();
@@ -660,6 +750,30 @@ public class XPathUtil {
         }
     }
 
+    /**
+     * Fills result from the number of nodes selected by a node-set expression
+     * @param result {@link AssertionResult}
+     * @param matchCount number of selected nodes
+     * @param xPathExpression XPath expression
+     * @param isNegated flag whether a non-match should be considered a success
+     */
+    public static void computeAssertionResult(AssertionResult result,
+            int matchCount,
+            String xPathExpression,
+            boolean isNegated) {
+        // length == 0 means nodelist is null
+        if (matchCount == 0) {
+            log.debug("nodeList is null or empty. No match by xpath expression: {}", xPathExpression);
+            result.setFailure(!isNegated);
+            result.setFailureMessage("No Nodes Matched " + xPathExpression);
+            return;
+        }
+        result.setFailure(isNegated);
+        if (isNegated) {
+            result.setFailureMessage("Specified XPath was found... Turn off negate if this is not desired");
+        }
+    }
+
 
     /***
     *
@@ -673,56 +787,61 @@ public class XPathUtil {
     */
    public static void computeAssertionResultUsingSaxon(AssertionResult result, String xmlFile, String xPathQuery,
            String namespaces, Boolean isNegated) throws SaxonApiException, FactoryConfigurationError {
-       // generating the cache key
-       final ImmutablePair<String, String> key = ImmutablePair.of(xPathQuery, namespaces);
-       // check the cache
-       XPathExecutable xPathExecutable;
-       if (StringUtils.isNotEmpty(xPathQuery)) {
-           xPathExecutable = XPATH_CACHE.get(key);
-       } else {
-           log.warn("Error : {}", JMeterUtils.getResString("xpath2_extractor_empty_query"));
-           return;
+       XPathExecutable xPathExecutable = getXPathExecutable(xPathQuery, namespaces);
+       if (xPathExecutable != null) {
+           computeAssertionResultUsingSaxon(result, xPathExecutable, buildXdmNode(xmlFile), xPathQuery, namespaces,
+                   isNegated);
        }
-       try (StringReader reader = new StringReader(xmlFile)) {
-           // We could instantiate it once but might trigger issues in the future
-           // Sharing of a DocumentBuilder across multiple threads is not recommended.
-           // However, in the current implementation sharing a DocumentBuilder (once
-           // initialized)
-           // will only cause problems if a SchemaValidator is used.
-           net.sf.saxon.s9api.DocumentBuilder builder = PROCESSOR.newDocumentBuilder();
-           XdmNode xdmNode = builder.build(new SAXSource(new InputSource(reader)));
-           if (xPathExecutable != null) {
-               XPathSelector selector = null;
+   }
+
+   /***
+    *
+    * @param result The result of xpath2 assertion
+    * @param xdmNode XML document, see {@link #buildXdmNode(String)}
+    * @param xPathQuery XPath Query
+    * @param namespaces Space separated set of prefix=namespace
+    * @param isNegated invert result
+    * @throws SaxonApiException when the xpath query can not be evaluated
+    */
+   public static void computeAssertionResultUsingSaxon(AssertionResult result, XdmNode xdmNode, String xPathQuery,
+           String namespaces, Boolean isNegated) throws SaxonApiException {
+       XPathExecutable xPathExecutable = getXPathExecutable(xPathQuery, namespaces);
+       if (xPathExecutable != null) {
+           computeAssertionResultUsingSaxon(result, xPathExecutable, xdmNode, xPathQuery, namespaces, isNegated);
+       }
+   }
+
+   private static void computeAssertionResultUsingSaxon(AssertionResult result, XPathExecutable xPathExecutable,
+           XdmNode xdmNode, String xPathQuery, String namespaces, Boolean isNegated) throws SaxonApiException {
+       XPathSelector selector = null;
+       try {
+           Document doc;
+           doc = getPooledDocumentBuilder(false, false, false, false).newDocument();
+           XObject xObject = XPathAPI.eval(doc, xPathQuery, getPrefixResolverForXPath2(doc, namespaces));
+           selector = xPathExecutable.load();
+           selector.setContextItem(xdmNode);
+           XdmValue nodes = selector.evaluate();
+           boolean resultOfEval = true;
+           int length = nodes.size();
+           // In case we need to extract everything
+           if (length == 0) {
+               resultOfEval = false;
+           } else if (xObject.getType() == XObject.CLASS_BOOLEAN) {
+               resultOfEval = Boolean.parseBoolean(nodes.itemAt(0).getStringValue());
+           }
+           result.setFailure(isNegated ? resultOfEval : !resultOfEval);
+           result.setFailureMessage(
+                   isNegated ? "Nodes Matched for " + xPathQuery : "No Nodes Matched for " + xPathQuery);
+       } catch (ParserConfigurationException | TransformerException e) { // NOSONAR Exception handled by return
+           result.setError(true);
+           result.setFailureMessage("Exception: " + e.getMessage() + " for:" + xPathQuery);
+       } finally {
+           if (selector != null) {
                try {
-                   Document doc;
-                   doc = XPathUtil.makeDocumentBuilder(false, false, false, false).newDocument();
-                   XObject xObject = XPathAPI.eval(doc, xPathQuery, getPrefixResolverForXPath2(doc, namespaces));
-                   selector = xPathExecutable.load();
-                   selector.setContextItem(xdmNode);
-                   XdmValue nodes = selector.evaluate();
-                   boolean resultOfEval = true;
-                   int length = nodes.size();
-                   // In case we need to extract everything
-                   if (length == 0) {
-                       resultOfEval = false;
-                   } else if (xObject.getType() == XObject.CLASS_BOOLEAN) {
-                       resultOfEval = Boolean.parseBoolean(nodes.itemAt(0).getStringValue());
-                   }
-                   result.setFailure(isNegated ? resultOfEval : !resultOfEval);
-                   result.setFailureMessage(
-                           isNegated ? "Nodes Matched for " + xPathQuery : "No Nodes Matched for " + xPathQuery);
-               } catch (ParserConfigurationException | TransformerException e) { // NOSONAR Exception handled by return
+                   selector.getUnderlyingXPathContext().setContextItem(null);
+               } catch (Exception e) { // NOSONAR Ignored on purpose
                    result.setError(true);
                    result.setFailureMessage("Exception: " + e.getMessage() + " for:" + xPathQuery);
-               } finally {
-                   if (selector != null) {
-                       try {
-                           selector.getUnderlyingXPathContext().setContextItem(null);
-                       } catch (Exception e) { // NOSONAR Ignored on purpose
-                           result.setError(true);
-                           result.setFailureMessage("Exception: " + e.getMessage() + " for:" + xPathQuery);
-                       }
-                   }
                }
            }
        }
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XdmNode;
+
+/**
+ * Parses the response of a sample once for all the XPath Extractors, XPath Assertions,
+ * XPath2 Extractors and XPath2 Assertions applied to it.
+ * <p>
+ * Parsed trees are stored on the {@link SampleResult} with
+ * {@link SampleResult#getParsedResponse(String, java.util.function.Function)}:
+ * one DOM document per set of parser options used by XPath elements,
+ * and one Saxon tree for XPath2 elements.
+ * Parse failures are cached too, so a non XML response is only parsed once per set of options.
+ */
+public final class XmlDocumentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(XmlDocumentCache.class);
+
+    /** Set to false to parse the response in each element */
+    private static final boolean ENABLED = JMeterUtils.getPropDefault("xpath.parse_cache", true); // $NON-NLS-1$
+
+    private static final String DOM_FORMAT = "xml-dom:"; // $NON-NLS-1$
+
+    private static final String XDM_FORMAT = "xml-xdm"; // $NON-NLS-1$
+
+    /**
+     * Parsed response or parse failure
+     */
+    private static final class ParsedXml {
+        private final Object document;
+        private final Exception failure;
+
+        ParsedXml(Object document, Exception failure) {
+            this.document = document;
+            this.failure = failure;
+        }
+    }
+
+    @FunctionalInterface
+    private interface XmlParser {
+        Object parse() throws Exception; // NOSONAR Each parser throws its own exceptions
+    }
+
+    private XmlDocumentCache() {
+        super();
+    }
+
+    /**
+     * Get the DOM document of the response, see
+     * {@link XPathUtil#makeDocument(java.io.InputStream, boolean, boolean, boolean, boolean, boolean, boolean, boolean, boolean, boolean)}
+     * for the options.
+     *
+     * @param result     sample whose response is parsed
+     * @param fromString if the response is parsed from its string form re-encoded in UTF-8, as XPath Extractor does,
+     *                   instead of its raw bytes, as XPath Assertion does. Both are the same for UTF-8 responses
+     * @param validate     Validate Document (not Tidy)
+     * @param whitespace   Element Whitespace (not Tidy)
+     * @param namespace    Is Namespace aware. (not Tidy)
+     * @param tolerant     Is tolerant - i.e. use the Tidy parser
+     * @param quiet        set Tidy quiet
+     * @param showWarnings set Tidy warnings
+     * @param reportErrors throw TidyException if Tidy detects an error
+     * @param downloadDTDs if true, try to download external DTDs
+     * @return document shared with the other elements applied to the sample, must not be modified
+     * @throws ParserConfigurationException when no DocumentBuilder can be constructed for the wanted configuration
+     * @throws SAXException if parsing fails
+     * @throws IOException if an I/O error occurs while parsing
+     * @throws TidyException if a ParseError is detected and <code>reportErrors</code> is <code>true</code>
+     */
+    public static Document getDocument(SampleResult result, boolean fromString, boolean validate, boolean whitespace,
+            boolean namespace, boolean tolerant, boolean quiet, boolean showWarnings, boolean reportErrors,
+            boolean downloadDTDs) throws ParserConfigurationException, SAXException, IOException, TidyException {
+        boolean sameBytes = StandardCharsets.UTF_8.name().equalsIgnoreCase(result.getDataEncodingWithDefault());
+        boolean useString = fromString && !sameBytes;
+        XmlParser parser = () -> {
+            byte[] data = useString
+                    ? result.getResponseDataAsString().getBytes(StandardCharsets.UTF_8)
+                    : result.getResponseData();
+            return XPathUtil.makeDocument(new ByteArrayInputStream(data), validate, whitespace, namespace,
+                    tolerant, quiet, showWarnings, reportErrors, JOrphanUtils.isXML(data), downloadDTDs);
+        };
+        // Options which do not apply to the parser in use are left out of the key
+        String format = tolerant
+                ? DOM_FORMAT + "tidy" + (quiet ? 'q' : '-') + (showWarnings ? 'w' : '-') + (reportErrors ? 'e' : '-') // $NON-NLS-1$
+                : DOM_FORMAT + (validate ? 'v' : '-') + (whitespace ? 'w' : '-') + (namespace ? 'n' : '-')
+                        + (downloadDTDs ? 'd' : '-');
+        if (useString) {
+            format += ":string"; // $NON-NLS-1$
+        }
+        ParsedXml parsed = get(result, format, parser);
+        if (parsed.failure instanceof ParserConfigurationException) {
+            throw (ParserConfigurationException) parsed.failure;
+        } else if (parsed.failure instanceof SAXException) {
+            throw (SAXException) parsed.failure;
+        } else if (parsed.failure instanceof IOException) {
+            throw (IOException) parsed.failure;
+        } else if (parsed.failure instanceof TidyException) {
+            throw (TidyException) parsed.failure;
+        }
+        rethrowUnchecked(parsed.failure);
+        return (Document) parsed.document;
+    }
+
+    /**
+     * @param result sample whose response is parsed
+     * @return Saxon tree of the response, shared with the other elements applied to the sample
+     * @throws SaxonApiException when the response is not well-formed
+     */
+    public static XdmNode getXdmNode(SampleResult result) throws SaxonApiException {
+        ParsedXml parsed = get(result, XDM_FORMAT, () -> XPathUtil.buildXdmNode(result.getResponseDataAsString()));
+        if (parsed.failure instanceof SaxonApiException) {
+            throw (SaxonApiException) parsed.failure;
+        }
+        rethrowUnchecked(parsed.failure);
+        return (XdmNode) parsed.document;
+    }
+
+    private static void rethrowUnchecked(Exception failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    private static ParsedXml get(SampleResult result, String format, XmlParser parser) {
+        if (!ENABLED) {
+            return parse(result, format, parser);
+        }
+        return result.getParsedResponse(format, xml -> parse(result, format, parser));
+    }
+
+    private static ParsedXml parse(SampleResult result, String format, XmlParser parser) {
+        long start = System.nanoTime();
+        ParsedXml parsed;
+        try {
+            parsed = new ParsedXml(parser.parse(), null);
+        } catch (Exception e) { // NOSONAR Failure is rethrown to each element using the document
+            parsed = new ParsedXml(null, e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Parsed response of '{}' as {} in {} us", result.getSampleLabel(), format,
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+        return parsed;
+    }
+}
@@ -38,6 +38,7 @@ import java.util.Objects;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -207,6 +208,19 @@ public final class JmeterKeyStore {
         return this.names[getIndexAndIncrement(length)];
     }
 
+    /**
+     * Get the alias the current thread is bound to by the client certificate alias variable.
+     *
+     * @return the value of the variable, or {@code null} if no variable is configured or it is not set
+     */
+    public String getThreadAlias() {
+        if (StringUtils.isEmpty(clientCertAliasVarName)) {
+            return null;
+        }
+        JMeterVariables vars = JMeterContextService.getContext().getVariables();
+        return vars == null ? null : StringUtils.defaultIfEmpty(vars.get(clientCertAliasVarName), null);
+    }
+
     public int getAliasCount() {
         return this.names.length;
     }
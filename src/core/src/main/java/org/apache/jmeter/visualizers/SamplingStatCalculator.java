@@ -18,21 +18,30 @@
 package org.apache.jmeter.visualizers;
 
 import java.util.Map;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.jmeter.samplers.SampleResult;
-import org.apache.jorphan.math.StatCalculatorLong;
+import org.apache.jorphan.math.ConcurrentStatCalculatorLong;
 
 /**
  * Aggregate sample data container. Just instantiate a new instance of this
  * class, and then call {@link #addSample(SampleResult)} a few times, and pull
  * the stats out with whatever methods you prefer.
+ * <p>
+ * Samples can be added concurrently, without locking.
  */
 public class SamplingStatCalculator {
-    private final StatCalculatorLong calculator = new StatCalculatorLong();
+    private final ConcurrentStatCalculatorLong calculator = new ConcurrentStatCalculatorLong();
 
-    private double maxThroughput;
+    private final DoubleAccumulator maxThroughput = new DoubleAccumulator(Math::max, Double.MIN_VALUE);
 
-    private long firstTime;
+    private final LongAccumulator firstTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator endTime = new LongAccumulator(Math::max, 0L);
+
+    private final LongAdder errorCount = new LongAdder();
 
     private String label;
 
@@ -48,9 +57,11 @@ public class SamplingStatCalculator {
     }
 
     private void init() { // WARNING: called from ctor so must not be overridden (i.e. must be private or final)
-        firstTime = Long.MAX_VALUE;
+        firstTime.reset();
+        endTime.reset();
+        errorCount.reset();
         calculator.clear();
-        maxThroughput = Double.MIN_VALUE;
+        maxThroughput.reset();
         currentSample = new Sample();
     }
 
@@ -71,10 +82,11 @@ public class SamplingStatCalculator {
      * @return how long the samples took
      */
     public long getElapsed() {
-        if (getCurrentSample().getEndTime() == 0) {
+        long lastTime = endTime.get();
+        if (lastTime == 0) {
             return 0;// No samples collected ...
         }
-        return getCurrentSample().getEndTime() - firstTime;
+        return lastTime - firstTime.get();
     }
 
     /**
@@ -172,65 +184,33 @@ public class SamplingStatCalculator {
      * @return newly created sample with current statistics
      */
     public Sample addSample(SampleResult res) {
-        long rtime;
-        long cmean;
-        long cstdv;
-        long cmedian;
-        long cpercent;
-        long eCount;
-        long endTime;
-        double throughput;
-        boolean rbool;
-        synchronized (calculator) {
-            calculator.addValue(res.getTime(), res.getSampleCount());
-            calculator.addBytes(res.getBytesAsLong());
-            calculator.addSentBytes(res.getSentBytes());
-            setStartTime(res);
-            eCount = getCurrentSample().getErrorCount();
-            eCount += res.getErrorCount();
-            endTime = getEndTime(res);
-            long howLongRunning = endTime - firstTime;
-            throughput = ((double) calculator.getCount() / (double) howLongRunning) * 1000.0;
-            if (throughput > maxThroughput) {
-                maxThroughput = throughput;
-            }
-
-            rtime = res.getTime();
-            cmean = (long)calculator.getMean();
-            cstdv = (long)calculator.getStandardDeviation();
-            cmedian = calculator.getMedian();
-            cpercent = calculator.getPercentPoint(0.500);
+        calculator.addValue(res.getTime(), res.getSampleCount());
+        calculator.addBytes(res.getBytesAsLong());
+        calculator.addSentBytes(res.getSentBytes());
+        firstTime.accumulate(res.getStartTime());
+        errorCount.add(res.getErrorCount());
+        long eCount = errorCount.sum();
+        endTime.accumulate(res.getEndTime());
+        long lastTime = endTime.get();
+        long howLongRunning = lastTime - firstTime.get();
+        long count = calculator.getCount();
+        double throughput = ((double) count / (double) howLongRunning) * 1000.0;
+        maxThroughput.accumulate(throughput);
+
+        long rtime = res.getTime();
+        long cmean = (long) calculator.getMean();
+        long cstdv = (long) calculator.getStandardDeviation();
+        long cmedian = calculator.getMedian();
+        long cpercent = cmedian;
 // TODO cpercent is the same as cmedian here - why? and why pass it to "distributionLine"?
-            rbool = res.isSuccessful();
-        }
+        boolean rbool = res.isSuccessful();
 
-        long count = calculator.getCount();
         Sample s =
-            new Sample( null, rtime, cmean, cstdv, cmedian, cpercent, throughput, eCount, rbool, count, endTime );
+            new Sample( null, rtime, cmean, cstdv, cmedian, cpercent, throughput, eCount, rbool, count, lastTime );
         currentSample = s;
         return s;
     }
 
-    private long getEndTime(SampleResult res) {
-        long endTime = res.getEndTime();
-        long lastTime = getCurrentSample().getEndTime();
-        if (lastTime < endTime) {
-            lastTime = endTime;
-        }
-        return lastTime;
-    }
-
-    /**
-     * @param res
-     */
-    private void setStartTime(SampleResult res) {
-        long startTime = res.getStartTime();
-        if (firstTime > startTime) {
-            // this is our first sample, set the start time to current timestamp
-            firstTime = startTime;
-        }
-    }
-
     /**
      * Returns the raw double value of the percentage of samples with errors
      * that were recorded. (Between 0.0 and 1.0)
@@ -244,7 +224,7 @@ public class SamplingStatCalculator {
         if (calculator.getCount() == 0) {
             return rval;
         }
-        rval = (double) getCurrentSample().getErrorCount() / (double) calculator.getCount();
+        rval = (double) errorCount.sum() / (double) calculator.getCount();
         return rval;
     }
 
@@ -260,12 +240,12 @@ public class SamplingStatCalculator {
 
     /** @return errorCount */
     public long getErrorCount() {
-        return getCurrentSample().getErrorCount();
+        return errorCount.sum();
     }
 
     /** @return Returns the maxThroughput. */
     public double getMaxThroughput() {
-        return maxThroughput;
+        return maxThroughput.get();
     }
 
     public Map<Number, Number[]> getDistribution() {
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.apache.jmeter.testelement.property.StringProperty;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestCompiledCondition {
+
+    @BeforeEach
+    public void setUp() {
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("count", "5");
+        vars.put("name", "abc");
+        vars.put("ok", "true");
+        vars.put("decimal", "5.0");
+        JMeterContextService.getContext().setVariables(vars);
+    }
+
+    private static Boolean evaluate(String condition) {
+        CompiledCondition compiled = CompiledCondition.compile("test", condition, false);
+        assertNotNull(compiled, condition);
+        return compiled.evaluate("test");
+    }
+
+    @Test
+    public void testComparisons() {
+        assertEquals(Boolean.TRUE, evaluate("${count} < 10"));
+        assertEquals(Boolean.FALSE, evaluate("${count} >= 10"));
+        assertEquals(Boolean.TRUE, evaluate("${count} == 5"));
+        assertEquals(Boolean.TRUE, evaluate("${count} == \"5\""));
+        assertEquals(Boolean.FALSE, evaluate("${count} === \"5\""));
+        assertEquals(Boolean.TRUE, evaluate("${decimal} == ${count}"));
+        assertEquals(Boolean.FALSE, evaluate("\"${decimal}\" == \"${count}\""));
+        assertEquals(Boolean.TRUE, evaluate("\"${name}\" == \"abc\""));
+        assertEquals(Boolean.TRUE, evaluate("'${name}' != 'abd'"));
+        assertEquals(Boolean.TRUE, evaluate("\"${name}\" < \"abd\""));
+        assertEquals(Boolean.TRUE, evaluate("\"${missing}\" == \"$\\{missing}\""));
+        assertEquals(Boolean.TRUE, evaluate("-1.5e2 < 0"));
+    }
+
+    @Test
+    public void testBooleanLogic() {
+        assertEquals(Boolean.TRUE, evaluate("${ok} && (${count} > 1 || false)"));
+        assertEquals(Boolean.FALSE, evaluate("!${ok}"));
+        assertEquals(Boolean.TRUE, evaluate("!(${count} > 10) && true == true"));
+        assertEquals(Boolean.TRUE, evaluate("false || ${ok}"));
+    }
+
+    @Test
+    public void testNonLiteralVariableIsEvaluatedAsBefore() {
+        assertNull(evaluate("${name} && true"));
+        assertNull(evaluate("${name} == \"abc\""));
+        assertNull(evaluate("${missing} == 1"));
+        assertEquals(Boolean.TRUE, evaluate("\"${name}\" == \"abc\" && ${count} == 5"));
+    }
+
+    @Test
+    public void testFunctionWrappers() {
+        CompiledCondition compiled = CompiledCondition.compile("test", "${__jexl3(${count} < 10)}", true);
+        assertEquals(Boolean.TRUE, compiled.evaluate("test"));
+        compiled = CompiledCondition.compile("test", "${__javaScript(\"${name}\" == \"abc\")}", true);
+        assertEquals(Boolean.TRUE, compiled.evaluate("test"));
+    }
+
+    @Test
+    public void testUnsupportedConditions() {
+        assertNull(CompiledCondition.compile("test", "\"a\".equals(\"a\")", false));
+        assertNull(CompiledCondition.compile("test", "${__groovy(vars.get(\"a\") == null)}", false));
+        assertNull(CompiledCondition.compile("test", "${__jexl3(${count} < 10,result)}", false));
+        assertNull(CompiledCondition.compile("test", "${count}", false));
+        assertNull(CompiledCondition.compile("test", "\"${name}\" =~ \"a.c\"", false));
+        assertNull(CompiledCondition.compile("test", "${count} < 10", true));
+        assertNull(CompiledCondition.compile("test", "true", true));
+        assertNull(CompiledCondition.compile("test", "", false));
+    }
+
+    @Test
+    public void testHolderCompilesOnce() {
+        CompiledCondition.Holder holder = new CompiledCondition.Holder();
+        StringProperty property = new StringProperty("condition", "${count} < 10");
+        CompiledCondition compiled = holder.get("test", property, false);
+        assertSame(compiled, holder.get("test", property, false));
+        property.setValue("${count} > 10");
+        assertEquals(Boolean.FALSE, holder.get("test", property, false).evaluate("test"));
+        assertNull(holder.get("test", property, true));
+    }
+}
@@ -24,6 +24,12 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.jmeter.junit.JMeterTestCase;
 import org.apache.jmeter.testelement.TestPlan;
 import org.apache.jmeter.util.Calculator;
@@ -379,4 +385,69 @@ public class TestSampleResult implements JMeterSerialTest {
         assertFalse("Expected false on first call of markFile with null", secondResult.markFile(null));
         assertTrue("Expected true on second call of markFile with null", secondResult.markFile(null));
     }
+
+    @Test
+    public void testCorrectedLatency() {
+        SampleResult res = new SampleResult(10_000L, 50L);
+        assertEquals("Without intended start, corrected latency is the elapsed time", 50L, res.getCorrectedLatency());
+
+        res.setIntendedStartTime(9_800L);
+        assertEquals(250L, res.getCorrectedLatency());
+
+        res.setIntendedStartTime(10_001L);
+        assertEquals("Intended start after actual start is ignored", 50L, res.getCorrectedLatency());
+    }
+
+    @Test
+    public void testSetCorrectedLatency() {
+        SampleResult res = new SampleResult(10_000L, 50L);
+        res.setCorrectedLatency(250L);
+        assertEquals(9_800L, res.getIntendedStartTime());
+        assertEquals(250L, res.getCorrectedLatency());
+
+        res.setCorrectedLatency(50L);
+        assertEquals(0L, res.getIntendedStartTime());
+        assertEquals(50L, new SampleResult(res).getCorrectedLatency());
+    }
+
+    @Test
+    public void testLazyRequestHeadersAreBuiltOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        SampleResult res = new SampleResult();
+        res.setRequestHeadersSupplier(() -> "Header" + calls.incrementAndGet());
+        assertEquals(0, calls.get());
+        assertEquals("Header1", res.getRequestHeaders());
+        assertEquals("Header1", res.getRequestHeaders());
+        assertEquals("Header1", new SampleResult(res).getRequestHeaders());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testSetterReplacesLazyValue() {
+        SampleResult res = new SampleResult();
+        res.setRequestHeadersSupplier(() -> "lazy");
+        res.setRequestHeaders("eager");
+        assertEquals("eager", res.getRequestHeaders());
+        res.setQueryStringSupplier(() -> null);
+        assertEquals("", res.getQueryString());
+        res.setQueryStringSupplier(() -> "lazy");
+        res.setQueryString("eager");
+        assertEquals("eager", res.getQueryString());
+    }
+
+    @Test
+    public void testLazyRequestDataIsSerialized() throws Exception {
+        SampleResult res = new SampleResult();
+        res.setRequestHeadersSupplier(() -> "Header");
+        res.setQueryStringSupplier(() -> "a=b");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(res);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            SampleResult copy = (SampleResult) in.readObject();
+            assertEquals("Header", copy.getRequestHeaders());
+            assertEquals("a=b", copy.getQueryString());
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.save;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.ObjectProperty;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestTreeSnapshotCache {
+
+    private static HashTree createTree() {
+        Arguments arguments = new Arguments();
+        arguments.setName("args");
+        arguments.addArgument("host", "localhost");
+        arguments.addArgument("port", "8080");
+        ConfigTestElement config = new ConfigTestElement();
+        config.setName("config");
+        config.setProperty("string", "value");
+        config.setProperty("bool", true);
+        config.setProperty("int", 42);
+        config.setProperty("long", Long.MAX_VALUE);
+        ConfigTestElement child = new ConfigTestElement();
+        child.setName("child");
+
+        HashTree tree = new ListedHashTree();
+        tree.add(arguments);
+        tree.add(config).add(child);
+        return tree;
+    }
+
+    private static HashTree roundTrip(HashTree tree) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            TreeSnapshotCache.writeSnapshot(out, tree);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return TreeSnapshotCache.readSnapshot(in);
+        }
+    }
+
+    @Test
+    public void testRoundTripKeepsOrderAndProperties() throws Exception {
+        HashTree tree = createTree();
+        HashTree copy = roundTrip(tree);
+
+        assertEquals(ListedHashTree.class, copy.getClass());
+        Object[] expected = tree.getArray();
+        Object[] actual = copy.getArray();
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            TestElement expectedElement = (TestElement) expected[i];
+            TestElement actualElement = (TestElement) actual[i];
+            assertEquals(expectedElement.getClass(), actualElement.getClass());
+            assertEquals(expectedElement.getName(), actualElement.getName());
+            assertEquals(tree.getTree(expectedElement).size(), copy.getTree(actualElement).size());
+        }
+
+        Arguments arguments = (Arguments) actual[0];
+        assertEquals("localhost", arguments.getArgumentsAsMap().get("host"));
+        assertEquals("8080", arguments.getArgumentsAsMap().get("port"));
+
+        TestElement config = (TestElement) actual[1];
+        assertEquals("value", config.getPropertyAsString("string"));
+        assertTrue(config.getPropertyAsBoolean("bool"));
+        assertEquals(42, config.getPropertyAsInt("int"));
+        assertEquals(Long.MAX_VALUE, config.getPropertyAsLong("long"));
+        TestElement child = (TestElement) copy.getTree(config).getArray()[0];
+        assertEquals("child", child.getName());
+    }
+
+    @Test
+    public void testUnsupportedPropertyIsRejected() {
+        ConfigTestElement config = new ConfigTestElement();
+        config.setProperty(new ObjectProperty("object", new Object()));
+        HashTree tree = new ListedHashTree(config);
+        assertThrows(UnsupportedOperationException.class, () -> roundTrip(tree));
+    }
+
+    @Test
+    public void testStoreThenLoad(@TempDir File dir) {
+        byte[] plan = "<jmeterTestPlan/>".getBytes(StandardCharsets.UTF_8);
+        TreeSnapshotCache cache = new TreeSnapshotCache(dir, "key");
+        assertNull(cache.load(plan));
+        cache.store(plan, createTree());
+        HashTree loaded = cache.load(plan);
+        assertEquals(2, loaded.size());
+
+        TreeSnapshotCache otherConfiguration = new TreeSnapshotCache(dir, "other");
+        assertNull(otherConfiguration.load(plan));
+    }
+}
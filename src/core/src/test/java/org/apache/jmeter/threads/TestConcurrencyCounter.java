@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class TestConcurrencyCounter {
+
+    @Test
+    public void testIncrementDecrement() {
+        ConcurrencyCounter counter = new ConcurrencyCounter();
+        counter.increment();
+        counter.increment();
+        counter.decrement();
+        assertEquals(1, counter.get());
+        assertEquals(1, counter.snapshot().getValue());
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        ConcurrencyCounter counter = new ConcurrencyCounter();
+        int threads = 8;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    counter.increment();
+                    counter.decrement();
+                }
+                counter.increment();
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(threads, counter.get());
+    }
+
+    @Test
+    public void testAverageStaysInRangeUnderConcurrentUpdates() throws Exception {
+        ConcurrencyCounter counter = new ConcurrencyCounter();
+        int threads = 4;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < 100000; j++) {
+                    counter.increment();
+                    counter.decrement();
+                }
+                done.countDown();
+            }).start();
+        }
+        ConcurrencyCounter.Snapshot previous = counter.snapshot();
+        while (done.getCount() > 0) {
+            ConcurrencyCounter.Snapshot snapshot = counter.snapshot();
+            double average = snapshot.averageSince(previous);
+            assertTrue(average >= 0 && average <= threads, "average " + average);
+            previous = snapshot;
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConstantValueAverage() throws Exception {
+        ConcurrencyCounter counter = new ConcurrencyCounter();
+        counter.increment();
+        counter.increment();
+        ConcurrencyCounter.Snapshot start = counter.snapshot();
+        Thread.sleep(20);
+        assertEquals(2.0, counter.snapshot().averageSince(start), 0.001);
+    }
+
+    @Test
+    public void testAverageIsTimeWeighted() throws Exception {
+        ConcurrencyCounter counter = new ConcurrencyCounter();
+        ConcurrencyCounter.Snapshot start = counter.snapshot();
+        Thread.sleep(50);
+        counter.increment();
+        ConcurrencyCounter.Snapshot middle = counter.snapshot();
+        Thread.sleep(50);
+        ConcurrencyCounter.Snapshot end = counter.snapshot();
+        assertEquals(0.0, middle.averageSince(start), 0.001);
+        assertEquals(1.0, end.averageSince(middle), 0.001);
+        double average = end.averageSince(start);
+        assertTrue(average > 0.1 && average < 0.9, "average " + average);
+    }
+
+    @Test
+    public void testAverageWithoutPreviousSnapshot() {
+        ConcurrencyCounter counter = new ConcurrencyCounter();
+        counter.increment();
+        assertEquals(1.0, counter.snapshot().averageSince(null), 0.001);
+        assertEquals(1.0, counter.snapshot().averageSince(new ConcurrencyCounter().snapshot()), 0.001);
+    }
+
+    @Test
+    public void testDeserializedCounterStartsFromZero() throws Exception {
+        ConcurrencyCounter counter = new ConcurrencyCounter();
+        counter.increment();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(counter);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(0, ((ConcurrencyCounter) in.readObject()).get());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.apache.jmeter.config.ConfigTestElement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestEngineProfiler {
+
+    private static ConfigTestElement element(String name) {
+        ConfigTestElement element = new ConfigTestElement();
+        element.setName(name);
+        return element;
+    }
+
+    @BeforeEach
+    @AfterEach
+    public void reset() {
+        EngineProfiler.reset();
+    }
+
+    @Test
+    public void testCountersAreSummedPerElementName() throws Exception {
+        ConfigTestElement element = element("config");
+        ConfigTestElement clone = element("config");
+        EngineProfiler.add(element, EngineProfiler.INVOCATIONS, EngineProfiler.TIME, 100);
+        Thread other = new Thread(() -> {
+            EngineProfiler.add(clone, EngineProfiler.INVOCATIONS, EngineProfiler.TIME, 50);
+            EngineProfiler.add(clone, EngineProfiler.BLOCKED_COUNT, EngineProfiler.BLOCKED_TIME, 20);
+        });
+        other.start();
+        other.join();
+        EngineProfiler.add(element("other"), EngineProfiler.WAITED_COUNT, EngineProfiler.WAITED_TIME, 7);
+
+        Map<String, EngineProfiler.Profile> snapshot = EngineProfiler.snapshot();
+        assertEquals(2, snapshot.size());
+        EngineProfiler.Profile profile = snapshot.get("ConfigTestElement.config");
+        assertEquals(2, profile.getInvocations());
+        assertEquals(150, profile.getTimeNanos());
+        assertEquals(1, profile.getBlockedCount());
+        assertEquals(20, profile.getBlockedNanos());
+        assertEquals(170, profile.getTotalNanos());
+        assertEquals(7, snapshot.get("ConfigTestElement.other").getWaitedNanos());
+    }
+
+    @Test
+    public void testLockWaitsAreNotCountedInInvocationTime() {
+        ConfigTestElement element = element("config");
+        // wait recorded before the invocation, e.g. by a controller
+        EngineProfiler.addLock(element, EngineProfiler.BLOCKED_COUNT, EngineProfiler.BLOCKED_TIME, 0, 10);
+        EngineProfiler.addLock(element, EngineProfiler.BLOCKED_COUNT, EngineProfiler.BLOCKED_TIME, 120, 150);
+        EngineProfiler.addInvocation(element, 100, 200);
+
+        EngineProfiler.Profile profile = EngineProfiler.snapshot().get("ConfigTestElement.config");
+        assertEquals(70, profile.getTimeNanos());
+        assertEquals(40, profile.getBlockedNanos());
+        assertEquals(110, profile.getTotalNanos());
+
+        EngineProfiler.addInvocation(element, 300, 310);
+        assertEquals(80, EngineProfiler.snapshot().get("ConfigTestElement.config").getTimeNanos());
+    }
+
+    @Test
+    public void testDifferenceKeepsOnlyActiveElements() {
+        ConfigTestElement busy = element("busy");
+        ConfigTestElement idle = element("idle");
+        EngineProfiler.add(busy, EngineProfiler.INVOCATIONS, EngineProfiler.TIME, 10);
+        EngineProfiler.add(idle, EngineProfiler.INVOCATIONS, EngineProfiler.TIME, 10);
+        Map<String, EngineProfiler.Profile> first = EngineProfiler.snapshot();
+        EngineProfiler.add(busy, EngineProfiler.INVOCATIONS, EngineProfiler.TIME, 5);
+
+        Map<String, EngineProfiler.Profile> interval = EngineProfiler.difference(EngineProfiler.snapshot(), first);
+        assertEquals(1, interval.size());
+        EngineProfiler.Profile profile = interval.get("ConfigTestElement.busy");
+        assertEquals(1, profile.getInvocations());
+        assertEquals(5, profile.getTimeNanos());
+    }
+
+    @Test
+    public void testResetDropsCountersOfPreviousTest() {
+        ConfigTestElement element = element("config");
+        EngineProfiler.add(element, EngineProfiler.INVOCATIONS, EngineProfiler.TIME, 10);
+        EngineProfiler.reset();
+        assertTrue(EngineProfiler.snapshot().isEmpty());
+        EngineProfiler.add(element, EngineProfiler.INVOCATIONS, EngineProfiler.TIME, 3);
+        assertEquals(3, EngineProfiler.snapshot().get("ConfigTestElement.config").getTimeNanos());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.Test;
+
+public class TestJMeterVariables {
+
+    @Test
+    public void testInternedAndDynamicNames() {
+        VariableSymbols.intern("tjv.interned");
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("tjv.interned", "a");
+        vars.put("tjv.dynamic", "b");
+        assertEquals("a", vars.get("tjv.interned"));
+        assertEquals("b", vars.get("tjv.dynamic"));
+        assertEquals("a", vars.remove("tjv.interned"));
+        assertNull(vars.get("tjv.interned"));
+        assertEquals("b", vars.remove("tjv.dynamic"));
+        assertNull(vars.getObject("tjv.dynamic"));
+    }
+
+    @Test
+    public void testInternReturnsSameSlot() {
+        int slot = VariableSymbols.intern("tjv.slot");
+        assertEquals(slot, VariableSymbols.intern("tjv.slot"));
+        assertEquals(slot, VariableSymbols.indexOf("tjv.slot"));
+        assertEquals("tjv.slot", VariableSymbols.nameOf(slot));
+        assertEquals(VariableSymbols.NO_SLOT, VariableSymbols.indexOf("tjv.unknown"));
+    }
+
+    @Test
+    public void testSnapshotIsNotChangedByLaterUpdates() {
+        int slot = VariableSymbols.intern("tjv.snapshot");
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("tjv.snapshot", "before");
+        JMeterVariables.Snapshot snapshot = vars.snapshot();
+        vars.put("tjv.snapshot", "after");
+        assertEquals("before", snapshot.get(slot));
+        assertEquals("after", vars.get("tjv.snapshot"));
+        vars.remove("tjv.snapshot");
+        assertEquals("before", snapshot.get(slot));
+        assertNull(vars.snapshot().get(slot));
+        assertNull(snapshot.get(VariableSymbols.NO_SLOT));
+    }
+
+    @Test
+    public void testNameInternedAfterItWasStored() {
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("tjv.late", "map");
+        VariableSymbols.intern("tjv.late");
+        assertEquals("map", vars.get("tjv.late"));
+        vars.put("tjv.late", "slot");
+        assertEquals("slot", vars.get("tjv.late"));
+        assertEquals("slot", vars.remove("tjv.late"));
+        assertNull(vars.get("tjv.late"));
+    }
+
+    @Test
+    public void testIndexAccessors() {
+        int slot = VariableSymbols.intern("tjv.index");
+        JMeterVariables vars = new JMeterVariables();
+        vars.put(slot, "a");
+        assertEquals("a", vars.get("tjv.index"));
+        vars.putObject(slot, 1);
+        assertEquals("1", vars.get(slot));
+        assertEquals(1, vars.getObject(slot));
+        assertNull(vars.get(VariableSymbols.NO_SLOT));
+        assertNull(new UnmodifiableJMeterVariables(new JMeterVariables()).get(slot));
+    }
+
+    @Test
+    public void testStoredNameGetsASlot() {
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("tjv.stored", "a");
+        int slot = VariableSymbols.indexOf("tjv.stored");
+        assertNotEquals(VariableSymbols.NO_SLOT, slot);
+        assertEquals("a", vars.get(slot));
+    }
+
+    @Test
+    public void testSnapshotAcrossChunks() {
+        int count = 100;
+        int[] slots = new int[count];
+        JMeterVariables vars = new JMeterVariables();
+        for (int i = 0; i < count; i++) {
+            slots[i] = VariableSymbols.intern("tjv.chunk." + i);
+            vars.put(slots[i], "v" + i);
+        }
+        JMeterVariables.Snapshot snapshot = vars.snapshot();
+        vars.put(slots[0], "changed");
+        vars.put(slots[count - 1], "changed");
+        for (int i = 0; i < count; i++) {
+            assertEquals("v" + i, snapshot.get(slots[i]));
+        }
+        assertEquals("changed", vars.get(slots[0]));
+        assertEquals("v1", vars.get(slots[1]));
+        assertEquals("changed", vars.get(slots[count - 1]));
+    }
+
+    @Test
+    public void testPutAllAndEntrySet() {
+        VariableSymbols.intern("tjv.all.interned");
+        JMeterVariables source = new JMeterVariables();
+        source.putAll(Collections.singletonMap("tjv.all.interned", "a"));
+        source.putObject("tjv.all.dynamic", 1);
+        JMeterVariables vars = new JMeterVariables();
+        vars.putAll(source);
+        assertEquals("a", vars.get("tjv.all.interned"));
+        assertEquals("1", vars.get("tjv.all.dynamic"));
+        int found = 0;
+        for (Entry<String, Object> entry : vars.entrySet()) {
+            if (entry.getKey().startsWith("tjv.all.")) {
+                found++;
+            }
+        }
+        assertEquals(2, found);
+        Map<String, Object> copy = new HashMap<>();
+        vars.getIterator().forEachRemaining(e -> copy.put(e.getKey(), e.getValue()));
+        assertTrue(copy.containsKey("tjv.all.interned"));
+    }
+}
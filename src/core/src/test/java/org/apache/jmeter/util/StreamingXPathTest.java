@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import net.sf.saxon.s9api.XdmNode;
+
+public class StreamingXPathTest {
+
+    private static final String XML = "<?xml version='1.0'?>"
+            + "<soap:Envelope xmlns:soap='urn:s'><soap:Body>"
+            + "<r><item id='1'>one</item><item id='2'><![CDATA[two]]>x</item><item id='3'><!--c-->z</item>"
+            + "<item/><item><b>q</b></item><item>a&amp;b</item></r>"
+            + "<r><item id='9'>nine</item></r>"
+            + "</soap:Body></soap:Envelope>";
+
+    private static List<String> streamed(String xpath) throws XMLStreamException {
+        return StreamingXPath.compile(xpath).evaluate(new StringReader(XML));
+    }
+
+    /**
+     * Values must be the ones extracted from a namespace unaware DOM tree
+     */
+    private static List<String> parsed(String xpath) throws Exception {
+        Document document = XPathUtil.makeDocument(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)),
+                false, false, false, false, false, false, false, true, false);
+        List<String> values = new ArrayList<>();
+        XPathUtil.putValuesForXPathInList(document, xpath, values, false);
+        return values;
+    }
+
+    @Test
+    public void testCompile() {
+        assertNotNull(StreamingXPath.compile("/a/b[2]/c"));
+        assertNotNull(StreamingXPath.compile(" /a/@id "));
+        assertNull(StreamingXPath.compile("/"));
+        assertNull(StreamingXPath.compile("//a"));
+        assertNull(StreamingXPath.compile("/a/*"));
+        assertNull(StreamingXPath.compile("/soap:a"));
+        assertNull(StreamingXPath.compile("/a/text()"));
+        assertNull(StreamingXPath.compile("/a[@id='1']"));
+        assertNull(StreamingXPath.compile("count(/a)"));
+        assertNull(StreamingXPath.compile("/@id"));
+    }
+
+    @Test
+    public void testSameValuesAsTree() throws Exception {
+        for (String xpath : Arrays.asList("/Envelope/Body/r/item", "/Envelope/Body/r/item[2]",
+                "/Envelope/Body/r[2]/item/@id", "/Envelope/Body/r/item/@id", "/Envelope/Body/r/item[7]",
+                "/Envelope", "/Envelope/Body/r/item[3]")) {
+            assertEquals(parsed(xpath), streamed(xpath), xpath);
+        }
+        assertEquals(Arrays.asList("one", "two", "c", null, null, "a&b", "nine"), streamed("/Envelope/Body/r/item"));
+    }
+
+    @Test
+    public void testMalformedDocumentIsRejected() {
+        StreamingXPath xpath = StreamingXPath.compile("/a/b");
+        assertThrows(XMLStreamException.class, () -> xpath.evaluate(new StringReader("<a><b>1</b><c></a>")));
+    }
+
+    @Test
+    public void testDocumentWithDtdIsNotHandled() throws XMLStreamException {
+        String xml = "<!DOCTYPE a [<!ENTITY e 'v'>]><a><b>&e;</b></a>";
+        assertNull(StreamingXPath.compile("/a/b").evaluate(new StringReader(xml)));
+    }
+
+    @Test
+    public void testPutValuesInList() {
+        List<String> values = Arrays.asList("1", "2", "3");
+        List<String> matches = new ArrayList<>();
+        XPathUtil.putValuesInList(values, matches, -1);
+        assertEquals(values, matches);
+        matches.clear();
+        XPathUtil.putValuesInList(values, matches, 2);
+        assertEquals(Arrays.asList("2"), matches);
+        matches.clear();
+        XPathUtil.putValuesInList(values, matches, 4);
+        assertEquals(0, matches.size());
+    }
+
+    @Test
+    public void testDocumentIsParsedOncePerSample() throws Exception {
+        SampleResult result = new SampleResult();
+        result.setResponseData(XML, StandardCharsets.UTF_8.name());
+        Document document = XmlDocumentCache.getDocument(result, true, false, false, false, false, false, false,
+                false, false);
+        assertSame(document, XmlDocumentCache.getDocument(result, false, false, false, false, false, false, false,
+                false, false));
+        assertNotSame(document, XmlDocumentCache.getDocument(result, false, false, false, true, false, false, false,
+                false, false));
+        XdmNode node = XmlDocumentCache.getXdmNode(result);
+        assertSame(node, XmlDocumentCache.getXdmNode(result));
+
+        result.setResponseData("<a/>", StandardCharsets.UTF_8.name());
+        assertNotSame(node, XmlDocumentCache.getXdmNode(result));
+    }
+
+    @Test
+    public void testParseFailureIsCached() {
+        SampleResult result = new SampleResult();
+        result.setResponseData("not xml", StandardCharsets.UTF_8.name());
+        SAXException first = assertThrows(SAXException.class, () -> XmlDocumentCache.getDocument(result, true,
+                false, false, false, false, false, false, false, false));
+        SAXException second = assertThrows(SAXException.class, () -> XmlDocumentCache.getDocument(result, true,
+                false, false, false, false, false, false, false, false));
+        assertSame(first, second);
+    }
+}
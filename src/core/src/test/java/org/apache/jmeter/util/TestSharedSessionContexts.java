@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.security.GeneralSecurityException;
+
+import javax.net.ssl.SSLContext;
+
+import org.junit.jupiter.api.Test;
+
+public class TestSharedSessionContexts {
+
+    private static SSLContext newContext() throws GeneralSecurityException {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, null, null);
+        return context;
+    }
+
+    @Test
+    public void testContextIsSharedPerIdentity() throws Exception {
+        SharedSessionContexts contexts = new SharedSessionContexts(16, 1);
+        SSLContext noAlias = contexts.get(null, TestSharedSessionContexts::newContext);
+        assertSame(noAlias, contexts.get("", TestSharedSessionContexts::newContext));
+        SSLContext alias = contexts.get("user1", TestSharedSessionContexts::newContext);
+        assertNotSame(noAlias, alias);
+        assertSame(alias, contexts.get("user1", TestSharedSessionContexts::newContext));
+        assertEquals(2, contexts.size());
+        assertEquals(16, alias.getClientSessionContext().getSessionCacheSize());
+    }
+
+    @Test
+    public void testResumptionRatio() throws Exception {
+        SharedSessionContexts always = new SharedSessionContexts(16, 1);
+        SSLContext context = always.get(null, TestSharedSessionContexts::newContext);
+        for (int i = 0; i < 100; i++) {
+            assertSame(context, always.getForConnection(null, TestSharedSessionContexts::newContext, "localhost", 443));
+        }
+        assertEquals(0, always.getForcedFullHandshakes());
+
+        SharedSessionContexts never = new SharedSessionContexts(16, 0);
+        SSLContext shared = never.get("user1", TestSharedSessionContexts::newContext);
+        SSLContext fullHandshake = never.getForConnection("user1", TestSharedSessionContexts::newContext,
+                "localhost", 443);
+        // Forced full handshakes do not touch the sessions of the shared context
+        assertNotSame(shared, fullHandshake);
+        assertEquals(1, fullHandshake.getClientSessionContext().getSessionCacheSize());
+        for (int i = 1; i < 100; i++) {
+            assertSame(fullHandshake, never.getForConnection("user1", TestSharedSessionContexts::newContext,
+                    "localhost", 443));
+        }
+        assertEquals(100, never.getForcedFullHandshakes());
+        assertEquals(1, never.size());
+
+        never.clear();
+        assertEquals(0, never.getForcedFullHandshakes());
+    }
+
+    @Test
+    public void testInvalidateWithoutSessions() throws Exception {
+        assertEquals(0, SharedSessionContexts.invalidate(newContext().getClientSessionContext(), "localhost", 443));
+    }
+}
@@ -17,14 +17,12 @@
 
 package org.apache.jmeter.functions;
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.util.JMeterUtils;
@@ -34,13 +32,16 @@ import org.slf4j.LoggerFactory;
 /**
  * File data container for CSV (and similar delimited) files Data is accessible
  * via row and column number
+ * <p>
+ * The file is held in a {@link PackedTable} shared with the other containers of the same file,
+ * rows are only split into columns when they are read.
  *
  */
 public class FileRowColContainer {
 
     private static final Logger log = LoggerFactory.getLogger(FileRowColContainer.class);
 
-    private final List<List<String>> fileData; // Lines in the file, split into columns
+    private final PackedTable fileData; // Lines in the file
 
     private final String fileName; // name of the file
 
@@ -49,7 +50,7 @@ public class FileRowColContainer {
                 ","); // $NON-NLS-1$
 
     /** Keeping track of which row is next to be read. */
-    private int nextRow;
+    private final AtomicInteger nextRow = new AtomicInteger();
 
     /** Delimiter for this file */
     private final String delimiter;
@@ -58,35 +59,24 @@ public class FileRowColContainer {
         log.debug("FRCC({},{})", file, delim);
         fileName = file;
         delimiter = delim;
-        nextRow = 0;
-        fileData = new ArrayList<>();
-        load();
+        fileData = load();
     }
 
     public FileRowColContainer(String file) throws IOException, FileNotFoundException {
         log.debug("FRCC({})[{}]", file, DELIMITER);
         fileName = file;
         delimiter = DELIMITER;
-        nextRow = 0;
-        fileData = new ArrayList<>();
-        load();
+        fileData = load();
     }
 
-    private void load() throws IOException, FileNotFoundException {
-        try (BufferedReader myBread =
-                Files.newBufferedReader(FileServer.getFileServer().getResolvedFile(fileName).toPath(),
-                        Charset.defaultCharset())) {
-            String line = myBread.readLine();
+    private PackedTable load() throws IOException, FileNotFoundException {
+        try {
             /*
              * N.B. Stop reading the file if we get a blank line: This allows
              * for trailing comments in the file
              */
-            while (line != null && line.length() > 0) {
-                fileData.add(splitLine(line, delimiter));
-                line = myBread.readLine();
-            }
+            return PackedTable.get(FileServer.getFileServer().getResolvedFile(fileName), true);
         } catch (IOException e) {
-            fileData.clear();
             log.warn(e.toString());
             throw e;
         }
@@ -105,11 +95,24 @@ public class FileRowColContainer {
      */
     public String getColumn(int row, int col) throws IndexOutOfBoundsException {
         String colData;
-        colData = fileData.get(row).get(col);
+        colData = getRow(row).get(col);
         log.debug("{}({},{}):{}", fileName, row, col, colData);
         return colData;
     }
 
+    /**
+     * Get all the columns of a row
+     *
+     * @param row
+     *            row number (from 0)
+     * @return the columns, decoded and split on each call
+     * @throws IndexOutOfBoundsException
+     *             if the row number is out of bounds
+     */
+    List<String> getRow(int row) throws IndexOutOfBoundsException {
+        return splitLine(fileData.getLine(row), delimiter);
+    }
+
     /**
      * Returns the next row to the caller, and updates it, allowing for wrap
      * round
@@ -118,11 +121,8 @@ public class FileRowColContainer {
      *
      */
     public int nextRow() {
-        int row = nextRow;
-        nextRow++;
-        if (nextRow >= fileData.size()) {// 0-based
-            nextRow = 0;
-        }
+        int size = fileData.size();
+        int row = nextRow.getAndUpdate(r -> r + 1 >= size ? 0 : r + 1); // 0-based
         log.debug("Row: {}", row);
         return row;
     }
@@ -21,7 +21,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +34,9 @@ import org.slf4j.LoggerFactory;
  * It does this by maintaining a list of open files, keyed by file name (or
  * alias, if used). A list of open files is also maintained for each thread,
  * together with the current line number.
+ * <p>
+ * Opening an already loaded file does not lock, and the columns of the current row
+ * are only decoded once per thread.
  *
  */
 public final class FileWrapper {
@@ -47,7 +52,7 @@ public final class FileWrapper {
      * - maps file names to  containers
      * - ensures only one container per file across all threads
      */
-    private static final Map<String, FileRowColContainer> fileContainers = new HashMap<>();
+    private static final Map<String, FileRowColContainer> fileContainers = new ConcurrentHashMap<>();
 
     /* The cache of file packs - used to improve thread access */
     private static final ThreadLocal<Map<String, FileWrapper>> filePacks =
@@ -57,6 +62,8 @@ public final class FileWrapper {
 
     private int currentRow;
 
+    private List<String> currentRowData;
+
     /*
      * Only needed locally
      */
@@ -81,7 +88,7 @@ public final class FileWrapper {
     /*
      * called by CSVRead(file,alias)
      */
-    public static synchronized void open(String file, String alias) {
+    public static void open(String file, String alias) {
         log.info("Opening {} as {}", file, alias);
         file = checkDefault(file);
         if (alias.length() == 0) {
@@ -102,13 +109,18 @@ public final class FileWrapper {
     }
 
     private static FileRowColContainer getFile(String file, String alias) throws FileNotFoundException, IOException {
-        FileRowColContainer frcc;
-        if ((frcc = fileContainers.get(alias)) == null) {
-            frcc = new FileRowColContainer(file);
-            fileContainers.put(alias, frcc);
-            log.info("Saved {} as {} delimiter=<{}>", file, alias, frcc.getDelimiter());
-            if (defaultFile.length() == 0) {
-                defaultFile = file;// Save in case needed later
+        FileRowColContainer frcc = fileContainers.get(alias);
+        if (frcc != null) {
+            return frcc;
+        }
+        synchronized (fileContainers) {
+            if ((frcc = fileContainers.get(alias)) == null) {
+                frcc = new FileRowColContainer(file);
+                fileContainers.put(alias, frcc);
+                log.info("Saved {} as {} delimiter=<{}>", file, alias, frcc.getDelimiter());
+                if (defaultFile.length() == 0) {
+                    defaultFile = file;// Save in case needed later
+                }
             }
         }
         return frcc;
@@ -135,6 +147,7 @@ public final class FileWrapper {
             log.warn("endRow() called twice in succession");
         }
         currentRow = NO_LINE;
+        currentRowData = null;
     }
 
     public static String getColumn(String file, int col) {
@@ -160,10 +173,11 @@ public final class FileWrapper {
 
     private String getColumn(int col) {
         if (currentRow == NO_LINE) {
-            currentRow = container.nextRow();
-
+            int row = container.nextRow();
+            currentRowData = container.getRow(row);
+            currentRow = row;
         }
-        return container.getColumn(currentRow, col);
+        return currentRowData.get(col);
     }
 
     /**
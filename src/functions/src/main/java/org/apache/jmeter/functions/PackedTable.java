@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.functions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lines of a text file packed in a single byte region, shared by the functions reading data files.
+ * <p>
+ * The file is either read in a heap array or, above {@code file_table.mmap_threshold} bytes,
+ * memory mapped, and accessed as regions of 1 GiB. Its line offsets are found by scanning segments of the region in parallel,
+ * so a table costs 8 bytes of heap per line on top of the region, and lines are only decoded
+ * to Strings when they are read.
+ * <p>
+ * Lines end with {@code \n} or {@code \r\n}. The bytes are decoded with the given charset when
+ * it encodes these characters as single bytes, as UTF-8 and the ISO-8859 charsets do;
+ * otherwise the file is transcoded to UTF-8 once, on the heap.
+ * <p>
+ * Tables are immutable and can be read by any number of threads. They are shared by file,
+ * for as long as a reader references them, and reloaded when the file changed.
+ */
+final class PackedTable {
+
+    private static final Logger log = LoggerFactory.getLogger(PackedTable.class);
+
+    /** Files larger than this are memory mapped rather than read in the heap */
+    private static final long MMAP_THRESHOLD =
+            JMeterUtils.getPropDefault("file_table.mmap_threshold", 64L * 1024 * 1024); // $NON-NLS-1$
+
+    private static final int INDEX_THREADS =
+            JMeterUtils.getPropDefault("file_table.index_threads", // $NON-NLS-1$
+                    Runtime.getRuntime().availableProcessors());
+
+    /** Regions are 1 GiB, lines may span two regions */
+    private static final int REGION_BITS = 30;
+
+    /** Largest array the JVMs accept */
+    private static final long MAX_HEAP_REGION = Integer.MAX_VALUE - 8L;
+
+    private static final Map<String, WeakReference<PackedTable>> TABLES = new ConcurrentHashMap<>();
+
+    private final Regions regions;
+    private final Charset charset;
+    private final boolean mapped;
+    private final long byteSize;
+    private final long lastModified;
+    /**
+     * Start of each line, followed by the start of the line after the last one as if it ended
+     * with a line feed: line {@code i} ends before {@code starts[i + 1] - 1}
+     */
+    private final long[] starts;
+
+    private PackedTable(Regions regions, Charset charset, boolean mapped, long byteSize,
+            long lastModified, long[] starts) {
+        this.regions = regions;
+        this.charset = charset;
+        this.mapped = mapped;
+        this.byteSize = byteSize;
+        this.lastModified = lastModified;
+        this.starts = starts;
+    }
+
+    /**
+     * Get the shared table of a file, loading it unless a table of the same file, with the same
+     * size and modification time, is still in use
+     *
+     * @param file            file to load
+     * @param stopAtBlankLine whether the table ends before the first empty line
+     * @return the table
+     * @throws IOException when the file can not be read
+     */
+    static PackedTable get(File file, boolean stopAtBlankLine) throws IOException {
+        Path path = file.toPath();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        String key = (stopAtBlankLine ? "rows:" : "lines:") + file.getCanonicalPath(); // $NON-NLS-1$ $NON-NLS-2$
+        PackedTable table = lookup(key, attributes);
+        if (table != null) {
+            return table;
+        }
+        // Loads are rare and use all the index threads, so they are not run concurrently
+        synchronized (TABLES) {
+            table = lookup(key, attributes);
+            if (table == null) {
+                table = load(path, attributes, Charset.defaultCharset(), stopAtBlankLine, MMAP_THRESHOLD,
+                        INDEX_THREADS, REGION_BITS);
+                TABLES.put(key, new WeakReference<>(table));
+            }
+            return table;
+        }
+    }
+
+    private static PackedTable lookup(String key, BasicFileAttributes attributes) {
+        WeakReference<PackedTable> reference = TABLES.get(key);
+        PackedTable table = reference == null ? null : reference.get();
+        if (table != null && table.byteSize == attributes.size()
+                && table.lastModified == attributes.lastModifiedTime().toMillis()) {
+            return table;
+        }
+        if (reference != null) {
+            TABLES.remove(key, reference);
+        }
+        return null;
+    }
+
+    /**
+     * Load and index a file, without sharing the table
+     *
+     * @param file            file to load
+     * @param charset         charset of the file
+     * @param stopAtBlankLine whether the table ends before the first empty line
+     * @param mmapThreshold   size above which the file is memory mapped
+     * @param threads         number of threads scanning the file
+     * @return the table
+     * @throws IOException when the file can not be read
+     */
+    static PackedTable load(File file, Charset charset, boolean stopAtBlankLine, long mmapThreshold, int threads)
+            throws IOException {
+        return load(file, charset, stopAtBlankLine, mmapThreshold, threads, REGION_BITS);
+    }
+
+    /**
+     * Load and index a file with regions of {@code 1 << regionBits} bytes, so tests can use small regions
+     */
+    static PackedTable load(File file, Charset charset, boolean stopAtBlankLine, long mmapThreshold, int threads,
+            int regionBits) throws IOException {
+        Path path = file.toPath();
+        return load(path, Files.readAttributes(path, BasicFileAttributes.class), charset, stopAtBlankLine,
+                mmapThreshold, threads, regionBits);
+    }
+
+    private static PackedTable load(Path path, BasicFileAttributes attributes, Charset charset,
+            boolean stopAtBlankLine, long mmapThreshold, int threads, int regionBits) throws IOException {
+        long start = System.nanoTime();
+        long size = attributes.size();
+        Regions regions;
+        boolean mapped = false;
+        Charset decoding = charset;
+        if (!isLineFeedCompatible(charset)) {
+            // Transcoding needs the whole text anyway
+            byte[] bytes = new String(Files.readAllBytes(path), charset).getBytes(StandardCharsets.UTF_8);
+            regions = Regions.split(bytes, regionBits);
+            decoding = StandardCharsets.UTF_8;
+        } else if (size > mmapThreshold || size > MAX_HEAP_REGION) {
+            regions = Regions.map(path, regionBits);
+            mapped = true;
+        } else {
+            regions = Regions.split(Files.readAllBytes(path), regionBits);
+        }
+        long regionSize = regions.size;
+
+        long[] starts = index(regions, regionSize, threads);
+        if (stopAtBlankLine) {
+            starts = truncateAtBlankLine(regions, starts);
+        }
+        PackedTable table = new PackedTable(regions, decoding, mapped, size,
+                attributes.lastModifiedTime().toMillis(), starts);
+        if (log.isInfoEnabled()) {
+            log.info("Loaded {} lines of {} in {} ms, {} bytes {}, {} bytes of heap", table.size(), path,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), regionSize,
+                    mapped ? "mapped" : "in heap", table.getHeapBytes()); // $NON-NLS-1$ $NON-NLS-2$
+        }
+        return table;
+    }
+
+    private static boolean isLineFeedCompatible(Charset charset) {
+        return Arrays.equals("\r\n".getBytes(charset), new byte[] { '\r', '\n' }); // $NON-NLS-1$
+    }
+
+    private static long nextLineStart(Regions regions, long from, long size) {
+        long position = from;
+        while (position < size && regions.byteAt(position - 1) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Find the line starts, scanning segments of about 1 MiB or more in parallel
+     */
+    private static long[] index(Regions regions, long size, int threads) throws IOException {
+        int segmentCount = (int) Math.max(1, Math.min((long) threads * 4, size / (1 << 20)));
+        long[] bounds = new long[segmentCount + 1];
+        for (int i = 1; i < segmentCount; i++) {
+            bounds[i] = nextLineStart(regions, size * i / segmentCount, size);
+        }
+        bounds[segmentCount] = size;
+
+        List<long[]> segments = new ArrayList<>(segmentCount);
+        if (segmentCount == 1) {
+            segments.add(scan(regions, 0, size));
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, segmentCount)), r -> {
+                Thread thread = new Thread(r, "PackedTable"); // $NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<long[]>> futures = new ArrayList<>(segmentCount);
+                for (int i = 0; i < segmentCount; i++) {
+                    long from = bounds[i];
+                    long to = bounds[i + 1];
+                    futures.add(executor.submit(() -> scan(regions, from, to)));
+                }
+                for (Future<long[]> future : futures) {
+                    segments.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while indexing the file", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to index the file", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // Each segment holds its line count followed by the line ends, including the line feed
+        long lines = 0;
+        for (long[] segment : segments) {
+            lines += segment[0];
+        }
+        if (lines >= Integer.MAX_VALUE) {
+            throw new IOException("Too many lines: " + lines);
+        }
+        long[] starts = new long[(int) lines + 1];
+        int index = 1;
+        for (long[] segment : segments) {
+            int count = (int) segment[0];
+            System.arraycopy(segment, 1, starts, index, count);
+            index += count;
+        }
+        return starts;
+    }
+
+    /**
+     * @return the number of lines in [from, to), followed by the position after each line feed,
+     *         or after the end of the file for an unterminated last line
+     */
+    private static long[] scan(Regions regions, long from, long to) {
+        long[] ends = new long[1024];
+        int count = 0;
+        for (long position = from; position < to; position++) {
+            if (regions.byteAt(position) == '\n' || position == to - 1) {
+                if (++count == ends.length) {
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                // An unterminated last line is handled as if it ended with a line feed
+                ends[count] = regions.byteAt(position) == '\n' ? position + 1 : to + 1;
+            }
+        }
+        ends[0] = count;
+        return ends;
+    }
+
+    private static long[] truncateAtBlankLine(Regions regions, long[] starts) {
+        for (int i = 0; i < starts.length - 1; i++) {
+            if (lineEnd(regions, starts, i) == starts[i]) {
+                return Arrays.copyOf(starts, i + 1);
+            }
+        }
+        return starts;
+    }
+
+    private static long lineEnd(Regions regions, long[] starts, int line) {
+        long end = starts[line + 1] - 1;
+        if (end > starts[line] && regions.byteAt(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @return number of lines
+     */
+    int size() {
+        return starts.length - 1;
+    }
+
+    /**
+     * Decode a line
+     *
+     * @param line line number, from 0
+     * @return the line, without its terminator
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    String getLine(int line) {
+        if (line < 0 || line >= size()) {
+            throw new IndexOutOfBoundsException("Line: " + line + ", lines: " + size());
+        }
+        long position = starts[line];
+        int length = (int) (lineEnd(regions, starts, line) - position);
+        return regions.decode(position, length, charset);
+    }
+
+    /**
+     * @return {@code true} when the region is memory mapped rather than in the heap
+     */
+    boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * @return heap used by the table: the region unless it is mapped, and the line index
+     */
+    long getHeapBytes() {
+        long heap = (long) starts.length * Long.BYTES;
+        if (!mapped) {
+            heap += regions.size;
+        }
+        return heap;
+    }
+
+    /**
+     * Bytes of the file split in regions of the same size, except the last one
+     */
+    private static final class Regions {
+        private final ByteBuffer[] buffers;
+        private final int bits;
+        private final long mask;
+        private final long size;
+
+        private Regions(ByteBuffer[] buffers, int bits, long size) {
+            this.buffers = buffers;
+            this.bits = bits;
+            this.mask = (1L << bits) - 1;
+            this.size = size;
+        }
+
+        /**
+         * @return regions viewing the array, which is not copied
+         */
+        static Regions split(byte[] bytes, int bits) {
+            long regionSize = 1L << bits;
+            ByteBuffer[] buffers = new ByteBuffer[(int) Math.max(1, (bytes.length + regionSize - 1) >>> bits)];
+            for (int i = 0; i < buffers.length; i++) {
+                long position = (long) i << bits;
+                buffers[i] = ByteBuffer.wrap(bytes, (int) position, (int) Math.min(regionSize, bytes.length - position))
+                        .slice();
+            }
+            return new Regions(buffers, bits, bytes.length);
+        }
+
+        static Regions map(Path path, int bits) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "r"); // $NON-NLS-1$
+                 FileChannel channel = raf.getChannel()) {
+                long regionSize = 1L << bits;
+                long size = channel.size();
+                ByteBuffer[] buffers = new ByteBuffer[(int) Math.max(1, (size + regionSize - 1) >>> bits)];
+                for (int i = 0; i < buffers.length; i++) {
+                    long position = (long) i << bits;
+                    buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(regionSize, size - position));
+                }
+                // The mapping stays valid once the channel is closed
+                return new Regions(buffers, bits, size);
+            }
+        }
+
+        byte byteAt(long position) {
+            return buffers[(int) (position >>> bits)].get((int) (position & mask));
+        }
+
+        String decode(long position, int length, Charset charset) {
+            ByteBuffer first = buffers[(int) (position >>> bits)];
+            int firstOffset = (int) (position & mask);
+            if (first.hasArray() && firstOffset + length <= first.limit()) {
+                return new String(first.array(), first.arrayOffset() + firstOffset, length, charset);
+            }
+            byte[] bytes = new byte[length];
+            for (int done = 0; done < length; ) {
+                ByteBuffer region = buffers[(int) ((position + done) >>> bits)];
+                int offset = (int) ((position + done) & mask);
+                int chunk = Math.min(length - done, region.limit() - offset);
+                ByteBuffer view = region.duplicate();
+                view.position(offset);
+                view.get(bytes, done, chunk);
+                done += chunk;
+            }
+            return new String(bytes, charset);
+        }
+    }
+}
@@ -17,15 +17,13 @@
 
 package org.apache.jmeter.functions;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.File;
 import java.text.DecimalFormat;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.jmeter.engine.util.CompoundVariable;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.Sampler;
@@ -63,6 +61,8 @@ import org.slf4j.LoggerFactory;
  * <li>Function instances are shared between threads.</li>
  * <li>Each StringFromFile instance reads the file independently. The output variable can be used to save the
  * value for later use in the same thread.</li>
+ * <li>The lines are read from a {@link PackedTable} shared by all the instances reading the same file,
+ * through a cursor which threads advance without locking; only the (re-)open at end of file is synchronized.</li>
  * <li>The file name is resolved at file (re-)open time; the file is initially opened on first execution (which could be any thread)</li>
  * <li>the output variable name is resolved every time the function is invoked</li>
  * </ul>
@@ -98,17 +98,13 @@ public class StringFromFile extends AbstractFunction implements TestStateListene
 
     private static final int COUNT_UNUSED = -2;
 
-    // @GuardedBy("this")
-    private Object[] values;
-
-    // @GuardedBy("this")
-    private FileReader myFileReader = null; // File reader
+    private volatile Object[] values;
 
-    // @GuardedBy("this")
-    private BufferedReader myBread = null; // Buffered reader
+    // Written while holding the lock on this
+    private volatile LineCursor cursor = null; // Lines of the open file
 
-    // @GuardedBy("this")
-    private boolean firstTime = false; // should we try to open the file?
+    // Written while holding the lock on this
+    private volatile boolean firstTime = false; // should we try to open the file?
 
     // @GuardedBy("this")
     private String fileName; // needed for error messages
@@ -132,23 +128,14 @@ public class StringFromFile extends AbstractFunction implements TestStateListene
      * Close file and log
      */
     private synchronized void closeFile() {
-        if (myBread == null) {
+        if (cursor == null) {
             return;
         }
         if (log.isInfoEnabled()) {
             log.info("{} closing file {}", Thread.currentThread().getName(), fileName);//$NON-NLS-1$
         }
-        try {
-            myBread.close();
-        } catch (IOException e) {
-            log.error("closeFile() error: {}", e.toString(), e);//$NON-NLS-1$
-        }
-
-        try {
-            myFileReader.close();
-        } catch (IOException e) {
-            log.error("closeFile() error: {}", e.toString(), e);//$NON-NLS-1$
-        }
+        // The table is shared, it is released once no cursor references it
+        cursor = null;
     }
 
     private synchronized void openFile() {
@@ -192,7 +179,7 @@ public class StringFromFile extends AbstractFunction implements TestStateListene
                     if (log.isInfoEnabled()) {
                         log.info("{} No more files to process, {} > {}", tn, myCurrent, myEnd);//$NON-NLS-1$
                     }
-                    myBread = null;
+                    cursor = null;
                     return;
                 }
             }
@@ -218,25 +205,64 @@ public class StringFromFile extends AbstractFunction implements TestStateListene
 
         log.info("{} opening file {}", tn, fileName);//$NON-NLS-1$
         try {
-            myFileReader = new FileReader(fileName);
-            myBread = new BufferedReader(myFileReader);
+            cursor = new LineCursor(PackedTable.get(new File(fileName), false));
         } catch (Exception e) {
             log.error("openFile() error: {}", e.toString());//$NON-NLS-1$
-            IOUtils.closeQuietly(myFileReader);
-            IOUtils.closeQuietly(myBread);
-            myBread = null;
-            myFileReader = null;
+            cursor = null;
+        }
+    }
+
+    /**
+     * Re-open the file, or open the next file of the sequence, and read its first line,
+     * unless another thread already did and its new file has lines left
+     *
+     * @param finished the cursor which reached the end of its file
+     * @return the line, or {@link #ERR_IND} if there is no more file to read
+     */
+    private synchronized String readAfterEndOfFile(LineCursor finished) {
+        String tn = Thread.currentThread().getName();
+        LineCursor current = cursor;
+        if (current != null && current != finished) {
+            String line = current.nextLine();
+            if (line != null) {
+                return line;
+            }
+        }
+        if (current != null) {
+            log.info("{} EOF on  file {}", tn, fileName);//$NON-NLS-1$
+            closeFile();
+            openFile();
+            current = cursor;
+            if (current != null) {
+                return current.nextLine();
+            }
+        }
+        if (myEnd != COUNT_UNUSED) {// Are we processing a file
+                                    // sequence?
+            log.info("{} Detected end of sequence.", tn);
+            throw new JMeterStopThreadException("End of sequence");
+        }
+        return ERR_IND;
+    }
+
+    private synchronized void checkEndOfSequence() {
+        if (myEnd != COUNT_UNUSED) {// Are we processing a file sequence?
+            if (log.isInfoEnabled()) {
+                log.info("{} Detected end of sequence.", Thread.currentThread().getName());
+            }
+            throw new JMeterStopThreadException("End of sequence");
         }
     }
 
     /** {@inheritDoc} */
     @Override
-    public synchronized String execute(SampleResult previousResult, Sampler currentSampler)
+    public String execute(SampleResult previousResult, Sampler currentSampler)
             throws InvalidVariableException {
         String myValue = ERR_IND;
         String myName = "StringFromFile_";//$NON-NLS-1$
-        if (values.length >= PARAM_NAME) {
-            myName = ((CompoundVariable) values[PARAM_NAME - 1]).execute().trim();
+        Object[] params = values;
+        if (params.length >= PARAM_NAME) {
+            myName = ((CompoundVariable) params[PARAM_NAME - 1]).execute().trim();
         }
 
         /*
@@ -245,41 +271,23 @@ public class StringFromFile extends AbstractFunction implements TestStateListene
          * that will cause at most one failure.)
          */
         if (firstTime) {
-            openFile();
-            firstTime = false;
-        }
-
-        if (null != myBread) { // Did we open the file?
-            try {
-                String line = myBread.readLine();
-                if (line == null) { // EOF, re-open file
-                    String tn = Thread.currentThread().getName();
-                    log.info("{} EOF on  file {}", tn, fileName);//$NON-NLS-1$
-                    closeFile();
+            synchronized (this) {
+                if (firstTime) {
                     openFile();
-                    if (myBread != null) {
-                        line = myBread.readLine();
-                    } else {
-                        line = ERR_IND;
-                        if (myEnd != COUNT_UNUSED) {// Are we processing a file
-                                                    // sequence?
-                            log.info("{} Detected end of sequence.", tn);
-                            throw new JMeterStopThreadException("End of sequence");
-                        }
-                    }
+                    firstTime = false;
                 }
-                myValue = line;
-            } catch (IOException e) {
-                String tn = Thread.currentThread().getName();
-                log.error("{} error reading file {}", tn, e.toString());//$NON-NLS-1$
             }
-        } else { // File was not opened successfully
-            if (myEnd != COUNT_UNUSED) {// Are we processing a file sequence?
-                if (log.isInfoEnabled()) {
-                    log.info("{} Detected end of sequence.", Thread.currentThread().getName());
-                }
-                throw new JMeterStopThreadException("End of sequence");
+        }
+
+        LineCursor current = cursor;
+        if (null != current) { // Did we open the file?
+            String line = current.nextLine();
+            if (line == null) { // EOF, re-open file
+                line = readAfterEndOfFile(current);
             }
+            myValue = line;
+        } else { // File was not opened successfully
+            checkEndOfSequence();
         }
 
         if (myName.length() > 0) {
@@ -359,4 +367,25 @@ public class StringFromFile extends AbstractFunction implements TestStateListene
         closeFile();
     }
 
+    /**
+     * Position of the next line to read in a table, shared by the threads
+     */
+    private static final class LineCursor {
+        private final PackedTable table;
+        private final AtomicInteger next = new AtomicInteger();
+
+        LineCursor(PackedTable table) {
+            this.table = table;
+        }
+
+        /**
+         * @return the next line, or {@code null} at end of file
+         */
+        String nextLine() {
+            int line = next.getAndIncrement();
+            // Negative once the counter wrapped around after end of file
+            return line >= 0 && line < table.size() ? table.getLine(line) : null;
+        }
+    }
+
 }
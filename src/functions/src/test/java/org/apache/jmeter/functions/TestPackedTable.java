@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.functions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestPackedTable {
+
+    private static File write(File dir, String name, String content) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> lines(PackedTable table) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < table.size(); i++) {
+            lines.add(table.getLine(i));
+        }
+        return lines;
+    }
+
+    @Test
+    public void testLineEnds(@TempDir File dir) throws Exception {
+        File file = write(dir, "lines.txt", "a,b\r\n\nc\u00e9\r\nlast");
+        PackedTable table = PackedTable.load(file, StandardCharsets.UTF_8, false, Long.MAX_VALUE, 1);
+        assertEquals(4, table.size());
+        assertEquals("a,b", table.getLine(0));
+        assertEquals("", table.getLine(1));
+        assertEquals("c\u00e9", table.getLine(2));
+        assertEquals("last", table.getLine(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.getLine(4));
+        assertFalse(table.isMapped());
+    }
+
+    @Test
+    public void testStopAtBlankLine(@TempDir File dir) throws Exception {
+        File file = write(dir, "rows.csv", "a1,b1\nc1,d1\r\n\r\ncomment\n");
+        PackedTable table = PackedTable.load(file, StandardCharsets.UTF_8, true, Long.MAX_VALUE, 1);
+        assertEquals(2, table.size());
+        assertEquals("c1,d1", table.getLine(1));
+    }
+
+    @Test
+    public void testEmptyFile(@TempDir File dir) throws Exception {
+        File file = write(dir, "empty.txt", "");
+        assertEquals(0, PackedTable.load(file, StandardCharsets.UTF_8, false, Long.MAX_VALUE, 1).size());
+    }
+
+    @Test
+    public void testMissingFile(@TempDir File dir) {
+        assertThrows(NoSuchFileException.class, () -> PackedTable.get(new File(dir, "missing.txt"), true));
+    }
+
+    @Test
+    public void testParallelMappedIndexMatchesSequential(@TempDir File dir) throws Exception {
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 5 * 1024 * 1024) {
+            int length = random.nextInt(200);
+            for (int i = 0; i < length; i++) {
+                content.append((char) ('a' + random.nextInt(26)));
+            }
+            content.append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        content.append("unterminated");
+        File file = write(dir, "large.txt", content.toString());
+
+        PackedTable sequential = PackedTable.load(file, StandardCharsets.UTF_8, false, Long.MAX_VALUE, 1);
+        PackedTable parallel = PackedTable.load(file, StandardCharsets.UTF_8, false, 0, 8);
+        assertTrue(parallel.isMapped());
+        assertEquals(sequential.size(), parallel.size());
+        assertEquals(lines(sequential), lines(parallel));
+        assertEquals("unterminated", parallel.getLine(parallel.size() - 1));
+    }
+
+    @Test
+    public void testTranscodedCharset(@TempDir File dir) throws Exception {
+        File file = new File(dir, "utf16.txt");
+        Files.write(file.toPath(), "\u00e9t\u00e9\nhiver\n".getBytes(StandardCharsets.UTF_16));
+        PackedTable table = PackedTable.load(file, StandardCharsets.UTF_16, false, 0, 1);
+        // The line feeds of UTF-16 are not single bytes, so the file is transcoded in the heap
+        assertFalse(table.isMapped());
+        assertEquals(2, table.size());
+        assertEquals("\u00e9t\u00e9", table.getLine(0));
+        assertEquals("hiver", table.getLine(1));
+    }
+
+    @Test
+    public void testLinesSpanningRegions(@TempDir File dir) throws Exception {
+        String[] expected = { "first line", "", "\u00e9t\u00e9 across 16 byte regions", "x", "unterminated" };
+        String content = "first line\r\n\n\u00e9t\u00e9 across 16 byte regions\nx\r\nunterminated";
+        File file = write(dir, "regions.txt", content);
+        File utf16 = new File(dir, "utf16.txt");
+        Files.write(utf16.toPath(), content.getBytes(StandardCharsets.UTF_16));
+
+        PackedTable heap = PackedTable.load(file, StandardCharsets.UTF_8, false, Long.MAX_VALUE, 1, 4);
+        PackedTable mapped = PackedTable.load(file, StandardCharsets.UTF_8, false, 0, 4, 4);
+        PackedTable transcoded = PackedTable.load(utf16, StandardCharsets.UTF_16, false, 0, 1, 4);
+        assertFalse(heap.isMapped());
+        assertTrue(mapped.isMapped());
+        assertFalse(transcoded.isMapped());
+        for (PackedTable table : new PackedTable[] { heap, mapped, transcoded }) {
+            assertEquals(Arrays.asList(expected), lines(table));
+        }
+    }
+
+    @Test
+    public void testSharedUntilModified(@TempDir File dir) throws Exception {
+        File file = write(dir, "shared.txt", "one\ntwo\n");
+        PackedTable first = PackedTable.get(file, false);
+        assertSame(first, PackedTable.get(file, false));
+        assertNotSame(first, PackedTable.get(file, true));
+
+        write(dir, "shared.txt", "one\ntwo\nthree\n");
+        PackedTable reloaded = PackedTable.get(file, false);
+        assertNotSame(first, reloaded);
+        assertEquals(3, reloaded.size());
+    }
+
+    @Test
+    public void testConcurrentCursor(@TempDir File dir) throws Exception {
+        File file = write(dir, "cursor.csv", "a\nb\nc\nd\ne\n");
+        FileRowColContainer container = new FileRowColContainer(file.getAbsolutePath());
+        int[] counts = new int[container.getSize()];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    int row = container.nextRow();
+                    synchronized (counts) {
+                        counts[row]++;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int count : counts) {
+            assertEquals(threads.length * 10000 / counts.length, count);
+        }
+    }
+}
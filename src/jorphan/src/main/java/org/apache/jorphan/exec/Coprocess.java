@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jorphan.exec;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long-lived native process answering framed requests sent to its standard input
+ * with framed responses written to its standard output, so the process is started
+ * once instead of for every request.
+ * <p>
+ * The process is started on the first request, and started again when it has exited
+ * or did not answer in time. A coprocess serves one request at a time and is not thread safe.
+ */
+public class Coprocess implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(Coprocess.class);
+
+    /** How requests and responses are delimited on the standard streams */
+    public enum Framing {
+        /** Each request and response is one line, without its line terminator */
+        LINE,
+        /** Each request and response is its length in bytes, in decimal on its own line, followed by its bytes */
+        LENGTH
+    }
+
+    /** Longest response accepted from the process by default, in bytes */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    private final List<String> arguments;
+    private final File directory;
+    private final Map<String, String> env;
+    private final File stderr;
+    private final Framing framing;
+    private final int maxFrameLength;
+
+    private Process process;
+    private OutputStream requests;
+    private BlockingQueue<Object> responses;
+    private int starts;
+
+    /**
+     * @param arguments command and its arguments, not null
+     * @param directory working directory (may be null)
+     * @param env environment variables appended to the environment (may be null)
+     * @param stderr file the standard error is appended to, discarded if null
+     * @param framing how requests and responses are delimited
+     */
+    public Coprocess(List<String> arguments, File directory, Map<String, String> env, File stderr, Framing framing) {
+        this(arguments, directory, env, stderr, framing, DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * @param arguments command and its arguments, not null
+     * @param directory working directory (may be null)
+     * @param env environment variables appended to the environment (may be null)
+     * @param stderr file the standard error is appended to, discarded if null
+     * @param framing how requests and responses are delimited
+     * @param maxFrameLength longest response accepted, in bytes, the process is restarted after a longer one
+     */
+    public Coprocess(List<String> arguments, File directory, Map<String, String> env, File stderr, Framing framing,
+            int maxFrameLength) {
+        this.arguments = new ArrayList<>(arguments);
+        this.directory = directory;
+        this.env = env;
+        this.stderr = stderr;
+        this.framing = framing;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /**
+     * Start the process unless it is already running
+     *
+     * @return true if the process was started
+     * @throws IOException when the process cannot be started
+     */
+    public synchronized boolean ensureStarted() throws IOException {
+        if (process != null && process.isAlive()) {
+            return false;
+        }
+        if (process != null) {
+            log.warn("Coprocess {} exited with code {}, restarting it", arguments, process.exitValue());
+            destroy();
+        }
+        ProcessBuilder builder = new ProcessBuilder(arguments);
+        if (env != null) {
+            builder.environment().putAll(env);
+        }
+        builder.directory(directory);
+        if (stderr != null) {
+            builder.redirectError(ProcessBuilder.Redirect.appendTo(stderr));
+        }
+        Process started = builder.start();
+        if (stderr == null) {
+            StreamCopier drain = new StreamCopier(started.getErrorStream(), NullOutputStream.NULL_OUTPUT_STREAM);
+            drain.setDaemon(true);
+            drain.start();
+        }
+        BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> readResponses(started.getInputStream(), queue),
+                "Coprocess reader " + arguments.get(0)); // $NON-NLS-1$
+        reader.setDaemon(true);
+        reader.start();
+        process = started;
+        requests = started.getOutputStream();
+        responses = queue;
+        starts++;
+        return true;
+    }
+
+    /**
+     * Send a request and wait for its response. The process is started first if needed,
+     * callers timing the request should call {@link #ensureStarted()} before.
+     * When the process exits or does not answer in time, it is destroyed and
+     * will be started again by the next request.
+     *
+     * @param request bytes of the request, must not contain a line feed with {@link Framing#LINE}
+     * @param timeoutMillis time to wait for the response, 0 to wait forever
+     * @return bytes of the response
+     * @throws IOException when the process cannot be started or exited before answering
+     * @throws TimeoutException when the response did not come in time
+     * @throws InterruptedException when interrupted while waiting for the response
+     */
+    public synchronized byte[] call(byte[] request, long timeoutMillis)
+            throws IOException, TimeoutException, InterruptedException {
+        if (framing == Framing.LINE && indexOf(request, (byte) '\n') >= 0) {
+            throw new IllegalArgumentException("Request contains a line feed, use the LENGTH framing");
+        }
+        ensureStarted();
+        try {
+            if (framing == Framing.LENGTH) {
+                requests.write((request.length + "\n").getBytes(StandardCharsets.US_ASCII)); // $NON-NLS-1$
+                requests.write(request);
+            } else {
+                requests.write(request);
+                requests.write('\n');
+            }
+            requests.flush();
+        } catch (IOException e) {
+            destroy();
+            throw new IOException("Coprocess " + arguments + " does not accept requests", e);
+        }
+        Object response;
+        if (timeoutMillis > 0) {
+            response = responses.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        } else {
+            response = responses.take();
+        }
+        if (response == null) {
+            destroy();
+            throw new TimeoutException("Coprocess did not answer after " + timeoutMillis + " milliseconds");
+        }
+        if (response instanceof IOException) {
+            destroy();
+            throw new IOException("Coprocess " + arguments + " exited before answering", (IOException) response);
+        }
+        return (byte[]) response;
+    }
+
+    private void readResponses(InputStream stdout, BlockingQueue<Object> queue) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(stdout))) {
+            while (true) {
+                byte[] line = readLine(in, maxFrameLength);
+                if (framing == Framing.LENGTH) {
+                    queue.put(readFrame(in, line));
+                } else {
+                    queue.put(line);
+                }
+            }
+        } catch (IOException e) {
+            queue.add(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] readFrame(DataInputStream in, byte[] header) throws IOException {
+        String length = new String(header, StandardCharsets.US_ASCII).trim();
+        int size;
+        try {
+            size = Integer.parseInt(length);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid frame length: " + length, e);
+        }
+        if (size < 0 || size > maxFrameLength) {
+            throw new IOException("Invalid frame length: " + length + ", the maximum is " + maxFrameLength);
+        }
+        byte[] frame = new byte[size];
+        in.readFully(frame);
+        return frame;
+    }
+
+    /**
+     * @return the line without its terminator, a trailing carriage return is removed
+     * @throws IOException when the line is longer than {@code maxLength}, or at the end of the stream
+     */
+    static byte[] readLine(InputStream in, int maxLength) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("End of the standard output");
+            }
+            // one more byte for a carriage return
+            if (line.size() > maxLength) {
+                throw new IOException("Line longer than " + maxLength + " bytes");
+            }
+            line.write(b);
+        }
+        byte[] bytes = line.toByteArray();
+        if (bytes.length > 0 && bytes[bytes.length - 1] == '\r') {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 0, trimmed, 0, trimmed.length);
+            bytes = trimmed;
+        }
+        if (bytes.length > maxLength) {
+            throw new IOException("Line longer than " + maxLength + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int indexOf(byte[] bytes, byte b) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of times the process was started
+     */
+    public synchronized int getStarts() {
+        return starts;
+    }
+
+    private void destroy() {
+        if (process != null) {
+            try {
+                requests.close();
+            } catch (IOException ignored) {
+                // Ignored
+            }
+            process.destroy();
+            process = null;
+            requests = null;
+            responses = null;
+        }
+    }
+
+    /**
+     * Close the standard input of the process so it can exit, and destroy it
+     */
+    @Override
+    public synchronized void close() {
+        destroy();
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jorphan.math;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe StatCalculator for long values, giving the same results as {@link StatCalculatorLong}
+ * without boxing nor locking.
+ * <p>
+ * Values from 0 to 65535, i.e. about a minute of milliseconds,
+ * are counted in atomic arrays of 256 counters, allocated on first use,
+ * each with the total of its counters. Other values are counted in a sorted map.
+ * Percentiles are exact: the page totals, then the counters of one page, are summed
+ * until the wanted rank is reached.
+ * <p>
+ * Sums, counts and extremes are kept in striped adders and accumulators, so concurrent
+ * updates do not contend. Reads during updates may miss the most recent values.
+ */
+public class ConcurrentStatCalculatorLong {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGE_COUNT = 256;
+    static final long DENSE_LIMIT = (long) PAGE_SIZE * PAGE_COUNT;
+
+    private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(PAGE_COUNT);
+    private final AtomicLongArray pageCounts = new AtomicLongArray(PAGE_COUNT);
+    // Negative values and values from DENSE_LIMIT
+    private final ConcurrentSkipListMap<Long, LongAdder> sparse = new ConcurrentSkipListMap<>();
+
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private final DoubleAdder sumOfSquares = new DoubleAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+
+    /** Receives the distinct values and their counts */
+    @FunctionalInterface
+    private interface ValueCountConsumer {
+        void accept(long value, long count);
+    }
+
+    public void clear() {
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            pages.set(i, null);
+            pageCounts.set(i, 0);
+        }
+        sparse.clear();
+        count.reset();
+        sum.reset();
+        sumOfSquares.reset();
+        min.reset();
+        max.reset();
+        bytes.reset();
+        sentBytes.reset();
+    }
+
+    /**
+     * Add to received bytes
+     * @param newValue number of newly received bytes
+     */
+    public void addBytes(long newValue) {
+        bytes.add(newValue);
+    }
+
+    /**
+     * Add to sent bytes
+     * @param newValue number of newly sent bytes
+     */
+    public void addSentBytes(long newValue) {
+        sentBytes.add(newValue);
+    }
+
+    public void addAll(ConcurrentStatCalculatorLong calc) {
+        calc.forEachValue(this::addEachValue);
+    }
+
+    public long getMedian() {
+        return getPercentPoint(0.5);
+    }
+
+    public long getTotalBytes() {
+        return bytes.sum();
+    }
+
+    public long getTotalSentBytes() {
+        return sentBytes.sum();
+    }
+
+    /**
+     * Get the value which %percent% of the values are less than.
+     *
+     * @param percent
+     *            number representing the wished percent (between <code>0</code>
+     *            and <code>1.0</code>)
+     * @return the value which %percent% of the values are less than
+     * @see StatCalculator#getPercentPoint(float)
+     */
+    public long getPercentPoint(float percent) {
+        return getPercentPoint((double) percent);
+    }
+
+    /**
+     * Get the value which %percent% of the values are less than.
+     *
+     * @param percent
+     *            number representing the wished percent (between <code>0</code>
+     *            and <code>1.0</code>)
+     * @return the value which %percent% of the values are less than
+     * @see StatCalculator#getPercentPoint(double)
+     */
+    public long getPercentPoint(double percent) {
+        long total = count.sum();
+        if (total <= 0) {
+            return 0;
+        }
+        if (percent >= 1.0) {
+            return getMax();
+        }
+
+        // use Math.round () instead of simple (long) to provide correct value rounding
+        long target = Math.round(total * percent);
+        for (Map.Entry<Long, LongAdder> entry : sparse.headMap(0L).entrySet()) {
+            target -= entry.getValue().sum();
+            if (target <= 0) {
+                return entry.getKey();
+            }
+        }
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            long pageCount = pageCounts.get(p);
+            if (pageCount == 0) {
+                continue;
+            }
+            if (pageCount < target) {
+                target -= pageCount;
+                continue;
+            }
+            AtomicLongArray page = pages.get(p);
+            for (int i = 0; page != null && i < PAGE_SIZE; i++) {
+                long valueCount = page.get(i);
+                if (valueCount != 0) {
+                    target -= valueCount;
+                    if (target <= 0) {
+                        return ((long) p << PAGE_BITS) | i;
+                    }
+                }
+            }
+        }
+        for (Map.Entry<Long, LongAdder> entry : sparse.tailMap(DENSE_LIMIT).entrySet()) {
+            target -= entry.getValue().sum();
+            if (target <= 0) {
+                return entry.getKey();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the distribution of the values in the list.
+     *
+     * @return map containing Long keys; entries are a Number array containing the key and the [Long] count.
+     */
+    public Map<Number, Number[]> getDistribution() {
+        Map<Number, Number[]> items = new HashMap<>();
+        forEachValue((value, valueCount) -> {
+            Number[] dis = new Number[2];
+            dis[0] = value;
+            dis[1] = valueCount;
+            items.put(value, dis);
+        });
+        return items;
+    }
+
+    private void forEachValue(ValueCountConsumer consumer) {
+        for (Map.Entry<Long, LongAdder> entry : sparse.headMap(0L).entrySet()) {
+            consumer.accept(entry.getKey(), entry.getValue().sum());
+        }
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            AtomicLongArray page = pages.get(p);
+            for (int i = 0; page != null && i < PAGE_SIZE; i++) {
+                long valueCount = page.get(i);
+                if (valueCount != 0) {
+                    consumer.accept(((long) p << PAGE_BITS) | i, valueCount);
+                }
+            }
+        }
+        for (Map.Entry<Long, LongAdder> entry : sparse.tailMap(DENSE_LIMIT).entrySet()) {
+            consumer.accept(entry.getKey(), entry.getValue().sum());
+        }
+    }
+
+    public double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0 : sum.sum() / total;
+    }
+
+    public double getStandardDeviation() {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        double mean = sum.sum() / total;
+        return Math.sqrt((sumOfSquares.sum() / total) - (mean * mean));
+    }
+
+    /**
+     * @return the smallest value, {@link Long#MAX_VALUE} if there is none
+     */
+    public long getMin() {
+        return min.get();
+    }
+
+    /**
+     * @return the largest value, {@link Long#MIN_VALUE} if there is none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Update the calculator with the values for a set of samples.
+     *
+     * @param val the common value, normally the elapsed time
+     * @param sampleCount the number of samples with the same value
+     */
+    void addEachValue(long val, long sampleCount) {
+        double currentVal = val;
+        sum.add(currentVal * sampleCount);
+        // For n same values in sum of square is equal to n*val^2
+        sumOfSquares.add(currentVal * currentVal * sampleCount);
+        updateValueCount(val, sampleCount);
+    }
+
+    /**
+     * Update the calculator with the value for an aggregated sample.
+     *
+     * @param val the aggregate value, normally the elapsed time
+     * @param sampleCount the number of samples contributing to the aggregate value
+     */
+    public void addValue(long val, long sampleCount) {
+        double currentVal = val;
+        sum.add(currentVal);
+        long actualValue = val;
+        if (sampleCount > 1) {
+            // For n values in an aggregate sample the average value = (val/n)
+            // So need to add n * (val/n) * (val/n) = val * val / n
+            sumOfSquares.add(currentVal * currentVal / sampleCount);
+            actualValue = val / sampleCount;
+        } else { // no need to divide by 1
+            sumOfSquares.add(currentVal * currentVal);
+        }
+        updateValueCount(actualValue, sampleCount);
+    }
+
+    /**
+     * Add a single value (normally elapsed time)
+     *
+     * @param val the value to add, which should correspond with a single sample
+     * @see #addValue(long, long)
+     */
+    public void addValue(long val) {
+        addValue(val, 1L);
+    }
+
+    private void updateValueCount(long actualValue, long sampleCount) {
+        if (actualValue >= 0 && actualValue < DENSE_LIMIT) {
+            int p = (int) (actualValue >>> PAGE_BITS);
+            AtomicLongArray page = pages.get(p);
+            if (page == null) {
+                pages.compareAndSet(p, null, new AtomicLongArray(PAGE_SIZE));
+                page = pages.get(p);
+            }
+            page.addAndGet((int) actualValue & PAGE_MASK, sampleCount);
+            pageCounts.addAndGet(p, sampleCount);
+        } else {
+            sparse.computeIfAbsent(actualValue, k -> new LongAdder()).add(sampleCount);
+        }
+        min.accumulate(actualValue);
+        max.accumulate(actualValue);
+        // Counted last, so that readers do not look for values not stored yet
+        count.add(sampleCount);
+    }
+}
@@ -48,6 +48,9 @@ public final class ClassFinder {
     private static final String DOT_CLASS = ".class"; // $NON-NLS-1$
     private static final int DOT_CLASS_LEN = DOT_CLASS.length();
 
+    /** Persisted scan results, {@code null} when the index is disabled */
+    private static volatile ClassIndexCache indexCache;
+
     // static only
     private ClassFinder() {
     }
@@ -169,6 +172,20 @@ public final class ClassFinder {
         }
     }
 
+    /**
+     * Enable or disable the persisted class discovery index.
+     * <p>
+     * When enabled, the results of scans done with the filters built by this class are
+     * stored in {@code directory} and reused by later runs as long as the jars and
+     * class files on the search path are unchanged.
+     *
+     * @param directory folder holding the index files, {@code null} to disable the index
+     */
+    public static void setIndexCacheDirectory(File directory) {
+        indexCache = directory == null ? null : new ClassIndexCache(directory);
+        log.info("Class discovery index {}", directory == null ? "disabled" : "stored in " + directory);
+    }
+
     /**
      * Convenience method for
      * {@link #findClassesThatExtend(String[], Class[], boolean)} with the
@@ -319,6 +336,17 @@ public final class ClassFinder {
         // Find all jars in the search path
         Collection<File> strPathsOrJars = addJarsInPath(searchPathsOrJars);
 
+        // Only the filters built here have a toString() that fully describes what they accept
+        ClassIndexCache cache = indexCache;
+        String filterKey = null;
+        if (cache != null && (filter instanceof ExtendsClassFilter || filter instanceof AnnoClassFilter)) {
+            filterKey = filter.toString();
+            List<String> indexed = cache.lookup(filterKey, strPathsOrJars);
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+
         // Some of the jars might be out of classpath, however java.class.path does not represent
         // the actual ClassLoader in use. For instance, NewDriver builds its own classpath
 
@@ -328,6 +356,10 @@ public final class ClassFinder {
             findClassesInOnePath(path, listClasses, filter);
         }
 
+        if (filterKey != null) {
+            cache.store(filterKey, strPathsOrJars, listClasses);
+        }
+
         if (log.isDebugEnabled()) {
             log.debug("listClasses.size()={}", listClasses.size());
             for (String clazz : listClasses) {
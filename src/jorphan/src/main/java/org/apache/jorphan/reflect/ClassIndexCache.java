@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jorphan.reflect;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persisted index of the results of {@link ClassFinder} scans.
+ * <p>
+ * An index entry is keyed by the filter description and a fingerprint of every
+ * jar and class file on the search path (absolute path, size and modification time),
+ * so adding, removing or replacing a jar invalidates the entry.
+ */
+final class ClassIndexCache {
+    private static final Logger log = LoggerFactory.getLogger(ClassIndexCache.class);
+
+    private static final String INDEX_SUFFIX = ".idx"; // $NON-NLS-1$
+    private static final String HEADER_PREFIX = "#"; // $NON-NLS-1$
+
+    private final File directory;
+
+    ClassIndexCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param filterKey   stable description of the filter used for the scan
+     * @param pathsOrJars the expanded search path
+     * @return the class names found by a previous scan, or {@code null} if there is none
+     */
+    List<String> lookup(String filterKey, Collection<File> pathsOrJars) {
+        File indexFile = indexFile(filterKey, pathsOrJars);
+        if (indexFile == null || !indexFile.isFile()) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8);
+            List<String> classes = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                if (!line.isEmpty() && !line.startsWith(HEADER_PREFIX)) {
+                    classes.add(line);
+                }
+            }
+            log.debug("Class index hit {} for {}", indexFile, filterKey);
+            return classes;
+        } catch (IOException e) {
+            log.warn("Could not read class index {}, message: {}", indexFile, e.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Persist the result of a scan. Failures are logged and otherwise ignored.
+     *
+     * @param filterKey   stable description of the filter used for the scan
+     * @param pathsOrJars the expanded search path
+     * @param classes     class names found by the scan
+     */
+    void store(String filterKey, Collection<File> pathsOrJars, Collection<String> classes) {
+        File indexFile = indexFile(filterKey, pathsOrJars);
+        if (indexFile == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>(classes.size() + 1);
+        lines.add(HEADER_PREFIX + filterKey.replace('\n', ' '));
+        lines.addAll(classes);
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                log.warn("Could not create class index directory {}", directory);
+                return;
+            }
+            // Write to a temporary file first, so concurrent starts never read a partial index
+            File tmp = File.createTempFile(indexFile.getName(), ".tmp", directory); // $NON-NLS-1$
+            Files.write(tmp.toPath(), lines, StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Could not write class index {}, message: {}", indexFile, e.getLocalizedMessage());
+        }
+    }
+
+    private File indexFile(String filterKey, Collection<File> pathsOrJars) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1"); // $NON-NLS-1$
+            digest.update(filterKey.getBytes(StandardCharsets.UTF_8));
+            File[] sorted = pathsOrJars.toArray(new File[0]);
+            Arrays.sort(sorted);
+            for (File file : sorted) {
+                fingerprint(digest, file);
+            }
+            return new File(directory, JOrphanUtils.baToHexString(digest.digest()) + INDEX_SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            log.warn("Class index disabled, message: {}", e.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    private static void fingerprint(MessageDigest digest, File file) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) {
+                return;
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                if (child.isDirectory() || child.getName().endsWith(".class")) { // $NON-NLS-1$
+                    fingerprint(digest, child);
+                }
+            }
+        } else if (file.exists()) {
+            String entry = file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified() + '\n';
+            digest.update(entry.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
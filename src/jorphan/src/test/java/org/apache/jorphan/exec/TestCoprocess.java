@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jorphan.exec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@DisabledOnOs(OS.WINDOWS)
+public class TestCoprocess {
+
+    private static Coprocess shell(String script, Coprocess.Framing framing) {
+        return new Coprocess(Arrays.asList("sh", "-c", script), null, null, null, framing);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testProcessIsStartedOnce() throws Exception {
+        try (Coprocess cat = shell("cat", Coprocess.Framing.LINE)) {
+            for (int i = 0; i < 10; i++) {
+                assertArrayEquals(bytes("request " + i), cat.call(bytes("request " + i), 5000));
+            }
+            assertEquals(1, cat.getStarts());
+        }
+    }
+
+    @Test
+    public void testLengthFramingAllowsLineFeeds() throws Exception {
+        try (Coprocess cat = shell("cat", Coprocess.Framing.LENGTH)) {
+            assertArrayEquals(bytes("two\nlines"), cat.call(bytes("two\nlines"), 5000));
+            assertArrayEquals(new byte[0], cat.call(new byte[0], 5000));
+        }
+    }
+
+    @Test
+    public void testLineFeedIsRejectedWithLineFraming() {
+        try (Coprocess cat = shell("cat", Coprocess.Framing.LINE)) {
+            assertThrows(IllegalArgumentException.class, () -> cat.call(bytes("two\nlines"), 5000));
+        }
+    }
+
+    @Test
+    public void testCarriageReturnIsRemoved() throws Exception {
+        try (Coprocess echo = shell("while read l; do printf 'ok\\r\\n'; done", Coprocess.Framing.LINE)) {
+            assertArrayEquals(bytes("ok"), echo.call(bytes("x"), 5000));
+        }
+    }
+
+    @Test
+    public void testRestartAfterCrash() throws Exception {
+        try (Coprocess once = shell("read l; echo $l; read l; exit 3", Coprocess.Framing.LINE)) {
+            assertArrayEquals(bytes("first"), once.call(bytes("first"), 5000));
+            assertThrows(IOException.class, () -> once.call(bytes("second"), 5000));
+            assertArrayEquals(bytes("third"), once.call(bytes("third"), 5000));
+            assertEquals(2, once.getStarts());
+        }
+    }
+
+    @Test
+    public void testResponseLongerThanMaximumIsRejected() throws Exception {
+        try (Coprocess cat = new Coprocess(Arrays.asList("sh", "-c", "cat"), null, null, null,
+                Coprocess.Framing.LENGTH, 4)) {
+            assertArrayEquals(bytes("four"), cat.call(bytes("four"), 5000));
+            assertThrows(IOException.class, () -> cat.call(bytes("fives"), 5000));
+        }
+        try (Coprocess cat = new Coprocess(Arrays.asList("sh", "-c", "cat"), null, null, null,
+                Coprocess.Framing.LINE, 4)) {
+            assertArrayEquals(bytes("four"), cat.call(bytes("four"), 5000));
+            assertThrows(IOException.class, () -> cat.call(bytes("fives"), 5000));
+        }
+    }
+
+    @Test
+    public void testRestartAfterTimeout() throws Exception {
+        try (Coprocess slow = shell("while read l; do sleep $l; echo $l; done", Coprocess.Framing.LINE)) {
+            assertThrows(TimeoutException.class, () -> slow.call(bytes("5"), 200));
+            assertArrayEquals(bytes("0"), slow.call(bytes("0"), 5000));
+            assertEquals(2, slow.getStarts());
+        }
+    }
+}
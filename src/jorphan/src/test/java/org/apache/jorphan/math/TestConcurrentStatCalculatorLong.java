@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jorphan.math;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TestConcurrentStatCalculatorLong {
+
+    private static void assertSameStats(StatCalculatorLong expected, ConcurrentStatCalculatorLong actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getSum(), actual.getSum(), 1e-6);
+        assertEquals(expected.getMean(), actual.getMean(), 1e-9);
+        assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(), 1e-6);
+        assertEquals(expected.getMin().longValue(), actual.getMin());
+        assertEquals(expected.getMax().longValue(), actual.getMax());
+        assertEquals(expected.getMedian().longValue(), actual.getMedian());
+        for (double percent = 0; percent <= 1.0; percent += 0.005) {
+            assertEquals(expected.getPercentPoint(percent).longValue(), actual.getPercentPoint(percent),
+                    "percent " + percent);
+        }
+        Map<Number, Number[]> expectedDistribution = expected.getDistribution();
+        Map<Number, Number[]> actualDistribution = actual.getDistribution();
+        assertEquals(expectedDistribution.size(), actualDistribution.size());
+        for (Map.Entry<Number, Number[]> entry : expectedDistribution.entrySet()) {
+            Number[] dis = actualDistribution.get(entry.getKey().longValue());
+            assertEquals(entry.getValue()[1].longValue(), dis[1].longValue());
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertSameStats(new StatCalculatorLong(), new ConcurrentStatCalculatorLong());
+    }
+
+    @Test
+    public void testSameResultsAsStatCalculatorLong() {
+        StatCalculatorLong expected = new StatCalculatorLong();
+        ConcurrentStatCalculatorLong actual = new ConcurrentStatCalculatorLong();
+        Random random = new Random(61071);
+        for (int i = 0; i < 20000; i++) {
+            long value;
+            switch (random.nextInt(10)) {
+                case 0:
+                    value = -random.nextInt(100);
+                    break;
+                case 1:
+                    value = ConcurrentStatCalculatorLong.DENSE_LIMIT + random.nextInt(1000000);
+                    break;
+                default:
+                    value = (long) Math.abs(random.nextGaussian() * 500);
+                    break;
+            }
+            if (random.nextInt(20) == 0) {
+                int sampleCount = 2 + random.nextInt(5);
+                expected.addValue(value * sampleCount, sampleCount);
+                actual.addValue(value * sampleCount, sampleCount);
+            } else {
+                expected.addValue(value);
+                actual.addValue(value);
+            }
+        }
+        expected.addBytes(10);
+        actual.addBytes(10);
+        expected.addSentBytes(20);
+        actual.addSentBytes(20);
+        assertSameStats(expected, actual);
+        assertEquals(10, actual.getTotalBytes());
+        assertEquals(20, actual.getTotalSentBytes());
+    }
+
+    @Test
+    public void testAddAll() {
+        ConcurrentStatCalculatorLong calc = new ConcurrentStatCalculatorLong();
+        calc.addValue(1L);
+        calc.addValue(2L);
+        calc.addValue(3L);
+        ConcurrentStatCalculatorLong calc2 = new ConcurrentStatCalculatorLong();
+        calc2.addValue(2L);
+        calc2.addValue(2L);
+        calc2.addValue(2L);
+        calc.addAll(calc2);
+        assertEquals(6, calc.getCount());
+        assertEquals(12.0, calc.getSum(), 0.000000000001);
+        assertEquals(0.5773502691896255, calc.getStandardDeviation(), 0.000000000000001);
+    }
+
+    @Test
+    public void testClear() {
+        ConcurrentStatCalculatorLong calc = new ConcurrentStatCalculatorLong();
+        calc.addValue(5L);
+        calc.addValue(ConcurrentStatCalculatorLong.DENSE_LIMIT * 2);
+        calc.clear();
+        assertSameStats(new StatCalculatorLong(), calc);
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        ConcurrentStatCalculatorLong calc = new ConcurrentStatCalculatorLong();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    calc.addValue(i % 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800000, calc.getCount());
+        assertEquals(0, calc.getMin());
+        assertEquals(999, calc.getMax());
+        assertEquals(499, calc.getMedian());
+        assertEquals(800, calc.getDistribution().get(0L)[1].longValue());
+    }
+}
@@ -24,6 +24,8 @@ public abstract class AbstractBoltTestElement extends AbstractTestElement {
     private String cypher;
     private String params;
     private boolean recordQueryResults;
+    private int recordLimit;
+    private int queriesInFlight = 1;
 
     public String getCypher() {
         return cypher;
@@ -48,4 +50,20 @@ public abstract class AbstractBoltTestElement extends AbstractTestElement {
     public void setRecordQueryResults(boolean recordQueryResults) {
         this.recordQueryResults = recordQueryResults;
     }
+
+    public int getRecordLimit() {
+        return recordLimit;
+    }
+
+    public void setRecordLimit(int recordLimit) {
+        this.recordLimit = recordLimit;
+    }
+
+    public int getQueriesInFlight() {
+        return queriesInFlight;
+    }
+
+    public void setQueriesInFlight(int queriesInFlight) {
+        this.queriesInFlight = queriesInFlight;
+    }
 }
@@ -19,11 +19,16 @@ package org.apache.jmeter.protocol.bolt.sampler;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.jmeter.config.ConfigTestElement;
@@ -39,6 +44,7 @@ import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.async.AsyncSession;
 import org.neo4j.driver.exceptions.Neo4jException;
 import org.neo4j.driver.summary.ResultSummary;
 
@@ -57,6 +63,10 @@ public class BoltSampler extends AbstractBoltTestElement implements Sampler, Tes
         private static final ObjectReader OBJECT_READER = new ObjectMapper().readerFor(new TypeReference<HashMap<String, Object>>() {});
     }
 
+    // Params parsed by the previous sample, reused as long as the JSON does not change
+    private transient String parsedParamsJson;
+    private transient Map<String, Object> parsedParams;
+
     @Override
     public SampleResult sample(Entry e) {
         SampleResult res = new SampleResult();
@@ -78,6 +88,10 @@ public class BoltSampler extends AbstractBoltTestElement implements Sampler, Tes
         res.setResponseMessageOK();
         res.setResponseCodeOK();
 
+        if (getQueriesInFlight() > 1) {
+            return sampleAsync(res, params);
+        }
+
         res.sampleStart();
 
         try {
@@ -91,6 +105,73 @@ public class BoltSampler extends AbstractBoltTestElement implements Sampler, Tes
         return res;
     }
 
+    /**
+     * Run {@link #getQueriesInFlight()} copies of the query at the same time through the asynchronous API
+     * of the driver, each one being a sub-result timed from its submission to the end of its records.
+     */
+    private SampleResult sampleAsync(SampleResult res, Map<String, Object> params) {
+        int queries = getQueriesInFlight();
+        String cypher = getCypher();
+        List<SampleResult> children = new ArrayList<>(queries);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(queries);
+        res.setResponseHeaders("Cypher request: " + cypher);
+        res.sampleStart();
+        try {
+            Driver driver = BoltConnectionElement.getDriver();
+            for (int i = 0; i < queries; i++) {
+                SampleResult child = new SampleResult();
+                child.setSampleLabel(getName());
+                child.setDataType(SampleResult.TEXT);
+                child.setContentType("text/plain"); // $NON-NLS-1$
+                child.setDataEncoding(StandardCharsets.UTF_8.name());
+                child.setSuccessful(true);
+                child.setResponseMessageOK();
+                child.setResponseCodeOK();
+                child.sampleStart();
+                children.add(child);
+                futures.add(executeAsync(driver, cypher, params)
+                        .handle((response, ex) -> {
+                            if (ex == null) {
+                                child.setResponseData(response, StandardCharsets.UTF_8.name());
+                            } else {
+                                handleException(child, unwrap(ex));
+                            }
+                            child.sampleEnd();
+                            return null;
+                        })
+                        .toCompletableFuture());
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (Exception ex) {
+            handleException(res, unwrap(ex));
+        }
+        int failed = 0;
+        for (SampleResult child : children) {
+            if (child.getEndTime() == 0) {
+                // The submission failed before the query was started
+                continue;
+            }
+            if (!child.isSuccessful()) {
+                if (failed == 0) {
+                    res.setResponseCode(child.getResponseCode());
+                    res.setResponseMessage(child.getResponseMessage());
+                }
+                failed++;
+                res.setSuccessful(false);
+            }
+            res.addSubResult(child);
+        }
+        res.setResponseData("Queries: " + children.size() + "\nFailed: " + failed, StandardCharsets.UTF_8.name());
+        if (res.getEndTime() == 0) {
+            res.sampleEnd();
+        }
+        return res;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
     /**
      * @see org.apache.jmeter.samplers.AbstractSampler#applies(org.apache.jmeter.config.ConfigTestElement)
      */
@@ -103,11 +184,35 @@ public class BoltSampler extends AbstractBoltTestElement implements Sampler, Tes
     private String execute(Driver driver, String cypher, Map<String, Object> params) {
         try (Session session = driver.session()) {
             Result statementResult = session.run(cypher, params);
-            return response(statementResult);
+            RecordsCollector records = newRecordsCollector();
+            while (statementResult.hasNext()) {
+                records.accept(statementResult.next());
+            }
+            return response(statementResult.consume(), records);
         }
     }
 
-    private SampleResult handleException(SampleResult res, Exception ex) {
+    private CompletionStage<String> executeAsync(Driver driver, String cypher, Map<String, Object> params) {
+        AsyncSession session = driver.asyncSession();
+        RecordsCollector records = newRecordsCollector();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        session.runAsync(cypher, params)
+                .thenCompose(cursor -> cursor.forEachAsync(records))
+                .whenComplete((summary, ex) -> session.closeAsync().whenComplete((closed, closeEx) -> {
+                    if (ex != null) {
+                        result.completeExceptionally(ex);
+                    } else {
+                        result.complete(response(summary, records));
+                    }
+                }));
+        return result;
+    }
+
+    private RecordsCollector newRecordsCollector() {
+        return new RecordsCollector(isRecordQueryResults(), getRecordLimit());
+    }
+
+    private SampleResult handleException(SampleResult res, Throwable ex) {
         res.setResponseMessage(ex.toString());
         if (ex instanceof Neo4jException) {
             res.setResponseCode(((Neo4jException)ex).code());
@@ -120,8 +225,14 @@ public class BoltSampler extends AbstractBoltTestElement implements Sampler, Tes
     }
 
     private Map<String, Object> getParamsAsMap() throws IOException {
-        if (getParams() != null && getParams().length() > 0) {
-            return Holder.OBJECT_READER.readValue(getParams());
+        String json = getParams();
+        if (json != null && json.length() > 0) {
+            // Params without functions or variables are the same on each sample, so they are parsed once
+            if (!json.equals(parsedParamsJson)) {
+                parsedParams = Collections.unmodifiableMap(Holder.OBJECT_READER.readValue(json));
+                parsedParamsJson = json;
+            }
+            return parsedParams;
         } else {
             return Collections.emptyMap();
         }
@@ -137,10 +248,9 @@ public class BoltSampler extends AbstractBoltTestElement implements Sampler, Tes
         return request.toString();
     }
 
-    private String response(Result result) {
+    private static String response(ResultSummary summary, RecordsCollector records) {
         StringBuilder response = new StringBuilder();
         response.append("\nSummary:");
-        ResultSummary summary = result.consume();
         response.append("\nConstraints Added: ")
                 .append(summary.counters().constraintsAdded())
                 .append("\nConstraints Removed: ")
@@ -162,18 +272,11 @@ public class BoltSampler extends AbstractBoltTestElement implements Sampler, Tes
                 .append("\nRelationships Created: ")
                 .append(summary.counters().relationshipsCreated())
                 .append("\nRelationships Deleted: ")
-                .append(summary.counters().relationshipsDeleted());
+                .append(summary.counters().relationshipsDeleted())
+                .append("\nRecords Received: ")
+                .append(records.getCount());
         response.append("\n\nRecords: ");
-        if (isRecordQueryResults()) {
-            for (Record record : result.list()) {
-                response.append("\n").append(record);
-            }
-        } else {
-            response.append("Skipped");
-            result.consume();
-        }
-
-
+        records.appendTo(response);
         return response.toString();
     }
 }
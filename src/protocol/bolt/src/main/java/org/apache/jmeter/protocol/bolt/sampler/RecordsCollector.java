@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.bolt.sampler;
+
+import java.util.function.Consumer;
+
+import org.neo4j.driver.Record;
+
+/**
+ * Counts the records of a result as they are streamed, and keeps the text of the first ones
+ * when they are recorded in the response
+ */
+class RecordsCollector implements Consumer<Record> {
+
+    private final boolean record;
+    private final int limit;
+    private final StringBuilder recorded = new StringBuilder();
+    private long count;
+
+    /**
+     * @param record true to keep the text of the records
+     * @param limit maximum number of records to keep, all of them if 0 or less
+     */
+    RecordsCollector(boolean record, int limit) {
+        this.record = record;
+        this.limit = limit;
+    }
+
+    @Override
+    public void accept(Record r) {
+        count++;
+        if (record && (limit <= 0 || count <= limit)) {
+            recorded.append('\n').append(r);
+        }
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    void appendTo(StringBuilder response) {
+        if (!record) {
+            response.append("Skipped");
+            return;
+        }
+        response.append(recorded);
+        if (limit > 0 && count > limit) {
+            response.append("\n... ").append(count - limit).append(" more records not recorded");
+        }
+    }
+}
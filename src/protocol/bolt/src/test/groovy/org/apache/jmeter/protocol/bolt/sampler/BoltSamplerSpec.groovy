@@ -17,13 +17,18 @@
 
 package org.apache.jmeter.protocol.bolt.sampler
 
+import java.util.concurrent.CompletableFuture
+
 import org.apache.jmeter.protocol.bolt.config.BoltConnectionElement
 import org.apache.jmeter.samplers.Entry
 import org.apache.jmeter.threads.JMeterContextService
 import org.apache.jmeter.threads.JMeterVariables
 import org.neo4j.driver.Driver
+import org.neo4j.driver.Record
 import org.neo4j.driver.Result
 import org.neo4j.driver.Session
+import org.neo4j.driver.async.AsyncSession
+import org.neo4j.driver.async.ResultCursor
 import org.neo4j.driver.exceptions.ClientException
 import org.neo4j.driver.summary.ResultSummary
 import org.neo4j.driver.summary.SummaryCounters
@@ -34,12 +39,13 @@ class BoltSamplerSpec extends Specification {
 
     BoltSampler sampler
     Entry entry
+    Driver driver
     Session session
 
     def setup() {
         sampler = new BoltSampler()
         entry = new Entry()
-        def driver = Mock(Driver)
+        driver = Mock(Driver)
         def boltConfig = new BoltConnectionElement()
         def variables = new JMeterVariables()
         // ugly but could not find a better way to pass the driver to the sampler...
@@ -111,6 +117,92 @@ class BoltSamplerSpec extends Specification {
             response.getResponseCode() == "a code"
     }
 
+    def "should count records without recording them"() {
+        given:
+            sampler.setCypher("MATCH x")
+            def queryResult = getEmptyQueryResult()
+            queryResult.hasNext() >>> [true, true, true, false]
+            queryResult.next() >> Mock(Record)
+            session.run("MATCH x", [:]) >> queryResult
+        when:
+            def response = sampler.sample(entry)
+        then:
+            response.isSuccessful()
+            def str = response.getResponseDataAsString()
+            str.contains("Records Received: 3")
+            str.endsWith("Records: Skipped")
+    }
+
+    def "should record records up to the limit"() {
+        given:
+            sampler.setCypher("MATCH x")
+            sampler.setRecordQueryResults(true)
+            sampler.setRecordLimit(1)
+            def queryResult = getEmptyQueryResult()
+            queryResult.hasNext() >>> [true, true, true, false]
+            queryResult.next() >> Mock(Record)
+            session.run("MATCH x", [:]) >> queryResult
+        when:
+            def response = sampler.sample(entry)
+        then:
+            response.isSuccessful()
+            def str = response.getResponseDataAsString()
+            str.contains("Records Received: 3")
+            str.endsWith("2 more records not recorded")
+    }
+
+    def "should reuse parsed params while they do not change"() {
+        given:
+            sampler.setCypher("MATCH x")
+            sampler.setParams('{"a": 1}')
+            def queryResult = getEmptyQueryResult()
+        when:
+            def first = sampler.sample(entry)
+            def second = sampler.sample(entry)
+        then:
+            2 * session.run("MATCH x", [a: 1]) >> queryResult
+            first.isSuccessful()
+            second.isSuccessful()
+    }
+
+    def "should run queries in flight asynchronously"() {
+        given:
+            sampler.setCypher("MATCH x")
+            sampler.setQueriesInFlight(3)
+            def asyncSession = Mock(AsyncSession)
+            def cursor = Mock(ResultCursor)
+            driver.asyncSession() >> asyncSession
+            asyncSession.runAsync("MATCH x", [:]) >> CompletableFuture.completedFuture(cursor)
+            cursor.forEachAsync(_) >> CompletableFuture.completedFuture(getEmptyQueryResult().consume())
+            asyncSession.closeAsync() >> CompletableFuture.completedFuture(null)
+        when:
+            def response = sampler.sample(entry)
+        then:
+            response.isSuccessful()
+            response.getSubResults().length == 3
+            response.getSubResults().every { it.isSuccessful() && it.getResponseDataAsString().contains("Summary:") }
+            response.getResponseDataAsString() == "Queries: 3\nFailed: 0"
+    }
+
+    def "should report failed queries in flight"() {
+        given:
+            sampler.setCypher("MATCH x")
+            sampler.setQueriesInFlight(2)
+            def asyncSession = Mock(AsyncSession)
+            driver.asyncSession() >> asyncSession
+            def failure = new CompletableFuture()
+            failure.completeExceptionally(new ClientException("a code", "a message"))
+            asyncSession.runAsync("MATCH x", [:]) >> failure
+            asyncSession.closeAsync() >> CompletableFuture.completedFuture(null)
+        when:
+            def response = sampler.sample(entry)
+        then:
+            !response.isSuccessful()
+            response.getResponseCode() == "a code"
+            response.getSubResults().length == 2
+            response.getResponseDataAsString() == "Queries: 2\nFailed: 2"
+    }
+
     def getEmptyQueryResult() {
         def queryResult = Mock(Result)
         def summary = Mock(ResultSummary)
@@ -40,6 +40,7 @@ project("ftp") {
         implementation("org.apache.commons:commons-lang3") {
             because("StringUtils")
         }
+        testImplementation("org.apache.ftpserver:ftpserver-core")
     }
 }
 
@@ -55,6 +55,8 @@ public class FtpConfigGui extends AbstractConfigGui {
 
     private JCheckBox saveResponseData;
 
+    private JCheckBox reuseConnection;
+
     private boolean displayName = true;
 
     private JRadioButton getBox;
@@ -86,6 +88,7 @@ public class FtpConfigGui extends AbstractConfigGui {
         inputData.setText(element.getPropertyAsString(FTPSampler.INPUT_DATA));
         binaryMode.setSelected(element.getPropertyAsBoolean(FTPSampler.BINARY_MODE, false));
         saveResponseData.setSelected(element.getPropertyAsBoolean(FTPSampler.SAVE_RESPONSE, false));
+        reuseConnection.setSelected(element.getPropertyAsBoolean(FTPSampler.REUSE_CONNECTION, false));
         final boolean uploading = element.getPropertyAsBoolean(FTPSampler.UPLOAD_FILE,false);
         if (uploading){
             putBox.setSelected(true);
@@ -118,6 +121,7 @@ public class FtpConfigGui extends AbstractConfigGui {
         element.setProperty(FTPSampler.BINARY_MODE,binaryMode.isSelected());
         element.setProperty(FTPSampler.SAVE_RESPONSE, saveResponseData.isSelected());
         element.setProperty(FTPSampler.UPLOAD_FILE,putBox.isSelected());
+        element.setProperty(FTPSampler.REUSE_CONNECTION, reuseConnection.isSelected(), false);
     }
 
     /**
@@ -134,6 +138,7 @@ public class FtpConfigGui extends AbstractConfigGui {
         inputData.setText(""); //$NON-NLS-1$
         binaryMode.setSelected(false);
         saveResponseData.setSelected(false);
+        reuseConnection.setSelected(false);
         getBox.setSelected(true);
         putBox.setSelected(false);
     }
@@ -212,6 +217,7 @@ public class FtpConfigGui extends AbstractConfigGui {
 
         binaryMode = new JCheckBox(JMeterUtils.getResString("ftp_binary_mode")); //$NON-NLS-1$
         saveResponseData = new JCheckBox(JMeterUtils.getResString("ftp_save_response_data")); //$NON-NLS-1$
+        reuseConnection = new JCheckBox(JMeterUtils.getResString("reuseconnection")); //$NON-NLS-1$
 
 
         JPanel optionsPanel = new HorizontalPanel();
@@ -219,6 +225,7 @@ public class FtpConfigGui extends AbstractConfigGui {
         optionsPanel.add(putBox);
         optionsPanel.add(binaryMode);
         optionsPanel.add(saveResponseData);
+        optionsPanel.add(reuseConnection);
         return optionsPanel;
     }
     private void init() { // WARNING: called from ctor so must not be overridden (i.e. must be private or final)
@@ -29,7 +29,9 @@ import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
@@ -45,6 +47,7 @@ import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.Interruptible;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.ThreadListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,7 +55,7 @@ import org.slf4j.LoggerFactory;
  * A sampler which understands FTP file requests.
  *
  */
-public class FTPSampler extends AbstractSampler implements Interruptible {
+public class FTPSampler extends AbstractSampler implements Interruptible, ThreadListener {
 
     private static final long serialVersionUID = 240L;
 
@@ -86,6 +89,13 @@ public class FTPSampler extends AbstractSampler implements Interruptible {
     // Should the file data be saved in the response?
     public static final String SAVE_RESPONSE = "FTPSampler.saveresponse"; // $NON-NLS-1$
 
+    // Keep the connection logged in for the next samples of the thread?
+    public static final String REUSE_CONNECTION = "FTPSampler.reuseconnection"; // $NON-NLS-1$
+
+    /** Logged in connections kept open by the thread, by server, port and user */
+    private static final ThreadLocal<Map<String, FTPClient>> CONNECTIONS =
+            ThreadLocal.withInitial(HashMap::new);
+
     private transient volatile FTPClient savedClient; // used for interrupting the sampler
 
     public FTPSampler() {
@@ -144,6 +154,55 @@ public class FTPSampler extends AbstractSampler implements Interruptible {
         return getPropertyAsBoolean(UPLOAD_FILE,false);
     }
 
+    public boolean isReuseConnection(){
+        return getPropertyAsBoolean(REUSE_CONNECTION,false);
+    }
+
+    public void setReuseConnection(boolean reuse){
+        setProperty(REUSE_CONNECTION, reuse, false);
+    }
+
+    private String getConnectionKey() {
+        return getServer() + ":" + getPortAsInt() + ":" + getUsername(); // $NON-NLS-1$ $NON-NLS-2$
+    }
+
+    /**
+     * Take the connection kept open by the thread, after checking it is still alive
+     *
+     * @param key key of the connection
+     * @return the connection or {@code null} if there is none or it is no longer usable
+     */
+    private static FTPClient takeConnection(String key) {
+        FTPClient ftp = CONNECTIONS.get().remove(key);
+        if (ftp == null) {
+            return null;
+        }
+        try {
+            if (ftp.isConnected() && ftp.sendNoOp()) {
+                return ftp;
+            }
+        } catch (IOException e) {
+            log.debug("Connection to {} is no longer usable, reconnecting", key, e);
+        }
+        close(ftp);
+        return null;
+    }
+
+    private static void close(FTPClient ftp) {
+        if (ftp.isConnected()) {
+            try {
+                ftp.logout();
+            } catch (IOException ignored) {
+                // NOOP
+            }
+            try {
+                ftp.disconnect();
+            } catch (IOException ignored) {
+                // NOOP
+            }
+        }
+    }
+
 
     /**
      * Returns a formatted string label describing this sampler Example output:
@@ -185,119 +244,135 @@ public class FTPSampler extends AbstractSampler implements Interruptible {
         }
         InputStream input = null;
         FileInputStream fileIS = null;
+        final boolean reuseConnection = isReuseConnection();
+        final String connectionKey = getConnectionKey();
+        boolean keepConnection = false;
         res.sampleStart();
-        FTPClient ftp = new FTPClient();
+        FTPClient ftp = reuseConnection ? takeConnection(connectionKey) : null;
+        final boolean reused = ftp != null;
+        if (!reused) {
+            ftp = new FTPClient();
+        }
         try {
             savedClient = ftp;
-            final int port = getPortAsInt();
-            if (port > 0){
-                ftp.connect(getServer(),port);
+            boolean loggedIn = reused;
+            if (reused) {
+                res.latencyEnd();
+                res.connectEnd();
             } else {
-                ftp.connect(getServer());
+                final int port = getPortAsInt();
+                if (port > 0){
+                    ftp.connect(getServer(),port);
+                } else {
+                    ftp.connect(getServer());
+                }
+                res.latencyEnd();
+                int reply = ftp.getReplyCode();
+                if (FTPReply.isPositiveCompletion(reply)) {
+                    loggedIn = ftp.login( getUsername(), getPassword());
+                    if (loggedIn) {
+                        res.connectEnd();
+                    } else {
+                        res.setResponseCode(Integer.toString(ftp.getReplyCode()));
+                        res.setResponseMessage(ftp.getReplyString());
+                    }
+                } else {
+                    res.setResponseCode("501");
+                    String replyString = ftp.getReplyString();
+                    if(StringUtils.isEmpty(replyString)) {
+                        res.setResponseMessage("Could not connect");
+                    }
+                    else {
+                        res.setResponseMessage(replyString);
+                    }
+                }
             }
-            res.latencyEnd();
-            int reply = ftp.getReplyCode();
-            if (FTPReply.isPositiveCompletion(reply)) {
-                if (ftp.login( getUsername(), getPassword())){
-                    if (binaryTransfer) {
-                        ftp.setFileType(FTP.BINARY_FILE_TYPE);
+            if (loggedIn) {
+                if (binaryTransfer) {
+                    ftp.setFileType(FTP.BINARY_FILE_TYPE);
+                } else if (reused) {
+                    // A previous sample may have switched the connection to binary
+                    ftp.setFileType(FTP.ASCII_FILE_TYPE);
+                }
+                ftp.enterLocalPassiveMode();// should probably come from the setup dialog
+                boolean ftpOK=false;
+                if (isUpload()) {
+                    String contents=getLocalFileContents();
+                    if (contents.length() > 0){
+                        byte[] bytes = contents.getBytes(); // TODO - charset?
+                        input = new ByteArrayInputStream(bytes);
+                        res.setSentBytes((long)bytes.length);
+                    } else {
+                        File infile = new File(local);
+                        res.setSentBytes(infile.length());
+                        fileIS = new FileInputStream(infile); // NOSONAR False positive, fileIS is closed in finally and not overwritten
+                        input = new BufferedInputStream(fileIS);
                     }
-                    ftp.enterLocalPassiveMode();// should probably come from the setup dialog
-                    boolean ftpOK=false;
-                    if (isUpload()) {
-                        String contents=getLocalFileContents();
-                        if (contents.length() > 0){
-                            byte[] bytes = contents.getBytes(); // TODO - charset?
-                            input = new ByteArrayInputStream(bytes);
-                            res.setSentBytes((long)bytes.length);
-                        } else {
-                            File infile = new File(local);
-                            res.setSentBytes(infile.length());
-                            fileIS = new FileInputStream(infile); // NOSONAR False positive, fileIS is closed in finally and not overwritten
-                            input = new BufferedInputStream(fileIS);
+                    ftpOK = ftp.storeFile(remote, input);
+                } else {
+                    final boolean saveResponse = isSaveResponse();
+                    ByteArrayOutputStream baos=null; // No need to close this
+                    OutputStream target=null;
+                    OutputStream output = null;
+                    try {
+                        if (saveResponse){
+                            baos  = new ByteArrayOutputStream();
+                            target=baos;
                         }
-                        ftpOK = ftp.storeFile(remote, input);
-                    } else {
-                        final boolean saveResponse = isSaveResponse();
-                        ByteArrayOutputStream baos=null; // No need to close this
-                        OutputStream target=null;
-                        OutputStream output = null;
-                        try {
-                            if (saveResponse){
-                                baos  = new ByteArrayOutputStream();
-                                target=baos;
-                            }
-                            if (local.length()>0){
-                                output=new FileOutputStream(local); // NOSONAR False positive, the output is closed in finally and not overwritten
-                                if (target==null) {
-                                    target=output;
-                                } else {
-                                    target = new TeeOutputStream(output,baos);
-                                }
-                            }
-                            if (target == null){
-                                target=new NullOutputStream();
+                        if (local.length()>0){
+                            output=new FileOutputStream(local); // NOSONAR False positive, the output is closed in finally and not overwritten
+                            if (target==null) {
+                                target=output;
+                            } else {
+                                target = new TeeOutputStream(output,baos);
                             }
-                            input = ftp.retrieveFileStream(remote);
-                            if (input == null){// Could not access file or other error
-                                res.setResponseCode(Integer.toString(ftp.getReplyCode()));
-                                res.setResponseMessage(ftp.getReplyString());
+                        }
+                        if (target == null){
+                            target=new NullOutputStream();
+                        }
+                        input = ftp.retrieveFileStream(remote);
+                        if (input == null){// Could not access file or other error
+                            res.setResponseCode(Integer.toString(ftp.getReplyCode()));
+                            res.setResponseMessage(ftp.getReplyString());
+                        } else {
+                            long bytes = IOUtils.copy(input,target);
+                            input.close();
+                            // Read the end of transfer reply, so the connection can be used again
+                            ftpOK = ftp.completePendingCommand() && bytes > 0;
+                            if (saveResponse) {
+                                saveResponse(res, binaryTransfer, baos);
                             } else {
-                                long bytes = IOUtils.copy(input,target);
-                                ftpOK = bytes > 0;
-                                if (saveResponse) {
-                                    saveResponse(res, binaryTransfer, baos);
-                                } else {
-                                    res.setBytes(bytes);
-                                }
+                                res.setBytes(bytes);
                             }
-                        } finally {
-                            IOUtils.closeQuietly(target);
-                            IOUtils.closeQuietly(output);
                         }
+                    } finally {
+                        IOUtils.closeQuietly(target);
+                        IOUtils.closeQuietly(output);
                     }
+                }
 
-                    if (ftpOK) {
-                        res.setResponseCodeOK();
-                        res.setResponseMessageOK();
-                        res.setSuccessful(true);
-                    } else {
-                        res.setResponseCode(Integer.toString(ftp.getReplyCode()));
-                        res.setResponseMessage(ftp.getReplyString());
-                    }
+                if (ftpOK) {
+                    res.setResponseCodeOK();
+                    res.setResponseMessageOK();
+                    res.setSuccessful(true);
                 } else {
                     res.setResponseCode(Integer.toString(ftp.getReplyCode()));
                     res.setResponseMessage(ftp.getReplyString());
                 }
-            } else {
-                res.setResponseCode("501");
-                String replyString = ftp.getReplyString();
-                if(StringUtils.isEmpty(replyString)) {
-                    res.setResponseMessage("Could not connect");
-                }
-                else {
-                    res.setResponseMessage(replyString);
-                }
+                keepConnection = reuseConnection;
             }
         } catch (IOException ex) {
             res.setResponseCode("000");
             res.setResponseMessage(ex.toString());
         } finally {
             savedClient = null;
-            if (ftp.isConnected()) {
-                try {
-                    ftp.logout();
-                } catch (IOException ignored) {
-                    // NOOP
-                }
-                try {
-                    ftp.disconnect();
-                } catch (IOException ignored) {
-                    // NOOP
-                }
-            }
             IOUtils.closeQuietly(input);
             IOUtils.closeQuietly(fileIS);
+            if (keepConnection && ftp.isConnected()) {
+                CONNECTIONS.get().put(connectionKey, ftp);
+            } else {
+                close(ftp);
+            }
         }
 
         res.sampleEnd();
@@ -331,6 +406,22 @@ public class FTPSampler extends AbstractSampler implements Interruptible {
         return client != null;
     }
 
+    @Override
+    public void threadStarted() {
+        // NOOP
+    }
+
+    /**
+     * Logs out of the connections kept open by the thread
+     */
+    @Override
+    public void threadFinished() {
+        Map<String, FTPClient> connections = CONNECTIONS.get();
+        connections.values().forEach(FTPSampler::close);
+        connections.clear();
+        CONNECTIONS.remove();
+    }
+
     /**
      * @see org.apache.jmeter.samplers.AbstractSampler#applies(org.apache.jmeter.config.ConfigTestElement)
      */
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.ftp.sampler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.FtpletResult;
+import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestFTPSampler extends JMeterTestCase {
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private FtpServer server;
+
+    private int port;
+
+    private void startServer(File home, int idleTimeoutSeconds) throws FtpException {
+        FtpServerFactory serverFactory = new FtpServerFactory();
+        ListenerFactory listenerFactory = new ListenerFactory();
+        listenerFactory.setPort(0);
+        listenerFactory.setIdleTimeout(idleTimeoutSeconds);
+        serverFactory.addListener("default", listenerFactory.createListener());
+
+        UserManager userManager = new PropertiesUserManagerFactory().createUserManager();
+        BaseUser user = new BaseUser();
+        user.setName("jmeter");
+        user.setPassword("secret");
+        user.setHomeDirectory(home.getAbsolutePath());
+        user.setAuthorities(Collections.singletonList(new WritePermission()));
+        userManager.save(user);
+        serverFactory.setUserManager(userManager);
+
+        serverFactory.setFtplets(Collections.singletonMap("counter", new DefaultFtplet() {
+            @Override
+            public FtpletResult onConnect(FtpSession session) throws FtpException, IOException {
+                connections.incrementAndGet();
+                return super.onConnect(session);
+            }
+        }));
+        server = serverFactory.createServer();
+        server.start();
+        port = serverFactory.getListener("default").getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private FTPSampler createSampler(boolean reuse) {
+        FTPSampler sampler = new FTPSampler();
+        sampler.setName("ftp");
+        sampler.setServer("localhost");
+        sampler.setPort(Integer.toString(port));
+        sampler.setProperty(ConfigTestElement.USERNAME, "jmeter");
+        sampler.setProperty(ConfigTestElement.PASSWORD, "secret");
+        sampler.setProperty(FTPSampler.REMOTE_FILENAME, "file.txt");
+        sampler.setProperty(FTPSampler.SAVE_RESPONSE, true);
+        sampler.setReuseConnection(reuse);
+        return sampler;
+    }
+
+    private static FTPSampler upload(FTPSampler sampler, String contents) {
+        sampler.setProperty(FTPSampler.UPLOAD_FILE, true);
+        sampler.setProperty(FTPSampler.INPUT_DATA, contents);
+        return sampler;
+    }
+
+    private static void assertDownloaded(String expected, SampleResult result) {
+        assertTrue(result.isSuccessful(), result.getResponseMessage());
+        assertEquals(expected, new String(result.getResponseData(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testConnectionIsReusedByTheThread(@TempDir File home) throws Exception {
+        startServer(home, 60);
+        FTPSampler put = upload(createSampler(true), "first");
+        FTPSampler get = createSampler(true);
+
+        SampleResult uploaded = put.sample(null);
+        assertTrue(uploaded.isSuccessful(), uploaded.getResponseMessage());
+        assertDownloaded("first", get.sample(null));
+        assertDownloaded("first", get.sample(null));
+        assertEquals(1, connections.get());
+
+        get.threadFinished();
+        assertDownloaded("first", get.sample(null));
+        assertEquals(2, connections.get());
+        get.threadFinished();
+    }
+
+    @Test
+    public void testConnectionIsClosedWithoutReuse(@TempDir File home) throws Exception {
+        startServer(home, 60);
+        FTPSampler put = upload(createSampler(false), "data");
+        FTPSampler get = createSampler(false);
+        assertTrue(put.sample(null).isSuccessful());
+        assertDownloaded("data", get.sample(null));
+        assertDownloaded("data", get.sample(null));
+        assertEquals(3, connections.get());
+    }
+
+    @Test
+    public void testReconnectsWhenTheServerClosedTheConnection(@TempDir File home) throws Exception {
+        startServer(home, 1);
+        FTPSampler put = upload(createSampler(true), "again");
+        assertTrue(put.sample(null).isSuccessful());
+        Thread.sleep(2500);
+        FTPSampler get = createSampler(true);
+        assertDownloaded("again", get.sample(null));
+        assertEquals(2, connections.get());
+        get.threadFinished();
+    }
+}
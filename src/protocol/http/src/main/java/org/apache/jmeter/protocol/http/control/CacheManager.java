@@ -78,12 +78,23 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
     public static final String CLEAR = "clearEachIteration"; // $NON-NLS-1$
     public static final String USE_EXPIRES = "useExpires"; // $NON-NLS-1$
     public static final String MAX_SIZE = "maxSize";  // $NON-NLS-1$
+    public static final String SHARED = "sharedCache";  // $NON-NLS-1$
     //-
 
+    /**
+     * Cache shared by all threads when {@link #SHARED} is set, created by the first shared manager
+     * started and dropped at test end, so that all the shared managers of a plan use the same one.
+     * Only holds entries that a shared cache may store, see {@link #isSharedCacheable(String, Header[])}.
+     * Expired entries are kept until evicted by size, as their validators are needed to revalidate them.
+     */
+    private static volatile SharedCache<CacheEntry> sharedCache;
+
     private transient InheritableThreadLocal<Map<String, CacheEntry>> threadCache;
 
     private transient boolean useExpires; // Cached value
 
+    private transient boolean useShared; // Cached value
+
     /**
      * used to share the cache between 2 cache managers
      * @see CacheManager#createCacheManagerProxy()
@@ -97,9 +108,10 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
         useExpires = false;
     }
 
-    CacheManager(Map<String, CacheEntry> localCache, boolean useExpires) {
+    CacheManager(Map<String, CacheEntry> localCache, boolean useExpires, boolean useShared) {
         this.localCache = localCache;
         this.useExpires = useExpires;
+        this.useShared = useShared;
     }
     public boolean getControlledByThread() {
         return getPropertyAsBoolean(CONTROLLED_BY_THREAD);
@@ -190,7 +202,9 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
             String url = conn.getURL().toString();
             String cacheControl = conn.getHeaderField(HTTPConstants.CACHE_CONTROL);
             String date = conn.getHeaderField(HTTPConstants.DATE);
-            setCache(lastModified, cacheControl, expires, etag, url, date, getVaryHeader(varyHeader, asHeaders(res.getRequestHeaders())));
+            Header[] requestHeaders = asHeaders(res.getRequestHeaders());
+            setCache(lastModified, cacheControl, expires, etag, url, date, getVaryHeader(varyHeader, requestHeaders),
+                    isSharedCacheable(cacheControl, requestHeaders));
         }
     }
 
@@ -222,6 +236,23 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
      *            result to decide if result is cacheable
      */
     public void saveDetails(HttpResponse method, HTTPSampleResult res) {
+        saveDetails(method, res, null);
+    }
+
+    /**
+     * Save the Last-Modified, Etag, and Expires headers if the result is
+     * cacheable. Version for Apache HttpClient implementation.
+     *
+     * @param method
+     *            {@link HttpResponse} to extract header information from
+     * @param res
+     *            result to decide if result is cacheable
+     * @param requestHeaders
+     *            headers of the request sent, used for Vary and Authorization,
+     *            or {@code null} to read them from the result, where they may not be
+     *            recorded depending on {@code sampleresult.request_capture}
+     */
+    public void saveDetails(HttpResponse method, HTTPSampleResult res, Header[] requestHeaders) {
         final String varyHeader = getHeader(method, HTTPConstants.VARY);
         if (isCacheable(res, varyHeader)){
             String lastModified = getHeader(method ,HTTPConstants.LAST_MODIFIED);
@@ -229,15 +260,40 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
             String etag = getHeader(method ,HTTPConstants.ETAG);
             String cacheControl = getHeader(method, HTTPConstants.CACHE_CONTROL);
             String date = getHeader(method, HTTPConstants.DATE);
+            Header[] sentHeaders = requestHeaders != null ? requestHeaders : asHeaders(res.getRequestHeaders());
             setCache(lastModified, cacheControl, expires, etag,
-                    res.getUrlAsString(), date, getVaryHeader(varyHeader,
-                            asHeaders(res.getRequestHeaders()))); // TODO correct URL?
+                    res.getUrlAsString(), date, getVaryHeader(varyHeader, sentHeaders),
+                    isSharedCacheable(cacheControl, sentHeaders)); // TODO correct URL?
+        }
+    }
+
+    /*
+     * Can the response be stored in the cache shared by all threads?
+     * Responses varying on request headers, marked private, or answering an authenticated
+     * request without being explicitly public stay in the cache of the thread.
+     */
+    private boolean isSharedCacheable(String cacheControl, Header[] requestHeaders) {
+        if (!useShared) {
+            return false;
+        }
+        if (cacheControl != null && cacheControl.contains("private")) { // $NON-NLS-1$
+            return false;
+        }
+        boolean explicitlyPublic = cacheControl != null
+                && (cacheControl.contains("public") || cacheControl.contains("s-maxage")); // $NON-NLS-1$ // $NON-NLS-2$
+        if (!explicitlyPublic) {
+            for (Header header : requestHeaders) {
+                if (HTTPConstants.HEADER_AUTHORIZATION.equalsIgnoreCase(header.getName())) {
+                    return false;
+                }
+            }
         }
+        return true;
     }
 
     // helper method to save the cache entry
     private void setCache(String lastModified, String cacheControl, String expires,
-            String etag, String url, String date, Pair<String, String> varyHeader) {
+            String etag, String url, String date, Pair<String, String> varyHeader, boolean shareable) {
         log.debug("setCache({}, {}, {}, {}, {}, {}, {})", lastModified,
                 cacheControl, expires, etag, url, date, varyHeader);
         Date expiresDate = null; // i.e. not using Expires
@@ -268,6 +324,14 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
             getCache().put(url, new CacheEntry(lastModified, expiresDate, etag, varyHeader.getLeft()));
             getCache().put(varyUrl(url, varyHeader.getLeft(), varyHeader.getRight()), new CacheEntry(lastModified, expiresDate, etag, null));
         } else {
+            SharedCache<CacheEntry> shared = sharedCache;
+            if (shareable && shared != null) {
+                CacheEntry cacheEntry = new CacheEntry(lastModified, expiresDate, etag, null);
+                log.debug("Set entry {} into shared cache for url {}", cacheEntry, url);
+                // The latest response has the freshest validators
+                shared.put(url, cacheEntry);
+                return;
+            }
             if (getCache().get(url) != null) {
                 log.debug("Entry for {} already in cache.", url);
                 return;
@@ -520,6 +584,10 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
 
     private CacheEntry getEntry(String url, Header[] headers) {
         CacheEntry entry = getCache().get(url);
+        SharedCache<CacheEntry> shared = sharedCache;
+        if (entry == null && useShared && shared != null) {
+            entry = shared.get(url);
+        }
         log.debug("getEntry url:{} entry:{} header:{}", url, entry, headers);
         if (entry == null) {
             log.debug("No entry found for url {}", url);
@@ -583,6 +651,20 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
         setProperty(MAX_SIZE, size, DEFAULT_MAX_SIZE);
     }
 
+    /**
+     * @return true if publicly cacheable responses are cached once for all threads
+     */
+    public boolean getSharedCache() {
+        return getPropertyAsBoolean(SHARED, false);
+    }
+
+    /**
+     * @param shared true to cache publicly cacheable responses once for all threads
+     */
+    public void setSharedCache(boolean shared) {
+        setProperty(SHARED, shared, false);
+    }
+
 
     @Override
     public void clear(){
@@ -609,15 +691,39 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
      * @since 3.0
      */
     public CacheManager createCacheManagerProxy() {
-        return new CacheManager(getCache(), this.useExpires);
+        return new CacheManager(getCache(), this.useExpires, this.useShared);
     }
 
     @Override
     public void testStarted() {
+        if (getSharedCache()) {
+            createSharedCache(getMaxSize());
+        }
+    }
+
+    private static synchronized void createSharedCache(int maxSize) {
+        if (sharedCache == null) {
+            sharedCache = new SharedCache<>("CacheManager", maxSize, entry -> SharedCache.NO_EXPIRY); // $NON-NLS-1$
+        }
     }
 
     @Override
     public void testEnded() {
+        if (getSharedCache()) {
+            SharedCache<CacheEntry> shared = releaseSharedCache();
+            if (shared != null) {
+                log.info("Shared HTTP cache statistics: {}", shared);
+            }
+        }
+    }
+
+    /**
+     * @return the shared cache, now dropped, or {@code null} if another manager already dropped it
+     */
+    private static synchronized SharedCache<CacheEntry> releaseSharedCache() {
+        SharedCache<CacheEntry> shared = sharedCache;
+        sharedCache = null;
+        return shared;
     }
 
     @Override
@@ -636,6 +742,11 @@ public class CacheManager extends ConfigTestElement implements TestStateListener
             clearCache();
         }
         useExpires = getUseExpires(); // cache the value
+        useShared = getSharedCache();
+        SharedCache<CacheEntry> shared = sharedCache;
+        if (useShared && shared != null) {
+            shared.publish(jMeterVariables);
+        }
     }
 
 }
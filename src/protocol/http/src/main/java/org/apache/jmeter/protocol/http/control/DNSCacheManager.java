@@ -25,18 +25,21 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.conn.DnsResolver;
 import org.apache.http.impl.conn.SystemDefaultDnsResolver;
 import org.apache.jmeter.config.ConfigTestElement;
 import org.apache.jmeter.engine.event.LoopIterationEvent;
 import org.apache.jmeter.testelement.TestIterationListener;
+import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.testelement.property.CollectionProperty;
 import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.NullProperty;
 import org.apache.jmeter.testelement.property.TestElementProperty;
 import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xbill.DNS.ARecord;
@@ -55,10 +58,15 @@ import org.xbill.DNS.Type;
  * custom resolver can be used. Custom resolver uses dnsjava library, and gives
  * ability to bypass both OS and JVM cache. It allows to use paradigm
  * "1 virtual user - 1 DNS cache" in performance tests.
+ * <p>
+ * In shared mode, answers for hosts that are not static hosts are cached once
+ * for all threads and expire after their DNS TTL (custom resolver) or after
+ * {@code dns_cache_manager.shared.ttl} milliseconds (system resolver).
  *
  * @since 2.12
  */
-public class DNSCacheManager extends ConfigTestElement implements TestIterationListener, Serializable, DnsResolver {
+public class DNSCacheManager extends ConfigTestElement
+        implements TestIterationListener, TestStateListener, Serializable, DnsResolver {
 
     private static final long serialVersionUID = 2122L;
 
@@ -74,10 +82,37 @@ public class DNSCacheManager extends ConfigTestElement implements TestIterationL
     private static final String HOSTS = "DNSCacheManager.hosts"; // $NON-NLS-1$
 
     private static final String IS_CUSTOM_RESOLVER = "DNSCacheManager.isCustomResolver"; // $NON-NLS-1$
+
+    private static final String SHARED = "DNSCacheManager.shared"; // $NON-NLS-1$
     //-- JMX tag values
 
     private static final boolean DEFAULT_IS_CUSTOM_RESOLVER = false;
 
+    public static final boolean DEFAULT_SHARED = false;
+
+    private static final long SHARED_SYSTEM_TTL_MS =
+            JMeterUtils.getPropDefault("dns_cache_manager.shared.ttl", 30000L); // $NON-NLS-1$
+
+    private static final int SHARED_MAX_SIZE =
+            JMeterUtils.getPropDefault("dns_cache_manager.shared.max_size", 10000); // $NON-NLS-1$
+
+    /**
+     * Cache shared by all threads in shared mode, created by the first shared manager started
+     * and dropped at test end, so that all the shared managers of a plan use the same one
+     */
+    private static volatile SharedCache<TimedAddresses> sharedCache;
+
+    /** Addresses resolved for a host, with the time they may be cached for */
+    private static final class TimedAddresses {
+        private final InetAddress[] addresses;
+        private final long ttlNanos;
+
+        TimedAddresses(InetAddress[] addresses, long ttlNanos) {
+            this.addresses = addresses;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
     private final transient Cache lookupCache;
 
     private final transient SystemDefaultDnsResolver systemDefaultDnsResolver;
@@ -90,6 +125,9 @@ public class DNSCacheManager extends ConfigTestElement implements TestIterationL
 
     transient boolean initFailed;
 
+    /** Smallest TTL of the records returned by the last custom lookup, -1 if unknown */
+    private transient long lastLookupTtlSeconds = -1;
+
     // ensure that the initial DNSServers are copied to the per-thread instances
 
     public DNSCacheManager() {
@@ -140,6 +178,10 @@ public class DNSCacheManager extends ConfigTestElement implements TestIterationL
      */
     @Override
     public InetAddress[] resolve(String host) throws UnknownHostException {
+        SharedCache<TimedAddresses> shared = sharedCache;
+        if (shared != null && isShared() && !isStaticHost(host)) {
+            return resolveShared(shared, host);
+        }
         InetAddress[] result = cache.get(host);
         // cache may contain null.
         // A return value of null does not necessarily
@@ -163,6 +205,24 @@ public class DNSCacheManager extends ConfigTestElement implements TestIterationL
         }
     }
 
+    private InetAddress[] resolveShared(SharedCache<TimedAddresses> shared, String host) throws UnknownHostException {
+        TimedAddresses cached = shared.get(host);
+        if (cached != null) {
+            logCache("shared hit", host, cached.addresses);
+            return cached.addresses;
+        }
+        lastLookupTtlSeconds = -1;
+        InetAddress[] addresses = requestLookup(host);
+        logCache("shared miss", host, addresses);
+        if (addresses != null) {
+            long ttlNanos = lastLookupTtlSeconds >= 0
+                    ? TimeUnit.SECONDS.toNanos(lastLookupTtlSeconds)
+                    : SharedCache.millisToNanos(SHARED_SYSTEM_TTL_MS);
+            shared.put(host, new TimedAddresses(addresses, ttlNanos));
+        }
+        return addresses;
+    }
+
     private void logCache(String hitOrMiss, String host, InetAddress[] addresses) {
         if (log.isDebugEnabled()) {
             log.debug("Cache {} thread#{}: {} => {}", hitOrMiss, JMeterContextService.getContext().getThreadNum(), host,
@@ -273,9 +333,12 @@ public class DNSCacheManager extends ConfigTestElement implements TestIterationL
                 throw new UnknownHostException("Failed to resolve host name: " + host);
             }
             addresses = new InetAddress[records.length];
+            long minTtl = Long.MAX_VALUE;
             for (int i = 0; i < records.length; i++) {
                 addresses[i] = ((ARecord) records[i]).getAddress();
+                minTtl = Math.min(minTtl, records[i].getTTL());
             }
+            lastLookupTtlSeconds = minTtl;
         } catch (TextParseException tpe) { // NOSONAR Exception handled
             log.debug("Failed to create Lookup object for host:{}, error message:{}", host, tpe.toString());
         }
@@ -302,6 +365,52 @@ public class DNSCacheManager extends ConfigTestElement implements TestIterationL
         if (isClearEachIteration()) {
             this.cache.clear();
         }
+        SharedCache<TimedAddresses> shared = sharedCache;
+        if (shared != null && isShared()) {
+            shared.publish(JMeterContextService.getContext().getVariables());
+        }
+    }
+
+    @Override
+    public void testStarted() {
+        if (isShared()) {
+            createSharedCache();
+        }
+    }
+
+    private static synchronized void createSharedCache() {
+        if (sharedCache == null) {
+            sharedCache = new SharedCache<>("DNSCacheManager", SHARED_MAX_SIZE, a -> a.ttlNanos); // $NON-NLS-1$
+        }
+    }
+
+    /**
+     * @return the shared cache, now dropped, or {@code null} if another manager already dropped it
+     */
+    private static synchronized SharedCache<TimedAddresses> releaseSharedCache() {
+        SharedCache<TimedAddresses> shared = sharedCache;
+        sharedCache = null;
+        return shared;
+    }
+
+    @Override
+    public void testStarted(String host) {
+        testStarted();
+    }
+
+    @Override
+    public void testEnded() {
+        if (isShared()) {
+            SharedCache<TimedAddresses> shared = releaseSharedCache();
+            if (shared != null) {
+                log.info("Shared DNS cache statistics: {}", shared);
+            }
+        }
+    }
+
+    @Override
+    public void testEnded(String host) {
+        testEnded();
     }
 
     /**
@@ -394,6 +503,20 @@ public class DNSCacheManager extends ConfigTestElement implements TestIterationL
         this.setProperty(IS_CUSTOM_RESOLVER, isCustomResolver);
     }
 
+    /**
+     * @return true if resolved addresses are cached once for all threads
+     */
+    public boolean isShared() {
+        return this.getPropertyAsBoolean(SHARED, DEFAULT_SHARED);
+    }
+
+    /**
+     * @param shared true to cache resolved addresses once for all threads
+     */
+    public void setShared(boolean shared) {
+        this.setProperty(SHARED, shared, DEFAULT_SHARED);
+    }
+
     /**
      * Sets DNS resolution timeout.
      *
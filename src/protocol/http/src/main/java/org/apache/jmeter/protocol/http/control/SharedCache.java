@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.control;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import org.apache.jmeter.threads.JMeterVariables;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+/**
+ * Size-bounded cache shared by all the threads of a test, used by the shared mode
+ * of {@link CacheManager} and {@link DNSCacheManager}.
+ * <p>
+ * Each entry expires after its own time to live, computed when it is stored.
+ * Hits, misses and evictions are counted and can be published as thread variables
+ * so they can be saved with samples through {@code sample_variables}.
+ *
+ * @param <V> type of the cached values
+ */
+final class SharedCache<V> {
+
+    /** Time to live meaning the entry is only evicted by size */
+    static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private final String name;
+    private final Cache<String, V> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param name       prefix of the variables published by {@link #publish(JMeterVariables)}
+     * @param maxSize    maximum number of entries
+     * @param ttlNanos   computes the time to live of an entry, {@link #NO_EXPIRY} for none
+     */
+    SharedCache(String name, int maxSize, ToLongFunction<V> ttlNanos) {
+        this.name = name;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, V>() {
+                    @Override
+                    public long expireAfterCreate(String key, V value, long currentTime) {
+                        return ttlNanos.applyAsLong(value);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, V value, long currentTime, long currentDuration) {
+                        return ttlNanos.applyAsLong(value);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, V value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String key, V value, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * @param key key to look up
+     * @return the cached value or {@code null}
+     */
+    V get(String key) {
+        V value = cache.getIfPresent(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    void put(String key, V value) {
+        cache.put(key, value);
+    }
+
+    /**
+     * Store the value unless an entry is already present for the key
+     */
+    void putIfAbsent(String key, V value) {
+        cache.asMap().putIfAbsent(key, value);
+    }
+
+    long size() {
+        return cache.estimatedSize();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Publish the counters as {@code <name>.hits}, {@code <name>.misses} and {@code <name>.evictions}
+     *
+     * @param variables variables of the current thread
+     */
+    void publish(JMeterVariables variables) {
+        if (variables != null) {
+            variables.put(name + ".hits", Long.toString(getHits())); // $NON-NLS-1$
+            variables.put(name + ".misses", Long.toString(getMisses())); // $NON-NLS-1$
+            variables.put(name + ".evictions", Long.toString(getEvictions())); // $NON-NLS-1$
+        }
+    }
+
+    /**
+     * @param millis a duration in milliseconds, may be negative
+     * @return the duration in nanoseconds, never negative
+     */
+    static long millisToNanos(long millis) {
+        return millis <= 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public String toString() {
+        return name + " [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + "]";
+    }
+}
@@ -48,6 +48,7 @@ public class CacheManagerGui extends AbstractConfigGui implements ActionListener
     private JCheckBox useExpires;
     private JTextField maxCacheSize;
     private JCheckBox controlledByThreadGroup;
+    private JCheckBox sharedCache;
 
     public CacheManagerGui() {
         init();
@@ -66,6 +67,7 @@ public class CacheManagerGui extends AbstractConfigGui implements ActionListener
         maxCacheSize.setText(Integer.toString(cacheManager.getMaxSize()));
         controlledByThreadGroup.setSelected(cacheManager.getControlledByThread());
         clearEachIteration.setSelected(cacheManager.getClearEachIteration());
+        sharedCache.setSelected(cacheManager.getSharedCache());
     }
 
     @Override
@@ -84,6 +86,7 @@ public class CacheManagerGui extends AbstractConfigGui implements ActionListener
         cacheManager.setClearEachIteration(clearEachIteration.isSelected());
         cacheManager.setUseExpires(useExpires.isSelected());
         cacheManager.setControlledByThread(controlledByThreadGroup.isSelected());
+        cacheManager.setSharedCache(sharedCache.isSelected());
         try {
             cacheManager.setMaxSize(Integer.parseInt(maxCacheSize.getText()));
         } catch (NumberFormatException ignored) {
@@ -101,6 +104,7 @@ public class CacheManagerGui extends AbstractConfigGui implements ActionListener
         useExpires.setSelected(true);
         maxCacheSize.setText(""); //$NON-NLS-1$
         controlledByThreadGroup.setSelected(false);
+        sharedCache.setSelected(false);
     }
 
     /**
@@ -120,12 +124,15 @@ public class CacheManagerGui extends AbstractConfigGui implements ActionListener
 
         useExpires = new JCheckBox(JMeterUtils.getResString("use_expires"), false); // $NON-NLS-1$
 
+        sharedCache = new JCheckBox(JMeterUtils.getResString("cache_manager_shared"), false); // $NON-NLS-1$
+
         JPanel northPanel = new JPanel();
         northPanel.setLayout(new VerticalLayout(5, VerticalLayout.BOTH));
         northPanel.add(makeTitlePanel());
         northPanel.add(clearEachIteration);
         northPanel.add(controlledByThreadGroup);
         northPanel.add(useExpires);
+        northPanel.add(sharedCache);
 
         JLabel label = new JLabel(JMeterUtils.getResString("cache_manager_size")); //$NON-NLS-1$
 
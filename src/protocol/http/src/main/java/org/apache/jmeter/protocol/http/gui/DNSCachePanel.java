@@ -116,6 +116,8 @@ public class DNSCachePanel extends AbstractConfigGui implements ActionListener {
 
     private JCheckBox clearEachIteration;
 
+    private JCheckBox sharedCache;
+
     /**
      * Default constructor.
      */
@@ -150,6 +152,7 @@ public class DNSCachePanel extends AbstractConfigGui implements ActionListener {
                 dnsCacheManager.addHost(host, addresses);
             }
             dnsCacheManager.setClearEachIteration(clearEachIteration.isSelected());
+            dnsCacheManager.setShared(sharedCache.isSelected());
             if (providerDNSradioGroup.isSelected(custResButton.getModel())) {
                 dnsCacheManager.setCustomResolver(true);
             } else {
@@ -165,6 +168,7 @@ public class DNSCachePanel extends AbstractConfigGui implements ActionListener {
     public void clearGui() {
         super.clearGui();
         clearEachIteration.setSelected(DNSCacheManager.DEFAULT_CLEAR_CACHE_EACH_ITER);
+        sharedCache.setSelected(DNSCacheManager.DEFAULT_SHARED);
         providerDNSradioGroup.setSelected(sysResButton.getModel(), true);
         dnsServersTableModel.clearData();
         deleteButton.setEnabled(false);
@@ -202,6 +206,7 @@ public class DNSCachePanel extends AbstractConfigGui implements ActionListener {
         populateTable(dnsCacheManager);
         populateHostsTable(dnsCacheManager);
         clearEachIteration.setSelected(dnsCacheManager.isClearEachIteration());
+        sharedCache.setSelected(dnsCacheManager.isShared());
         if (dnsCacheManager.isCustomResolver()) {
             providerDNSradioGroup.setSelected(custResButton.getModel(), true);
             deleteButton.setEnabled(dnsServersTable.getColumnCount() > 0);
@@ -218,6 +223,7 @@ public class DNSCachePanel extends AbstractConfigGui implements ActionListener {
         dnsHostsTableModel = new PowerTableModel(HOSTS_COLUMN_RESOURCE_NAMES, HOSTS_COLUMN_CLASSES);
 
         clearEachIteration = new JCheckBox(JMeterUtils.getResString("clear_cache_each_iteration"), true); //$NON-NLS-1$
+        sharedCache = new JCheckBox(JMeterUtils.getResString("dns_cache_shared"), false); //$NON-NLS-1$
         setLayout(new BorderLayout());
         setBorder(makeBorder());
         JPanel northPanel = new JPanel();
@@ -227,6 +233,7 @@ public class DNSCachePanel extends AbstractConfigGui implements ActionListener {
         optionsPane.setBorder(BorderFactory.createTitledBorder(OPTIONS)); // $NON-NLS-1$
         optionsPane.setLayout(new VerticalLayout(5, VerticalLayout.BOTH));
         optionsPane.add(clearEachIteration, BorderLayout.WEST);
+        optionsPane.add(sharedCache);
         optionsPane.add(createChooseResPanel(), BorderLayout.SOUTH);
         northPanel.add(optionsPane);
         add(northPanel, BorderLayout.NORTH);
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.jmeter.protocol.http.control.AuthManager;
+import org.apache.jmeter.protocol.http.control.CookieManager;
+import org.apache.jmeter.protocol.http.sampler.h2.Http2Connection;
+import org.apache.jmeter.protocol.http.sampler.h2.Http2Connections;
+import org.apache.jmeter.protocol.http.sampler.h2.Http2NotSupportedException;
+import org.apache.jmeter.protocol.http.sampler.h2.Http2Stream;
+import org.apache.jmeter.protocol.http.sampler.h2.Http2StreamRefusedException;
+import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP/2 sampler implementation.
+ * <p>
+ * The requests of all the threads are multiplexed on the connections shared through
+ * {@link Http2Connections}: h2 negotiated with ALPN for https, prior knowledge (h2c) for http.
+ * The request is built as with HttpClient 4 (headers, cookies, body), so the samplers
+ * behave the same whatever the protocol.
+ * Servers that do not speak HTTP/2, and requests through a proxy, are sent with
+ * HttpClient 4 unless {@code http2.fallback_to_http1} is false.
+ */
+public class HTTP2Impl extends HTTPHC4Impl {
+    private static final Logger log = LoggerFactory.getLogger(HTTP2Impl.class);
+
+    private static final boolean FALLBACK_TO_HTTP1 =
+            JMeterUtils.getPropDefault("http2.fallback_to_http1", true); // $NON-NLS-1$
+
+    /** Fields forbidden in HTTP/2 or replaced by pseudo-header fields, RFC 7540 section 8.1.2.2 */
+    private static final Set<String> CONNECTION_SPECIFIC_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade", // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$ $NON-NLS-4$ $NON-NLS-5$
+            "host", "content-length")); // $NON-NLS-1$ $NON-NLS-2$
+
+    private static final String HTTP2_VERSION = "HTTP/2"; // $NON-NLS-1$
+
+    private volatile Http2Stream currentStream; // Accessed from multiple threads
+
+    protected HTTP2Impl(HTTPSamplerBase testElement) {
+        super(testElement);
+    }
+
+    @Override
+    protected HTTPSampleResult sample(URL url, String method, boolean areFollowingRedirect, int frameDepth) {
+        if (isHttp1(url)) {
+            return super.sample(url, method, areFollowingRedirect, frameDepth);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Start : sample {} method {} followingRedirect {} depth {}",
+                    url, method, areFollowingRedirect, frameDepth);
+        }
+        HTTPSampleResult res = createSampleResult(url, method);
+        HttpRequestBase request;
+        try {
+            request = createHttpRequest(url.toURI(), method, areFollowingRedirect);
+            setupRequest(url, request, res); // can throw IOException
+        } catch (Exception e) {
+            res.sampleStart();
+            res.sampleEnd();
+            errorResult(e, res);
+            return res;
+        }
+
+        res.sampleStart();
+        long startNanos = System.nanoTime();
+        try {
+            handleMethod(method, res, request, null);
+            // HTTP/2 connections are always persistent
+            request.removeHeaders(HTTPConstants.HEADER_CONNECTION);
+            byte[] body = getBody(request);
+            List<String[]> fields = createFields(url, method, request, body);
+            captureRequestHeaders(res, request);
+
+            Http2Stream stream = exchange(url, fields, body, res);
+
+            int statusCode = stream.getStatus();
+            String reason = EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ENGLISH);
+            if (reason == null) {
+                reason = ""; // $NON-NLS-1$
+            }
+            String contentType = stream.getHeader("content-type"); // $NON-NLS-1$
+            if (contentType != null) {
+                res.setContentType(contentType);
+                res.setEncodingAndType(contentType);
+            }
+            byte[] data = stream.getBody();
+            res.setResponseData(readResponse(res, decode(stream.getHeader("content-encoding"), data), // $NON-NLS-1$
+                    data.length));
+
+            res.sampleEnd(); // Done with the sampling proper.
+            res.setLatency(TimeUnit.NANOSECONDS.toMillis(stream.getHeadersNanos() - startNanos));
+
+            res.setResponseCode(Integer.toString(statusCode));
+            res.setResponseMessage(reason);
+            res.setSuccessful(isSuccessCode(statusCode));
+            res.setResponseHeaders(getResponseHeaders(stream, reason));
+            if (res.isRedirect()) {
+                String location = stream.getHeader("location"); // $NON-NLS-1$
+                if (location == null) { // HTTP protocol violation, but avoids NPE
+                    throw new IllegalArgumentException("Missing location header in redirect for " + method + " " + url);
+                }
+                res.setRedirectLocation(location);
+            }
+
+            // Sizes on the wire: compressed header blocks and DATA frames
+            res.setHeadersSize((int) stream.getReceivedHeaderBytes());
+            res.setBodySize(stream.getReceivedDataBytes());
+            res.setSentBytes(stream.getSentBytes());
+
+            saveConnectionCookies(stream, url, getCookieManager());
+
+            // Follow redirects and download page resources if appropriate:
+            res = resultProcessing(areFollowingRedirect, frameDepth, res);
+        } catch (Http2NotSupportedException e) {
+            if (FALLBACK_TO_HTTP1) {
+                log.info("Falling back to HTTP/1.1 for {}://{}: {}", url.getProtocol(), url.getAuthority(), e.getMessage());
+                return super.sample(url, method, areFollowingRedirect, frameDepth);
+            }
+            return fail(res, e);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Exception during HTTP/2 sample", e);
+            return fail(res, e);
+        }
+        log.debug("End : sample");
+        return res;
+    }
+
+    private HTTPSampleResult fail(HTTPSampleResult res, Exception e) {
+        if (res.getEndTime() == 0) {
+            res.sampleEnd();
+        }
+        return errorResult(e, res);
+    }
+
+    private boolean isHttp1(URL url) {
+        if (!HTTPConstants.PROTOCOL_HTTP.equalsIgnoreCase(url.getProtocol())
+                && !HTTPConstants.PROTOCOL_HTTPS.equalsIgnoreCase(url.getProtocol())) {
+            return true;
+        }
+        if (!FALLBACK_TO_HTTP1) {
+            return false;
+        }
+        // Requests through a proxy are left to HttpClient 4
+        return isStaticProxy(url.getHost()) || isDynamicProxy(getProxyHost(), getProxyPortInt())
+                || Http2Connections.isHttp1Only(url);
+    }
+
+    /**
+     * Send the request, once again on another connection if the server refused the stream
+     * without processing it
+     */
+    private Http2Stream exchange(URL url, List<String[]> fields, byte[] body, HTTPSampleResult res)
+            throws IOException {
+        Http2StreamRefusedException refused = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Http2Connection connection = Http2Connections.get(url, getConnectTimeout(), getIpSourceAddress(),
+                    testElement.getDNSResolver());
+            if (attempt == 0) {
+                res.connectEnd();
+            }
+            try {
+                Http2Stream stream = connection.send(fields, body);
+                currentStream = stream;
+                stream.await(getResponseTimeout());
+                return stream;
+            } catch (Http2StreamRefusedException e) {
+                log.debug("Request refused, retrying: {}", e.getMessage());
+                refused = e;
+            } finally {
+                currentStream = null;
+            }
+        }
+        throw refused;
+    }
+
+    private static byte[] getBody(HttpRequestBase request) throws IOException {
+        if (!(request instanceof HttpEntityEnclosingRequestBase)) {
+            return null;
+        }
+        HttpEntityEnclosingRequestBase entityRequest = (HttpEntityEnclosingRequestBase) request;
+        HttpEntity entity = entityRequest.getEntity();
+        if (entity == null) {
+            return null;
+        }
+        if (entity.getContentType() != null && entityRequest.getFirstHeader(HTTPConstants.HEADER_CONTENT_TYPE) == null) {
+            entityRequest.addHeader(entity.getContentType());
+        }
+        long length = entity.getContentLength();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 && length < Integer.MAX_VALUE ? (int) length : 1024);
+        entity.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private List<String[]> createFields(URL url, String method, HttpRequestBase request, byte[] body) {
+        Header[] headers = request.getAllHeaders();
+        List<String[]> fields = new ArrayList<>(headers.length + 6);
+        Header host = request.getLastHeader(HTTPConstants.HEADER_HOST);
+        String authority = host != null ? host.getValue()
+                : url.getPort() == -1 || url.getPort() == url.getDefaultPort() ? url.getHost()
+                : url.getHost() + ":" + url.getPort();
+        String path = url.getFile();
+        fields.add(new String[]{":method", method}); // $NON-NLS-1$
+        fields.add(new String[]{":scheme", url.getProtocol().toLowerCase(Locale.ROOT)}); // $NON-NLS-1$
+        fields.add(new String[]{":authority", authority}); // $NON-NLS-1$
+        fields.add(new String[]{":path", path.isEmpty() ? "/" : path}); // $NON-NLS-1$ $NON-NLS-2$
+        boolean hasAuthorization = false;
+        for (Header header : headers) {
+            String name = header.getName().toLowerCase(Locale.ROOT);
+            if (CONNECTION_SPECIFIC_HEADERS.contains(name)
+                    || ("te".equals(name) && !"trailers".equalsIgnoreCase(header.getValue()))) { // $NON-NLS-1$ $NON-NLS-2$
+                continue;
+            }
+            hasAuthorization |= "authorization".equals(name); // $NON-NLS-1$
+            fields.add(new String[]{name, header.getValue()});
+        }
+        AuthManager authManager = getAuthManager();
+        if (!hasAuthorization && authManager != null) {
+            String authorization = authManager.getAuthHeaderForURL(url);
+            if (authorization != null) {
+                request.addHeader(HTTPConstants.HEADER_AUTHORIZATION, authorization);
+                fields.add(new String[]{"authorization", authorization}); // $NON-NLS-1$
+            }
+        }
+        if (body != null) {
+            fields.add(new String[]{"content-length", Integer.toString(body.length)}); // $NON-NLS-1$
+        }
+        return fields;
+    }
+
+    private static InputStream decode(String contentEncoding, byte[] data) throws IOException {
+        InputStream in = new ByteArrayInputStream(data);
+        if (contentEncoding == null || data.length == 0) {
+            return in;
+        }
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip": // $NON-NLS-1$
+            case "x-gzip": // $NON-NLS-1$
+                return GZIP.create(in);
+            case "deflate": // $NON-NLS-1$
+                return DEFLATE.create(in);
+            case "br": // $NON-NLS-1$
+                return BROTLI.create(in);
+            default:
+                return in;
+        }
+    }
+
+    private static String getResponseHeaders(Http2Stream stream, String reason) {
+        List<String[]> fields = stream.getHeaders();
+        StringBuilder headerBuf = new StringBuilder(40 * (fields.size() + 1));
+        headerBuf.append(HTTP2_VERSION).append(' ').append(stream.getStatus());
+        if (!reason.isEmpty()) {
+            headerBuf.append(' ').append(reason);
+        }
+        headerBuf.append('\n'); // $NON-NLS-1$
+        for (String[] field : fields) {
+            if (!field[0].startsWith(":")) { // $NON-NLS-1$
+                headerBuf.append(field[0]).append(": ").append(field[1]).append('\n'); // $NON-NLS-1$
+            }
+        }
+        return headerBuf.toString();
+    }
+
+    private static void saveConnectionCookies(Http2Stream stream, URL url, CookieManager cookieManager) {
+        if (cookieManager != null) {
+            for (String[] field : stream.getHeaders()) {
+                if ("set-cookie".equals(field[0])) { // $NON-NLS-1$
+                    cookieManager.addCookieFromHeader(field[1], url);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean interrupt() {
+        Http2Stream stream = currentStream;
+        if (stream != null) {
+            currentStream = null; // don't try twice
+            stream.cancel();
+        }
+        return super.interrupt() || stream != null;
+    }
+}
@@ -40,6 +40,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import javax.security.auth.Subject;
@@ -148,11 +149,15 @@ import org.apache.jmeter.protocol.http.control.HeaderManager;
 import org.apache.jmeter.protocol.http.sampler.hc.LaxDeflateInputStream;
 import org.apache.jmeter.protocol.http.sampler.hc.LaxGZIPInputStream;
 import org.apache.jmeter.protocol.http.sampler.hc.LazyLayeredConnectionSocketFactory;
+import org.apache.jmeter.protocol.http.sampler.hc.MappedFileEntity;
+import org.apache.jmeter.protocol.http.sampler.hc.MappedFiles;
+import org.apache.jmeter.protocol.http.sampler.hc.RequestBodyCache;
 import org.apache.jmeter.protocol.http.util.EncoderCache;
 import org.apache.jmeter.protocol.http.util.HTTPArgument;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
 import org.apache.jmeter.protocol.http.util.HTTPFileArg;
 import org.apache.jmeter.protocol.http.util.SlowHCPlainConnectionSocketFactory;
+import org.apache.jmeter.samplers.RequestCapturePolicy;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.property.CollectionProperty;
@@ -199,13 +204,13 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
     private static final Logger log = LoggerFactory.getLogger(HTTPHC4Impl.class);
 
-    private static final InputStreamFactory GZIP =
+    static final InputStreamFactory GZIP =
             instream -> new LaxGZIPInputStream(instream, GZIP_RELAX_MODE);
 
-    private static final InputStreamFactory DEFLATE =
+    static final InputStreamFactory DEFLATE =
             instream -> new LaxDeflateInputStream(instream, DEFLATE_RELAX_MODE);
 
-    private static final InputStreamFactory BROTLI = BrotliInputStream::new;
+    static final InputStreamFactory BROTLI = BrotliInputStream::new;
 
     private static final class ManagedCredentialsProvider implements CredentialsProvider {
         private AuthManager authManager;
@@ -405,6 +410,34 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
                 if (sample != null) {
                     sample.connectEnd();
                 }
+                setHandshakeTime(sample, context);
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see org.apache.http.impl.conn.DefaultHttpClientConnectionOperator#upgrade(
+         *  org.apache.http.conn.ManagedHttpClientConnection, org.apache.http.HttpHost,
+         *      org.apache.http.protocol.HttpContext)
+         */
+        @Override
+        public void upgrade(ManagedHttpClientConnection conn, HttpHost host, HttpContext context) throws IOException {
+            try {
+                super.upgrade(conn, host, context);
+            } finally {
+                setHandshakeTime(
+                        (SampleResult)context.getAttribute(HTTPHC4Impl.CONTEXT_ATTRIBUTE_SAMPLER_RESULT), context);
+            }
+        }
+
+        /**
+         * Move the duration of the TLS handshake made for the connection to the sample
+         */
+        private static void setHandshakeTime(SampleResult sample, HttpContext context) {
+            Long handshakeTime = (Long) context.removeAttribute(
+                    LazyLayeredConnectionSocketFactory.CONTEXT_ATTRIBUTE_HANDSHAKE_TIME);
+            if (handshakeTime != null && sample instanceof HTTPSampleResult) {
+                HTTPSampleResult httpSample = (HTTPSampleResult) sample;
+                httpSample.setTlsHandshakeTime(httpSample.getTlsHandshakeTime() + handshakeTime);
             }
         }
     }
@@ -530,6 +563,13 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
     private static final ViewableFileBody[] EMPTY_FILE_BODIES = new ViewableFileBody[0];
 
+    private static final Supplier<String> NO_BODY = () -> ""; // $NON-NLS-1$
+
+    // Kinds of the bodies shared through RequestBodyCache
+    private static final String VALUES_BODY = "hc4.values"; // $NON-NLS-1$
+    private static final String ENTITY_VALUES_BODY = "hc4.entity_values"; // $NON-NLS-1$
+    private static final String FORM_BODY = "hc4.form"; // $NON-NLS-1$
+
     static {
         log.info("HTTP request retry count = {}", RETRY_COUNT);
 
@@ -655,7 +695,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
             if (localAddress != null) {
                 request.addHeader(HEADER_LOCAL_ADDRESS, localAddress.toString());
             }
-            res.setRequestHeaders(getAllHeadersExceptCookie(request));
+            captureRequestHeaders(res, request);
 
             Header contentType = httpResponse.getLastHeader(HTTPConstants.HEADER_CONTENT_TYPE);
             if (contentType != null){
@@ -719,9 +759,9 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
             // Store any cookies received in the cookie manager:
             saveConnectionCookies(httpResponse, res.getURL(), getCookieManager());
 
-            // Save cache information
+            // Save cache information, from the headers sent as they may not be recorded in the result
             if (cacheManager != null){
-                cacheManager.saveDetails(httpResponse, res);
+                cacheManager.saveDetails(httpResponse, res, request.getAllHeaders());
             }
 
             // Follow redirects and download page resources if appropriate:
@@ -736,10 +776,10 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
                 res.sampleEnd();
             }
            // pick up headers if failed to execute the request
-            if (res.getRequestHeaders() != null) {
+            if (log.isDebugEnabled() && res.getRequestHeaders() != null) {
                 log.debug("Overwriting request old headers: {}", res.getRequestHeaders());
             }
-            res.setRequestHeaders(getAllHeadersExceptCookie((HttpRequest) localContext.getAttribute(HttpCoreContext.HTTP_REQUEST)));
+            captureRequestHeaders(res, (HttpRequest) localContext.getAttribute(HttpCoreContext.HTTP_REQUEST));
             errorResult(e, res);
             return res;
         } catch (RuntimeException e) {
@@ -787,7 +827,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
      * @param areFollowingRedirect Are we following redirects
      * @return {@link HttpRequestBase}
      */
-    private HttpRequestBase createHttpRequest(URI uri, String method, boolean areFollowingRedirect) {
+    protected HttpRequestBase createHttpRequest(URI uri, String method, boolean areFollowingRedirect) {
         HttpRequestBase result;
         if (method.equals(HTTPConstants.POST)) {
             result = new HttpPost(uri);
@@ -878,8 +918,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
             HttpRequestBase httpRequest, HttpContext localContext) throws IOException {
         // Handle the various methods
         if (httpRequest instanceof HttpEntityEnclosingRequestBase) {
-            String entityBody = setupHttpEntityEnclosingRequestData((HttpEntityEnclosingRequestBase)httpRequest);
-            result.setQueryString(entityBody);
+            result.setQueryStringSupplier(setupHttpEntityEnclosingRequestBody((HttpEntityEnclosingRequestBase)httpRequest));
         }
     }
 
@@ -1343,7 +1382,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
      * @param headerBuffer {@link StringBuilder}
      * @param header {@link Header}
      */
-    private void writeHeader(StringBuilder headerBuffer, Header header) {
+    private static void writeHeader(StringBuilder headerBuffer, Header header) {
         if(header instanceof BufferedHeader) {
             CharArrayBuffer buffer = ((BufferedHeader)header).getBuffer();
             headerBuffer.append(buffer.buffer(), 0, buffer.length()).append('\n'); // $NON-NLS-1$
@@ -1453,6 +1492,31 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         return getFromHeadersMatchingPredicate(method, ALL_EXCEPT_COOKIE);
     }
 
+    /**
+     * Record the request headers except Cookie, as decided by {@link RequestCapturePolicy#getHeadersMode()}
+     *
+     * @param res the result of the request
+     * @param request the request, may be null
+     */
+    protected void captureRequestHeaders(HTTPSampleResult res, HttpRequest request) {
+        switch (RequestCapturePolicy.getHeadersMode()) {
+            case EAGER:
+                res.setRequestHeaders(getAllHeadersExceptCookie(request));
+                break;
+            case LAZY:
+                if (request == null) {
+                    res.setRequestHeaders(""); // $NON-NLS-1$
+                } else {
+                    Header[] headers = request.getAllHeaders();
+                    res.setRequestHeadersSupplier(() -> formatHeaders(headers, ALL_EXCEPT_COOKIE));
+                }
+                break;
+            default:
+                res.setRequestHeaders(""); // $NON-NLS-1$
+                break;
+        }
+    }
+
     /**
      * Get only Cookie header for the <code>HttpRequest</code>
      *
@@ -1476,21 +1540,27 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
      */
     private String getFromHeadersMatchingPredicate(HttpRequest method, Predicate<String> predicate) {
         if(method != null) {
-            // Get all the request headers
-            StringBuilder hdrs = new StringBuilder(150);
-            Header[] requestHeaders = method.getAllHeaders();
-            for (Header requestHeader : requestHeaders) {
-                // Get header if it matches predicate
-                if (predicate.test(requestHeader.getName())) {
-                    writeHeader(hdrs, requestHeader);
-                }
-            }
-
-            return hdrs.toString();
+            return formatHeaders(method.getAllHeaders(), predicate);
         }
         return ""; ////$NON-NLS-1$
     }
 
+    /**
+     * @param requestHeaders headers of the request
+     * @param predicate selects the headers by name
+     * @return the selected headers as a string
+     */
+    private static String formatHeaders(Header[] requestHeaders, Predicate<String> predicate) {
+        StringBuilder hdrs = new StringBuilder(150);
+        for (Header requestHeader : requestHeaders) {
+            // Get header if it matches predicate
+            if (predicate.test(requestHeader.getName())) {
+                writeHeader(hdrs, requestHeader);
+            }
+        }
+        return hdrs.toString();
+    }
+
     // Helper class so we can generate request data without dumping entire file contents
     private static class ViewableFileBody extends FileBody {
         private boolean hideFileData;
@@ -1504,7 +1574,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         public void writeTo(final OutputStream out) throws IOException {
             if (hideFileData) {
                 out.write("<actual file content, not shown here>".getBytes());// encoding does not really matter here
-            } else {
+            } else if (!MappedFiles.writeTo(getFile(), out)) {
                 super.writeTo(out);
             }
         }
@@ -1516,8 +1586,17 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
      * @throws IOException if sending the data fails due to I/O
      */
     protected String setupHttpEntityEnclosingRequestData(HttpEntityEnclosingRequestBase entityEnclosingRequest)  throws IOException {
-        // Buffer to hold the post body, except file content
-        StringBuilder postedBody = new StringBuilder(1000);
+        return setupHttpEntityEnclosingRequestBody(entityEnclosingRequest).get();
+    }
+
+    /**
+     * @param entityEnclosingRequest {@link HttpEntityEnclosingRequestBase}
+     * @return builds the body sent if computable, as decided by {@link RequestCapturePolicy#getBodyMode()}
+     * @throws IOException if sending the data fails due to I/O
+     */
+    protected Supplier<String> setupHttpEntityEnclosingRequestBody(HttpEntityEnclosingRequestBase entityEnclosingRequest)  throws IOException {
+        // Builds the post body, except file content
+        Supplier<String> postedBody;
         HTTPFileArg[] files = getHTTPFiles();
 
         final String contentEncoding = getContentEncodingOrNull();
@@ -1573,7 +1652,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
             HttpEntity entity = multipartEntityBuilder.build();
             entityEnclosingRequest.setEntity(entity);
-            writeEntityToSB(postedBody, entity, fileBodies, contentEncoding);
+            postedBody = describeEntity(entity, fileBodies, contentEncoding);
         } else { // not multipart
             // Check if the header manager had a content type header
             // This allows the user to specify their own content-type for a POST request
@@ -1593,11 +1672,11 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
                         entityEnclosingRequest.setHeader(HTTPConstants.HEADER_CONTENT_TYPE, HTTPConstants.APPLICATION_X_WWW_FORM_URLENCODED);
                     }
                 }
-                FileEntity fileRequestEntity = new FileEntity(FileServer.getFileServer().getResolvedFile(file.getPath()), (ContentType) null);
+                FileEntity fileRequestEntity = new MappedFileEntity(FileServer.getFileServer().getResolvedFile(file.getPath()), (ContentType) null);
                 entityEnclosingRequest.setEntity(fileRequestEntity);
 
                 // We just add placeholder text for file content
-                postedBody.append("<actual file content, not shown here>");
+                postedBody = describeText("<actual file content, not shown here>");
             } else {
                 // In a post request which is not multipart, we only support
                 // parameters, no file upload is allowed
@@ -1620,20 +1699,23 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
                     }
 
                     // Just append all the parameter values, and use that as the post body
-                    StringBuilder postBody = new StringBuilder();
-                    for (JMeterProperty jMeterProperty : getArguments()) {
-                        HTTPArgument arg = (HTTPArgument) jMeterProperty.getObjectValue();
-                        // Note: if "Encoded?" is not selected, arg.getEncodedValue is equivalent to arg.getValue
-                        if (haveContentEncoding) {
-                            postBody.append(arg.getEncodedValue(contentEncoding));
-                        } else {
-                            postBody.append(arg.getEncodedValue());
+                    RequestBodyCache.Body body = RequestBodyCache.get(VALUES_BODY, contentEncoding, getArguments(), () -> {
+                        StringBuilder postBody = new StringBuilder();
+                        for (JMeterProperty jMeterProperty : getArguments()) {
+                            HTTPArgument arg = (HTTPArgument) jMeterProperty.getObjectValue();
+                            // Note: if "Encoded?" is not selected, arg.getEncodedValue is equivalent to arg.getValue
+                            if (haveContentEncoding) {
+                                postBody.append(arg.getEncodedValue(contentEncoding));
+                            } else {
+                                postBody.append(arg.getEncodedValue());
+                            }
                         }
-                    }
-                    // Let StringEntity perform the encoding
-                    StringEntity requestEntity = new StringEntity(postBody.toString(), contentEncoding);
-                    entityEnclosingRequest.setEntity(requestEntity);
-                    postedBody.append(postBody.toString());
+                        // Let StringEntity perform the encoding
+                        StringEntity requestEntity = new StringEntity(postBody.toString(), contentEncoding);
+                        return new RequestBodyCache.Body(requestEntity, postBody.toString());
+                    });
+                    entityEnclosingRequest.setEntity(body.getEntity());
+                    postedBody = describeText(body.getText());
                 } else {
                     // It is a normal post request, with parameter names and values
                     // Set the content type
@@ -1641,13 +1723,14 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
                         entityEnclosingRequest.setHeader(HTTPConstants.HEADER_CONTENT_TYPE, HTTPConstants.APPLICATION_X_WWW_FORM_URLENCODED);
                     }
                     String urlContentEncoding = contentEncoding;
-                    UrlEncodedFormEntity entity = createUrlEncodedFormEntity(urlContentEncoding);
+                    HttpEntity entity = RequestBodyCache.get(FORM_BODY, urlContentEncoding, getArguments(),
+                            () -> new RequestBodyCache.Body(createUrlEncodedFormEntity(urlContentEncoding), null)).getEntity();
                     entityEnclosingRequest.setEntity(entity);
-                    writeEntityToSB(postedBody, entity, EMPTY_FILE_BODIES, contentEncoding);
+                    postedBody = describeEntity(entity, EMPTY_FILE_BODIES, contentEncoding);
                 }
             }
         }
-        return postedBody.toString();
+        return postedBody;
     }
 
     /**
@@ -1658,7 +1741,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
      * @throws IOException
      * @throws UnsupportedEncodingException
      */
-    private void writeEntityToSB(final StringBuilder postedBody, final HttpEntity entity,
+    private static void writeEntityToSB(final StringBuilder postedBody, final HttpEntity entity,
             final ViewableFileBody[] fileBodies, final String contentEncoding)
                     throws IOException {
         if (entity.isRepeatable()){
@@ -1681,6 +1764,45 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         }
     }
 
+    /**
+     * @param entity the entity sent
+     * @param fileBodies Array of {@link ViewableFileBody}
+     * @param contentEncoding encoding of the entity, may be null
+     * @return builds the text of the entity, as decided by {@link RequestCapturePolicy#getBodyMode()}
+     * @throws IOException when the entity can not be written
+     */
+    private static Supplier<String> describeEntity(final HttpEntity entity,
+            final ViewableFileBody[] fileBodies, final String contentEncoding) throws IOException {
+        switch (RequestCapturePolicy.getBodyMode()) {
+            case EAGER:
+                StringBuilder postedBody = new StringBuilder(1000);
+                writeEntityToSB(postedBody, entity, fileBodies, contentEncoding);
+                String text = postedBody.toString();
+                return () -> text;
+            case LAZY:
+                return () -> {
+                    StringBuilder lazyBody = new StringBuilder(1000);
+                    try {
+                        writeEntityToSB(lazyBody, entity, fileBodies, contentEncoding);
+                    } catch (IOException e) {
+                        log.warn("Could not read the entity that was sent", e);
+                        lazyBody.append("<Entity could not be read: ").append(e.getMessage()).append('>'); // $NON-NLS-1$
+                    }
+                    return lazyBody.toString();
+                };
+            default:
+                return NO_BODY;
+        }
+    }
+
+    /**
+     * @param text the body sent
+     * @return the text, unless the body is not recorded
+     */
+    private static Supplier<String> describeText(final String text) {
+        return RequestCapturePolicy.getBodyMode() == RequestCapturePolicy.Mode.SKIP ? NO_BODY : () -> text;
+    }
+
     /**
      * Creates the entity data to be sent.
      * <p>
@@ -1722,7 +1844,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
             // If getSendFileAsPostBody returned true, it's sure that file is not null
             File reservedFile = FileServer.getFileServer().getResolvedFile(files[0].getPath());
-            FileEntity fileRequestEntity = new FileEntity(reservedFile); // no need for content-type here
+            FileEntity fileRequestEntity = new MappedFileEntity(reservedFile); // no need for content-type here
             entity.setEntity(fileRequestEntity);
         }
         // If none of the arguments have a name specified, we
@@ -1732,21 +1854,24 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
             // Just append all the parameter values, and use that as the entity body
             Arguments arguments = getArguments();
-            StringBuilder entityBodyContent = new StringBuilder(arguments.getArgumentCount()*15);
-            for (JMeterProperty jMeterProperty : arguments) {
-                HTTPArgument arg = (HTTPArgument) jMeterProperty.getObjectValue();
-                // Note: if "Encoded?" is not selected, arg.getEncodedValue is equivalent to arg.getValue
-                if (charset != null) {
-                    entityBodyContent.append(arg.getEncodedValue(charset));
-                } else {
-                    entityBodyContent.append(arg.getEncodedValue());
+            entity.setEntity(RequestBodyCache.get(ENTITY_VALUES_BODY, charset, arguments, () -> {
+                StringBuilder entityBodyContent = new StringBuilder(arguments.getArgumentCount()*15);
+                for (JMeterProperty jMeterProperty : arguments) {
+                    HTTPArgument arg = (HTTPArgument) jMeterProperty.getObjectValue();
+                    // Note: if "Encoded?" is not selected, arg.getEncodedValue is equivalent to arg.getValue
+                    if (charset != null) {
+                        entityBodyContent.append(arg.getEncodedValue(charset));
+                    } else {
+                        entityBodyContent.append(arg.getEncodedValue());
+                    }
                 }
-            }
-            StringEntity requestEntity = new StringEntity(entityBodyContent.toString(), charset);
-            entity.setEntity(requestEntity);
+                return new RequestBodyCache.Body(new StringEntity(entityBodyContent.toString(), charset), null);
+            }).getEntity());
         } else if (hasArguments()) {
             hasEntityBody = true;
-            entity.setEntity(createUrlEncodedFormEntity(getContentEncodingOrNull()));
+            final String urlContentEncoding = getContentEncodingOrNull();
+            entity.setEntity(RequestBodyCache.get(FORM_BODY, urlContentEncoding, getArguments(),
+                    () -> new RequestBodyCache.Body(createUrlEncodedFormEntity(urlContentEncoding), null)).getEntity());
         }
         // Check if we have any content to send for body
         if(hasEntityBody) {
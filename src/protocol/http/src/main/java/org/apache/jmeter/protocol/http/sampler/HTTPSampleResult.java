@@ -59,6 +59,9 @@ public class HTTPSampleResult extends SampleResult {
 
     private String queryString = ""; // never null
 
+    /** Time spent in the TLS handshake of the connection opened for the sample, 0 if none */
+    private long tlsHandshakeTime;
+
     private static final String HTTP_NO_CONTENT_CODE = Integer.toString(HttpURLConnection.HTTP_NO_CONTENT);
     private static final String HTTP_NO_CONTENT_MSG = "No Content"; // $NON-NLS-1$
 
@@ -82,6 +85,7 @@ public class HTTPSampleResult extends SampleResult {
         cookies = res.cookies;
         queryString = res.queryString;
         redirectLocation = res.redirectLocation;
+        tlsHandshakeTime = res.tlsHandshakeTime;
     }
 
     public void setHTTPMethod(String method) {
@@ -103,6 +107,21 @@ public class HTTPSampleResult extends SampleResult {
         return this.getURL().getPath();
     }
 
+    /**
+     * @return time in milliseconds spent in the TLS handshake of the connection opened for the sample,
+     *         0 if the connection was reused or is not secure. It is part of the connect time.
+     */
+    public long getTlsHandshakeTime() {
+        return tlsHandshakeTime;
+    }
+
+    /**
+     * @param tlsHandshakeTime time in milliseconds spent in the TLS handshake
+     */
+    public void setTlsHandshakeTime(long tlsHandshakeTime) {
+        this.tlsHandshakeTime = tlsHandshakeTime;
+    }
+
     public void setRedirectLocation(String redirectLocation) {
         this.redirectLocation = redirectLocation;
     }
@@ -59,6 +59,9 @@ import org.apache.jmeter.protocol.http.parser.BaseParser;
 import org.apache.jmeter.protocol.http.parser.LinkExtractorParseException;
 import org.apache.jmeter.protocol.http.parser.LinkExtractorParser;
 import org.apache.jmeter.protocol.http.sampler.ResourcesDownloader.AsynSamplerResultHolder;
+import org.apache.jmeter.protocol.http.sampler.h2.Http2Connections;
+import org.apache.jmeter.protocol.http.sampler.hc.MappedFiles;
+import org.apache.jmeter.protocol.http.sampler.hc.RequestBodyCache;
 import org.apache.jmeter.protocol.http.util.ConversionUtils;
 import org.apache.jmeter.protocol.http.util.DirectAccessByteArrayOutputStream;
 import org.apache.jmeter.protocol.http.util.EncoderCache;
@@ -85,6 +88,7 @@ import org.apache.jmeter.testelement.property.TestElementProperty;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jmeter.util.SSLManager;
 import org.apache.jorphan.util.JOrphanUtils;
 import org.apache.oro.text.MalformedCachePatternException;
 import org.apache.oro.text.regex.Pattern;
@@ -1594,6 +1598,10 @@ public abstract class HTTPSamplerBase extends AbstractSampler
         if (isConcurrentDwn()) {
             ResourcesDownloader.getInstance().shrink();
         }
+        RequestBodyCache.clear();
+        MappedFiles.clear();
+        Http2Connections.closeAll();
+        SSLManager.clearSharedSessions();
     }
 
     /**
@@ -1609,6 +1617,8 @@ public abstract class HTTPSamplerBase extends AbstractSampler
      */
     @Override
     public void testStarted() {
+        // Sessions resumed in a previous run would skip the handshakes of the first connections
+        SSLManager.clearSharedSessions();
     }
 
     /**
@@ -42,6 +42,8 @@ public final class HTTPSamplerFactory {
 
     public static final String IMPL_JAVA = "Java"; // $NON-NLS-1$
 
+    public static final String IMPL_HTTP2 = "HTTP2"; // $NON-NLS-1$
+
     // type
     public static final String IMPL_APPRF = "Apprf";
     // add end
@@ -67,7 +69,7 @@ public final class HTTPSamplerFactory {
     /**
      * Create a new instance of the required sampler type
      *
-     * @param alias HTTP_SAMPLER or HTTP_SAMPLER_APACHE or IMPL_HTTP_CLIENT3_1 or IMPL_HTTP_CLIENT4
+     * @param alias HTTP_SAMPLER or HTTP_SAMPLER_APACHE or IMPL_HTTP_CLIENT3_1 or IMPL_HTTP_CLIENT4 or IMPL_HTTP2
      * @return the appropriate sampler
      * @throws UnsupportedOperationException if alias is not recognised
      */
@@ -84,11 +86,14 @@ public final class HTTPSamplerFactory {
         if (alias.equals(IMPL_APPRF)) {
             return new HTTPSamplerProxy(IMPL_APPRF);
         }
+        if (alias.equals(IMPL_HTTP2)) {
+            return new HTTPSamplerProxy(IMPL_HTTP2);
+        }
         throw new IllegalArgumentException("Unknown sampler type: '" + alias+"'");
     }
 
     public static String[] getImplementations(){
-        return new String[]{IMPL_HTTP_CLIENT4,IMPL_JAVA,IMPL_APPRF};
+        return new String[]{IMPL_HTTP_CLIENT4,IMPL_JAVA,IMPL_APPRF,IMPL_HTTP2};
     }
 
     public static HTTPAbstractImpl getImplementation(String impl, HTTPSamplerBase base){
@@ -106,6 +111,9 @@ public final class HTTPSamplerFactory {
         else if (IMPL_APPRF.equals(impl)) {
             return new HTTPappImpl(base);
         }
+        else if (IMPL_HTTP2.equals(impl)) {
+            return new HTTP2Impl(base);
+        }
         else {
             throw new IllegalArgumentException("Unknown implementation type: '"+impl+"'");
         }
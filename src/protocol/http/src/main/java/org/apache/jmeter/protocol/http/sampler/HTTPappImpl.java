@@ -31,6 +31,7 @@ import java.security.PrivilegedExceptionAction;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import javax.security.auth.Subject;
@@ -89,6 +90,7 @@ import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.cookie.CookieSpecProvider;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.FormBodyPart;
 import org.apache.http.entity.mime.FormBodyPartBuilder;
@@ -136,14 +138,20 @@ import org.apache.jmeter.protocol.http.control.CookieManager;
 import org.apache.jmeter.protocol.http.control.DynamicKerberosSchemeFactory;
 import org.apache.jmeter.protocol.http.control.DynamicSPNegoSchemeFactory;
 import org.apache.jmeter.protocol.http.control.HeaderManager;
+import org.apache.jmeter.protocol.http.sampler.hc.Base64JsonEnvelopeDecoder;
 import org.apache.jmeter.protocol.http.sampler.hc.LaxDeflateInputStream;
 import org.apache.jmeter.protocol.http.sampler.hc.LaxGZIPInputStream;
 import org.apache.jmeter.protocol.http.sampler.hc.LazyLayeredConnectionSocketFactory;
+import org.apache.jmeter.protocol.http.sampler.hc.MappedFileEntity;
+import org.apache.jmeter.protocol.http.sampler.hc.MappedFiles;
+import org.apache.jmeter.protocol.http.sampler.hc.RequestBodyCache;
+import org.apache.jmeter.protocol.http.sampler.hc.ResponseEnvelopeDecoder;
 import org.apache.jmeter.protocol.http.util.EncoderCache;
 import org.apache.jmeter.protocol.http.util.HTTPArgument;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
 import org.apache.jmeter.protocol.http.util.HTTPFileArg;
 import org.apache.jmeter.protocol.http.util.SlowHCPlainConnectionSocketFactory;
+import org.apache.jmeter.samplers.RequestCapturePolicy;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.property.CollectionProperty;
@@ -200,6 +208,20 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
 
     private static final InputStreamFactory BROTLI = BrotliInputStream::new;
 
+    private static final ResponseEnvelopeDecoder ENVELOPE_DECODER = createEnvelopeDecoder();
+
+    private static ResponseEnvelopeDecoder createEnvelopeDecoder() {
+        String className = JMeterUtils.getPropDefault("httpapp.envelope.decoder", // $NON-NLS-1$
+                Base64JsonEnvelopeDecoder.class.getName());
+        try {
+            return (ResponseEnvelopeDecoder) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            log.error("Could not create response envelope decoder {}, using {}",
+                    className, Base64JsonEnvelopeDecoder.class.getName(), e);
+            return new Base64JsonEnvelopeDecoder();
+        }
+    }
+
     private static final class ManagedCredentialsProvider implements CredentialsProvider {
         private AuthManager authManager;
         private Credentials proxyCredentials;
@@ -523,6 +545,13 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
 
     private static final HTTPappImpl.ViewableFileBody[] EMPTY_FILE_BODIES = new HTTPappImpl.ViewableFileBody[0];
 
+    private static final Supplier<String> NO_BODY = () -> ""; // $NON-NLS-1$
+
+    // Kinds of the bodies shared through RequestBodyCache
+    private static final String VALUES_BODY = "app.values"; // $NON-NLS-1$
+    private static final String ENTITY_VALUES_BODY = "app.entity_values"; // $NON-NLS-1$
+    private static final String FORM_BODY = "app.form"; // $NON-NLS-1$
+
     static {
         log.info("HTTP request retry count = {}", RETRY_COUNT);
 
@@ -648,7 +677,7 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
             if (localAddress != null) {
                 request.addHeader(HEADER_LOCAL_ADDRESS, localAddress.toString());
             }
-            res.setRequestHeaders(getAllHeadersExceptCookie(request));
+            captureRequestHeaders(res, request);
 
             Header contentType = httpResponse.getLastHeader(HTTPConstants.HEADER_CONTENT_TYPE);
             if (contentType != null){
@@ -712,9 +741,9 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
             // Store any cookies received in the cookie manager:
             saveConnectionCookies(httpResponse, res.getURL(), getCookieManager());
 
-            // Save cache information
+            // Save cache information, from the headers sent as they may not be recorded in the result
             if (cacheManager != null){
-                cacheManager.saveDetails(httpResponse, res);
+                cacheManager.saveDetails(httpResponse, res, request.getAllHeaders());
             }
 
             // Follow redirects and download page resources if appropriate:
@@ -729,10 +758,10 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
                 res.sampleEnd();
             }
             // pick up headers if failed to execute the request
-            if (res.getRequestHeaders() != null) {
+            if (log.isDebugEnabled() && res.getRequestHeaders() != null) {
                 log.debug("Overwriting request old headers: {}", res.getRequestHeaders());
             }
-            res.setRequestHeaders(getAllHeadersExceptCookie((HttpRequest) localContext.getAttribute(HttpCoreContext.HTTP_REQUEST)));
+            captureRequestHeaders(res, (HttpRequest) localContext.getAttribute(HttpCoreContext.HTTP_REQUEST));
             errorResult(e, res);
             return res;
         } catch (RuntimeException e) {
@@ -871,8 +900,7 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
                                 HttpRequestBase httpRequest, HttpContext localContext) throws IOException {
         // Handle the various methods
         if (httpRequest instanceof HttpEntityEnclosingRequestBase) {
-            String entityBody = setupHttpEntityEnclosingRequestData((HttpEntityEnclosingRequestBase)httpRequest);
-            result.setQueryString(entityBody);
+            result.setQueryStringSupplier(setupHttpEntityEnclosingRequestBody((HttpEntityEnclosingRequestBase)httpRequest));
         }
     }
 
@@ -923,12 +951,10 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
 
         CloseableHttpResponse httpresp = httpClient.execute((HttpUriRequest)httpRequest, localContext);
         HttpEntity entity = httpresp.getEntity();
-        String oresp = EntityUtils.toString(entity);
-        String respstr = oresp.split("\"")[3];
-        respstr = respstr.replaceAll("\\\\u003d", "=");
-        String decstr = new String(Base64.getDecoder().decode(respstr), "utf-8");
-        StringEntity sEntity = new StringEntity(decstr, "utf-8");
-        httpresp.setEntity(sEntity);
+        if (entity != null) {
+            // The body is unwrapped while readResponse reads it
+            httpresp.setEntity(new InputStreamEntity(ENVELOPE_DECODER.decode(entity.getContent()), -1));
+        }
         return httpresp;
     }
 
@@ -1349,7 +1375,7 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
      * @param headerBuffer {@link StringBuilder}
      * @param header {@link Header}
      */
-    private void writeHeader(StringBuilder headerBuffer, Header header) {
+    private static void writeHeader(StringBuilder headerBuffer, Header header) {
         if(header instanceof BufferedHeader) {
             CharArrayBuffer buffer = ((BufferedHeader)header).getBuffer();
             headerBuffer.append(buffer.buffer(), 0, buffer.length()).append('\n'); // $NON-NLS-1$
@@ -1459,6 +1485,31 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
         return getFromHeadersMatchingPredicate(method, ALL_EXCEPT_COOKIE);
     }
 
+    /**
+     * Record the request headers except Cookie, as decided by {@link RequestCapturePolicy#getHeadersMode()}
+     *
+     * @param res the result of the request
+     * @param request the request, may be null
+     */
+    private void captureRequestHeaders(HTTPSampleResult res, HttpRequest request) {
+        switch (RequestCapturePolicy.getHeadersMode()) {
+            case EAGER:
+                res.setRequestHeaders(getAllHeadersExceptCookie(request));
+                break;
+            case LAZY:
+                if (request == null) {
+                    res.setRequestHeaders(""); // $NON-NLS-1$
+                } else {
+                    Header[] headers = request.getAllHeaders();
+                    res.setRequestHeadersSupplier(() -> formatHeaders(headers, ALL_EXCEPT_COOKIE));
+                }
+                break;
+            default:
+                res.setRequestHeaders(""); // $NON-NLS-1$
+                break;
+        }
+    }
+
     /**
      * Get only Cookie header for the <code>HttpRequest</code>
      *
@@ -1482,21 +1533,27 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
      */
     private String getFromHeadersMatchingPredicate(HttpRequest method, Predicate<String> predicate) {
         if(method != null) {
-            // Get all the request headers
-            StringBuilder hdrs = new StringBuilder(150);
-            Header[] requestHeaders = method.getAllHeaders();
-            for (Header requestHeader : requestHeaders) {
-                // Get header if it matches predicate
-                if (predicate.test(requestHeader.getName())) {
-                    writeHeader(hdrs, requestHeader);
-                }
-            }
-
-            return hdrs.toString();
+            return formatHeaders(method.getAllHeaders(), predicate);
         }
         return ""; ////$NON-NLS-1$
     }
 
+    /**
+     * @param requestHeaders headers of the request
+     * @param predicate selects the headers by name
+     * @return the selected headers as a string
+     */
+    private static String formatHeaders(Header[] requestHeaders, Predicate<String> predicate) {
+        StringBuilder hdrs = new StringBuilder(150);
+        for (Header requestHeader : requestHeaders) {
+            // Get header if it matches predicate
+            if (predicate.test(requestHeader.getName())) {
+                writeHeader(hdrs, requestHeader);
+            }
+        }
+        return hdrs.toString();
+    }
+
     // Helper class so we can generate request data without dumping entire file contents
     private static class ViewableFileBody extends FileBody {
         private boolean hideFileData;
@@ -1510,7 +1567,7 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
         public void writeTo(final OutputStream out) throws IOException {
             if (hideFileData) {
                 out.write("<actual file content, not shown here>".getBytes());// encoding does not really matter here
-            } else {
+            } else if (!MappedFiles.writeTo(getFile(), out)) {
                 super.writeTo(out);
             }
         }
@@ -1522,8 +1579,17 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
      * @throws IOException if sending the data fails due to I/O
      */
     protected String setupHttpEntityEnclosingRequestData(HttpEntityEnclosingRequestBase entityEnclosingRequest)  throws IOException {
-        // Buffer to hold the post body, except file content
-        StringBuilder postedBody = new StringBuilder(1000);
+        return setupHttpEntityEnclosingRequestBody(entityEnclosingRequest).get();
+    }
+
+    /**
+     * @param entityEnclosingRequest {@link HttpEntityEnclosingRequestBase}
+     * @return builds the body sent if computable, as decided by {@link RequestCapturePolicy#getBodyMode()}
+     * @throws IOException if sending the data fails due to I/O
+     */
+    protected Supplier<String> setupHttpEntityEnclosingRequestBody(HttpEntityEnclosingRequestBase entityEnclosingRequest)  throws IOException {
+        // Builds the post body, except file content
+        Supplier<String> postedBody;
         HTTPFileArg[] files = getHTTPFiles();
 
         final String contentEncoding = getContentEncodingOrNull();
@@ -1579,7 +1645,7 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
 
             HttpEntity entity = multipartEntityBuilder.build();
             entityEnclosingRequest.setEntity(entity);
-            writeEntityToSB(postedBody, entity, fileBodies, contentEncoding);
+            postedBody = describeEntity(entity, fileBodies, contentEncoding);
         } else { // not multipart
             // Check if the header manager had a content type header
             // This allows the user to specify their own content-type for a POST request
@@ -1599,11 +1665,11 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
                         entityEnclosingRequest.setHeader(HTTPConstants.HEADER_CONTENT_TYPE, HTTPConstants.APPLICATION_X_WWW_FORM_URLENCODED);
                     }
                 }
-                FileEntity fileRequestEntity = new FileEntity(FileServer.getFileServer().getResolvedFile(file.getPath()), (ContentType) null);
+                FileEntity fileRequestEntity = new MappedFileEntity(FileServer.getFileServer().getResolvedFile(file.getPath()), (ContentType) null);
                 entityEnclosingRequest.setEntity(fileRequestEntity);
 
                 // We just add placeholder text for file content
-                postedBody.append("<actual file content, not shown here>");
+                postedBody = describeText("<actual file content, not shown here>");
             } else {
                 // In a post request which is not multipart, we only support
                 // parameters, no file upload is allowed
@@ -1626,25 +1692,28 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
                     }
 
                     // Just append all the parameter values, and use that as the post body
-                    StringBuilder postBody = new StringBuilder();
-                    String argstr = null;
-                    for (JMeterProperty jMeterProperty : getArguments()) {
-                        HTTPArgument arg = (HTTPArgument) jMeterProperty.getObjectValue();
-                        // Note: if "Encoded?" is not selected, arg.getEncodedValue is equivalent to arg.getValue
-                        if (haveContentEncoding) {
-//                            postBody.append(arg.getEncodedValue(contentEncoding));
-                            argstr = arg.getEncodedValue(contentEncoding);
-                        } else {
-                            //                            postBody.append(arg.getEncodedValue());
-                            argstr = arg.getEncodedValue();
+                    RequestBodyCache.Body body = RequestBodyCache.get(VALUES_BODY, contentEncoding, getArguments(), () -> {
+                        StringBuilder postBody = new StringBuilder();
+                        String argstr = null;
+                        for (JMeterProperty jMeterProperty : getArguments()) {
+                            HTTPArgument arg = (HTTPArgument) jMeterProperty.getObjectValue();
+                            // Note: if "Encoded?" is not selected, arg.getEncodedValue is equivalent to arg.getValue
+                            if (haveContentEncoding) {
+//                                postBody.append(arg.getEncodedValue(contentEncoding));
+                                argstr = arg.getEncodedValue(contentEncoding);
+                            } else {
+                                //                                postBody.append(arg.getEncodedValue());
+                                argstr = arg.getEncodedValue();
+                            }
+                            String encstr = Base64.getEncoder().encodeToString(argstr.getBytes(StandardCharsets.UTF_8));
+                            encstr = URLEncoder.encode(encstr);
+                            postBody.append("data=" + encstr);
                         }
-                        String encstr = Base64.getEncoder().encodeToString(argstr.getBytes(StandardCharsets.UTF_8));
-                        encstr = URLEncoder.encode(encstr);
-                        postBody.append("data=" + encstr);
-                    }
-                    StringEntity requestEntity = new StringEntity(postBody.toString(), contentEncoding);
-                    entityEnclosingRequest.setEntity(requestEntity);
-                    postedBody.append("data=" + argstr);
+                        StringEntity requestEntity = new StringEntity(postBody.toString(), contentEncoding);
+                        return new RequestBodyCache.Body(requestEntity, "data=" + argstr);
+                    });
+                    entityEnclosingRequest.setEntity(body.getEntity());
+                    postedBody = describeText(body.getText());
 
                     // Let StringEntity perform the encoding
 //                    StringEntity requestEntity = new StringEntity(postBody.toString(), contentEncoding);
@@ -1657,13 +1726,14 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
                         entityEnclosingRequest.setHeader(HTTPConstants.HEADER_CONTENT_TYPE, HTTPConstants.APPLICATION_X_WWW_FORM_URLENCODED);
                     }
                     String urlContentEncoding = contentEncoding;
-                    UrlEncodedFormEntity entity = createUrlEncodedFormEntity(urlContentEncoding);
+                    HttpEntity entity = RequestBodyCache.get(FORM_BODY, urlContentEncoding, getArguments(),
+                            () -> new RequestBodyCache.Body(createUrlEncodedFormEntity(urlContentEncoding), null)).getEntity();
                     entityEnclosingRequest.setEntity(entity);
-                    writeEntityToSB(postedBody, entity, EMPTY_FILE_BODIES, contentEncoding);
+                    postedBody = describeEntity(entity, EMPTY_FILE_BODIES, contentEncoding);
                 }
             }
         }
-        return postedBody.toString();
+        return postedBody;
     }
 
     /**
@@ -1674,7 +1744,7 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
      * @throws IOException
      * @throws UnsupportedEncodingException
      */
-    private void writeEntityToSB(final StringBuilder postedBody, final HttpEntity entity,
+    private static void writeEntityToSB(final StringBuilder postedBody, final HttpEntity entity,
                                  final HTTPappImpl.ViewableFileBody[] fileBodies, final String contentEncoding)
             throws IOException {
         if (entity.isRepeatable()){
@@ -1697,6 +1767,45 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
         }
     }
 
+    /**
+     * @param entity the entity sent
+     * @param fileBodies Array of {@link HTTPappImpl.ViewableFileBody}
+     * @param contentEncoding encoding of the entity, may be null
+     * @return builds the text of the entity, as decided by {@link RequestCapturePolicy#getBodyMode()}
+     * @throws IOException when the entity can not be written
+     */
+    private static Supplier<String> describeEntity(final HttpEntity entity,
+            final HTTPappImpl.ViewableFileBody[] fileBodies, final String contentEncoding) throws IOException {
+        switch (RequestCapturePolicy.getBodyMode()) {
+            case EAGER:
+                StringBuilder postedBody = new StringBuilder(1000);
+                writeEntityToSB(postedBody, entity, fileBodies, contentEncoding);
+                String text = postedBody.toString();
+                return () -> text;
+            case LAZY:
+                return () -> {
+                    StringBuilder lazyBody = new StringBuilder(1000);
+                    try {
+                        writeEntityToSB(lazyBody, entity, fileBodies, contentEncoding);
+                    } catch (IOException e) {
+                        log.warn("Could not read the entity that was sent", e);
+                        lazyBody.append("<Entity could not be read: ").append(e.getMessage()).append('>'); // $NON-NLS-1$
+                    }
+                    return lazyBody.toString();
+                };
+            default:
+                return NO_BODY;
+        }
+    }
+
+    /**
+     * @param text the body sent
+     * @return the text, unless the body is not recorded
+     */
+    private static Supplier<String> describeText(final String text) {
+        return RequestCapturePolicy.getBodyMode() == RequestCapturePolicy.Mode.SKIP ? NO_BODY : () -> text;
+    }
+
     /**
      * Creates the entity data to be sent.
      * <p>
@@ -1738,7 +1847,7 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
 
             // If getSendFileAsPostBody returned true, it's sure that file is not null
             File reservedFile = FileServer.getFileServer().getResolvedFile(files[0].getPath());
-            FileEntity fileRequestEntity = new FileEntity(reservedFile); // no need for content-type here
+            FileEntity fileRequestEntity = new MappedFileEntity(reservedFile); // no need for content-type here
             entity.setEntity(fileRequestEntity);
         }
         // If none of the arguments have a name specified, we
@@ -1748,28 +1857,30 @@ public class HTTPappImpl extends HTTPHCAbstractImpl {
 
             // Just append all the parameter values, and use that as the entity body
             Arguments arguments = getArguments();
-            StringBuilder entityBodyContent = new StringBuilder(arguments.getArgumentCount()*15);
-            String argstr = null;
-            for (JMeterProperty jMeterProperty : arguments) {
-                HTTPArgument arg = (HTTPArgument) jMeterProperty.getObjectValue();
-                // Note: if "Encoded?" is not selected, arg.getEncodedValue is equivalent to arg.getValue
-                if (charset != null) {
-//                    entityBodyContent.append(arg.getEncodedValue(charset));
-                    argstr = arg.getEncodedValue(charset);
-                } else {
-//                    entityBodyContent.append(arg.getEncodedValue());
-                    argstr = arg.getEncodedValue();
+            entity.setEntity(RequestBodyCache.get(ENTITY_VALUES_BODY, charset, arguments, () -> {
+                StringBuilder entityBodyContent = new StringBuilder(arguments.getArgumentCount()*15);
+                String argstr = null;
+                for (JMeterProperty jMeterProperty : arguments) {
+                    HTTPArgument arg = (HTTPArgument) jMeterProperty.getObjectValue();
+                    // Note: if "Encoded?" is not selected, arg.getEncodedValue is equivalent to arg.getValue
+                    if (charset != null) {
+//                        entityBodyContent.append(arg.getEncodedValue(charset));
+                        argstr = arg.getEncodedValue(charset);
+                    } else {
+//                        entityBodyContent.append(arg.getEncodedValue());
+                        argstr = arg.getEncodedValue();
+                    }
+                    String encstr = Base64.getEncoder().encodeToString(argstr.getBytes(StandardCharsets.UTF_8));
+                    encstr = URLEncoder.encode(encstr);
+                    entityBodyContent.append("data="+encstr);
                 }
-                String encstr = Base64.getEncoder().encodeToString(argstr.getBytes(StandardCharsets.UTF_8));
-                encstr = URLEncoder.encode(encstr);
-                entityBodyContent.append("data="+encstr);
-            }
-
-            StringEntity requestEntity = new StringEntity(entityBodyContent.toString(), charset);
-            entity.setEntity(requestEntity);
+                return new RequestBodyCache.Body(new StringEntity(entityBodyContent.toString(), charset), null);
+            }).getEntity());
         } else if (hasArguments()) {
             hasEntityBody = true;
-            entity.setEntity(createUrlEncodedFormEntity(getContentEncodingOrNull()));
+            final String urlContentEncoding = getContentEncodingOrNull();
+            entity.setEntity(RequestBodyCache.get(FORM_BODY, urlContentEncoding, getArguments(),
+                    () -> new RequestBodyCache.Body(createUrlEncodedFormEntity(urlContentEncoding), null)).getEntity());
         }
         // Check if we have any content to send for body
         if(hasEntityBody) {
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.h2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes HPACK header blocks into header lists, RFC 7541.
+ * Not thread-safe, the blocks must be decoded in the order they are received.
+ */
+final class HpackDecoder {
+
+    private final HpackTable table;
+    private final int maxTableSize;
+
+    private byte[] block;
+    private int position;
+    private int limit;
+
+    /**
+     * @param maxTableSize the SETTINGS_HEADER_TABLE_SIZE sent to the peer
+     */
+    HpackDecoder(int maxTableSize) {
+        this.maxTableSize = maxTableSize;
+        this.table = new HpackTable(maxTableSize);
+    }
+
+    /**
+     * @param headerBlock buffer holding the header block
+     * @param length      length of the header block
+     * @return names and values of the fields, in the order they were sent
+     * @throws IOException when the block is not valid, the connection can not be used anymore
+     */
+    List<String[]> decode(byte[] headerBlock, int length) throws IOException {
+        block = headerBlock;
+        position = 0;
+        limit = length;
+        List<String[]> headers = new ArrayList<>();
+        while (position < limit) {
+            int b = block[position] & 0xff;
+            if ((b & 0x80) != 0) {
+                // Indexed field
+                headers.add(table.get(readInt(7)));
+            } else if ((b & 0x40) != 0) {
+                // Literal with incremental indexing
+                String[] field = readLiteral(6);
+                table.add(field[0], field[1]);
+                headers.add(field);
+            } else if ((b & 0x20) != 0) {
+                int size = readInt(5);
+                if (size > maxTableSize) {
+                    throw new IOException("HPACK table size update above the limit: " + size);
+                }
+                table.setMaxSize(size);
+            } else {
+                // Literal without indexing or never indexed
+                headers.add(readLiteral(4));
+            }
+        }
+        block = null;
+        return headers;
+    }
+
+    private String[] readLiteral(int prefixBits) throws IOException {
+        int nameIndex = readInt(prefixBits);
+        String name = nameIndex == 0 ? readString() : table.get(nameIndex)[0];
+        return new String[]{name, readString()};
+    }
+
+    private int readInt(int prefixBits) throws IOException {
+        int max = (1 << prefixBits) - 1;
+        int value = block[position++] & max;
+        if (value < max) {
+            return value;
+        }
+        int shift = 0;
+        int b;
+        do {
+            if (position >= limit || shift > 28) {
+                throw new IOException("Invalid HPACK integer");
+            }
+            b = block[position++] & 0xff;
+            value += (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (value < 0) {
+            throw new IOException("Invalid HPACK integer");
+        }
+        return value;
+    }
+
+    private String readString() throws IOException {
+        if (position >= limit) {
+            throw new IOException("Truncated HPACK string");
+        }
+        boolean huffman = (block[position] & 0x80) != 0;
+        int length = readInt(7);
+        if (length > limit - position) {
+            throw new IOException("Truncated HPACK string");
+        }
+        String s = huffman
+                ? Huffman.decode(block, position, length)
+                : new String(block, position, length, StandardCharsets.ISO_8859_1);
+        position += length;
+        return s;
+    }
+
+    int getTableLength() {
+        return table.length();
+    }
+}
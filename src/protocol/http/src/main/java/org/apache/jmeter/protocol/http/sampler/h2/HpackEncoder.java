@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.h2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodes header lists into HPACK header blocks, RFC 7541.
+ * <p>
+ * Fields are added to the dynamic table so that the headers repeated by the following
+ * requests on the connection are sent as an index.
+ * Credentials are never indexed.
+ * Not thread-safe, the blocks must be encoded in the order they are sent.
+ */
+final class HpackEncoder {
+
+    private final HpackTable table;
+
+    // Table size update to signal at the start of the next block, -1 for none
+    private int sizeUpdate = -1;
+
+    HpackEncoder(int maxTableSize) {
+        table = new HpackTable(maxTableSize);
+    }
+
+    /**
+     * Apply the SETTINGS_HEADER_TABLE_SIZE of the peer
+     *
+     * @param maxTableSize maximum size allowed by the peer
+     * @param limit        maximum size this encoder uses
+     */
+    void setMaxTableSize(int maxTableSize, int limit) {
+        int newSize = Math.min(maxTableSize, limit);
+        if (newSize != table.getMaxSize()) {
+            table.setMaxSize(newSize);
+            sizeUpdate = newSize;
+        }
+    }
+
+    /**
+     * @param headers names, in lower case, and values of the fields
+     * @param out     receives the header block
+     */
+    void encode(List<String[]> headers, ByteArrayOutputStream out) {
+        if (sizeUpdate >= 0) {
+            writeInt(out, 0x20, 5, sizeUpdate);
+            sizeUpdate = -1;
+        }
+        for (String[] header : headers) {
+            String name = header[0];
+            String value = header[1];
+            int index = table.find(name, value);
+            if (index > 0) {
+                writeInt(out, 0x80, 7, index);
+                continue;
+            }
+            int nameIndex = -index;
+            if (isSensitive(name)) {
+                writeInt(out, 0x10, 4, nameIndex);
+            } else if (HpackTable.entrySize(name, value) <= table.getMaxSize() / 2) {
+                writeInt(out, 0x40, 6, nameIndex);
+                table.add(name, value);
+            } else {
+                writeInt(out, 0x00, 4, nameIndex);
+            }
+            if (nameIndex == 0) {
+                writeString(out, name);
+            }
+            writeString(out, value);
+        }
+    }
+
+    private static boolean isSensitive(String name) {
+        return "authorization".equals(name) || "proxy-authorization".equals(name); // $NON-NLS-1$ $NON-NLS-2$
+    }
+
+    /**
+     * Write an integer with an N-bit prefix, RFC 7541 section 5.1
+     */
+    static void writeInt(ByteArrayOutputStream out, int flags, int prefixBits, int value) {
+        int max = (1 << prefixBits) - 1;
+        if (value < max) {
+            out.write(flags | value);
+            return;
+        }
+        out.write(flags | max);
+        int remaining = value - max;
+        while (remaining >= 0x80) {
+            out.write((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+
+    /**
+     * Write a string literal, Huffman encoded when it is shorter, RFC 7541 section 5.2
+     */
+    static void writeString(ByteArrayOutputStream out, String s) {
+        int huffmanLength = Huffman.encodedLength(s);
+        if (huffmanLength < s.length()) {
+            writeInt(out, 0x80, 7, huffmanLength);
+            Huffman.encode(s, out);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+            writeInt(out, 0x00, 7, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+}
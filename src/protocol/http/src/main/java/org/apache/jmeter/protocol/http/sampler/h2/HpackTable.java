@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.h2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static and dynamic tables of HPACK, RFC 7541 section 2.3.
+ * Indexes are 1-based, the dynamic table starts after the static table with the newest entry.
+ */
+final class HpackTable {
+
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""}
+    };
+
+    static final int STATIC_LENGTH = STATIC_TABLE.length;
+
+    // First static index of each name, and of each name and value
+    private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+    private static final Map<String, Integer> STATIC_FIELDS = new HashMap<>();
+
+    static {
+        for (int i = STATIC_LENGTH; i > 0; i--) {
+            STATIC_NAMES.put(STATIC_TABLE[i - 1][0], i);
+            STATIC_FIELDS.put(STATIC_TABLE[i - 1][0] + '\u0000' + STATIC_TABLE[i - 1][1], i);
+        }
+    }
+
+    // Oldest entry first
+    private final List<String[]> entries = new ArrayList<>();
+    private int size;
+    private int maxSize;
+
+    HpackTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param name  name of the field
+     * @param value value of the field
+     * @return size of the entry as defined by RFC 7541 section 4.1
+     */
+    static int entrySize(String name, String value) {
+        return name.length() + value.length() + 32;
+    }
+
+    /**
+     * @param index 1-based index
+     * @return the name and the value of the field
+     * @throws IOException when the index is not in the tables
+     */
+    String[] get(int index) throws IOException {
+        if (index <= 0) {
+            throw new IOException("Invalid HPACK index: " + index);
+        }
+        if (index <= STATIC_LENGTH) {
+            return STATIC_TABLE[index - 1];
+        }
+        int dynamicIndex = index - STATIC_LENGTH - 1;
+        if (dynamicIndex >= entries.size()) {
+            throw new IOException("Invalid HPACK index: " + index);
+        }
+        return entries.get(entries.size() - 1 - dynamicIndex);
+    }
+
+    /**
+     * @param name  name of the field
+     * @param value value of the field
+     * @return index of the field if found, minus the index of its name if only the name is found, 0 otherwise
+     */
+    int find(String name, String value) {
+        Integer index = STATIC_FIELDS.get(name + '\u0000' + value);
+        if (index != null) {
+            return index;
+        }
+        int nameIndex = 0;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            String[] entry = entries.get(i);
+            if (entry[0].equals(name)) {
+                int entryIndex = STATIC_LENGTH + entries.size() - i;
+                if (entry[1].equals(value)) {
+                    return entryIndex;
+                }
+                if (nameIndex == 0) {
+                    nameIndex = entryIndex;
+                }
+            }
+        }
+        Integer staticName = STATIC_NAMES.get(name);
+        if (staticName != null) {
+            return -staticName;
+        }
+        return -nameIndex;
+    }
+
+    /**
+     * Add an entry, evicting the oldest ones to make room for it
+     */
+    void add(String name, String value) {
+        int entrySize = entrySize(name, value);
+        evict(maxSize - entrySize);
+        if (entrySize <= maxSize) {
+            entries.add(new String[]{name, value});
+            size += entrySize;
+        }
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict(maxSize);
+    }
+
+    int length() {
+        return entries.size();
+    }
+
+    private void evict(int targetSize) {
+        while (size > Math.max(targetSize, 0) && !entries.isEmpty()) {
+            String[] oldest = entries.remove(0);
+            size -= entrySize(oldest[0], oldest[1]);
+        }
+    }
+}
@@ -0,0 +1,762 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.h2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP/2 client connection, RFC 7540, shared by all the threads sending requests to a server.
+ * <p>
+ * Each request is sent on its own stream and a reader thread dispatches the frames received
+ * to the streams, so many requests are in flight on one TCP connection.
+ * Requests wait when the number of concurrent streams allowed by the server is reached,
+ * and their DATA frames wait for the flow control windows.
+ * The HPACK compression state is kept for the life of the connection.
+ * <p>
+ * Lock order: {@code writeLock} then {@code flowLock}.
+ */
+public final class Http2Connection implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(Http2Connection.class);
+
+    static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1); // $NON-NLS-1$
+
+    static final int FRAME_HEADER_LENGTH = 9;
+
+    static final int TYPE_DATA = 0x0;
+    static final int TYPE_HEADERS = 0x1;
+    static final int TYPE_RST_STREAM = 0x3;
+    static final int TYPE_SETTINGS = 0x4;
+    static final int TYPE_PUSH_PROMISE = 0x5;
+    static final int TYPE_PING = 0x6;
+    static final int TYPE_GOAWAY = 0x7;
+    static final int TYPE_WINDOW_UPDATE = 0x8;
+    static final int TYPE_CONTINUATION = 0x9;
+
+    static final int FLAG_END_STREAM = 0x1;
+    static final int FLAG_ACK = 0x1;
+    static final int FLAG_END_HEADERS = 0x4;
+    static final int FLAG_PADDED = 0x8;
+    static final int FLAG_PRIORITY = 0x20;
+
+    static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    static final int SETTINGS_ENABLE_PUSH = 0x2;
+    static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+
+    static final int ERROR_NO_ERROR = 0x0;
+    static final int ERROR_PROTOCOL = 0x1;
+    static final int ERROR_REFUSED_STREAM = 0x7;
+    static final int ERROR_CANCEL = 0x8;
+
+    static final int DEFAULT_WINDOW_SIZE = 65535;
+    static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+    static final int DEFAULT_HEADER_TABLE_SIZE = 4096;
+
+    private final String name;
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final int localWindowSize;
+    private final int localMaxConcurrentStreams;
+
+    private final Object writeLock = new Object();
+    private final Object flowLock = new Object();
+
+    private final Map<Integer, Http2Stream> streams = new ConcurrentHashMap<>();
+
+    // Guarded by writeLock
+    private final HpackEncoder encoder = new HpackEncoder(DEFAULT_HEADER_TABLE_SIZE);
+    private int nextStreamId = 1;
+    private volatile int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+
+    // Guarded by flowLock
+    private long connectionSendWindow = DEFAULT_WINDOW_SIZE;
+    private int peerInitialWindowSize = DEFAULT_WINDOW_SIZE;
+    private int peerMaxConcurrentStreams = Integer.MAX_VALUE;
+    private int activeStreams;
+    private IOException failure;
+
+    // Used by the reader only
+    private final HpackDecoder decoder = new HpackDecoder(DEFAULT_HEADER_TABLE_SIZE);
+    private final byte[] payload = new byte[DEFAULT_MAX_FRAME_SIZE];
+    private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream(1024);
+    private int headerBlockStream;
+    private boolean headerBlockEndStream;
+    private int continuationStream;
+    private int unacknowledgedBytes;
+
+    private volatile boolean goAway;
+
+    private Http2Connection(String name, Socket socket, int localWindowSize, int localMaxConcurrentStreams)
+            throws IOException {
+        this.name = name;
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream(), DEFAULT_MAX_FRAME_SIZE);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), DEFAULT_MAX_FRAME_SIZE + FRAME_HEADER_LENGTH);
+        this.localWindowSize = localWindowSize;
+        this.localMaxConcurrentStreams = localMaxConcurrentStreams;
+    }
+
+    /**
+     * Exchange the connection prefaces and start reading the frames of the server
+     *
+     * @param name                      name of the connection, used for the reader thread and the logs
+     * @param socket                    connected socket, h2 already negotiated for TLS
+     * @param localWindowSize           receive window of the connection and of each stream
+     * @param localMaxConcurrentStreams maximum number of streams opened at the same time
+     * @return the connection ready to send requests
+     * @throws Http2NotSupportedException when the server does not speak HTTP/2
+     * @throws IOException                when the preface can not be exchanged
+     */
+    public static Http2Connection open(String name, Socket socket, int localWindowSize, int localMaxConcurrentStreams)
+            throws IOException {
+        Http2Connection connection = new Http2Connection(name, socket, localWindowSize, localMaxConcurrentStreams);
+        connection.handshake();
+        Thread reader = new Thread(connection::readFrames, "h2-" + name); // $NON-NLS-1$
+        reader.setDaemon(true);
+        reader.start();
+        return connection;
+    }
+
+    private void handshake() throws IOException {
+        ByteArrayOutputStream settings = new ByteArrayOutputStream(12);
+        writeSetting(settings, SETTINGS_ENABLE_PUSH, 0);
+        writeSetting(settings, SETTINGS_INITIAL_WINDOW_SIZE, localWindowSize);
+        synchronized (writeLock) {
+            out.write(PREFACE);
+            writeFrame(TYPE_SETTINGS, 0, 0, settings.toByteArray(), 0, settings.size());
+            if (localWindowSize > DEFAULT_WINDOW_SIZE) {
+                writeWindowUpdate(0, localWindowSize - DEFAULT_WINDOW_SIZE);
+            }
+            out.flush();
+        }
+        // The server preface is a SETTINGS frame
+        byte[] header = new byte[FRAME_HEADER_LENGTH];
+        try {
+            readFully(in, header, header.length);
+        } catch (EOFException e) {
+            throw new Http2NotSupportedException("Connection closed by " + name + " after the HTTP/2 preface", e);
+        } catch (SocketTimeoutException e) {
+            throw new Http2NotSupportedException(name + " did not answer the HTTP/2 preface", e);
+        }
+        if (new String(header, 0, 5, StandardCharsets.ISO_8859_1).startsWith("HTTP/")) { // $NON-NLS-1$
+            throw new Http2NotSupportedException(name + " answered the HTTP/2 preface with HTTP/1.x");
+        }
+        if (header[3] != TYPE_SETTINGS) {
+            throw new Http2NotSupportedException(name + " did not answer the HTTP/2 preface with SETTINGS");
+        }
+        processFrame(header);
+        // The reader waits for frames without limit, the time out of the responses is handled by the streams
+        socket.setSoTimeout(0);
+    }
+
+    /**
+     * @return {@code true} if new streams can be opened on this connection
+     */
+    public boolean isUsable() {
+        synchronized (flowLock) {
+            return failure == null && !goAway;
+        }
+    }
+
+    /**
+     * @return number of streams waiting for their response
+     */
+    public int getActiveStreams() {
+        synchronized (flowLock) {
+            return activeStreams;
+        }
+    }
+
+    /**
+     * Open a stream and send the request on it, waiting for a free stream if the
+     * maximum number of concurrent streams is reached
+     *
+     * @param headers names, in lower case, and values of the fields, pseudo-header fields first
+     * @param body    body of the request, may be null
+     * @return the stream that receives the response
+     * @throws Http2StreamRefusedException when the connection is going away, the request can be sent on another connection
+     * @throws IOException                 when the connection fails
+     */
+    public Http2Stream send(List<String[]> headers, byte[] body) throws IOException {
+        acquireStream();
+        boolean endStream = body == null || body.length == 0;
+        Http2Stream stream = null;
+        try {
+            synchronized (writeLock) {
+                synchronized (flowLock) {
+                    checkOpen();
+                    if (goAway || nextStreamId < 0) {
+                        goAway = true;
+                        throw new Http2StreamRefusedException("Connection " + name + " is going away");
+                    }
+                    stream = new Http2Stream(this, nextStreamId, peerInitialWindowSize);
+                    streams.put(stream.getId(), stream);
+                }
+                nextStreamId += 2;
+                ByteArrayOutputStream block = new ByteArrayOutputStream(256);
+                encoder.encode(headers, block);
+                stream.addSentBytes(writeHeaders(stream.getId(), block.toByteArray(), endStream));
+                if (endStream) {
+                    out.flush();
+                }
+            }
+            if (!endStream) {
+                writeData(stream, body);
+            }
+            return stream;
+        } catch (IOException e) {
+            if (stream == null) {
+                release();
+            } else if (e instanceof InterruptedIOException) {
+                cancel(stream);
+            } else {
+                // The connection is in an unknown state
+                closeWith(e);
+            }
+            throw e;
+        }
+    }
+
+    private void acquireStream() throws IOException {
+        synchronized (flowLock) {
+            while (true) {
+                checkOpen();
+                if (goAway) {
+                    throw new Http2StreamRefusedException("Connection " + name + " is going away");
+                }
+                if (activeStreams < Math.min(peerMaxConcurrentStreams, localMaxConcurrentStreams)) {
+                    activeStreams++;
+                    return;
+                }
+                waitFlow();
+            }
+        }
+    }
+
+    // Called with flowLock held
+    private void waitFlow() throws InterruptedIOException {
+        try {
+            flowLock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting on HTTP/2 connection " + name);
+        }
+    }
+
+    private void release() {
+        synchronized (flowLock) {
+            activeStreams--;
+            flowLock.notifyAll();
+        }
+    }
+
+    // Called with flowLock held
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("HTTP/2 connection " + name + " is closed: " + failure.getMessage(), failure);
+        }
+    }
+
+    private long writeHeaders(int streamId, byte[] block, boolean endStream) throws IOException {
+        int maxFrameSize = peerMaxFrameSize;
+        int length = Math.min(block.length, maxFrameSize);
+        int flags = (endStream ? FLAG_END_STREAM : 0) | (length == block.length ? FLAG_END_HEADERS : 0);
+        writeFrame(TYPE_HEADERS, flags, streamId, block, 0, length);
+        long sent = FRAME_HEADER_LENGTH + length;
+        for (int offset = length; offset < block.length; offset += length) {
+            length = Math.min(block.length - offset, maxFrameSize);
+            writeFrame(TYPE_CONTINUATION, offset + length == block.length ? FLAG_END_HEADERS : 0,
+                    streamId, block, offset, length);
+            sent += FRAME_HEADER_LENGTH + length;
+        }
+        return sent;
+    }
+
+    private void writeData(Http2Stream stream, byte[] body) throws IOException {
+        int offset = 0;
+        while (offset < body.length) {
+            int length;
+            synchronized (flowLock) {
+                while (true) {
+                    checkOpen();
+                    if (stream.isDone()) {
+                        // Reset or answered before the end of the body
+                        return;
+                    }
+                    long available = Math.min(connectionSendWindow, stream.sendWindow);
+                    if (available > 0) {
+                        length = (int) Math.min(Math.min(available, body.length - offset), peerMaxFrameSize);
+                        connectionSendWindow -= length;
+                        stream.sendWindow -= length;
+                        break;
+                    }
+                    waitFlow();
+                }
+            }
+            boolean last = offset + length == body.length;
+            synchronized (writeLock) {
+                writeFrame(TYPE_DATA, last ? FLAG_END_STREAM : 0, stream.getId(), body, offset, length);
+                if (last) {
+                    out.flush();
+                }
+            }
+            stream.addSentBytes((long) FRAME_HEADER_LENGTH + length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Reset the stream, if it is still open
+     */
+    void cancel(Http2Stream stream) {
+        if (streams.remove(stream.getId(), stream)) {
+            release();
+            stream.complete(new IOException("Stream " + stream.getId() + " cancelled"));
+            try {
+                synchronized (writeLock) {
+                    writeRstStream(stream.getId(), ERROR_CANCEL);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                closeWith(e);
+            }
+        }
+    }
+
+    private void readFrames() {
+        byte[] header = new byte[FRAME_HEADER_LENGTH];
+        try {
+            while (true) {
+                readFully(in, header, header.length);
+                processFrame(header);
+            }
+        } catch (IOException e) {
+            closeWith(e);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error on HTTP/2 connection {}", name, e);
+            closeWith(new IOException(e));
+        }
+    }
+
+    private void processFrame(byte[] header) throws IOException {
+        int length = ((header[0] & 0xff) << 16) | ((header[1] & 0xff) << 8) | (header[2] & 0xff);
+        int type = header[3] & 0xff;
+        int flags = header[4] & 0xff;
+        int streamId = readInt(header, 5) & 0x7fffffff;
+        if (length > payload.length) {
+            throw protocolError("Frame of " + length + " bytes above the maximum frame size");
+        }
+        readFully(in, payload, length);
+        if (continuationStream != 0 && type != TYPE_CONTINUATION) {
+            throw protocolError("Frame of type " + type + " instead of CONTINUATION");
+        }
+        switch (type) {
+            case TYPE_DATA:
+                onData(streamId, flags, length);
+                break;
+            case TYPE_HEADERS:
+                onHeaders(streamId, flags, length);
+                break;
+            case TYPE_CONTINUATION:
+                onContinuation(streamId, flags, length);
+                break;
+            case TYPE_RST_STREAM:
+                onRstStream(streamId, length);
+                break;
+            case TYPE_SETTINGS:
+                onSettings(flags, length);
+                break;
+            case TYPE_PUSH_PROMISE:
+                throw protocolError("PUSH_PROMISE received while push is disabled");
+            case TYPE_PING:
+                if ((flags & FLAG_ACK) == 0) {
+                    synchronized (writeLock) {
+                        writeFrame(TYPE_PING, FLAG_ACK, 0, payload, 0, length);
+                        out.flush();
+                    }
+                }
+                break;
+            case TYPE_GOAWAY:
+                onGoAway(length);
+                break;
+            case TYPE_WINDOW_UPDATE:
+                onWindowUpdate(streamId, length);
+                break;
+            default:
+                // PRIORITY and unknown frame types are ignored
+                break;
+        }
+    }
+
+    private void onData(int streamId, int flags, int length) throws IOException {
+        int offset = 0;
+        int padding = 0;
+        if ((flags & FLAG_PADDED) != 0) {
+            padding = payload[0] & 0xff;
+            offset = 1;
+        }
+        if (length - offset - padding < 0) {
+            throw protocolError("Invalid padding in DATA frame");
+        }
+        unacknowledgedBytes += length;
+        if (unacknowledgedBytes >= localWindowSize / 2) {
+            synchronized (writeLock) {
+                writeWindowUpdate(0, unacknowledgedBytes);
+                out.flush();
+            }
+            unacknowledgedBytes = 0;
+        }
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null) {
+            return;
+        }
+        stream.onData(payload, offset, length - offset - padding, length);
+        if ((flags & FLAG_END_STREAM) != 0) {
+            finish(stream, null);
+            return;
+        }
+        stream.unacknowledgedBytes += length;
+        if (stream.unacknowledgedBytes >= localWindowSize / 2) {
+            synchronized (writeLock) {
+                writeWindowUpdate(streamId, stream.unacknowledgedBytes);
+                out.flush();
+            }
+            stream.unacknowledgedBytes = 0;
+        }
+    }
+
+    private void onHeaders(int streamId, int flags, int length) throws IOException {
+        int offset = 0;
+        int padding = 0;
+        if ((flags & FLAG_PADDED) != 0) {
+            padding = payload[0] & 0xff;
+            offset = 1;
+        }
+        if ((flags & FLAG_PRIORITY) != 0) {
+            offset += 5;
+        }
+        if (length - offset - padding < 0) {
+            throw protocolError("Invalid padding in HEADERS frame");
+        }
+        headerBlock.reset();
+        headerBlock.write(payload, offset, length - offset - padding);
+        headerBlockStream = streamId;
+        headerBlockEndStream = (flags & FLAG_END_STREAM) != 0;
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            endHeaders();
+        } else {
+            continuationStream = streamId;
+        }
+    }
+
+    private void onContinuation(int streamId, int flags, int length) throws IOException {
+        if (continuationStream == 0 || streamId != continuationStream) {
+            throw protocolError("Unexpected CONTINUATION frame on stream " + streamId);
+        }
+        headerBlock.write(payload, 0, length);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            continuationStream = 0;
+            endHeaders();
+        }
+    }
+
+    private void endHeaders() throws IOException {
+        byte[] block = headerBlock.toByteArray();
+        // The block must be decoded even for a cancelled stream, to keep the HPACK state
+        List<String[]> fields = decoder.decode(block, block.length);
+        Http2Stream stream = streams.get(headerBlockStream);
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.onHeaders(fields, block.length);
+        } catch (IOException e) {
+            finish(stream, e);
+            return;
+        }
+        if (headerBlockEndStream) {
+            finish(stream, null);
+        }
+    }
+
+    private void onRstStream(int streamId, int length) throws IOException {
+        if (length != 4) {
+            throw protocolError("Invalid RST_STREAM frame");
+        }
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+            int errorCode = readInt(payload, 0);
+            finish(stream, errorCode == ERROR_REFUSED_STREAM
+                    ? new Http2StreamRefusedException("Stream " + streamId + " refused by " + name)
+                    : new IOException("Stream " + streamId + " reset by " + name + ", error code " + errorCode));
+        }
+    }
+
+    private void onSettings(int flags, int length) throws IOException {
+        if ((flags & FLAG_ACK) != 0) {
+            return;
+        }
+        if (length % 6 != 0) {
+            throw protocolError("Invalid SETTINGS frame");
+        }
+        for (int offset = 0; offset < length; offset += 6) {
+            int id = ((payload[offset] & 0xff) << 8) | (payload[offset + 1] & 0xff);
+            int value = readInt(payload, offset + 2);
+            switch (id) {
+                case SETTINGS_HEADER_TABLE_SIZE:
+                    synchronized (writeLock) {
+                        encoder.setMaxTableSize(value < 0 ? Integer.MAX_VALUE : value, DEFAULT_HEADER_TABLE_SIZE);
+                    }
+                    break;
+                case SETTINGS_MAX_CONCURRENT_STREAMS:
+                    synchronized (flowLock) {
+                        peerMaxConcurrentStreams = value < 0 ? Integer.MAX_VALUE : value;
+                        flowLock.notifyAll();
+                    }
+                    break;
+                case SETTINGS_INITIAL_WINDOW_SIZE:
+                    if (value < 0) {
+                        throw protocolError("Invalid SETTINGS_INITIAL_WINDOW_SIZE " + (value & 0xffffffffL));
+                    }
+                    synchronized (flowLock) {
+                        int delta = value - peerInitialWindowSize;
+                        peerInitialWindowSize = value;
+                        for (Http2Stream stream : streams.values()) {
+                            stream.sendWindow += delta;
+                        }
+                        flowLock.notifyAll();
+                    }
+                    break;
+                case SETTINGS_MAX_FRAME_SIZE:
+                    if (value < DEFAULT_MAX_FRAME_SIZE || value > 0xffffff) {
+                        throw protocolError("Invalid SETTINGS_MAX_FRAME_SIZE " + value);
+                    }
+                    peerMaxFrameSize = value;
+                    break;
+                default:
+                    // Other settings do not change what this client sends
+                    break;
+            }
+        }
+        synchronized (writeLock) {
+            writeFrame(TYPE_SETTINGS, FLAG_ACK, 0, payload, 0, 0);
+            out.flush();
+        }
+    }
+
+    private void onGoAway(int length) throws IOException {
+        if (length < 8) {
+            throw protocolError("Invalid GOAWAY frame");
+        }
+        int lastStreamId = readInt(payload, 0) & 0x7fffffff;
+        int errorCode = readInt(payload, 4);
+        log.debug("GOAWAY from {}, last stream {}, error code {}", name, lastStreamId, errorCode);
+        synchronized (flowLock) {
+            goAway = true;
+            flowLock.notifyAll();
+        }
+        // Streams above the last one were not processed and can be retried
+        for (Http2Stream stream : streams.values()) {
+            if (stream.getId() > lastStreamId) {
+                finish(stream, new Http2StreamRefusedException("Stream " + stream.getId() + " not processed by "
+                        + name + " before GOAWAY"));
+            }
+        }
+        closeIfIdle();
+    }
+
+    private void onWindowUpdate(int streamId, int length) throws IOException {
+        if (length != 4) {
+            throw protocolError("Invalid WINDOW_UPDATE frame");
+        }
+        int increment = readInt(payload, 0) & 0x7fffffff;
+        synchronized (flowLock) {
+            if (streamId == 0) {
+                connectionSendWindow += increment;
+            } else {
+                Http2Stream stream = streams.get(streamId);
+                if (stream != null) {
+                    stream.sendWindow += increment;
+                }
+            }
+            flowLock.notifyAll();
+        }
+    }
+
+    private void finish(Http2Stream stream, IOException cause) {
+        if (streams.remove(stream.getId(), stream)) {
+            release();
+            stream.complete(cause);
+            if (goAway) {
+                closeIfIdle();
+            }
+        }
+    }
+
+    private void closeIfIdle() {
+        if (streams.isEmpty()) {
+            close();
+        }
+    }
+
+    private IOException protocolError(String message) {
+        try {
+            synchronized (writeLock) {
+                writeGoAway(ERROR_PROTOCOL);
+                out.flush();
+            }
+        } catch (IOException e) {
+            log.debug("Could not send GOAWAY to {}", name, e);
+        }
+        return new IOException("HTTP/2 protocol error on " + name + ": " + message);
+    }
+
+    /**
+     * Send GOAWAY and close the connection, the streams still open fail
+     */
+    @Override
+    public void close() {
+        synchronized (flowLock) {
+            if (failure != null) {
+                return;
+            }
+        }
+        try {
+            synchronized (writeLock) {
+                writeGoAway(ERROR_NO_ERROR);
+                out.flush();
+            }
+        } catch (IOException e) {
+            log.debug("Could not send GOAWAY to {}", name, e);
+        }
+        closeWith(new IOException("Connection closed"));
+    }
+
+    private void closeWith(IOException cause) {
+        synchronized (flowLock) {
+            if (failure != null) {
+                return;
+            }
+            failure = cause;
+            flowLock.notifyAll();
+        }
+        JOrphanUtils.closeQuietly(socket);
+        for (Http2Stream stream : streams.values()) {
+            if (streams.remove(stream.getId(), stream)) {
+                stream.complete(new IOException("HTTP/2 connection " + name + " closed: " + cause.getMessage(), cause));
+            }
+        }
+    }
+
+    // Called with writeLock held
+    private void writeFrame(int type, int flags, int streamId, byte[] data, int offset, int length) throws IOException {
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+        out.write(type);
+        out.write(flags);
+        writeInt(out, streamId);
+        out.write(data, offset, length);
+    }
+
+    // Called with writeLock held
+    private void writeWindowUpdate(int streamId, int increment) throws IOException {
+        byte[] data = new byte[4];
+        setInt(data, 0, increment);
+        writeFrame(TYPE_WINDOW_UPDATE, 0, streamId, data, 0, 4);
+    }
+
+    // Called with writeLock held
+    private void writeRstStream(int streamId, int errorCode) throws IOException {
+        byte[] data = new byte[4];
+        setInt(data, 0, errorCode);
+        writeFrame(TYPE_RST_STREAM, 0, streamId, data, 0, 4);
+    }
+
+    // Called with writeLock held
+    private void writeGoAway(int errorCode) throws IOException {
+        byte[] data = new byte[8];
+        // Push is disabled, so the server never opened a stream
+        setInt(data, 0, 0);
+        setInt(data, 4, errorCode);
+        writeFrame(TYPE_GOAWAY, 0, 0, data, 0, 8);
+    }
+
+    static void writeSetting(ByteArrayOutputStream out, int id, int value) {
+        out.write(id >>> 8);
+        out.write(id);
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    static void setInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16)
+                | ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+    }
+
+    static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                throw new EOFException("End of HTTP/2 stream");
+            }
+            read += n;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Http2Connection[" + name + ", active streams=" + getActiveStreams() + "]";
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.h2;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jmeter.util.JsseSSLManager;
+import org.apache.jmeter.util.SSLManager;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP/2 connections of the test, shared by all the threads.
+ * <p>
+ * Each server gets {@code http2.connections_per_host} connections and the requests
+ * are spread over them, so thousands of threads can send their requests on a few
+ * multiplexed connections. Servers that do not negotiate HTTP/2 are remembered
+ * until the end of the test.
+ */
+public final class Http2Connections {
+    private static final Logger log = LoggerFactory.getLogger(Http2Connections.class);
+
+    private static final String APPLICATION_PROTOCOL = "h2"; // $NON-NLS-1$
+
+    static final int CONNECTIONS_PER_HOST =
+            Math.max(1, JMeterUtils.getPropDefault("http2.connections_per_host", 1)); // $NON-NLS-1$
+
+    static final int MAX_CONCURRENT_STREAMS =
+            Math.max(1, JMeterUtils.getPropDefault("http2.max_concurrent_streams", 100)); // $NON-NLS-1$
+
+    static final int INITIAL_WINDOW_SIZE = Math.min(Integer.MAX_VALUE - 1, Math.max(Http2Connection.DEFAULT_WINDOW_SIZE,
+            JMeterUtils.getPropDefault("http2.initial_window_size", 1048576))); // $NON-NLS-1$
+
+    /** Time to wait for the TLS handshake and the server preface when there is no connect timeout */
+    private static final int HANDSHAKE_TIMEOUT = 10000;
+
+    private static final Map<String, Slots> CONNECTIONS = new ConcurrentHashMap<>();
+
+    private static final Set<String> HTTP1_ONLY = ConcurrentHashMap.newKeySet();
+
+    private Http2Connections() {
+    }
+
+    /**
+     * Connections to one server, opened on first use and replaced when they fail
+     */
+    private static final class Slots {
+        private final Http2Connection[] connections = new Http2Connection[CONNECTIONS_PER_HOST];
+        private final AtomicInteger next = new AtomicInteger();
+
+        Http2Connection get(URL url, int connectTimeout, InetAddress localAddress, DnsResolver resolver)
+                throws IOException {
+            int index = Math.floorMod(next.getAndIncrement(), connections.length);
+            synchronized (this) {
+                Http2Connection connection = connections[index];
+                if (connection == null || !connection.isUsable()) {
+                    connection = connect(url, connectTimeout, localAddress, resolver);
+                    connections[index] = connection;
+                }
+                return connection;
+            }
+        }
+
+        synchronized void close() {
+            for (int i = 0; i < connections.length; i++) {
+                if (connections[i] != null) {
+                    connections[i].close();
+                    connections[i] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param url target of the request
+     * @return {@code true} if the server did not negotiate HTTP/2 earlier in the test
+     */
+    public static boolean isHttp1Only(URL url) {
+        return HTTP1_ONLY.contains(hostKey(url));
+    }
+
+    /**
+     * Get a connection to the server of the url, opening it if needed
+     *
+     * @param url            target of the request
+     * @param connectTimeout connect timeout in milliseconds, 0 for none
+     * @param localAddress   local address to bind, may be null
+     * @param resolver       resolver of the host name, null for the system one
+     * @return a connection to send the request on
+     * @throws Http2NotSupportedException when the server does not speak HTTP/2
+     * @throws IOException                when the connection can not be opened
+     */
+    public static Http2Connection get(URL url, int connectTimeout, InetAddress localAddress, DnsResolver resolver)
+            throws IOException {
+        String key = hostKey(url) + (localAddress == null ? "" : "@" + localAddress.getHostAddress()); // $NON-NLS-1$
+        try {
+            return CONNECTIONS.computeIfAbsent(key, k -> new Slots()).get(url, connectTimeout, localAddress,
+                    resolver == null ? SystemDefaultDnsResolver.INSTANCE : resolver);
+        } catch (Http2NotSupportedException e) {
+            HTTP1_ONLY.add(hostKey(url));
+            throw e;
+        }
+    }
+
+    private static Http2Connection connect(URL url, int connectTimeout, InetAddress localAddress,
+            DnsResolver resolver) throws IOException {
+        boolean secure = "https".equalsIgnoreCase(url.getProtocol()); // $NON-NLS-1$
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        InetAddress address = resolver.resolve(url.getHost())[0];
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            if (localAddress != null) {
+                socket.bind(new InetSocketAddress(localAddress, 0));
+            }
+            socket.connect(new InetSocketAddress(address, port), connectTimeout);
+            // Bounds the handshake, the connection resets it once the server preface is read
+            socket.setSoTimeout(connectTimeout > 0 ? connectTimeout : HANDSHAKE_TIMEOUT);
+            if (secure) {
+                socket = negotiate(socket, url.getHost(), port);
+            }
+            log.debug("Opening HTTP/2 connection to {}:{}", url.getHost(), port);
+            return Http2Connection.open(url.getHost() + ":" + port, socket, INITIAL_WINDOW_SIZE, MAX_CONCURRENT_STREAMS);
+        } catch (IOException | RuntimeException e) {
+            JOrphanUtils.closeQuietly(socket);
+            throw e;
+        }
+    }
+
+    private static Socket negotiate(Socket plain, String host, int port) throws IOException {
+        SSLSocket socket;
+        try {
+            socket = (SSLSocket) ((JsseSSLManager) SSLManager.getInstance()).getContext().getSocketFactory()
+                    .createSocket(plain, host, port, true);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not create TLS context", e);
+        }
+        try {
+            SSLParameters parameters = socket.getSSLParameters();
+            parameters.setApplicationProtocols(new String[]{APPLICATION_PROTOCOL});
+            socket.setSSLParameters(parameters);
+            socket.startHandshake();
+            if (!APPLICATION_PROTOCOL.equals(socket.getApplicationProtocol())) {
+                throw new Http2NotSupportedException(host + ":" + port + " did not negotiate h2 with ALPN");
+            }
+        } catch (NoSuchMethodError e) {
+            throw new Http2NotSupportedException("ALPN is not supported by this Java runtime", e);
+        }
+        return socket;
+    }
+
+    /**
+     * Close all the connections and forget the servers without HTTP/2, called at the end of the test
+     */
+    public static void closeAll() {
+        CONNECTIONS.values().forEach(Slots::close);
+        CONNECTIONS.clear();
+        HTTP1_ONLY.clear();
+    }
+
+    private static String hostKey(URL url) {
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol().toLowerCase(Locale.ROOT) + "://" + url.getHost() + ":" + port; // $NON-NLS-1$ $NON-NLS-2$
+    }
+}
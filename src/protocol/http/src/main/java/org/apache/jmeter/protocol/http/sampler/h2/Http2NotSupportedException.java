@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.h2;
+
+import java.io.IOException;
+
+/**
+ * Signals that the server does not speak HTTP/2: ALPN did not select {@code h2}, or the server
+ * did not answer the connection preface with a SETTINGS frame.
+ */
+public class Http2NotSupportedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public Http2NotSupportedException(String message) {
+        super(message);
+    }
+
+    public Http2NotSupportedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
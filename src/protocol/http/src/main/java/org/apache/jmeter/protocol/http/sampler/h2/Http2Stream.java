@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.h2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exchange of one request and its response on a {@link Http2Connection}.
+ * <p>
+ * The response is filled by the reader thread of the connection, it can be read
+ * once {@link #await(long)} returns.
+ */
+public final class Http2Stream {
+
+    private final Http2Connection connection;
+    private final int id;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    // Guarded by the flow control lock of the connection
+    long sendWindow;
+
+    // Used by the reader thread of the connection only
+    int unacknowledgedBytes;
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private List<String[]> headers = Collections.emptyList();
+    private List<String[]> trailers = Collections.emptyList();
+    private int status = -1;
+    private long headersNanos;
+    private long receivedHeaderBytes;
+    private long receivedDataBytes;
+    private long sentBytes;
+    private volatile IOException failure;
+
+    Http2Stream(Http2Connection connection, int id, long sendWindow) {
+        this.connection = connection;
+        this.id = id;
+        this.sendWindow = sendWindow;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Wait for the end of the response
+     *
+     * @param timeoutMillis maximum time to wait, 0 or less to wait without limit
+     * @throws IOException when the stream failed or the time is over, in which case the stream is cancelled
+     */
+    public void await(long timeoutMillis) throws IOException {
+        try {
+            if (timeoutMillis > 0) {
+                if (!done.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    cancel();
+                    throw new SocketTimeoutException("Read timed out after " + timeoutMillis + " ms on stream " + id);
+                }
+            } else {
+                done.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new InterruptedIOException("Interrupted while waiting for stream " + id);
+        }
+        IOException cause = failure;
+        if (cause != null) {
+            throw cause;
+        }
+    }
+
+    /**
+     * Reset the stream, the response is not waited for anymore
+     */
+    public void cancel() {
+        connection.cancel(this);
+    }
+
+    boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    void complete(IOException cause) {
+        failure = cause;
+        done.countDown();
+    }
+
+    void onHeaders(List<String[]> fields, int blockLength) throws IOException {
+        receivedHeaderBytes += blockLength;
+        if (status >= 0) {
+            // Trailers
+            trailers = fields;
+            return;
+        }
+        for (String[] field : fields) {
+            if (":status".equals(field[0])) { // $NON-NLS-1$
+                int code;
+                try {
+                    code = Integer.parseInt(field[1]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid :status " + field[1] + " on stream " + id, e);
+                }
+                // Interim responses such as 100 Continue are followed by the final one
+                if (code >= 200) {
+                    status = code;
+                    headers = fields;
+                    headersNanos = System.nanoTime();
+                }
+                return;
+            }
+        }
+        throw new IOException("Response without :status on stream " + id);
+    }
+
+    void onData(byte[] data, int offset, int length, int frameLength) {
+        body.write(data, offset, length);
+        receivedDataBytes += frameLength;
+    }
+
+    void addSentBytes(long bytes) {
+        sentBytes += bytes;
+    }
+
+    /**
+     * @return the status code of the final response
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return names and values of the fields of the final response, followed by the trailers
+     */
+    public List<String[]> getHeaders() {
+        if (trailers.isEmpty()) {
+            return headers;
+        }
+        List<String[]> all = new ArrayList<>(headers.size() + trailers.size());
+        all.addAll(headers);
+        all.addAll(trailers);
+        return all;
+    }
+
+    /**
+     * @param name name of the field, in lower case
+     * @return the value of the first field with this name, {@code null} if none
+     */
+    public String getHeader(String name) {
+        for (String[] field : headers) {
+            if (field[0].equals(name)) {
+                return field[1];
+            }
+        }
+        return null;
+    }
+
+    public byte[] getBody() {
+        return body.toByteArray();
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the final response headers were received
+     */
+    public long getHeadersNanos() {
+        return headersNanos;
+    }
+
+    /**
+     * @return compressed size of the header blocks received
+     */
+    public long getReceivedHeaderBytes() {
+        return receivedHeaderBytes;
+    }
+
+    /**
+     * @return size of the DATA frames received, padding included
+     */
+    public long getReceivedDataBytes() {
+        return receivedDataBytes;
+    }
+
+    /**
+     * @return size of the frames sent for this stream, frame headers included
+     */
+    public long getSentBytes() {
+        return sentBytes;
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Streaming decoder for envelopes like <code>{"data":"&lt;Base64 body&gt;"}</code>.
+ * <p>
+ * The envelope is tokenized as it is read until the payload string is found, then the
+ * payload is Base64 decoded straight into the buffer of the caller. JSON escapes inside
+ * the payload (like the unicode escape of <code>=</code> written by Gson) are decoded inline, so no
+ * intermediate String or byte array of the body is created.
+ * <p>
+ * The payload is the value of the top-level member named by the {@code httpapp.envelope.field}
+ * property, or the first top-level string value when the property is empty.
+ */
+public class Base64JsonEnvelopeDecoder implements ResponseEnvelopeDecoder {
+
+    private static final String FIELD = JMeterUtils.getPropDefault("httpapp.envelope.field", ""); // $NON-NLS-1$
+
+    private final byte[] field;
+
+    public Base64JsonEnvelopeDecoder() {
+        this(FIELD);
+    }
+
+    /**
+     * @param field name of the payload member, {@code null} or empty for the first string value
+     */
+    public Base64JsonEnvelopeDecoder(String field) {
+        this.field = field == null || field.isEmpty() ? null : field.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public InputStream decode(InputStream envelope) {
+        return new PayloadInputStream(envelope, field);
+    }
+
+    /**
+     * Decodes the payload on the fly, the envelope is only tokenized on the first read
+     */
+    private static final class PayloadInputStream extends InputStream {
+        private static final int END = -1;
+        private static final int PAD = -2;
+
+        // Value of each Base64 character (both alphabets), -1 for other characters
+        private static final int[] SEXTETS = new int[128];
+
+        static {
+            Arrays.fill(SEXTETS, -1);
+            for (int i = 0; i < 26; i++) {
+                SEXTETS['A' + i] = i;
+                SEXTETS['a' + i] = 26 + i;
+            }
+            for (int i = 0; i < 10; i++) {
+                SEXTETS['0' + i] = 52 + i;
+            }
+            SEXTETS['+'] = 62;
+            SEXTETS['-'] = 62;
+            SEXTETS['/'] = 63;
+            SEXTETS['_'] = 63;
+        }
+
+        private final InputStream in;
+        private final byte[] field;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+
+        private boolean payloadFound;
+        private boolean padded;
+        private boolean finished;
+
+        // Bits of the current group of 4 Base64 characters
+        private int quad;
+        private int quadCount;
+
+        // Decoded bytes that did not fit in the buffer of the caller
+        private final byte[] pending = new byte[3];
+        private int pendingPosition;
+        private int pendingLength;
+
+        private final byte[] single = new byte[1];
+
+        PayloadInputStream(InputStream in, byte[] field) {
+            this.in = in;
+            this.field = field;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!payloadFound) {
+                seekPayload();
+                payloadFound = true;
+            }
+            int n = 0;
+            while (pendingPosition < pendingLength && n < len) {
+                b[off + n++] = pending[pendingPosition++];
+            }
+            while (n < len && !finished) {
+                int sextet = nextSextet();
+                if (sextet >= 0) {
+                    if (padded) {
+                        throw malformed("data after padding");
+                    }
+                    quad = (quad << 6) | sextet;
+                    if (++quadCount == 4) {
+                        if (len - n >= 3) {
+                            b[off + n++] = (byte) (quad >> 16);
+                            b[off + n++] = (byte) (quad >> 8);
+                            b[off + n++] = (byte) quad;
+                        } else {
+                            pending[0] = (byte) (quad >> 16);
+                            pending[1] = (byte) (quad >> 8);
+                            pending[2] = (byte) quad;
+                            pendingLength = 3;
+                            pendingPosition = 0;
+                            while (pendingPosition < pendingLength && n < len) {
+                                b[off + n++] = pending[pendingPosition++];
+                            }
+                        }
+                        quad = 0;
+                        quadCount = 0;
+                    }
+                } else {
+                    if (!padded) {
+                        n += flushPartialQuad(b, off + n, len - n);
+                    }
+                    if (sextet == PAD) {
+                        padded = true;
+                    } else {
+                        finished = true;
+                        drain();
+                    }
+                }
+            }
+            return n == 0 && finished ? -1 : n;
+        }
+
+        /**
+         * Decode the last 2 or 3 characters of a payload that is not a multiple of 4
+         */
+        private int flushPartialQuad(byte[] b, int off, int len) throws IOException {
+            int count = quadCount;
+            quadCount = 0;
+            pendingPosition = 0;
+            if (count == 0) {
+                pendingLength = 0;
+                return 0;
+            } else if (count == 2) {
+                pending[0] = (byte) (quad >> 4);
+                pendingLength = 1;
+            } else if (count == 3) {
+                pending[0] = (byte) (quad >> 10);
+                pending[1] = (byte) (quad >> 2);
+                pendingLength = 2;
+            } else {
+                throw malformed("truncated Base64 data");
+            }
+            quad = 0;
+            int n = 0;
+            while (pendingPosition < pendingLength && n < len) {
+                b[off + n++] = pending[pendingPosition++];
+            }
+            return n;
+        }
+
+        /**
+         * @return the value of the next Base64 character, {@link #PAD} or {@link #END} at the closing quote
+         */
+        private int nextSextet() throws IOException {
+            while (true) {
+                int c = nextByte();
+                if (c == '"') {
+                    return END;
+                } else if (c == '\\') {
+                    int escaped = nextByte();
+                    if (escaped == 'u') {
+                        c = (hexDigit() << 12) | (hexDigit() << 8) | (hexDigit() << 4) | hexDigit();
+                    } else if (escaped == '/') {
+                        c = '/';
+                    } else if (escaped == 'n' || escaped == 'r') {
+                        continue; // line breaks of MIME Base64
+                    } else {
+                        throw malformed("unexpected escape in payload");
+                    }
+                } else if (c == -1) {
+                    throw new EOFException("Invalid response envelope: unterminated payload");
+                }
+                if (c == '=') {
+                    return PAD;
+                }
+                if (c < SEXTETS.length && SEXTETS[c] >= 0) {
+                    return SEXTETS[c];
+                }
+                throw malformed("illegal Base64 character " + c);
+            }
+        }
+
+        private int hexDigit() throws IOException {
+            int c = nextByte();
+            int digit = Character.digit(c, 16);
+            if (c == -1 || digit < 0) {
+                throw malformed("invalid unicode escape");
+            }
+            return digit;
+        }
+
+        /**
+         * Move to the first byte of the payload string
+         */
+        private void seekPayload() throws IOException {
+            if (nextNonSpace() != '{') {
+                throw malformed("expected an object");
+            }
+            while (true) {
+                int c = nextNonSpace();
+                if (c == '}') {
+                    throw malformed("no payload found");
+                }
+                if (c != '"') {
+                    throw malformed("expected a member name");
+                }
+                boolean matches = readName();
+                if (nextNonSpace() != ':') {
+                    throw malformed("expected ':'");
+                }
+                c = nextNonSpace();
+                if (c == '"' && (field == null || matches)) {
+                    return;
+                }
+                c = skipValue(c);
+                if (c == '}') {
+                    throw malformed("no payload found");
+                }
+                if (c != ',') {
+                    throw malformed("expected ','");
+                }
+            }
+        }
+
+        /**
+         * Read a member name, the opening quote is already read
+         *
+         * @return true if the name is the payload field
+         */
+        private boolean readName() throws IOException {
+            boolean matches = field != null;
+            int i = 0;
+            while (true) {
+                int c = nextByte();
+                if (c == -1) {
+                    throw new EOFException("Invalid response envelope: unterminated name");
+                } else if (c == '"') {
+                    return matches && i == field.length;
+                } else if (c == '\\') {
+                    // Escaped names are not compared
+                    matches = false;
+                    nextByte();
+                } else if (matches) {
+                    matches = i < field.length && field[i++] == (byte) c;
+                }
+            }
+        }
+
+        /**
+         * @param c first byte of the value
+         * @return the first non blank byte after the value
+         */
+        private int skipValue(int c) throws IOException {
+            if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                int depth = 1;
+                while (depth > 0) {
+                    int b = nextByte();
+                    if (b == -1) {
+                        throw new EOFException("Invalid response envelope: unterminated value");
+                    } else if (b == '"') {
+                        skipString();
+                    } else if (b == '{' || b == '[') {
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        depth--;
+                    }
+                }
+            } else {
+                int b = c;
+                while (b != ',' && b != '}' && b != ']' && !isSpace(b)) {
+                    if (b == -1) {
+                        throw new EOFException("Invalid response envelope: unterminated value");
+                    }
+                    b = nextByte();
+                }
+                return isSpace(b) ? nextNonSpace() : b;
+            }
+            return nextNonSpace();
+        }
+
+        private void skipString() throws IOException {
+            while (true) {
+                int b = nextByte();
+                if (b == -1) {
+                    throw new EOFException("Invalid response envelope: unterminated string");
+                } else if (b == '\\') {
+                    nextByte();
+                } else if (b == '"') {
+                    return;
+                }
+            }
+        }
+
+        private static boolean isSpace(int c) {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+        }
+
+        private int nextNonSpace() throws IOException {
+            int c;
+            do {
+                c = nextByte();
+            } while (isSpace(c));
+            return c;
+        }
+
+        private int nextByte() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        /**
+         * Read the end of the envelope, so the connection can be reused
+         */
+        private void drain() throws IOException {
+            position = 0;
+            limit = 0;
+            while (in.read(buffer, 0, buffer.length) != -1) {
+                // the rest of the envelope is not needed
+            }
+        }
+
+        private static IOException malformed(String reason) {
+            return new IOException("Invalid response envelope: " + reason);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -20,6 +20,9 @@ package org.apache.jmeter.protocol.http.sampler.hc;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSocket;
 
 import org.apache.http.HttpHost;
 import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
@@ -39,6 +42,13 @@ import org.slf4j.LoggerFactory;
  */
 public final class LazyLayeredConnectionSocketFactory implements LayeredConnectionSocketFactory{
     private static final Logger LOG = LoggerFactory.getLogger(LazyLayeredConnectionSocketFactory.class);
+
+    /**
+     * Attribute of the {@link HttpContext} holding the duration in milliseconds, as a {@link Long},
+     * of the last TLS handshake made for the context
+     */
+    public static final String CONTEXT_ATTRIBUTE_HANDSHAKE_TIME = "__jmeter.TLS_H_T__"; //$NON-NLS-1$
+
     private static final String PROTOCOL_LIST =
             JMeterUtils.getPropDefault("https.socket.protocols", ""); // $NON-NLS-1$ $NON-NLS-2$
 
@@ -84,19 +94,56 @@ public final class LazyLayeredConnectionSocketFactory implements LayeredConnecti
         return AdapteeHolder.getINSTANCE().createSocket(paramHttpContext);
     }
 
+    /**
+     * Connects the plain socket then layers TLS on it through {@link #createLayeredSocket},
+     * so that the handshake is timed apart from the TCP connection
+     */
     @Override
     public Socket connectSocket(int paramInt, Socket paramSocket, HttpHost paramHttpHost,
             InetSocketAddress paramInetSocketAddress1, InetSocketAddress paramInetSocketAddress2,
             HttpContext paramHttpContext) throws IOException {
-        return AdapteeHolder.getINSTANCE().connectSocket(paramInt, paramSocket, paramHttpHost,
-                paramInetSocketAddress1, paramInetSocketAddress2,
+        if (paramSocket instanceof SSLSocket) {
+            return AdapteeHolder.getINSTANCE().connectSocket(paramInt, paramSocket, paramHttpHost,
+                    paramInetSocketAddress1, paramInetSocketAddress2,
+                    paramHttpContext);
+        }
+        Socket sock = paramSocket != null ? paramSocket : createSocket(paramHttpContext);
+        if (paramInetSocketAddress2 != null) {
+            sock.bind(paramInetSocketAddress2);
+        }
+        try {
+            if (paramInt > 0 && sock.getSoTimeout() == 0) {
+                sock.setSoTimeout(paramInt);
+            }
+            sock.connect(paramInetSocketAddress1, paramInt);
+        } catch (IOException ex) {
+            closeQuietly(sock);
+            throw ex;
+        }
+        return createLayeredSocket(sock, paramHttpHost.getHostName(), paramInetSocketAddress1.getPort(),
                 paramHttpContext);
     }
 
     @Override
     public Socket createLayeredSocket(Socket paramSocket, String paramString, int paramInt,
             HttpContext paramHttpContext) throws IOException {
-        return AdapteeHolder.getINSTANCE().createLayeredSocket(paramSocket, paramString, paramInt,
-            paramHttpContext);
+        long start = System.nanoTime();
+        try {
+            return AdapteeHolder.getINSTANCE().createLayeredSocket(paramSocket, paramString, paramInt,
+                paramHttpContext);
+        } finally {
+            if (paramHttpContext != null) {
+                paramHttpContext.setAttribute(CONTEXT_ATTRIBUTE_HANDSHAKE_TIME,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket sock) {
+        try {
+            sock.close();
+        } catch (IOException e) { // NOSONAR the connection failure is reported
+            LOG.debug("Failed to close socket after connection failure", e);
+        }
     }
 }
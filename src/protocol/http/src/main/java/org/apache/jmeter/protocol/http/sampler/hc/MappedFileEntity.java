@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+
+/**
+ * {@link FileEntity} written from the mapping shared by {@link MappedFiles}
+ */
+public class MappedFileEntity extends FileEntity {
+
+    public MappedFileEntity(File file) {
+        super(file);
+    }
+
+    public MappedFileEntity(File file, ContentType contentType) {
+        super(file, contentType);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        if (outStream == null) {
+            throw new IllegalArgumentException("Output stream may not be null");
+        }
+        if (!MappedFiles.writeTo(file, outStream)) {
+            super.writeTo(outStream);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Read-only memory mappings of the files uploaded by the HTTP samplers, shared by all
+ * the threads of a test so a file is not opened and read again for each request.
+ * <p>
+ * A mapping is keyed by the path, length and modification time of the file, a file
+ * changed during the test is mapped again.
+ */
+public final class MappedFiles {
+
+    private static final boolean ENABLED =
+            JMeterUtils.getPropDefault("httpclient4.mmap_file_uploads", true); // $NON-NLS-1$
+
+    private static final int MAX_FILES =
+            JMeterUtils.getPropDefault("httpclient4.mmap_file_uploads.max_files", 100); // $NON-NLS-1$
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final Map<String, MappedByteBuffer> MAPPINGS = new ConcurrentHashMap<>();
+
+    private MappedFiles() {
+        // utility class
+    }
+
+    /**
+     * Write the content of the file from its mapping
+     *
+     * @param file the file to send
+     * @param out  the stream to write to
+     * @return {@code false} if the file can not be mapped and must be written by the caller
+     * @throws IOException when writing fails
+     */
+    public static boolean writeTo(File file, OutputStream out) throws IOException {
+        ByteBuffer content = ENABLED ? getContent(file) : null;
+        if (content == null) {
+            return false;
+        }
+        byte[] chunk = new byte[Math.min(CHUNK_SIZE, content.remaining())];
+        while (content.hasRemaining()) {
+            int length = Math.min(chunk.length, content.remaining());
+            content.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+        return true;
+    }
+
+    /**
+     * @param file the file to map
+     * @return a buffer over the whole file, {@code null} if it is missing, empty, too big
+     *         or if too many files are mapped
+     * @throws IOException when the file can not be mapped
+     */
+    static ByteBuffer getContent(File file) throws IOException {
+        long length = file.length();
+        if (length == 0 || length > Integer.MAX_VALUE) {
+            return null;
+        }
+        String key = file.getAbsolutePath() + '\u0000' + length + '\u0000' + file.lastModified(); // $NON-NLS-1$
+        MappedByteBuffer mapping = MAPPINGS.get(key);
+        if (mapping == null) {
+            if (MAPPINGS.size() >= MAX_FILES) {
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+            MappedByteBuffer previous = MAPPINGS.putIfAbsent(key, mapping);
+            if (previous != null) {
+                mapping = previous;
+            }
+        }
+        return mapping.duplicate();
+    }
+
+    /**
+     * Release the mappings of the test that ended
+     */
+    public static void clear() {
+        MAPPINGS.clear();
+    }
+}
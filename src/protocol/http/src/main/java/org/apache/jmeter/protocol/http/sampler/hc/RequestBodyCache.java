@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.HttpEntity;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.FunctionProperty;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.testelement.property.MultiProperty;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Request bodies built from arguments without functions or variables, shared by all the
+ * threads of a test so they are only encoded once.
+ * <p>
+ * Entries are keyed by the kind of body, its encoding and the values of the arguments, so
+ * arguments changed at run time, for instance by a PreProcessor, get their own entry.
+ * Only repeatable entities are shared, they must not be modified once built.
+ */
+public final class RequestBodyCache {
+
+    private static final boolean ENABLED =
+            JMeterUtils.getPropDefault("httpclient4.request_body_cache", true); // $NON-NLS-1$
+
+    private static final int MAX_ENTRIES =
+            JMeterUtils.getPropDefault("httpclient4.request_body_cache.max_entries", 1000); // $NON-NLS-1$
+
+    private static final Map<Key, Body> BODIES = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the body when it is not cached
+     */
+    @FunctionalInterface
+    public interface BodyFactory {
+        Body create() throws IOException;
+    }
+
+    /**
+     * Entity to send, with the text shown in the sample result
+     */
+    public static final class Body {
+        private final HttpEntity entity;
+        private final String text;
+
+        /**
+         * @param entity the entity to send
+         * @param text   the text shown in the sample result, may be null
+         */
+        public Body(HttpEntity entity, String text) {
+            this.entity = entity;
+            this.text = text;
+        }
+
+        public HttpEntity getEntity() {
+            return entity;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    static final class Key {
+        private final String[] parts;
+        private final int hash;
+
+        Key(String[] parts) {
+            this.parts = parts;
+            this.hash = Arrays.hashCode(parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && hash == ((Key) obj).hash && Arrays.equals(parts, ((Key) obj).parts);
+        }
+    }
+
+    private RequestBodyCache() {
+        // utility class
+    }
+
+    /**
+     * @param kind      identifies how the factory builds the body from the arguments
+     * @param encoding  encoding of the body, may be null
+     * @param arguments arguments the body is built from
+     * @param factory   builds the body
+     * @return the shared body if the arguments are static, a new one otherwise
+     * @throws IOException when the factory fails
+     */
+    public static Body get(String kind, String encoding, Arguments arguments, BodyFactory factory) throws IOException {
+        Key key = ENABLED ? createKey(kind, encoding, arguments) : null;
+        if (key == null) {
+            return factory.create();
+        }
+        Body body = BODIES.get(key);
+        if (body != null) {
+            return body;
+        }
+        body = factory.create();
+        if (body.getEntity().isRepeatable() && BODIES.size() < MAX_ENTRIES) {
+            Body previous = BODIES.putIfAbsent(key, body);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return body;
+    }
+
+    /**
+     * @return the key of the body, {@code null} if an argument uses a function or a variable
+     */
+    static Key createKey(String kind, String encoding, Arguments arguments) {
+        List<String> parts = new ArrayList<>(2 + arguments.getArgumentCount() * 9);
+        parts.add(kind);
+        parts.add(encoding);
+        for (JMeterProperty argument : arguments) {
+            Object value = argument.getObjectValue();
+            if (!(value instanceof TestElement)) {
+                return null;
+            }
+            PropertyIterator properties = ((TestElement) value).propertyIterator();
+            while (properties.hasNext()) {
+                JMeterProperty property = properties.next();
+                if (property instanceof FunctionProperty || property instanceof MultiProperty) {
+                    return null;
+                }
+                parts.add(property.getName());
+                parts.add(property.getStringValue());
+            }
+            // Separates the arguments
+            parts.add(null);
+        }
+        return new Key(parts.toArray(new String[parts.size()]));
+    }
+
+    static int size() {
+        return BODIES.size();
+    }
+
+    /**
+     * Forget the bodies of the test that ended
+     */
+    public static void clear() {
+        BODIES.clear();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Extracts the real response body from the envelope the application gateway wraps
+ * around it, before the body is read into the sample result.
+ * <p>
+ * Implementations must have a public no-arg constructor, the one used by
+ * {@link org.apache.jmeter.protocol.http.sampler.HTTPappImpl} is set by the
+ * {@code httpapp.envelope.decoder} property.
+ */
+public interface ResponseEnvelopeDecoder {
+
+    /**
+     * @param envelope the content of the response entity, already decompressed
+     * @return the stream of the unwrapped body, closing it must close {@code envelope}
+     * @throws IOException when the envelope can not be read or is malformed
+     */
+    InputStream decode(InputStream envelope) throws IOException;
+}
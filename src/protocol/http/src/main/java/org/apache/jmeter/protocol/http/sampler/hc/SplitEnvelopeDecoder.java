@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Decoder that reads the whole envelope as a String, takes the first string value
+ * and Base64 decodes it.
+ * <p>
+ * This is how envelopes were decoded before {@link Base64JsonEnvelopeDecoder},
+ * the decoded body is round-tripped through a UTF-8 String.
+ */
+public class SplitEnvelopeDecoder implements ResponseEnvelopeDecoder {
+
+    @Override
+    public InputStream decode(InputStream envelope) throws IOException {
+        String oresp;
+        try (InputStream in = envelope) {
+            oresp = IOUtils.toString(in, StandardCharsets.ISO_8859_1);
+        }
+        String[] parts = oresp.split("\"");
+        if (parts.length < 4) {
+            throw new IOException("No payload found in response envelope");
+        }
+        String respstr = parts[3].replaceAll("\\\\u003d", "=");
+        String decstr = new String(Base64.getDecoder().decode(respstr), StandardCharsets.UTF_8);
+        return new ByteArrayInputStream(decstr.getBytes(StandardCharsets.UTF_8));
+    }
+}
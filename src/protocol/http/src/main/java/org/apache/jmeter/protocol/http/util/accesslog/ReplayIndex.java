@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.util.accesslog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Time sorted index of the requests of an access log, used to replay them at their original times.
+ * <p>
+ * The log is memory mapped and split in segments at line boundaries, which are scanned in parallel
+ * to find the start, length and timestamp of each line, without creating any String.
+ * The entries are then sorted by timestamp, the file order being kept for equal timestamps.
+ * Each request takes 20 bytes of heap, the lines themselves are only decoded when they are replayed.
+ * <p>
+ * Timestamps are read from the common log format, e.g. {@code [08/Jan/2003:07:03:54 -0500]},
+ * optionally with milliseconds {@code [08/Jan/2003:07:03:54.123 -0500]}.
+ * Lines without timestamp are skipped.
+ */
+final class ReplayIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayIndex.class);
+
+    /** Mapped regions are 1 GiB, lines may span two regions */
+    private static final int REGION_BITS = 30;
+    private static final long REGION_SIZE = 1L << REGION_BITS;
+    private static final long REGION_MASK = REGION_SIZE - 1;
+
+    /** Sort keys hold the offset of the request in the low bits and its index in the file in the high bits */
+    private static final int INDEX_BITS = 31;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    /** The offsets of the requests must fit in the 32 high bits of the sort keys */
+    private static final long MAX_SPAN_MILLIS = (1L << (63 - INDEX_BITS)) - 1;
+
+    /** Only the beginning of a line is searched for the timestamp */
+    private static final int TIMESTAMP_SEARCH_LIMIT = 512;
+
+    private final MappedByteBuffer[] regions;
+    private final Charset charset;
+    private final long startMillis;
+    /** Offset from the first request in the high bits, file index in the low bits, sorted */
+    private final long[] keys;
+    /** By file index */
+    private final long[] positions;
+    /** By file index */
+    private final int[] lengths;
+    private final long skippedLines;
+
+    private ReplayIndex(MappedByteBuffer[] regions, Charset charset, long startMillis, long[] keys,
+            long[] positions, int[] lengths, long skippedLines) {
+        this.regions = regions;
+        this.charset = charset;
+        this.startMillis = startMillis;
+        this.keys = keys;
+        this.positions = positions;
+        this.lengths = lengths;
+        this.skippedLines = skippedLines;
+    }
+
+    /**
+     * Map and index the log
+     *
+     * @param file    access log, which must not be compressed
+     * @param charset charset of the log
+     * @param threads number of threads scanning the log
+     * @return the index, sorted by timestamp
+     * @throws IOException when the log can not be read, or is compressed
+     */
+    static ReplayIndex build(File file, Charset charset, int threads) throws IOException {
+        long start = System.nanoTime();
+        MappedByteBuffer[] regions = map(file);
+        long size = file.length();
+        if (size >= 2 && (regions[0].get(0) & 0xFF) == (GZIPInputStream.GZIP_MAGIC & 0xFF)
+                && (regions[0].get(1) & 0xFF) == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            throw new IOException("Compressed logs can not be replayed, decompress " + file + " first");
+        }
+
+        int segmentCount = (int) Math.max(1, Math.min((long) threads * 4, size / (1 << 20)));
+        long[] bounds = new long[segmentCount + 1];
+        for (int i = 1; i < segmentCount; i++) {
+            bounds[i] = nextLineStart(regions, size * i / segmentCount, size);
+        }
+        bounds[segmentCount] = size;
+
+        List<Segment> segments = scan(regions, bounds, threads);
+        int count = 0;
+        long skipped = 0;
+        long minMillis = Long.MAX_VALUE;
+        long maxMillis = Long.MIN_VALUE;
+        for (Segment segment : segments) {
+            if ((long) count + segment.size > INDEX_MASK) {
+                throw new IOException("Too many requests in " + file);
+            }
+            count += segment.size;
+            skipped += segment.skipped;
+            minMillis = Math.min(minMillis, segment.minMillis);
+            maxMillis = Math.max(maxMillis, segment.maxMillis);
+        }
+        if (count > 0 && maxMillis - minMillis > MAX_SPAN_MILLIS) {
+            throw new IOException("The requests of " + file + " span more than "
+                    + TimeUnit.MILLISECONDS.toDays(MAX_SPAN_MILLIS) + " days");
+        }
+
+        long[] keys = new long[count];
+        long[] positions = new long[count];
+        int[] lengths = new int[count];
+        int index = 0;
+        for (Segment segment : segments) {
+            for (int i = 0; i < segment.size; i++, index++) {
+                keys[index] = ((segment.millis[i] - minMillis) << INDEX_BITS) | index;
+                positions[index] = segment.positions[i];
+                lengths[index] = segment.lengths[i];
+            }
+        }
+        Arrays.parallelSort(keys);
+        if (log.isInfoEnabled()) {
+            log.info("Indexed {} requests of {} in {} ms using {} threads, {} lines without timestamp skipped",
+                    count, file, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), threads, skipped);
+        }
+        return new ReplayIndex(regions, charset, count == 0 ? 0 : minMillis, keys, positions, lengths, skipped);
+    }
+
+    private static MappedByteBuffer[] map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); // $NON-NLS-1$
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            MappedByteBuffer[] regions = new MappedByteBuffer[(int) Math.max(1, (size + REGION_SIZE - 1) >>> REGION_BITS)];
+            for (int i = 0; i < regions.length; i++) {
+                long position = (long) i << REGION_BITS;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, size - position));
+            }
+            // The mapping stays valid once the channel is closed
+            return regions;
+        }
+    }
+
+    private static byte byteAt(MappedByteBuffer[] regions, long position) {
+        return regions[(int) (position >>> REGION_BITS)].get((int) (position & REGION_MASK));
+    }
+
+    private static long nextLineStart(MappedByteBuffer[] regions, long from, long size) {
+        long position = from;
+        while (position < size && byteAt(regions, position - 1) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    private static List<Segment> scan(MappedByteBuffer[] regions, long[] bounds, int threads) throws IOException {
+        int segmentCount = bounds.length - 1;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, segmentCount)), r -> {
+            Thread thread = new Thread(r, "ReplayIndex"); // $NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Segment>> futures = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                futures.add(executor.submit(() -> Segment.scan(regions, from, to)));
+            }
+            List<Segment> segments = new ArrayList<>(segmentCount);
+            for (Future<Segment> future : futures) {
+                segments.add(future.get());
+            }
+            return segments;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing the log", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to index the log", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return number of indexed requests
+     */
+    int size() {
+        return keys.length;
+    }
+
+    long getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * @return timestamp of the first request, in milliseconds since the epoch
+     */
+    long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @param i rank of the request in time order
+     * @return time between the first request and this one, in milliseconds
+     */
+    long getOffsetMillis(int i) {
+        return keys[i] >>> INDEX_BITS;
+    }
+
+    /**
+     * @param i rank of the request in time order
+     * @return the line of the log
+     */
+    String getLine(int i) {
+        int index = (int) (keys[i] & INDEX_MASK);
+        long position = positions[index];
+        byte[] bytes = new byte[lengths[index]];
+        for (int done = 0; done < bytes.length; ) {
+            MappedByteBuffer region = regions[(int) ((position + done) >>> REGION_BITS)];
+            int offset = (int) ((position + done) & REGION_MASK);
+            int chunk = (int) Math.min(bytes.length - done, REGION_SIZE - offset);
+            ByteBuffer view = region.duplicate();
+            view.position(offset);
+            view.get(bytes, done, chunk);
+            done += chunk;
+        }
+        return new String(bytes, charset);
+    }
+
+    /** Requests found in one segment of the log, in file order */
+    private static final class Segment {
+        private long[] positions = new long[1024];
+        private int[] lengths = new int[1024];
+        private long[] millis = new long[1024];
+        private int size;
+        private long skipped;
+        private long minMillis = Long.MAX_VALUE;
+        private long maxMillis = Long.MIN_VALUE;
+
+        static Segment scan(MappedByteBuffer[] regions, long from, long to) {
+            Segment segment = new Segment();
+            long lineStart = from;
+            for (long position = from; position <= to; position++) {
+                if (position == to || byteAt(regions, position) == '\n') {
+                    long end = position;
+                    if (end > lineStart && byteAt(regions, end - 1) == '\r') {
+                        end--;
+                    }
+                    if (end > lineStart) {
+                        segment.addLine(regions, lineStart, end);
+                    }
+                    lineStart = position + 1;
+                }
+            }
+            return segment;
+        }
+
+        private void addLine(MappedByteBuffer[] regions, long start, long end) {
+            long timestamp = parseTimestamp(regions, start, end);
+            if (timestamp == Long.MIN_VALUE || end - start > Integer.MAX_VALUE) {
+                skipped++;
+                return;
+            }
+            if (size == positions.length) {
+                int capacity = size * 2;
+                positions = Arrays.copyOf(positions, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                millis = Arrays.copyOf(millis, capacity);
+            }
+            positions[size] = start;
+            lengths[size] = (int) (end - start);
+            millis[size] = timestamp;
+            size++;
+            minMillis = Math.min(minMillis, timestamp);
+            maxMillis = Math.max(maxMillis, timestamp);
+        }
+    }
+
+    /**
+     * Parse the first {@code [dd/MMM/yyyy:HH:mm:ss[.SSS] Z]} timestamp of a line
+     *
+     * @return milliseconds since the epoch, or {@link Long#MIN_VALUE} if the line has no timestamp
+     */
+    static long parseTimestamp(MappedByteBuffer[] regions, long start, long end) {
+        long limit = Math.min(end, start + TIMESTAMP_SEARCH_LIMIT);
+        for (long p = start; p < limit; p++) {
+            if (byteAt(regions, p) == '[') {
+                long millis = parseTimestampAt(regions, p + 1, end);
+                if (millis != Long.MIN_VALUE) {
+                    return millis;
+                }
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static long parseTimestampAt(MappedByteBuffer[] regions, long p, long end) {
+        // dd/MMM/yyyy:HH:mm:ss +hhmm is 26 bytes
+        if (end - p < 26) {
+            return Long.MIN_VALUE;
+        }
+        int day = digits(regions, p, 2);
+        int month = month(byteAt(regions, p + 3), byteAt(regions, p + 4), byteAt(regions, p + 5));
+        int year = digits(regions, p + 7, 4);
+        int hour = digits(regions, p + 12, 2);
+        int minute = digits(regions, p + 15, 2);
+        int second = digits(regions, p + 18, 2);
+        if (day < 1 || month < 1 || year < 0 || hour < 0 || minute < 0 || second < 0
+                || byteAt(regions, p + 2) != '/' || byteAt(regions, p + 6) != '/' || byteAt(regions, p + 11) != ':') {
+            return Long.MIN_VALUE;
+        }
+        long q = p + 20;
+        int millis = 0;
+        if (byteAt(regions, q) == '.') {
+            int fraction = 0;
+            int scale = 1000;
+            q++;
+            while (q < end && byteAt(regions, q) >= '0' && byteAt(regions, q) <= '9') {
+                if (scale > 1) {
+                    scale /= 10;
+                    fraction += (byteAt(regions, q) - '0') * scale;
+                }
+                q++;
+            }
+            millis = fraction;
+        }
+        if (end - q < 6 || byteAt(regions, q) != ' ') {
+            return Long.MIN_VALUE;
+        }
+        byte sign = byteAt(regions, q + 1);
+        int zoneHours = digits(regions, q + 2, 2);
+        int zoneMinutes = digits(regions, q + 4, 2);
+        if ((sign != '+' && sign != '-') || zoneHours < 0 || zoneMinutes < 0) {
+            return Long.MIN_VALUE;
+        }
+        long zoneSeconds = (zoneHours * 3600L + zoneMinutes * 60L) * (sign == '-' ? -1 : 1);
+        long epochSeconds = daysFromCivil(year, month, day) * 86400 + hour * 3600L + minute * 60L + second - zoneSeconds;
+        return epochSeconds * 1000 + millis;
+    }
+
+    private static int digits(MappedByteBuffer[] regions, long p, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = byteAt(regions, p + i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int month(byte a, byte b, byte c) {
+        int key = ((a | 0x20) << 16) | ((b | 0x20) << 8) | (c | 0x20);
+        switch (key) {
+            case ('j' << 16) | ('a' << 8) | 'n': return 1;
+            case ('f' << 16) | ('e' << 8) | 'b': return 2;
+            case ('m' << 16) | ('a' << 8) | 'r': return 3;
+            case ('a' << 16) | ('p' << 8) | 'r': return 4;
+            case ('m' << 16) | ('a' << 8) | 'y': return 5;
+            case ('j' << 16) | ('u' << 8) | 'n': return 6;
+            case ('j' << 16) | ('u' << 8) | 'l': return 7;
+            case ('a' << 16) | ('u' << 8) | 'g': return 8;
+            case ('s' << 16) | ('e' << 8) | 'p': return 9;
+            case ('o' << 16) | ('c' << 8) | 't': return 10;
+            case ('n' << 16) | ('o' << 8) | 'v': return 11;
+            case ('d' << 16) | ('e' << 8) | 'c': return 12;
+            default: return -1;
+        }
+    }
+
+    /**
+     * @return number of days since 1970-01-01 of the date in the proleptic Gregorian calendar
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1L : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
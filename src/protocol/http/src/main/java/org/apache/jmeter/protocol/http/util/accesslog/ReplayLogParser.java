@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.util.accesslog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.services.FileServer;
+import org.apache.jmeter.testelement.TestCloneable;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Parser replaying the requests of an access log at the times they were originally received.
+ * <p>
+ * Instead of reading the log line by line, all the threads share a time sorted index of the
+ * log built once, in parallel, from a memory mapping of the file (see {@link ReplayIndex}).
+ * Each call hands out the next request in time order to the calling thread, which waits until
+ * the request is due before it is sampled. The thread group must have enough threads for the
+ * requests in flight at the peak of the log, otherwise the requests are sent late.
+ * <p>
+ * The delay between the time a request was due and the time it was sent is saved in the
+ * {@value #LAG_VARIABLE} variable, in milliseconds, so it can be saved with each sample
+ * by adding it to {@code sample_variables}. A summary of the lag is logged at the end of the test.
+ * <p>
+ * The replay speed is set by the {@code accesslog.replay.speed} property.
+ */
+public class ReplayLogParser extends TCLogParser implements TestCloneable {
+
+    /** Variable holding the scheduling lag of the last request, in milliseconds */
+    public static final String LAG_VARIABLE = "accesslog.replay.lag"; // $NON-NLS-1$
+
+    private static final double SPEED =
+            JMeterUtils.getPropDefault("accesslog.replay.speed", 1.0d); // $NON-NLS-1$
+
+    private static final int INDEX_THREADS =
+            JMeterUtils.getPropDefault("accesslog.replay.index_threads", // $NON-NLS-1$
+                    Runtime.getRuntime().availableProcessors());
+
+    /** Schedules shared by the threads, by log file */
+    private static final Map<String, ReplaySchedule> SCHEDULES = new ConcurrentHashMap<>();
+
+    public ReplayLogParser() {
+        super();
+    }
+
+    public ReplayLogParser(String source) {
+        super(source);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object clone() {
+        ReplayLogParser parser = new ReplayLogParser();
+        parser.FILENAME = FILENAME;
+        parser.FILTER = FILTER;
+        return parser;
+    }
+
+    private ReplaySchedule getSchedule() {
+        File file = FileServer.getFileServer().resolveFileFromPath(FILENAME);
+        return SCHEDULES.computeIfAbsent(file.getAbsolutePath(), path -> {
+            if (SPEED <= 0) {
+                throw new IllegalArgumentException("accesslog.replay.speed must be positive: " + SPEED);
+            }
+            try {
+                return new ReplaySchedule(
+                        ReplayIndex.build(file, Charset.defaultCharset(), Math.max(1, INDEX_THREADS)), SPEED);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Configure the element with the next requests and wait until the last one is due
+     *
+     * @param el         element to configure
+     * @param parseCount number of requests to read, -1 for all the remaining requests
+     * @return number of requests read, 0 once the whole log was replayed, -1 on error
+     */
+    @Override
+    public int parse(TestElement el, int parseCount) {
+        ReplaySchedule schedule;
+        try {
+            schedule = getSchedule();
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            log.error("Problem indexing the log {}", FILENAME, e);
+            return -1;
+        }
+        int actualCount = 0;
+        while (parseCount == -1 || actualCount < parseCount) {
+            int i = schedule.next();
+            if (i < 0) {
+                break;
+            }
+            int count = parseLine(schedule.getLine(i), el);
+            if (count > 0) {
+                try {
+                    publishLag(schedule.awaitTurn(i));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return actualCount;
+                }
+                actualCount += count;
+            }
+        }
+        return actualCount;
+    }
+
+    private static void publishLag(long lagNanos) {
+        JMeterVariables variables = JMeterContextService.getContext().getVariables();
+        if (variables != null) {
+            variables.put(LAG_VARIABLE, Long.toString(TimeUnit.NANOSECONDS.toMillis(lagNanos)));
+        }
+    }
+
+    /**
+     * Release the index shared by the threads and log the scheduling lag
+     */
+    @Override
+    public void close() {
+        if (FILENAME == null) {
+            return;
+        }
+        File file = FileServer.getFileServer().resolveFileFromPath(FILENAME);
+        ReplaySchedule schedule = SCHEDULES.remove(file.getAbsolutePath());
+        if (schedule != null) {
+            log.info("{}: {}", FILENAME, schedule);
+        }
+    }
+}
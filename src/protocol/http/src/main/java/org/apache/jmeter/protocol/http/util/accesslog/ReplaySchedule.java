@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.util.accesslog;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out the requests of a {@link ReplayIndex} to the threads of a test, in time order,
+ * and makes each thread wait until its request is due.
+ * <p>
+ * Request {@code i} is due {@code offset(i) / speed} after the first request was handed out.
+ * The scheduling lag, the time between the due time and the moment the thread actually
+ * wakes up, is recorded: it grows when there are not enough threads to keep up
+ * with the original arrival rate.
+ */
+final class ReplaySchedule {
+
+    /** Lag histogram buckets, bucket {@code b} counts lags below {@code 2^b} microseconds */
+    private static final int LAG_BUCKETS = 40;
+
+    private final ReplayIndex index;
+    private final double speed;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile long startNanos;
+    private volatile boolean started;
+
+    private final LongAdder lagCount = new LongAdder();
+    private final LongAdder lagSum = new LongAdder();
+    private final LongAccumulator lagMax = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray lagBuckets = new AtomicLongArray(LAG_BUCKETS);
+
+    /**
+     * @param index requests to replay
+     * @param speed replay speed, 2 replays the requests twice as fast as they were received
+     */
+    ReplaySchedule(ReplayIndex index, double speed) {
+        this.index = index;
+        this.speed = speed;
+    }
+
+    /**
+     * @return rank of the next request to send, or -1 once all the requests were handed out
+     */
+    int next() {
+        if (!started) {
+            start();
+        }
+        int i = next.getAndIncrement();
+        if (i >= index.size()) {
+            next.set(index.size());
+            return -1;
+        }
+        return i;
+    }
+
+    private synchronized void start() {
+        if (!started) {
+            startNanos = System.nanoTime();
+            started = true;
+        }
+    }
+
+    String getLine(int i) {
+        return index.getLine(i);
+    }
+
+    /**
+     * @param i rank of the request
+     * @return {@link System#nanoTime()} at which the request must be sent
+     */
+    long dueNanos(int i) {
+        return startNanos + (long) (TimeUnit.MILLISECONDS.toNanos(index.getOffsetMillis(i)) / speed);
+    }
+
+    /**
+     * Wait until the request is due and record the scheduling lag
+     *
+     * @param i rank of the request
+     * @return the lag in nanoseconds, 0 if the request was sent on time
+     * @throws InterruptedException when the thread is interrupted while waiting
+     */
+    long awaitTurn(int i) throws InterruptedException {
+        long due = dueNanos(i);
+        long now = System.nanoTime();
+        while (now < due) {
+            TimeUnit.NANOSECONDS.sleep(due - now);
+            now = System.nanoTime();
+        }
+        long lag = now - due;
+        recordLag(lag);
+        return lag;
+    }
+
+    void recordLag(long lagNanos) {
+        lagCount.increment();
+        lagSum.add(lagNanos);
+        lagMax.accumulate(lagNanos);
+        long micros = TimeUnit.NANOSECONDS.toMicros(lagNanos);
+        int bucket = Math.min(LAG_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        lagBuckets.incrementAndGet(bucket);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound of the lag at the percentile, in milliseconds
+     */
+    double getLagPercentileMillis(double percentile) {
+        long count = lagCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int b = 0; b < LAG_BUCKETS; b++) {
+            seen += lagBuckets.get(b);
+            if (seen >= rank) {
+                return Math.min((1L << b) / 1000.0, getMaxLagMillis());
+            }
+        }
+        return getMaxLagMillis();
+    }
+
+    double getMaxLagMillis() {
+        return lagMax.get() / 1_000_000.0;
+    }
+
+    double getMeanLagMillis() {
+        long count = lagCount.sum();
+        return count == 0 ? 0 : lagSum.sum() / 1_000_000.0 / count;
+    }
+
+    long getSentCount() {
+        return lagCount.sum();
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d/%d requests replayed at speed %.2f, scheduling lag: mean %.1f ms, p99 < %.1f ms, max %.1f ms",
+                getSentCount(), size(), speed, getMeanLagMillis(), getLagPercentileMillis(99), getMaxLagMillis());
+    }
+}
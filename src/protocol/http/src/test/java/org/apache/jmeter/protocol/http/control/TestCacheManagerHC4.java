@@ -21,6 +21,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.URISyntaxException;
 import java.text.ParseException;
@@ -288,6 +289,23 @@ public class TestCacheManagerHC4 extends TestCacheManagerBase {
         checkIfModifiedSinceHeader(httpMethod);
     }
 
+    @Test
+    public void testVaryUsesHeadersSentWhenNotRecorded() throws Exception {
+        this.cacheManager.setUseExpires(true);
+        this.cacheManager.testIterationStart(null);
+        setExpires(makeDate(new Date(System.currentTimeMillis())));
+        setCacheControl("public, max-age=5");
+        // sampleresult.request_capture=skip
+        sampleResultOK.setRequestHeaders("");
+        this.vary = "Something";
+        Header[] sent = { new BasicHeader("Something", "value") };
+        this.cacheManager.saveDetails(httpResponse, sampleResultOK, sent);
+        this.vary = null;
+        assertTrue(this.cacheManager.inCache(url, sent), "Should find valid entry with headers sent");
+        assertFalse(this.cacheManager.inCache(url, new Header[] { new BasicHeader("Something", "other") }),
+                "Should not find valid entry with different header");
+    }
+
     protected void checkIfModifiedSinceHeader(HttpRequestBase httpMethod) {
         SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
         try {
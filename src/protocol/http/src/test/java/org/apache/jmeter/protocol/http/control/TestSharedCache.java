@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.jupiter.api.Test;
+
+public class TestSharedCache {
+
+    @Test
+    public void testHitsAndMisses() {
+        SharedCache<String> cache = new SharedCache<>("test", 10, v -> SharedCache.NO_EXPIRY);
+        assertNull(cache.get("a"));
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+        assertEquals("1", cache.get("a"));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testEntryExpiresAfterItsTtl() {
+        SharedCache<String> cache = new SharedCache<>("test", 10,
+                v -> "expired".equals(v) ? 0 : TimeUnit.MINUTES.toNanos(1));
+        cache.put("a", "expired");
+        cache.put("b", "valid");
+        assertNull(cache.get("a"));
+        assertEquals("valid", cache.get("b"));
+    }
+
+    @Test
+    public void testPutIfAbsentKeepsFirstValue() {
+        SharedCache<String> cache = new SharedCache<>("test", 10, v -> SharedCache.NO_EXPIRY);
+        cache.putIfAbsent("a", "1");
+        cache.putIfAbsent("a", "2");
+        assertEquals("1", cache.get("a"));
+    }
+
+    @Test
+    public void testPublish() {
+        SharedCache<String> cache = new SharedCache<>("test", 10, v -> SharedCache.NO_EXPIRY);
+        cache.get("a");
+        JMeterVariables vars = new JMeterVariables();
+        cache.publish(vars);
+        assertEquals("0", vars.get("test.hits"));
+        assertEquals("1", vars.get("test.misses"));
+        assertEquals("0", vars.get("test.evictions"));
+    }
+
+    @Test
+    public void testMillisToNanos() {
+        assertEquals(0, SharedCache.millisToNanos(-5));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), SharedCache.millisToNanos(5));
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.h2;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class TestHttp2Connection {
+
+    /**
+     * Minimal h2c server answering each request with its method, path and body
+     */
+    private static final class EchoServer implements Closeable {
+        private final ServerSocket serverSocket;
+        private final boolean http1;
+        private final AtomicInteger connections = new AtomicInteger();
+
+        EchoServer(boolean http1) throws IOException {
+            this.http1 = http1;
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(this::accept, "h2c-test-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        Socket connect() throws IOException {
+            return new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        }
+
+        private void accept() {
+            try {
+                while (true) {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread handler = new Thread(() -> serve(socket));
+                    handler.setDaemon(true);
+                    handler.start();
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (Socket s = socket) {
+                InputStream in = s.getInputStream();
+                OutputStream out = new BufferedOutputStream(s.getOutputStream());
+                byte[] preface = new byte[Http2Connection.PREFACE.length];
+                Http2Connection.readFully(in, preface, preface.length);
+                if (http1) {
+                    out.write("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    return;
+                }
+                writeFrame(out, Http2Connection.TYPE_SETTINGS, 0, 0, new byte[0]);
+                out.flush();
+                HpackDecoder decoder = new HpackDecoder(Http2Connection.DEFAULT_HEADER_TABLE_SIZE);
+                HpackEncoder encoder = new HpackEncoder(Http2Connection.DEFAULT_HEADER_TABLE_SIZE);
+                Map<Integer, List<String[]>> requests = new HashMap<>();
+                Map<Integer, ByteArrayOutputStream> bodies = new HashMap<>();
+                byte[] header = new byte[Http2Connection.FRAME_HEADER_LENGTH];
+                while (true) {
+                    Http2Connection.readFully(in, header, header.length);
+                    int length = ((header[0] & 0xff) << 16) | ((header[1] & 0xff) << 8) | (header[2] & 0xff);
+                    int type = header[3];
+                    int flags = header[4];
+                    int streamId = Http2Connection.readInt(header, 5);
+                    byte[] payload = new byte[length];
+                    Http2Connection.readFully(in, payload, length);
+                    boolean endStream = (flags & Http2Connection.FLAG_END_STREAM) != 0;
+                    if (type == Http2Connection.TYPE_HEADERS) {
+                        requests.put(streamId, decoder.decode(payload, length));
+                        bodies.put(streamId, new ByteArrayOutputStream());
+                    } else if (type == Http2Connection.TYPE_DATA) {
+                        bodies.get(streamId).write(payload, 0, length);
+                        // Give the flow control window back at once
+                        byte[] increment = new byte[4];
+                        Http2Connection.setInt(increment, 0, length);
+                        writeFrame(out, Http2Connection.TYPE_WINDOW_UPDATE, 0, 0, increment);
+                        writeFrame(out, Http2Connection.TYPE_WINDOW_UPDATE, 0, streamId, increment);
+                        out.flush();
+                    } else if (type == Http2Connection.TYPE_SETTINGS) {
+                        endStream = false;
+                        if ((flags & Http2Connection.FLAG_ACK) == 0) {
+                            writeFrame(out, Http2Connection.TYPE_SETTINGS, Http2Connection.FLAG_ACK, 0, new byte[0]);
+                            out.flush();
+                        }
+                    } else if (type == Http2Connection.TYPE_GOAWAY) {
+                        return;
+                    } else {
+                        endStream = false;
+                    }
+                    if (endStream) {
+                        respond(out, encoder, streamId, requests.remove(streamId), bodies.remove(streamId));
+                    }
+                }
+            } catch (IOException e) {
+                // connection closed by the client
+            }
+        }
+
+        private static void respond(OutputStream out, HpackEncoder encoder, int streamId,
+                List<String[]> request, ByteArrayOutputStream body) throws IOException {
+            String method = null;
+            String path = null;
+            for (String[] field : request) {
+                if (":method".equals(field[0])) {
+                    method = field[1];
+                } else if (":path".equals(field[0])) {
+                    path = field[1];
+                }
+            }
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            encoder.encode(Arrays.asList(
+                    new String[]{":status", "200"},
+                    new String[]{"content-type", "text/plain"},
+                    new String[]{"set-cookie", "stream=" + streamId}), block);
+            byte[] data = (method + " " + path + " " + body.toString("UTF-8")).getBytes(StandardCharsets.UTF_8);
+            writeFrame(out, Http2Connection.TYPE_HEADERS, Http2Connection.FLAG_END_HEADERS, streamId, block.toByteArray());
+            for (int offset = 0; offset < data.length; offset += Http2Connection.DEFAULT_MAX_FRAME_SIZE) {
+                int length = Math.min(data.length - offset, Http2Connection.DEFAULT_MAX_FRAME_SIZE);
+                writeFrame(out, Http2Connection.TYPE_DATA,
+                        offset + length == data.length ? Http2Connection.FLAG_END_STREAM : 0,
+                        streamId, Arrays.copyOfRange(data, offset, offset + length));
+            }
+            out.flush();
+        }
+
+        private static void writeFrame(OutputStream out, int type, int flags, int streamId, byte[] payload)
+                throws IOException {
+            out.write(payload.length >>> 16);
+            out.write(payload.length >>> 8);
+            out.write(payload.length);
+            out.write(type);
+            out.write(flags);
+            Http2Connection.writeInt(out, streamId);
+            out.write(payload);
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    private EchoServer server;
+    private Http2Connection connection;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (connection != null) {
+            connection.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static List<String[]> request(String method, String path) {
+        List<String[]> fields = new ArrayList<>();
+        fields.add(new String[]{":method", method});
+        fields.add(new String[]{":scheme", "http"});
+        fields.add(new String[]{":authority", "localhost"});
+        fields.add(new String[]{":path", path});
+        fields.add(new String[]{"user-agent", "JMeter"});
+        return fields;
+    }
+
+    private Http2Connection open(int maxConcurrentStreams) throws IOException {
+        server = new EchoServer(false);
+        connection = Http2Connection.open("test", server.connect(), 1 << 20, maxConcurrentStreams);
+        return connection;
+    }
+
+    @Test
+    public void testHpackRoundTrip() throws IOException {
+        HpackEncoder encoder = new HpackEncoder(Http2Connection.DEFAULT_HEADER_TABLE_SIZE);
+        HpackDecoder decoder = new HpackDecoder(Http2Connection.DEFAULT_HEADER_TABLE_SIZE);
+        List<String[]> fields = request("GET", "/index.html?q=jmeter");
+        fields.add(new String[]{"authorization", "Basic dXNlcjpwYXNz"});
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        encoder.encode(fields, first);
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        encoder.encode(fields, second);
+        // Indexed fields make the second block smaller
+        assertTrue(second.size() < first.size(), "second block " + second.size() + " < first " + first.size());
+
+        for (ByteArrayOutputStream block : Arrays.asList(first, second)) {
+            List<String[]> decoded = decoder.decode(block.toByteArray(), block.size());
+            assertEquals(fields.size(), decoded.size());
+            for (int i = 0; i < fields.size(); i++) {
+                assertArrayEquals(fields.get(i), decoded.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testHuffmanRoundTrip() throws IOException {
+        String value = "Mozilla/5.0 (X11; Linux x86_64) ~!@#$%^&*()_+{}|";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Huffman.encode(value, out);
+        assertEquals(Huffman.encodedLength(value), out.size());
+        assertEquals(value, Huffman.decode(out.toByteArray(), 0, out.size()));
+    }
+
+    @Test
+    public void testGet() throws IOException {
+        Http2Stream stream = open(100).send(request("GET", "/index.html"), null);
+        stream.await(10000);
+        assertEquals(200, stream.getStatus());
+        assertEquals("text/plain", stream.getHeader("content-type"));
+        assertEquals("GET /index.html ", new String(stream.getBody(), StandardCharsets.UTF_8));
+        assertTrue(stream.getReceivedHeaderBytes() > 0);
+        assertTrue(stream.getSentBytes() > 0);
+    }
+
+    @Test
+    public void testPostBody() throws IOException {
+        byte[] body = new byte[100000];
+        Arrays.fill(body, (byte) 'a');
+        Http2Stream stream = open(100).send(request("POST", "/upload"), body);
+        stream.await(10000);
+        assertEquals(200, stream.getStatus());
+        assertEquals("POST /upload " + new String(body, StandardCharsets.UTF_8),
+                new String(stream.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testConcurrentStreamsShareOneConnection() throws Exception {
+        Http2Connection shared = open(2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                String path = "/page" + i;
+                responses.add(executor.submit(() -> {
+                    Http2Stream stream = shared.send(request("GET", path), null);
+                    stream.await(10000);
+                    return new String(stream.getBody(), StandardCharsets.UTF_8);
+                }));
+            }
+            for (int i = 0; i < responses.size(); i++) {
+                assertEquals("GET /page" + i + " ", responses.get(i).get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, server.connections.get());
+        assertEquals(0, shared.getActiveStreams());
+    }
+
+    @Test
+    public void testHttp1ServerIsDetected() throws IOException {
+        server = new EchoServer(true);
+        Socket socket = server.connect();
+        try {
+            assertThrows(Http2NotSupportedException.class, () -> Http2Connection.open("test", socket, 1 << 20, 100));
+        } finally {
+            socket.close();
+        }
+    }
+}
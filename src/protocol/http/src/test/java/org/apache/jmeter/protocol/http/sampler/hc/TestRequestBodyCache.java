@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.entity.StringEntity;
+import org.apache.jmeter.config.Argument;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.engine.util.CompoundVariable;
+import org.apache.jmeter.protocol.http.util.HTTPArgument;
+import org.apache.jmeter.testelement.property.FunctionProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestRequestBodyCache {
+
+    @AfterEach
+    public void clear() {
+        RequestBodyCache.clear();
+        MappedFiles.clear();
+    }
+
+    private static Arguments arguments(String value) {
+        Arguments arguments = new Arguments();
+        arguments.addArgument(new HTTPArgument("", value));
+        return arguments;
+    }
+
+    private static RequestBodyCache.Body get(String encoding, Arguments arguments, AtomicInteger calls) throws Exception {
+        return RequestBodyCache.get("test", encoding, arguments, () -> {
+            calls.incrementAndGet();
+            return new RequestBodyCache.Body(new StringEntity("body"), "body");
+        });
+    }
+
+    @Test
+    public void testStaticBodyIsBuiltOnce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RequestBodyCache.Body body = get("UTF-8", arguments("{\"a\":1}"), calls);
+        assertSame(body, get("UTF-8", arguments("{\"a\":1}"), calls));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testValuesAndEncodingAreInTheKey() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RequestBodyCache.Body body = get("UTF-8", arguments("a"), calls);
+        assertNotSame(body, get("UTF-8", arguments("b"), calls));
+        assertNotSame(body, get(null, arguments("a"), calls));
+        assertEquals(3, calls.get());
+        assertEquals(3, RequestBodyCache.size());
+    }
+
+    @Test
+    public void testArgumentsAreSeparated() {
+        Arguments one = new Arguments();
+        HTTPArgument both = new HTTPArgument("a", "1");
+        both.setProperty("extra", "2");
+        one.addArgument(both);
+        Arguments two = new Arguments();
+        two.addArgument(new HTTPArgument("a", "1"));
+        HTTPArgument extra = new HTTPArgument();
+        extra.setProperty("extra", "2");
+        two.addArgument(extra);
+        assertFalse(RequestBodyCache.createKey("test", null, one).equals(RequestBodyCache.createKey("test", null, two)));
+    }
+
+    @Test
+    public void testFunctionIsNotCached() throws Exception {
+        Arguments arguments = arguments("a");
+        HTTPArgument argument = (HTTPArgument) arguments.getArgument(0);
+        argument.setProperty(new FunctionProperty(Argument.VALUE, new CompoundVariable()));
+        assertNull(RequestBodyCache.createKey("test", null, arguments));
+
+        AtomicInteger calls = new AtomicInteger();
+        get(null, arguments, calls);
+        get(null, arguments, calls);
+        assertEquals(2, calls.get());
+        assertEquals(0, RequestBodyCache.size());
+    }
+
+    @Test
+    public void testMappedFileIsWritten(@TempDir File dir) throws Exception {
+        File file = new File(dir, "upload.txt");
+        Files.write(file.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(MappedFiles.writeTo(file, out));
+        assertArrayEquals("content".getBytes(StandardCharsets.UTF_8), out.toByteArray());
+
+        Files.write(file.toPath(), "new content".getBytes(StandardCharsets.UTF_8));
+        out.reset();
+        assertTrue(MappedFiles.writeTo(file, out));
+        assertArrayEquals("new content".getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void testEmptyFileIsNotMapped(@TempDir File dir) throws Exception {
+        File file = new File(dir, "empty.txt");
+        Files.write(file.toPath(), new byte[0]);
+        assertFalse(MappedFiles.writeTo(file, new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+public class TestResponseEnvelopeDecoder {
+
+    private static String envelope(String body) {
+        // Gson writes '=' as a unicode escape
+        String payload = Base64.getEncoder().encodeToString(body.getBytes(StandardCharsets.UTF_8))
+                .replace("=", "\\u003d");
+        return "{\"data\":\"" + payload + "\",\"code\":0}";
+    }
+
+    private static byte[] decode(ResponseEnvelopeDecoder decoder, String envelope, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = decoder.decode(new ByteArrayInputStream(envelope.getBytes(StandardCharsets.UTF_8)))) {
+            byte[] buffer = new byte[chunk];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testSameBodyAsSplitDecoder() throws IOException {
+        ResponseEnvelopeDecoder streaming = new Base64JsonEnvelopeDecoder();
+        ResponseEnvelopeDecoder split = new SplitEnvelopeDecoder();
+        for (String body : new String[] {"", "a", "ab", "abc", "abcd", "{\"name\":\"\u00e9t\u00e9\"}"}) {
+            String envelope = envelope(body);
+            for (int chunk : new int[] {1, 2, 5, 8192}) {
+                assertArrayEquals(decode(split, envelope, 8192), decode(streaming, envelope, chunk),
+                        body + " read by " + chunk);
+            }
+        }
+    }
+
+    @Test
+    public void testNamedFieldAfterOtherMembers() throws IOException {
+        String payload = Base64.getEncoder().encodeToString("hello".getBytes(StandardCharsets.UTF_8));
+        String envelope = "{ \"code\" : 0, \"msg\": \"o\\\"k\", \"meta\": {\"data\": [1, \"x\"]},\n"
+                + " \"data\" : \"" + payload + "\" }";
+        assertEquals("hello",
+                new String(decode(new Base64JsonEnvelopeDecoder("data"), envelope, 3), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEscapedSlashAndLineBreaks() throws IOException {
+        byte[] body = new byte[] {(byte) 0xff, (byte) 0xfe, (byte) 0xfd, 0, 1};
+        String payload = Base64.getMimeEncoder().encodeToString(body)
+                .replace("/", "\\/").replace("\r\n", "\\r\\n");
+        assertArrayEquals(body, decode(new Base64JsonEnvelopeDecoder(), "{\"data\":\"" + payload + "\"}", 4));
+    }
+
+    @Test
+    public void testMalformedEnvelopes() {
+        ResponseEnvelopeDecoder decoder = new Base64JsonEnvelopeDecoder("data");
+        assertThrows(IOException.class, () -> decode(decoder, "[\"YQ==\"]", 16));
+        assertThrows(IOException.class, () -> decode(decoder, "{\"other\":\"YQ==\"}", 16));
+        assertThrows(IOException.class, () -> decode(decoder, "{\"data\":\"Y*Q=\"}", 16));
+        assertThrows(IOException.class, () -> decode(decoder, "{\"data\":\"YQ==", 16));
+    }
+}
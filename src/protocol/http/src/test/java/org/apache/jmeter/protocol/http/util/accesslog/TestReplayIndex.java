@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.util.accesslog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestReplayIndex {
+
+    private static final String LOG =
+            "127.0.0.1 - - [10/Oct/2020:13:55:38 +0000] \"GET /b HTTP/1.1\" 200 2326\n"
+            + "127.0.0.1 - - [10/Oct/2020:13:55:36 +0000] \"GET /a HTTP/1.1\" 200 2326\r\n"
+            + "no timestamp on this line\n"
+            + "127.0.0.1 - - [10/Oct/2020:15:55:38.250 +0200] \"GET /c HTTP/1.1\" 200 2326\n"
+            + "127.0.0.1 - - [10/Oct/2020:13:55:40 +0000] \"GET /d HTTP/1.1\" 200 2326";
+
+    private static File write(File dir, String content) throws IOException {
+        File file = new File(dir, "access.log");
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testRequestsAreSortedByTimestamp(@TempDir File dir) throws IOException {
+        ReplayIndex index = ReplayIndex.build(write(dir, LOG), StandardCharsets.UTF_8, 1);
+        assertEquals(4, index.size());
+        assertEquals(1, index.getSkippedLines());
+        assertEquals(LocalDate.of(2020, 10, 10).toEpochDay() * 86_400_000L + 50_136_000L,
+                index.getStartMillis());
+        assertEquals(0, index.getOffsetMillis(0));
+        assertEquals(2000, index.getOffsetMillis(1));
+        assertEquals(2250, index.getOffsetMillis(2));
+        assertEquals(4000, index.getOffsetMillis(3));
+        assertTrue(index.getLine(0).endsWith("\"GET /a HTTP/1.1\" 200 2326"));
+        assertTrue(index.getLine(2).contains("GET /c"));
+        assertTrue(index.getLine(3).endsWith("2326"));
+    }
+
+    @Test
+    public void testParallelScanMatchesSingleThreaded(@TempDir File dir) throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            int second = (i * 7919) % 3600;
+            log.append("10.0.0.1 - - [01/Jan/2021:")
+                    .append(String.format("%02d:%02d:%02d", second / 3600, second / 60 % 60, second % 60))
+                    .append(" +0000] \"GET /").append(i).append(" HTTP/1.1\" 200 1\n");
+        }
+        File file = write(dir, log.toString());
+        ReplayIndex single = ReplayIndex.build(file, StandardCharsets.UTF_8, 1);
+        ReplayIndex parallel = ReplayIndex.build(file, StandardCharsets.UTF_8, 4);
+        assertEquals(5000, parallel.size());
+        for (int i = 0; i < single.size(); i++) {
+            assertEquals(single.getOffsetMillis(i), parallel.getOffsetMillis(i));
+            assertEquals(single.getLine(i), parallel.getLine(i));
+            if (i > 0) {
+                assertTrue(parallel.getOffsetMillis(i - 1) <= parallel.getOffsetMillis(i));
+            }
+        }
+    }
+
+    @Test
+    public void testGzipIsRejected(@TempDir File dir) throws IOException {
+        File file = new File(dir, "access.log.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+            out.write(LOG.getBytes(StandardCharsets.UTF_8));
+        }
+        assertThrows(IOException.class, () -> ReplayIndex.build(file, StandardCharsets.UTF_8, 1));
+    }
+
+    @Test
+    public void testDaysFromCivil() {
+        for (LocalDate date = LocalDate.of(1899, 12, 25); date.getYear() < 2101; date = date.plusDays(13)) {
+            assertEquals(date.toEpochDay(),
+                    ReplayIndex.daysFromCivil(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+        }
+    }
+
+    @Test
+    public void testScheduleLag(@TempDir File dir) throws IOException {
+        ReplaySchedule schedule = new ReplaySchedule(
+                ReplayIndex.build(write(dir, LOG), StandardCharsets.UTF_8, 1), 2.0);
+        assertEquals(0, schedule.next());
+        assertEquals(1_000_000_000L, schedule.dueNanos(1) - schedule.dueNanos(0));
+        for (int i = 0; i < 99; i++) {
+            schedule.recordLag(500_000);
+        }
+        schedule.recordLag(50_000_000);
+        assertEquals(100, schedule.getSentCount());
+        assertEquals(0.512, schedule.getLagPercentileMillis(50), 0.001);
+        assertEquals(50, schedule.getMaxLagMillis(), 0.001);
+        assertEquals(50, schedule.getLagPercentileMillis(100), 0.001);
+    }
+}
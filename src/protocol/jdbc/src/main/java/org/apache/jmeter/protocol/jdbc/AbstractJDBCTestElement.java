@@ -17,6 +17,7 @@
 
 package org.apache.jmeter.protocol.jdbc;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -116,6 +117,10 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
     static final String RS_STORE_AS_OBJECT = "Store as Object"; // $NON-NLS-1$
     static final String RS_COUNT_RECORDS = "Count Records"; // $NON-NLS-1$
 
+    // Result read modes for select statements
+    static final String RS_READ_FULL = "Full"; // $NON-NLS-1$
+    static final String RS_READ_STREAMING = "Streaming"; // $NON-NLS-1$
+
     private String query = ""; // $NON-NLS-1$
 
     private String dataSource = ""; // $NON-NLS-1$
@@ -128,6 +133,9 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
     private String resultVariable = ""; // $NON-NLS-1$
     private String queryTimeout = ""; // $NON-NLS-1$
     private String resultSetMaxRows = ""; // $NON-NLS-1$
+    private String resultSetReadMode = RS_READ_FULL;
+    private String fetchSize = ""; // $NON-NLS-1$
+    private String maxResponseSize = ""; // $NON-NLS-1$
 
     private static final int MAX_RETAIN_SIZE = JMeterUtils.getPropDefault("jdbcsampler.max_retain_result_size", 64 * 1024);
 
@@ -168,11 +176,12 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
         if (SELECT.equals(currentQueryType)) {
             try (Statement stmt = conn.createStatement()) {
                 setQueryTimeout(stmt, getIntegerQueryTimeout());
+                setFetchSize(stmt, getIntegerFetchSize());
                 ResultSet rs = null;
                 try {
                     rs = stmt.executeQuery(getQuery());
                     sample.latencyEnd();
-                    return getStringFromResultSet(rs).getBytes(ENCODING);
+                    return getBytesFromResultSet(rs, sample);
                 } finally {
                     close(rs);
                 }
@@ -203,7 +212,7 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
                 try {
                     rs = pstmt.executeQuery();
                     sample.latencyEnd();
-                    return getStringFromResultSet(rs).getBytes(ENCODING);
+                    return getBytesFromResultSet(rs, sample);
                 } finally {
                     close(rs);
                 }
@@ -504,6 +513,7 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
             pstmt = conn.prepareStatement(getQuery()); // NOSONAR closed by caller
         }
         setQueryTimeout(pstmt, getIntegerQueryTimeout());
+        setFetchSize(pstmt, getIntegerFetchSize());
         return pstmt;
     }
 
@@ -518,6 +528,169 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
         }
     }
 
+    /**
+     * @param stmt {@link Statement} Statement for which we want to set the fetch size
+     * @param size number of rows fetched per round trip, if &lt;= 0 the driver default is kept
+     * @throws SQLException
+     */
+    private static void setFetchSize(Statement stmt, int size) throws SQLException {
+        if (size > 0) {
+            stmt.setFetchSize(size);
+        }
+    }
+
+    /**
+     * Reads the result set of a select statement according to the result read mode.
+     *
+     * @param rs ResultSet passed in from a database query
+     * @param sample {@link SampleResult} receiving the full body size in streaming mode
+     * @return the response data
+     * @throws SQLException
+     * @throws IOException
+     */
+    private byte[] getBytesFromResultSet(ResultSet rs, SampleResult sample) throws SQLException, IOException {
+        if (RS_READ_STREAMING.equals(resultSetReadMode)) {
+            return streamResultSet(rs, sample);
+        }
+        return getStringFromResultSet(rs).getBytes(ENCODING);
+    }
+
+    /**
+     * Reads the rows one at a time without keeping them.
+     * Only columns bound to variables (or kept in the result variable) are converted to strings,
+     * at most {@link #getIntegerMaxResponseSize()} bytes of the response are kept
+     * and the full size of the response is counted without building it.
+     *
+     * @param rs ResultSet passed in from a database query
+     * @param sample {@link SampleResult} receiving the full body size
+     * @return the response data, possibly truncated
+     * @throws SQLException
+     * @throws IOException
+     */
+    private byte[] streamResultSet(ResultSet rs, SampleResult sample) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int numColumns = meta.getColumnCount();
+        int maxSize = getIntegerMaxResponseSize();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(maxSize > 0 ? Math.min(maxSize, 8192) : 8192);
+        long totalSize = 0;
+
+        String[] labels = new String[numColumns];
+        for (int i = 1; i <= numColumns; i++) {
+            labels[i - 1] = meta.getColumnLabel(i);
+            totalSize += appendCapped(body, maxSize, labels[i - 1], i == numColumns ? '\n' : '\t');
+        }
+
+        JMeterVariables jmvars = getThreadContext().getVariables();
+        String[] varNames = getVariableNames().split(COMMA);
+        String[] boundNames = new String[numColumns];
+        for (int i = 0; i < numColumns && i < varNames.length; i++) {
+            String name = varNames[i].trim();
+            boundNames[i] = name.isEmpty() ? null : name;
+        }
+        String currentResultVariable = getResultVariable().trim();
+        List<Map<String, Object>> results = null;
+        if (!currentResultVariable.isEmpty()) {
+            results = new ArrayList<>();
+            jmvars.putObject(currentResultVariable, results);
+        }
+
+        int rowCount = 0;
+        int resultSetMaxRows = getIntegerResultSetMaxRows();
+        while ((resultSetMaxRows < 0 || rowCount < resultSetMaxRows) && rs.next()) {
+            rowCount++;
+            Map<String, Object> row = results == null ? null : new HashMap<>(numColumns);
+            for (int i = 1; i <= numColumns; i++) {
+                Object o = rs.getObject(i);
+                if (row != null) {
+                    row.put(labels[i - 1], o);
+                }
+                String bound = boundNames[i - 1];
+                char separator = i == numColumns ? '\n' : '\t';
+                if (bound != null || body.size() < maxSize || maxSize <= 0) {
+                    String value = o instanceof byte[] ? new String((byte[]) o, ENCODING) : String.valueOf(o);
+                    if (bound != null) {
+                        jmvars.put(bound + UNDERSCORE + rowCount, o == null ? null : value);
+                    }
+                    totalSize += appendCapped(body, maxSize, value, separator);
+                } else {
+                    totalSize += utf8Length(o) + 1;
+                }
+            }
+            if (row != null) {
+                results.add(row);
+            }
+        }
+        removeStaleVariables(jmvars, varNames, rowCount);
+
+        sample.setBodySize(totalSize);
+        if (maxSize > 0 && totalSize > maxSize) {
+            log.debug("Response of {} bytes truncated to {} bytes", totalSize, maxSize);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Append value and separator to the body without exceeding maxSize bytes.
+     *
+     * @return number of bytes of value and separator, appended or not
+     */
+    private static int appendCapped(ByteArrayOutputStream body, int maxSize, String value, char separator)
+            throws UnsupportedEncodingException {
+        byte[] bytes = value.getBytes(ENCODING);
+        int length = bytes.length + 1;
+        if (maxSize <= 0) {
+            body.write(bytes, 0, bytes.length);
+            body.write(separator);
+        } else if (body.size() < maxSize) {
+            int room = maxSize - body.size();
+            body.write(bytes, 0, Math.min(bytes.length, room));
+            if (room > bytes.length) {
+                body.write(separator);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Number of bytes of the UTF-8 string representation of a column value,
+     * computed without creating the string for the common types.
+     */
+    static long utf8Length(Object o) {
+        if (o instanceof byte[]) {
+            return ((byte[]) o).length;
+        } else if (o instanceof Integer || o instanceof Long || o instanceof Short || o instanceof Byte) {
+            long value = ((Number) o).longValue();
+            if (value == Long.MIN_VALUE) {
+                return 20;
+            }
+            int length = value < 0 ? 2 : 1;
+            for (long v = Math.abs(value); v >= 10; v /= 10) {
+                length++;
+            }
+            return length;
+        }
+        return countUtf8Bytes(String.valueOf(o));
+    }
+
+    private static long countUtf8Bytes(CharSequence chars) {
+        long length = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars.length()
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
     /**
      * Gets a Data object from a ResultSet.
      *
@@ -562,7 +735,15 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
                 currentIterationIndex = processRow(rs, meta, sb, numColumns, jmvars, varNames, results, currentIterationIndex);
             }
         }
-        // Remove any additional values from previous sample
+        removeStaleVariables(jmvars, varNames, currentIterationIndex);
+
+        return sb.toString();
+    }
+
+    /**
+     * Remove any additional values from previous sample and save the current count
+     */
+    private static void removeStaleVariables(JMeterVariables jmvars, String[] varNames, int currentIterationIndex) {
         for (String varName : varNames) {
             String name = varName.trim();
             if (name.length() > 0 && jmvars != null) {
@@ -578,8 +759,6 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
                 jmvars.put(varCount, Integer.toString(currentIterationIndex)); // save the current count
             }
         }
-
-        return sb.toString();
     }
 
     private int processRow(ResultSet rs, ResultSetMetaData meta, StringBuilder sb, int numColumns,
@@ -707,6 +886,71 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
         this.resultSetMaxRows = resultSetMaxRows;
     }
 
+    /**
+     * @return the integer representation of fetchSize, 0 if not set
+     */
+    public int getIntegerFetchSize() {
+        try {
+            return StringUtils.isEmpty(fetchSize) ? 0 : Integer.parseInt(fetchSize.trim());
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the fetchSize
+     */
+    public String getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param fetchSize number of rows fetched per round trip to the database
+     */
+    public void setFetchSize(String fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return the integer representation of maxResponseSize, defaults to
+     * the {@code jdbcsampler.max_retain_result_size} property, &lt;= 0 means no limit
+     */
+    public int getIntegerMaxResponseSize() {
+        try {
+            return StringUtils.isEmpty(maxResponseSize) ? MAX_RETAIN_SIZE : Integer.parseInt(maxResponseSize.trim());
+        } catch (NumberFormatException nfe) {
+            return MAX_RETAIN_SIZE;
+        }
+    }
+
+    /**
+     * @return the maxResponseSize
+     */
+    public String getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    /**
+     * @param maxResponseSize maximum number of bytes of the response kept in streaming mode
+     */
+    public void setMaxResponseSize(String maxResponseSize) {
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * @return the resultSetReadMode
+     */
+    public String getResultSetReadMode() {
+        return resultSetReadMode;
+    }
+
+    /**
+     * @param resultSetReadMode how rows of select statements are read
+     */
+    public void setResultSetReadMode(String resultSetReadMode) {
+        this.resultSetReadMode = resultSetReadMode;
+    }
+
     public String getQuery() {
         return query;
     }
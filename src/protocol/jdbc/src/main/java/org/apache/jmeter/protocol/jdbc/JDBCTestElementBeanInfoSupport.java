@@ -44,7 +44,10 @@ public abstract class JDBCTestElementBeanInfoSupport extends BeanInfoSupport {
                 "resultVariable", // $NON-NLS-1$
                 "queryTimeout", // $NON-NLS-1$
                 "resultSetMaxRows", // $NON-NLS-1$
-                "resultSetHandler" // $NON-NLS-1$
+                "resultSetHandler", // $NON-NLS-1$
+                "resultSetReadMode", // $NON-NLS-1$
+                "fetchSize", // $NON-NLS-1$
+                "maxResponseSize" // $NON-NLS-1$
                 });
 
         PropertyDescriptor p = property("dataSource"); // $NON-NLS-1$
@@ -85,6 +88,23 @@ public abstract class JDBCTestElementBeanInfoSupport extends BeanInfoSupport {
         p.setValue(NOT_UNDEFINED, Boolean.TRUE);
         p.setValue(DEFAULT, "");
 
+        p = property("resultSetReadMode"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, AbstractJDBCTestElement.RS_READ_FULL);
+        p.setValue(NOT_OTHER, Boolean.TRUE);
+        p.setValue(TAGS,new String[]{
+                AbstractJDBCTestElement.RS_READ_FULL,
+                AbstractJDBCTestElement.RS_READ_STREAMING
+                });
+
+        p = property("fetchSize"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");
+
+        p = property("maxResponseSize"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");
+
         p = property("queryType"); // $NON-NLS-1$
         p.setValue(NOT_UNDEFINED, Boolean.TRUE);
         p.setValue(DEFAULT, AbstractJDBCTestElement.SELECT);
@@ -26,6 +26,8 @@ import java.sql.Statement
 import org.apache.jmeter.config.ConfigTestElement
 import org.apache.jmeter.samplers.SampleResult
 import org.apache.jmeter.testelement.property.JMeterProperty
+import org.apache.jmeter.threads.JMeterContextService
+import org.apache.jmeter.threads.JMeterVariables
 
 import spock.lang.Specification
 import spock.lang.Unroll
@@ -80,6 +82,55 @@ class JDBCSamplerSpec extends Specification {
             response == [] as byte[]
     }
 
+    def "execute with SELECT query in streaming mode"() {
+        given:
+            def conn = Mock(Connection)
+            def sample = Mock(SampleResult)
+            def stmt = Mock(Statement)
+            def rs = Mock(ResultSet)
+            def meta = Mock(ResultSetMetaData)
+            def vars = new JMeterVariables()
+            JMeterContextService.getContext().setVariables(vars)
+            sut.setQuery("SELECT")
+            sut.setResultSetReadMode("Streaming")
+            sut.setFetchSize("100")
+            sut.setMaxResponseSize("10")
+            sut.setVariableNames(",name")
+        when:
+            def response = sut.execute(conn, sample)
+        then:
+            1 * conn.createStatement() >> stmt
+            1 * stmt.setFetchSize(100)
+            1 * stmt.executeQuery(_ as String) >> rs
+            1 * rs.getMetaData() >> meta
+            1 * meta.getColumnCount() >> 2
+            meta.getColumnLabel(1) >> "id"
+            meta.getColumnLabel(2) >> "name"
+            3 * rs.next() >>> [true, true, false]
+            rs.getObject(1) >>> [1, 22]
+            rs.getObject(2) >>> ["a", "été"]
+            // the second row is only counted: "22\t" is 3 bytes, "été\n" is 6 bytes
+            1 * sample.setBodySize(21)
+            new String(response, "UTF-8") == "id\tname\n1\t"
+            vars.get("name_1") == "a"
+            vars.get("name_2") == "été"
+            vars.get("name_#") == "2"
+    }
+
+    def "utf8Length of #value is #expectedLength"() {
+        expect:
+            sut.utf8Length(value) == expectedLength
+        where:
+            value                | expectedLength
+            null                 | 4
+            0                    | 1
+            -12                  | 3
+            Long.MIN_VALUE       | 20
+            "été"                | 5
+            "\uD83D\uDE00"       | 4
+            [1, 2, 3] as byte[]  | 3
+    }
+
     def "Catches SQLException during Connection closing"() {
         given:
             def mockConnection = Mock(Connection)
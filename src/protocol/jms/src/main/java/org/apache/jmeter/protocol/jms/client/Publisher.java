@@ -53,6 +53,12 @@ public class Publisher implements Closeable {
 
     private final boolean staticDest;
 
+    /** Number of messages per transaction, 0 if the session is not transacted */
+    private final int commitEvery;
+
+    /** Messages sent since the last commit */
+    private int uncommitted;
+
     /**
      * Create a publisher using either the jndi.properties file or the provided
      * parameters. Uses a static destination and persistent messages(for
@@ -121,13 +127,56 @@ public class Publisher implements Closeable {
             String connfactory, String destinationName, boolean useAuth,
             String securityPrincipal, String securityCredentials,
             boolean staticDestination) throws JMSException, NamingException {
+        this(useProps, initialContextFactory, providerUrl, connfactory,
+                destinationName, useAuth, securityPrincipal,
+                securityCredentials, staticDestination, 0);
+    }
+
+    /**
+     * Create a publisher using either the jndi.properties file or the provided
+     * parameters, with an optionally transacted session
+     *
+     * @param useProps
+     *            true if a jndi.properties file is to be used
+     * @param initialContextFactory
+     *            the (ignored if useProps is true)
+     * @param providerUrl
+     *            (ignored if useProps is true)
+     * @param connfactory
+     *            name of the object factory to lookup in context
+     * @param destinationName
+     *            name of the destination to use
+     * @param useAuth
+     *            (ignored if useProps is true)
+     * @param securityPrincipal
+     *            (ignored if useProps is true)
+     * @param securityCredentials
+     *            (ignored if useProps is true)
+     * @param staticDestination
+     *            true if the destination is not to change between loops
+     * @param commitEvery
+     *            if positive, the session is transacted and committed every
+     *            commitEvery messages
+     * @throws JMSException
+     *             if the context could not be initialised, or there was some
+     *             other error
+     * @throws NamingException
+     *             when creation of the publisher fails
+     */
+    public Publisher(boolean useProps, String initialContextFactory, String providerUrl,
+            String connfactory, String destinationName, boolean useAuth,
+            String securityPrincipal, String securityCredentials,
+            boolean staticDestination, int commitEvery) throws JMSException, NamingException {
         super();
+        this.commitEvery = Math.max(commitEvery, 0);
         boolean initSuccess = false;
         try{
             ctx = InitialContextFactory.getContext(useProps, initialContextFactory,
                     providerUrl, useAuth, securityPrincipal, securityCredentials);
             connection = Utils.getConnection(ctx, connfactory);
-            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session = this.commitEvery > 0
+                    ? connection.createSession(true, Session.SESSION_TRANSACTED)
+                    : connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
             staticDest = staticDestination;
             if (staticDest) {
                 Destination dest = Utils.lookupDestination(ctx, destinationName);
@@ -194,14 +243,36 @@ public class Publisher implements Closeable {
             Destination dest = Utils.lookupDestination(ctx, destinationName);
             producer.send(dest, msg, deliveryMode, priority, expiration);
         }
+        if (commitEvery > 0 && ++uncommitted >= commitEvery) {
+            commit();
+        }
         return msg;
     }
 
+    /**
+     * Commit the messages sent since the last commit, if the session is transacted
+     *
+     * @throws JMSException if the commit fails
+     */
+    public void commit() throws JMSException {
+        if (commitEvery > 0 && uncommitted > 0) {
+            uncommitted = 0;
+            session.commit();
+        }
+    }
+
     /**
      * Close will close the session
      */
     @Override
     public void close() {
+        if (session != null) {
+            try {
+                commit();
+            } catch (JMSException e) {
+                log.warn("Error committing messages before closing", e);
+            }
+        }
         Utils.close(producer, log);
         Utils.close(session, log);
         Utils.close(connection, log);
@@ -101,6 +101,10 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
 
     private final JTextField iterations = new JTextField();
 
+    private final JCheckBox prerenderPayloads = new JCheckBox(JMeterUtils.getResString("jms_prerender_payloads"), false); //$NON-NLS-1$
+
+    private final JTextField commitEvery = new JTextField();
+
     private final FilePanel messageFile = new FilePanel(JMeterUtils.getResString("jms_file")); //$NON-NLS-1$
 
     private final FilePanel randomFile = new FilePanel(JMeterUtils.getResString("jms_random_file"), true); //$NON-NLS-1$
@@ -190,6 +194,8 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
       sampler.setIterations(iterations.getText());
       sampler.setUseAuth(useAuth.isSelected());
       sampler.setUseNonPersistentDelivery(useNonPersistentDelivery.isSelected());
+      sampler.setPrerenderPayloads(prerenderPayloads.isSelected());
+      sampler.setCommitEvery(commitEvery.getText());
 
       JMSProperties args = (JMSProperties) jmsPropertiesPanel.createTestElement();
       sampler.setJMSProperties(args);
@@ -252,6 +258,11 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
         mainPanel.add(JMeterUtils.labelFor(iterations, "jms_itertions"));
         mainPanel.add(iterations, "span, growx");
 
+        mainPanel.add(prerenderPayloads, "span");
+
+        mainPanel.add(JMeterUtils.labelFor(commitEvery, "jms_commit_every"));
+        mainPanel.add(commitEvery, "span, growx");
+
         useProperties.addChangeListener(this);
         useAuth.addChangeListener(this);
         configChoice.addChangeListener(this);
@@ -285,6 +296,8 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
         jmsPwd.setEnabled(false);
         destSetup.setText(DEST_SETUP_STATIC);
         useNonPersistentDelivery.setSelected(false);
+        prerenderPayloads.setSelected(false);
+        commitEvery.setText(""); // $NON-NLS-1$
         jmsPropertiesPanel.clearGui();
     }
 
@@ -318,6 +331,8 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
         jmsPwd.setEnabled(useAuth.isSelected());
         destSetup.setText(sampler.isDestinationStatic() ? DEST_SETUP_STATIC : DEST_SETUP_DYNAMIC);
         useNonPersistentDelivery.setSelected(sampler.getUseNonPersistentDelivery());
+        prerenderPayloads.setSelected(sampler.isPrerenderPayloads());
+        commitEvery.setText(sampler.getCommitEvery());
         jmsPropertiesPanel.configure(sampler.getJMSProperties());
         updateChoice(msgChoice.getText());
         updateConfig(sampler.getConfigChoice());
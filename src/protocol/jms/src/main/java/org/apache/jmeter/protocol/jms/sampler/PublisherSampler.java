@@ -25,6 +25,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
@@ -39,12 +40,15 @@ import javax.naming.NamingException;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.engine.util.CompoundVariable;
 import org.apache.jmeter.protocol.jms.Utils;
 import org.apache.jmeter.protocol.jms.client.ClientPool;
 import org.apache.jmeter.protocol.jms.client.InitialContextFactory;
 import org.apache.jmeter.protocol.jms.client.Publisher;
 import org.apache.jmeter.protocol.jms.control.gui.JMSPublisherGui;
 import org.apache.jmeter.protocol.jms.sampler.render.MessageRenderer;
+import org.apache.jmeter.protocol.jms.sampler.render.PayloadPool;
+import org.apache.jmeter.protocol.jms.sampler.render.PayloadTemplate;
 import org.apache.jmeter.protocol.jms.sampler.render.Renderers;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.services.FileServer;
@@ -122,6 +126,10 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
 
     private static final String JMS_FILE_ENCODING = "jms.file_encoding"; // $NON-NLS-1$
 
+    private static final String PRERENDER_PAYLOADS = "jms.prerender_payloads"; // $NON-NLS-1$
+
+    private static final String COMMIT_EVERY = "jms.commit_every"; // $NON-NLS-1$
+
     /** File extensions for text files **/
     private static final String[] TEXT_FILE_EXTS = { ".txt", ".obj" };
     /** File extensions for binary files **/
@@ -140,6 +148,9 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
     /** File cache handler **/
     private Cache<Object, Object> fileCache = null;
 
+    /** Placeholders of the shared templates, compiled for the thread of this sampler **/
+    private transient Map<PayloadTemplate, CompoundVariable[]> compiledTemplates;
+
     /**
      * the implementation calls testStarted() without any parameters.
      */
@@ -164,10 +175,23 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
         log.debug("PublisherSampler.testEnded called");
         ClientPool.clearClient();
         InitialContextFactory.close();
+        PayloadPool.clear();
     }
 
+    /**
+     * Renders the message files at test start when payloads are pre-rendered
+     */
     @Override
     public void testStarted() {
+        if (!usesPayloadPool()) {
+            return;
+        }
+        try {
+            getPooledPayload();
+        } catch (RuntimeException e) {
+            // Will be reported by the samples
+            log.warn("Could not pre-render messages of {}", getName(), e);
+        }
     }
 
     /**
@@ -182,7 +206,7 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
         configureIsReconnectErrorCode();
         publisher = new Publisher(getUseJNDIPropertiesAsBoolean(), getJNDIInitialContextFactory(), getProviderUrl(),
                 getConnectionFactory(), getDestination(), isUseAuth(), getUsername(), getPassword(),
-                isDestinationStatic());
+                isDestinationStatic(), getCommitEveryAsInt());
         ClientPool.addClient(publisher);
         log.debug("PublisherSampler.initClient called");
     }
@@ -226,9 +250,19 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
             int priority = Integer.parseInt(getPriority());
             long expiration = Long.parseLong(getExpiration());
 
+            boolean pooled = usesPayloadPool();
             for (int idx = 0; idx < loop; idx++) {
                 Message msg;
-                if (JMSPublisherGui.TEXT_MSG_RSC.equals(type)) {
+                if (pooled && JMSPublisherGui.TEXT_MSG_RSC.equals(type)) {
+                    PayloadTemplate template = getPooledPayload();
+                    String tmsg = template.renderText(compile(template));
+                    msg = publisher.publish(tmsg, getDestination(), msgProperties, deliveryMode, priority, expiration);
+                    buffer.append(tmsg);
+                } else if (pooled) {
+                    PayloadTemplate template = getPooledPayload();
+                    byte[] bmsg = template.renderBytes(compile(template));
+                    msg = publisher.publish(bmsg, getDestination(), msgProperties, deliveryMode, priority, expiration);
+                } else if (JMSPublisherGui.TEXT_MSG_RSC.equals(type)) {
                     String tmsg = getRenderedContent(String.class, TEXT_FILE_EXTS);
                     msg = publisher.publish(tmsg, getDestination(), msgProperties, deliveryMode, priority, expiration);
                     buffer.append(tmsg);
@@ -338,6 +372,35 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
         }
     }
 
+    /**
+     * @return {@code true} if messages come from pre-rendered shared templates,
+     * only used for text and bytes messages read from files
+     */
+    private boolean usesPayloadPool() {
+        String type = getMessageChoice();
+        return isPrerenderPayloads()
+                && !JMSPublisherGui.USE_TEXT_RSC.equals(getConfigChoice())
+                && (JMSPublisherGui.TEXT_MSG_RSC.equals(type) || JMSPublisherGui.BYTES_MSG_RSC.equals(type));
+    }
+
+    private PayloadTemplate getPooledPayload() {
+        String[] fileExts = JMSPublisherGui.BYTES_MSG_RSC.equals(getMessageChoice()) ? BIN_FILE_EXTS : TEXT_FILE_EXTS;
+        Charset charset = NO_ENCODING.contains(getFileEncoding())
+                ? Charset.defaultCharset()
+                : Charset.forName(getFileEncoding());
+        if (JMSPublisherGui.USE_RANDOM_RSC.equals(getConfigChoice())) {
+            return PayloadPool.getRandomFile(getRandomPath(), fileExts, charset, !isRaw());
+        }
+        return PayloadPool.getFile(getInputFile(), charset, !isRaw());
+    }
+
+    private CompoundVariable[] compile(PayloadTemplate template) {
+        if (compiledTemplates == null) {
+            compiledTemplates = new IdentityHashMap<>();
+        }
+        return compiledTemplates.computeIfAbsent(template, PayloadTemplate::compile);
+    }
+
     /**
      * Specified if value must be parsed or not.
      *
@@ -556,4 +619,40 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
     public void setFileEncoding(String fileEncoding) {
         setProperty(JMS_FILE_ENCODING, fileEncoding, RAW_DATA);
     }
+
+    /**
+     * @return {@code true} if message files are rendered once and shared by all threads,
+     * only the placeholders being evaluated for each message
+     */
+    public boolean isPrerenderPayloads() {
+        return getPropertyAsBoolean(PRERENDER_PAYLOADS, false);
+    }
+
+    /**
+     * @param prerender whether message files are rendered once and shared by all threads
+     */
+    public void setPrerenderPayloads(boolean prerender) {
+        setProperty(PRERENDER_PAYLOADS, prerender, false);
+    }
+
+    /**
+     * @return number of messages per transaction, empty if the session is not transacted
+     */
+    public String getCommitEvery() {
+        return getPropertyAsString(COMMIT_EVERY);
+    }
+
+    /**
+     * @return number of messages per transaction, 0 if the session is not transacted
+     */
+    public int getCommitEveryAsInt() {
+        return getPropertyAsInt(COMMIT_EVERY, 0);
+    }
+
+    /**
+     * @param commitEvery number of messages per transaction, empty or 0 for a non transacted session
+     */
+    public void setCommitEvery(String commitEvery) {
+        setProperty(COMMIT_EVERY, commitEvery, "");
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.jms.sampler.render;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.jmeter.gui.JMeterFileFilter;
+
+/**
+ * Message templates shared by all the Publisher samplers of a test, rendered once
+ * when first requested (usually at test start) and kept until {@link #clear()}.
+ * <p>
+ * Directories used in random file mode are listed once, and a random template
+ * is picked from the list for each message.
+ */
+public final class PayloadPool {
+
+    private static final ConcurrentMap<Key, PayloadTemplate> FILES = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<Key, List<PayloadTemplate>> DIRECTORIES = new ConcurrentHashMap<>();
+
+    private PayloadPool() {
+    }
+
+    /**
+     * Get the template of a file.
+     *
+     * @param filename   file containing the message
+     * @param charset    charset of the file
+     * @param substitute whether placeholders must be evaluated, if {@code false} the content is sent as is
+     * @return the shared template
+     */
+    public static PayloadTemplate getFile(String filename, Charset charset, boolean substitute) {
+        return FILES.computeIfAbsent(new Key(filename, charset, substitute, null),
+                key -> load(new File(filename), charset, substitute));
+    }
+
+    /**
+     * Get the template of a random file of a directory.
+     *
+     * @param directory  directory containing the messages
+     * @param extensions extensions of the message files
+     * @param charset    charset of the files
+     * @param substitute whether placeholders must be evaluated, if {@code false} the content is sent as is
+     * @return one of the shared templates of the directory
+     * @throws IllegalArgumentException if the directory contains no file with the extensions
+     */
+    public static PayloadTemplate getRandomFile(String directory, String[] extensions, Charset charset,
+            boolean substitute) {
+        List<PayloadTemplate> templates = DIRECTORIES.computeIfAbsent(
+                new Key(directory, charset, substitute, extensions),
+                key -> loadDirectory(directory, extensions, charset, substitute));
+        return templates.get(ThreadLocalRandom.current().nextInt(templates.size()));
+    }
+
+    /**
+     * Forget all templates
+     */
+    public static void clear() {
+        FILES.clear();
+        DIRECTORIES.clear();
+    }
+
+    private static List<PayloadTemplate> loadDirectory(String directory, String[] extensions, Charset charset,
+            boolean substitute) {
+        File[] files = new File(directory).listFiles(new JMeterFileFilter(extensions));
+        if (files == null) {
+            throw new IllegalArgumentException(format("Can't list files of %s", directory));
+        }
+        List<PayloadTemplate> templates = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (file.isFile()) {
+                templates.add(load(file, charset, substitute));
+            }
+        }
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException(format("No file with extension %s in %s",
+                    Arrays.toString(extensions), directory));
+        }
+        return Collections.unmodifiableList(templates);
+    }
+
+    private static PayloadTemplate load(File file, Charset charset, boolean substitute) {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new IllegalArgumentException(format("Can't read content of %s", file), e);
+        }
+        String text = new String(content, charset);
+        return substitute ? PayloadTemplate.parse(text, charset) : PayloadTemplate.literal(text, content, charset);
+    }
+
+    private static final class Key {
+        private final String path;
+        private final Charset charset;
+        private final boolean substitute;
+        private final List<String> extensions;
+
+        Key(String path, Charset charset, boolean substitute, String[] extensions) {
+            this.path = path;
+            this.charset = charset;
+            this.substitute = substitute;
+            this.extensions = extensions == null ? null : Arrays.asList(extensions);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return substitute == other.substitute
+                    && path.equals(other.path)
+                    && charset.equals(other.charset)
+                    && Objects.equals(extensions, other.extensions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, charset, substitute, extensions);
+        }
+    }
+}
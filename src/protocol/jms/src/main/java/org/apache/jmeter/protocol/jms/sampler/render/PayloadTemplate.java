@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.jms.sampler.render;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.engine.util.CompoundVariable;
+
+/**
+ * Message content rendered once and shared by all threads.
+ * <p>
+ * The content is split into static segments, kept as strings and encoded bytes,
+ * and placeholders (<code>${...}</code> variables and functions). Only the placeholders
+ * are evaluated when a message is sent, and content without placeholders is
+ * returned as is without any copy.
+ * <p>
+ * Placeholders are evaluated with {@link CompoundVariable}s created by {@link #compile()},
+ * which must not be shared between threads.
+ */
+public final class PayloadTemplate {
+
+    private static final CompoundVariable[] NO_PLACEHOLDERS = new CompoundVariable[0];
+
+    private final Charset charset;
+    /** Static segments, one more than placeholders */
+    private final String[] segments;
+    private final byte[][] encodedSegments;
+    private final String[] placeholders;
+    /** Whether encoding each part separately gives the same bytes as encoding the whole text */
+    private final boolean concatenable;
+
+    private PayloadTemplate(Charset charset, String[] segments, byte[][] encodedSegments, String[] placeholders) {
+        this.charset = charset;
+        this.segments = segments;
+        this.encodedSegments = encodedSegments;
+        this.placeholders = placeholders;
+        // Charsets writing a byte order mark (e.g. UTF-16) would repeat it for each part
+        byte[] one = "a".getBytes(charset); // $NON-NLS-1$
+        this.concatenable = "aa".getBytes(charset).length == 2 * one.length; // $NON-NLS-1$
+    }
+
+    /**
+     * Create a template whose placeholders are evaluated on each render.
+     *
+     * @param text    content with placeholders
+     * @param charset charset used to encode the content
+     * @return the template
+     */
+    public static PayloadTemplate parse(String text, Charset charset) {
+        List<String> segments = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        if (text.indexOf('\\') >= 0) {
+            // Escapes are interpreted across the whole text, keep it as a single placeholder
+            segments.add("");
+            placeholders.add(text);
+            segments.add("");
+        } else {
+            split(text, segments, placeholders);
+        }
+        String[] staticSegments = segments.toArray(new String[0]);
+        byte[][] encoded = new byte[staticSegments.length][];
+        for (int i = 0; i < staticSegments.length; i++) {
+            encoded[i] = staticSegments[i].getBytes(charset);
+        }
+        return new PayloadTemplate(charset, staticSegments, encoded, placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * Create a template sent as is.
+     *
+     * @param text    content
+     * @param bytes   encoded content, or {@code null} to encode text with charset
+     * @param charset charset of the content
+     * @return the template
+     */
+    public static PayloadTemplate literal(String text, byte[] bytes, Charset charset) {
+        return new PayloadTemplate(charset, new String[]{text},
+                new byte[][]{bytes == null ? text.getBytes(charset) : bytes}, new String[0]);
+    }
+
+    /**
+     * Split text at each <code>${...}</code>, taking nested braces into account
+     */
+    private static void split(String text, List<String> segments, List<String> placeholders) {
+        int start = 0;
+        int open = text.indexOf("${"); // $NON-NLS-1$
+        while (open >= 0) {
+            int close = findClosingBrace(text, open + 2);
+            if (close < 0) {
+                break;
+            }
+            segments.add(text.substring(start, open));
+            placeholders.add(text.substring(open, close + 1));
+            start = close + 1;
+            open = text.indexOf("${", start); // $NON-NLS-1$
+        }
+        segments.add(text.substring(start));
+    }
+
+    private static int findClosingBrace(String text, int from) {
+        int depth = 1;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return {@code true} if the content has no placeholder
+     */
+    public boolean isStatic() {
+        return placeholders.length == 0;
+    }
+
+    /**
+     * @return placeholders compiled for the calling thread, to pass to the render methods
+     */
+    public CompoundVariable[] compile() {
+        if (isStatic()) {
+            return NO_PLACEHOLDERS;
+        }
+        CompoundVariable[] compiled = new CompoundVariable[placeholders.length];
+        for (int i = 0; i < placeholders.length; i++) {
+            compiled[i] = new CompoundVariable(placeholders[i]);
+        }
+        return compiled;
+    }
+
+    /**
+     * @param compiled result of {@link #compile()}
+     * @return the content with placeholders replaced
+     */
+    public String renderText(CompoundVariable[] compiled) {
+        if (isStatic()) {
+            return segments[0];
+        }
+        StringBuilder sb = new StringBuilder(segments[0]);
+        for (int i = 0; i < compiled.length; i++) {
+            sb.append(compiled[i].execute()).append(segments[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param compiled result of {@link #compile()}
+     * @return the encoded content with placeholders replaced, must not be modified
+     */
+    public byte[] renderBytes(CompoundVariable[] compiled) {
+        if (isStatic()) {
+            return encodedSegments[0];
+        }
+        if (!concatenable) {
+            return renderText(compiled).getBytes(charset);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(estimatedSize());
+        out.write(encodedSegments[0], 0, encodedSegments[0].length);
+        for (int i = 0; i < compiled.length; i++) {
+            byte[] value = compiled[i].execute().getBytes(charset);
+            out.write(value, 0, value.length);
+            out.write(encodedSegments[i + 1], 0, encodedSegments[i + 1].length);
+        }
+        return out.toByteArray();
+    }
+
+    private int estimatedSize() {
+        int size = 16 * placeholders.length;
+        for (byte[] segment : encodedSegments) {
+            size += segment.length;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.jms.sampler.render;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.jmeter.engine.util.CompoundVariable;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterContextExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@ExtendWith(JMeterContextExtension.class)
+public class PayloadTemplateTest {
+
+    @TempDir
+    public Path tmpDir;
+
+    @AfterEach
+    public void clearPool() {
+        PayloadPool.clear();
+    }
+
+    @Test
+    public void staticContentIsNotCopied() {
+        PayloadTemplate template = PayloadTemplate.parse("no placeholder", StandardCharsets.UTF_8);
+        assertTrue(template.isStatic());
+        CompoundVariable[] compiled = template.compile();
+        assertSame(template.renderBytes(compiled), template.renderBytes(compiled));
+        assertEquals("no placeholder", template.renderText(compiled));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"UTF-8", "UTF-16", "ISO-8859-1"})
+    public void onlyPlaceholdersAreEvaluated(String encoding, JMeterVariables vars) {
+        Charset charset = Charset.forName(encoding);
+        PayloadTemplate template = PayloadTemplate.parse("<a>${one}</a><b>${two}</b>", charset);
+        assertFalse(template.isStatic());
+        CompoundVariable[] compiled = template.compile();
+        vars.put("one", "1");
+        vars.put("two", "é");
+        assertEquals("<a>1</a><b>é</b>", template.renderText(compiled));
+        assertArrayEquals("<a>1</a><b>é</b>".getBytes(charset), template.renderBytes(compiled));
+        vars.put("one", "un");
+        assertEquals("<a>un</a><b>é</b>", template.renderText(compiled));
+    }
+
+    @Test
+    public void undefinedAndUnclosedPlaceholders(JMeterVariables vars) {
+        vars.put("name", "x");
+        PayloadTemplate template = PayloadTemplate.parse("${name} ${missing} ${unclosed", StandardCharsets.UTF_8);
+        assertEquals("x ${missing} ${unclosed", template.renderText(template.compile()));
+    }
+
+    @Test
+    public void literalIsSentAsIs(JMeterVariables vars) throws IOException {
+        vars.put("one", "1");
+        Path file = Files.write(tmpDir.resolve("raw.txt"), "${one}".getBytes(StandardCharsets.UTF_8));
+        PayloadTemplate template = PayloadPool.getFile(file.toString(), StandardCharsets.UTF_8, false);
+        assertEquals("${one}", template.renderText(template.compile()));
+        assertSame(template, PayloadPool.getFile(file.toString(), StandardCharsets.UTF_8, false));
+    }
+
+    @Test
+    public void randomFileIsPickedFromDirectory() throws IOException {
+        Files.write(tmpDir.resolve("a.txt"), "a".getBytes(StandardCharsets.UTF_8));
+        Files.write(tmpDir.resolve("b.txt"), "b".getBytes(StandardCharsets.UTF_8));
+        Files.write(tmpDir.resolve("c.dat"), "c".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < 20; i++) {
+            PayloadTemplate template = PayloadPool.getRandomFile(tmpDir.toString(), new String[]{".txt"},
+                    StandardCharsets.UTF_8, true);
+            String text = template.renderText(template.compile());
+            assertTrue("a".equals(text) || "b".equals(text), text);
+        }
+    }
+}
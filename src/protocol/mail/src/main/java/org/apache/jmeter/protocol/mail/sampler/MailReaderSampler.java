@@ -24,7 +24,9 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -50,6 +52,7 @@ import org.apache.jmeter.samplers.Interruptible;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.ThreadListener;
 import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.testelement.property.IntegerProperty;
 import org.apache.jmeter.testelement.property.StringProperty;
@@ -61,7 +64,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Sampler that can read from POP3 and IMAP mail servers
  */
-public class MailReaderSampler extends AbstractSampler implements Interruptible {
+public class MailReaderSampler extends AbstractSampler implements Interruptible, ThreadListener {
     private static final Logger log = LoggerFactory.getLogger(MailReaderSampler.class);
 
     private static final long serialVersionUID = 240L;
@@ -82,8 +85,13 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
     private static final String STORE_MIME_MESSAGE = "storeMimeMessage"; // $NON-NLS-1$
     private static final String HEADER_ONLY = "headerOnly"; // $NON-NLS-1$
     private static final boolean HEADER_ONLY_DEFAULT = false;
+    private static final String REUSE_CONNECTION = "reuse_connection"; // $NON-NLS-1$
     //-
 
+    /** Connected stores kept open by the thread, by protocol, user, server and port */
+    private static final ThreadLocal<Map<String, Store>> STORES =
+            ThreadLocal.withInitial(HashMap::new);
+
     private static final String RFC_822_DEFAULT_ENCODING = "iso-8859-1"; // RFC 822 uses ascii per default
 
     public static final String DEFAULT_PROTOCOL = "pop3";  // $NON-NLS-1$
@@ -154,55 +162,23 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
          * Perform the sampling
          */
         parent.sampleStart(); // Start timing
+        final boolean reuseConnection = isReuseConnection();
+        final String storeKey = getStoreKey();
+        Store store = null;
+        boolean keepConnection = false;
         try {
-            // Create empty properties
-            Properties props = new Properties();
-
-            if (isUseStartTLS()) {
-                props.setProperty(mailProp(serverProtocol, "starttls.enable"), TRUE);  // $NON-NLS-1$
-                if (isEnforceStartTLS()){
-                    // Requires JavaMail 1.4.2+
-                    props.setProperty(mailProp(serverProtocol, "starttls.require"), TRUE);  // $NON-NLS-1$
-                }
+            if (reuseConnection) {
+                store = takeStore(storeKey);
             }
+            if (store == null) {
+                // Get session
+                Session session = Session.getInstance(createSessionProperties(serverProtocol), null);
 
-            if (isTrustAllCerts()) {
-                if (isUseSSL() || isUseStartTLS()) {
-                    props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.class"), TRUST_ALL_SOCKET_FACTORY);  // $NON-NLS-1$
-                    props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
-                }
-            } else if (isUseLocalTrustStore()){
-                File truststore = new File(getTrustStoreToUse());
-                log.info("load local truststore - try to load truststore from: {}", truststore.getAbsolutePath());
-                if(!truststore.exists()){
-                    log.info("load local truststore -Failed to load truststore from: {}", truststore.getAbsolutePath());
-                    truststore = new File(FileServer.getFileServer().getBaseDir(), getTrustStoreToUse());
-                    log.info("load local truststore -Attempting to read truststore from: {}", truststore.getAbsolutePath());
-                    if (!truststore.exists()){
-                        log.info(
-                                "load local truststore -Failed to load truststore from: {}"
-                                        + ". Local truststore not available, aborting execution.",
-                                truststore.getAbsolutePath());
-                        throw new IOException(
-                                "Local truststore file not found. Also not available under : "
-                                        + truststore.getAbsolutePath());
-                    }
-                }
-                if (isUseSSL() || isUseStartTLS()) {
-                    // Requires JavaMail 1.4.2+
-                    props.put(mailProp(serverProtocol, "ssl.socketFactory"),   // $NON-NLS-1$
-                            new LocalTrustStoreSSLSocketFactory(truststore));
-                    props.put(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
-                }
+                // Get the store
+                store = session.getStore(serverProtocol);
+                store.connect(getServer(), getPortAsInt(), getUserName(), getPassword());
             }
-            addCustomProperties(props);
-
-            // Get session
-            Session session = Session.getInstance(props, null);
-
-            // Get the store
-            Store store = session.getStore(serverProtocol);
-            store.connect(getServer(), getPortAsInt(), getUserName(), getPassword());
+            parent.connectEnd();
 
             // Get folder
             Folder folder = store.getFolder(getFolder());
@@ -279,9 +255,9 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
                 parent.addSubResult(child);
             }
 
-            // Close connection
+            // Close the folder, so deleted messages are expunged even when the store is kept open
             folder.close(true);
-            store.close();
+            keepConnection = reuseConnection;
 
             parent.setResponseCodeOK();
             parent.setResponseMessageOK();
@@ -296,6 +272,13 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
             parent.setResponseMessage(ex.toString() + "\n" + samplerString); // $NON-NLS-1$
         } finally {
             busy = false;
+            if (store != null) {
+                if (keepConnection) {
+                    STORES.get().put(storeKey, store);
+                } else {
+                    close(store);
+                }
+            }
         }
 
         if (parent.getEndTime()==0){// not been set by any child samples
@@ -305,6 +288,55 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
         return parent;
     }
 
+    /**
+     * Create the properties of the mail session, with the security settings
+     * and the custom {@code mail.*} JMeter properties
+     */
+    private Properties createSessionProperties(String serverProtocol) throws IOException {
+        // Create empty properties
+        Properties props = new Properties();
+
+        if (isUseStartTLS()) {
+            props.setProperty(mailProp(serverProtocol, "starttls.enable"), TRUE);  // $NON-NLS-1$
+            if (isEnforceStartTLS()){
+                // Requires JavaMail 1.4.2+
+                props.setProperty(mailProp(serverProtocol, "starttls.require"), TRUE);  // $NON-NLS-1$
+            }
+        }
+
+        if (isTrustAllCerts()) {
+            if (isUseSSL() || isUseStartTLS()) {
+                props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.class"), TRUST_ALL_SOCKET_FACTORY);  // $NON-NLS-1$
+                props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
+            }
+        } else if (isUseLocalTrustStore()){
+            File truststore = new File(getTrustStoreToUse());
+            log.info("load local truststore - try to load truststore from: {}", truststore.getAbsolutePath());
+            if(!truststore.exists()){
+                log.info("load local truststore -Failed to load truststore from: {}", truststore.getAbsolutePath());
+                truststore = new File(FileServer.getFileServer().getBaseDir(), getTrustStoreToUse());
+                log.info("load local truststore -Attempting to read truststore from: {}", truststore.getAbsolutePath());
+                if (!truststore.exists()){
+                    log.info(
+                            "load local truststore -Failed to load truststore from: {}"
+                                    + ". Local truststore not available, aborting execution.",
+                            truststore.getAbsolutePath());
+                    throw new IOException(
+                            "Local truststore file not found. Also not available under : "
+                                    + truststore.getAbsolutePath());
+                }
+            }
+            if (isUseSSL() || isUseStartTLS()) {
+                // Requires JavaMail 1.4.2+
+                props.put(mailProp(serverProtocol, "ssl.socketFactory"),   // $NON-NLS-1$
+                        new LocalTrustStoreSSLSocketFactory(truststore));
+                props.put(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
+            }
+        }
+        addCustomProperties(props);
+        return props;
+    }
+
     protected void addCustomProperties(Properties props) {
         Properties jMeterProperties = JMeterUtils.getJMeterProperties();
         @SuppressWarnings("unchecked")
@@ -604,6 +636,66 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
         setProperty(HEADER_ONLY, selected, HEADER_ONLY_DEFAULT);
     }
 
+    /**
+     * @return Whether or not to keep the store connected for the next samples of the thread
+     */
+    public boolean isReuseConnection() {
+        return getPropertyAsBoolean(REUSE_CONNECTION, false);
+    }
+
+    /**
+     * @param reuse
+     *            Whether or not to keep the store connected for the next samples of the thread
+     */
+    public void setReuseConnection(boolean reuse) {
+        setProperty(REUSE_CONNECTION, reuse, false);
+    }
+
+    private String getStoreKey() {
+        return getServerType() + "://" + getUserName() + "@" + getServer() + ":" + getPortAsInt(); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+    }
+
+    /**
+     * Take the store kept connected by the thread, after checking it is still alive.
+     * For IMAP and POP3, {@link Store#isConnected()} sends a NOOP to the server.
+     *
+     * @param key key of the store
+     * @return the store or {@code null} if there is none or it is no longer connected
+     */
+    private static Store takeStore(String key) {
+        Store store = STORES.get().remove(key);
+        if (store != null && !store.isConnected()) {
+            log.debug("Store {} is no longer connected, reconnecting", key);
+            close(store);
+            return null;
+        }
+        return store;
+    }
+
+    private static void close(Store store) {
+        try {
+            store.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing store", e);
+        }
+    }
+
+    @Override
+    public void threadStarted() {
+        // NOOP
+    }
+
+    /**
+     * Closes the stores kept connected by the thread
+     */
+    @Override
+    public void threadFinished() {
+        Map<String, Store> stores = STORES.get();
+        stores.values().forEach(MailReaderSampler::close);
+        stores.clear();
+        STORES.remove();
+    }
+
     /**
      * Build a property name of the form "mail.pop3s.starttls.require"
      *
@@ -76,6 +76,8 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
 
     private JCheckBox headerOnlyBox;
 
+    private JCheckBox reuseConnectionBox;
+
     // Labels - don't make these static, else language change will not work
 
     private final String serverTypeLabel = JMeterUtils.getResString("mail_reader_server_type");// $NON-NLS-1$
@@ -100,6 +102,8 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
 
     private final String headerOnlyLabel = JMeterUtils.getResString("mail_reader_header_only");// $NON-NLS-1$
 
+    private final String reuseConnectionLabel = JMeterUtils.getResString("reuseconnection");// $NON-NLS-1$
+
     private static final String INBOX = "INBOX"; // $NON-NLS-1$
 
     private SecuritySettingsPanel securitySettingsPanel;
@@ -136,6 +140,7 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
         headerOnlyBox.setSelected(mrs.getHeaderOnly());
         deleteBox.setSelected(mrs.getDeleteMessages());
         storeMimeMessageBox.setSelected(mrs.isStoreMimeMessage());
+        reuseConnectionBox.setSelected(mrs.isReuseConnection());
         securitySettingsPanel.configure(element);
         super.configure(element);
     }
@@ -174,6 +179,7 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
         mrs.setHeaderOnly(headerOnlyBox.isSelected());
         mrs.setDeleteMessages(deleteBox.isSelected());
         mrs.setStoreMimeMessage(storeMimeMessageBox.isSelected());
+        mrs.setReuseConnection(reuseConnectionBox.isSelected());
 
         securitySettingsPanel.modifyTestElement(te);
     }
@@ -238,6 +244,8 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
 
         storeMimeMessageBox = new JCheckBox(storeMime);
 
+        reuseConnectionBox = new JCheckBox(reuseConnectionLabel);
+
         securitySettingsPanel = new SecuritySettingsPanel();
 
         JPanel settings = new VerticalPanel();
@@ -247,6 +255,7 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
         settings.add(headerOnlyBox);
         settings.add(deleteBox);
         settings.add(storeMimeMessageBox);
+        settings.add(reuseConnectionBox);
         settings.add(securitySettingsPanel);
 
         add(makeTitlePanel(), BorderLayout.NORTH);
@@ -297,6 +306,7 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
         headerOnlyBox.setSelected(false);
         deleteBox.setSelected(false);
         storeMimeMessageBox.setSelected(false);
+        reuseConnectionBox.setSelected(false);
         folderBox.setText(INBOX);
         serverTypeBox.setText(MailReaderSampler.DEFAULT_PROTOCOL);
         passwordBox.setText("");// $NON-NLS-1$
@@ -37,7 +37,10 @@ import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.ThreadListener;
 import org.apache.jmeter.testelement.property.TestElementProperty;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.exec.Coprocess;
 import org.apache.jorphan.exec.SystemCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,7 +48,7 @@ import org.slf4j.LoggerFactory;
 /**
  * A sampler for executing a System function.
  */
-public class SystemSampler extends AbstractSampler {
+public class SystemSampler extends AbstractSampler implements ThreadListener {
 
     private static final long serialVersionUID = 1;
 
@@ -70,6 +73,12 @@ public class SystemSampler extends AbstractSampler {
 
     private static final String TIMEOUT = "SystemSampler.timeout";
 
+    private static final String COPROCESS = "SystemSampler.coprocess";
+
+    private static final String FRAMING = "SystemSampler.framing";
+
+    private static final String REQUEST = "SystemSampler.request";
+
     // - JMX names
 
     /**
@@ -82,6 +91,15 @@ public class SystemSampler extends AbstractSampler {
 
     public static final int DEFAULT_RETURN_CODE = 0;
 
+    /** Longest response accepted from a coprocess, in bytes */
+    private static final int MAX_FRAME_LENGTH =
+            JMeterUtils.getPropDefault("os_sampler.coprocess.max_frame_length", Coprocess.DEFAULT_MAX_FRAME_LENGTH); // $NON-NLS-1$
+
+    /** Coprocess started by this sampler in its thread, replaced when its settings change */
+    private transient Coprocess coprocess;
+
+    /** Command line, directory, environment, standard error and framing of {@link #coprocess} */
+    private transient String coprocessKey;
 
     /**
      * Create a SystemSampler.
@@ -146,6 +164,11 @@ public class SystemSampler extends AbstractSampler {
                 "\nEnvironment: "+env+
                 "\nExecuting: " + cmdLine.toString());
 
+        if (isCoprocess()) {
+            sampleCoprocess(results, cmds, directory, env);
+            return results;
+        }
+
         SystemCommand nativeCommand = null;
         try {
             nativeCommand = new SystemCommand(directory, getTimeout(), 0, env, getStdin(), getStdout(), getStderr());
@@ -190,6 +213,82 @@ public class SystemSampler extends AbstractSampler {
         return results;
     }
 
+    /**
+     * Send the request to the coprocess of the thread, started before the sample if needed
+     * so the start of the process is not part of the sample time
+     */
+    private void sampleCoprocess(SampleResult results, List<String> cmds, File directory, Map<String, String> env) {
+        String request = getRequest();
+        Coprocess.Framing framing = getFraming();
+        String stderr = StringUtils.trimToNull(getStderr());
+        results.setSamplerData(results.getSamplerData() + "\nCoprocess request (" + framing + "): " + request);
+        String key = cmds + "|" + directory.getAbsolutePath() + "|" + env + "|" + stderr + "|" + framing; // $NON-NLS-1$
+        if (!key.equals(coprocessKey)) {
+            closeCoprocess();
+            coprocess = new Coprocess(cmds, directory, env, stderr == null ? null : new File(stderr), framing,
+                    MAX_FRAME_LENGTH);
+            coprocessKey = key;
+        }
+        try {
+            if (coprocess.ensureStarted()) {
+                log.debug("Started coprocess {} using working directory: {}", cmds, directory);
+            }
+        } catch (IOException e) {
+            results.sampleStart();
+            results.sampleEnd();
+            results.setSuccessful(false);
+            results.setResponseCode("500"); //$NON-NLS-1$
+            results.setResponseMessage("Exception occurred whilst starting coprocess: " + e);
+            return;
+        }
+        try {
+            results.sampleStart();
+            byte[] response = coprocess.call(request.getBytes(), getTimeout()); // default charset is deliberate here
+            results.sampleEnd();
+            results.setResponseData(response);
+            results.setResponseCode(Integer.toString(DEFAULT_RETURN_CODE));
+            results.setResponseMessage("OK");
+            results.setSuccessful(true);
+        } catch (IOException | IllegalArgumentException e) {
+            results.sampleEnd();
+            results.setSuccessful(false);
+            results.setResponseCode("500"); //$NON-NLS-1$
+            results.setResponseMessage("Exception occurred whilst calling coprocess: " + e);
+        } catch (InterruptedException ie) {
+            results.sampleEnd();
+            results.setSuccessful(false);
+            results.setResponseCode("500"); //$NON-NLS-1$
+            results.setResponseMessage("System Sampler interrupted whilst calling coprocess: " + ie);
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            results.sampleEnd();
+            results.setSuccessful(false);
+            results.setResponseCode("500");
+            results.setResponseMessage(e.getMessage());
+        }
+    }
+
+    @Override
+    public void threadStarted() {
+        // NOOP
+    }
+
+    /**
+     * Stops the coprocess started by the sampler in this thread
+     */
+    @Override
+    public void threadFinished() {
+        closeCoprocess();
+    }
+
+    private void closeCoprocess() {
+        if (coprocess != null) {
+            coprocess.close();
+            coprocess = null;
+            coprocessKey = null;
+        }
+    }
+
     /**
      * @see org.apache.jmeter.samplers.AbstractSampler#applies(org.apache.jmeter.config.ConfigTestElement)
      */
@@ -331,4 +430,46 @@ public class SystemSampler extends AbstractSampler {
     public void setTimout(long timeoutMs) {
         setProperty(TIMEOUT, timeoutMs, 0L);
     }
+
+    /**
+     * @return true if the command is kept running and called for each sample
+     */
+    public boolean isCoprocess() {
+        return getPropertyAsBoolean(COPROCESS, false);
+    }
+
+    /**
+     * @param coprocess true to keep the command running and call it for each sample
+     */
+    public void setCoprocess(boolean coprocess) {
+        setProperty(COPROCESS, coprocess, false);
+    }
+
+    /**
+     * @return how requests and responses are delimited in coprocess mode
+     */
+    public Coprocess.Framing getFraming() {
+        String framing = getPropertyAsString(FRAMING, Coprocess.Framing.LINE.name());
+        try {
+            return Coprocess.Framing.valueOf(framing);
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown coprocess framing {}, using {}", framing, Coprocess.Framing.LINE);
+            return Coprocess.Framing.LINE;
+        }
+    }
+
+    public void setFraming(Coprocess.Framing framing) {
+        setProperty(FRAMING, framing.name(), Coprocess.Framing.LINE.name());
+    }
+
+    /**
+     * @return request sent to the coprocess for each sample
+     */
+    public String getRequest() {
+        return getPropertyAsString(REQUEST, "");
+    }
+
+    public void setRequest(String request) {
+        setProperty(REQUEST, request, "");
+    }
 }
@@ -38,6 +38,9 @@ import org.apache.jmeter.protocol.system.SystemSampler;
 import org.apache.jmeter.samplers.gui.AbstractSamplerGui;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.exec.Coprocess;
+import org.apache.jorphan.gui.JLabeledChoice;
+import org.apache.jorphan.gui.JLabeledTextArea;
 import org.apache.jorphan.gui.JLabeledTextField;
 import org.apache.jorphan.gui.ObjectTableModel;
 import org.apache.jorphan.reflect.Functor;
@@ -64,6 +67,9 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
     private final FilePanelEntry directory = new FilePanelEntry(JMeterUtils.getResString("directory_field_title"), true); // $NON-NLS-1$
     private final FilePanelEntry command = new FilePanelEntry(JMeterUtils.getResString("command_field_title")); // $NON-NLS-1$
     private JLabeledTextField timeout;
+    private JCheckBox coprocess;
+    private JLabeledChoice framing;
+    private JLabeledTextArea request;
     private ArgumentsPanel argsPanel;
     private ArgumentsPanel envPanel;
 
@@ -98,7 +104,10 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
         JPanel streamsCodePane = new JPanel(new BorderLayout());
         streamsCodePane.add(makeStreamsPanel(), BorderLayout.NORTH);
         streamsCodePane.add(makeReturnCodePanel(), BorderLayout.CENTER);
-        streamsCodePane.add(makeTimeoutPanel(), BorderLayout.SOUTH);
+        JPanel timeoutCoprocessPane = new JPanel(new BorderLayout());
+        timeoutCoprocessPane.add(makeTimeoutPanel(), BorderLayout.NORTH);
+        timeoutCoprocessPane.add(makeCoprocessPanel(), BorderLayout.CENTER);
+        streamsCodePane.add(timeoutCoprocessPane, BorderLayout.SOUTH);
         add(streamsCodePane, BorderLayout.SOUTH);
     }
 
@@ -138,6 +147,9 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
                 log.error("Error parsing timeout field value:"+timeout.getText(), e);
             }
         }
+        systemSampler.setCoprocess(coprocess.isSelected());
+        systemSampler.setFraming(Coprocess.Framing.valueOf(framing.getText()));
+        systemSampler.setRequest(request.getText());
     }
 
     /* Overrides AbstractJMeterGuiComponent.configure(TestElement) */
@@ -157,6 +169,10 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
         stderr.setFilename(systemSampler.getStderr());
         timeout.setText(systemSampler.getTimeout() == 0L ? "":  // $NON-NLS-1$
             Long.toString(systemSampler.getTimeout())); // not sure if replace 0L to empty string is the good way.
+        coprocess.setSelected(systemSampler.isCoprocess());
+        framing.setText(systemSampler.getFraming().name());
+        request.setText(systemSampler.getRequest());
+        setCoprocessEnabled(coprocess.isSelected());
     }
 
     /**
@@ -192,6 +208,37 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
         return panel;
     }
 
+    /**
+     * @return JPanel coprocess config
+     */
+    private JPanel makeCoprocessPanel() {
+        JPanel panel = new VerticalPanel();
+        panel.setBorder(BorderFactory.createTitledBorder(
+                JMeterUtils.getResString("system_sampler_coprocess_title"))); // $NON-NLS-1$
+        coprocess = new JCheckBox(JMeterUtils.getResString("system_sampler_coprocess")); // $NON-NLS-1$
+        coprocess.addItemListener(this);
+        String[] framings = new String[Coprocess.Framing.values().length];
+        for (int i = 0; i < framings.length; i++) {
+            framings[i] = Coprocess.Framing.values()[i].name();
+        }
+        framing = new JLabeledChoice(JMeterUtils.getResString("system_sampler_coprocess_framing"), framings); // $NON-NLS-1$
+        request = new JLabeledTextArea(JMeterUtils.getResString("system_sampler_coprocess_request")); // $NON-NLS-1$
+        JPanel optionsPanel = new JPanel();
+        optionsPanel.setLayout(new BoxLayout(optionsPanel, BoxLayout.X_AXIS));
+        optionsPanel.add(coprocess);
+        optionsPanel.add(Box.createHorizontalStrut(5));
+        optionsPanel.add(framing);
+        panel.add(optionsPanel);
+        panel.add(request);
+        setCoprocessEnabled(false);
+        return panel;
+    }
+
+    private void setCoprocessEnabled(boolean enabled) {
+        framing.setChoiceListEnabled(enabled);
+        request.setEnabled(enabled);
+    }
+
     /**
      * @return JPanel Command + directory
      */
@@ -267,12 +314,18 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
         stdout.clearGui();
         stderr.clearGui();
         timeout.setText(""); // $NON-NLS-1$
+        coprocess.setSelected(false);
+        framing.setText(Coprocess.Framing.LINE.name());
+        request.setText(""); // $NON-NLS-1$
+        setCoprocessEnabled(false);
     }
 
     @Override
     public void itemStateChanged(ItemEvent e) {
         if(e.getSource()==checkReturnCode) {
             desiredReturnCode.setEnabled(e.getStateChange() == ItemEvent.SELECTED);
+        } else if (e.getSource() == coprocess) {
+            setCoprocessEnabled(e.getStateChange() == ItemEvent.SELECTED);
         }
     }
 }
@@ -24,6 +24,8 @@ import java.awt.event.ItemEvent;
 
 import javax.swing.BorderFactory;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
@@ -37,6 +39,7 @@ import org.apache.jmeter.gui.util.JSyntaxTextArea;
 import org.apache.jmeter.gui.util.JTextScrollPane;
 import org.apache.jmeter.gui.util.TristateCheckBox;
 import org.apache.jmeter.gui.util.VerticalPanel;
+import org.apache.jmeter.protocol.tcp.sampler.FrameCodec;
 import org.apache.jmeter.protocol.tcp.sampler.TCPSampler;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.util.JMeterUtils;
@@ -61,6 +64,16 @@ public class TCPConfigGui extends AbstractConfigGui {
 
     private JTextField eolByte;
 
+    private JCheckBox pooled;
+
+    private JTextField poolSize;
+
+    private JTextField maxInFlight;
+
+    private JComboBox<String> framing;
+
+    private JTextField framingParameter;
+
     private JSyntaxTextArea requestData;
 
     private boolean displayName = true;
@@ -96,6 +109,11 @@ public class TCPConfigGui extends AbstractConfigGui {
         closeConnection.setTristateFromProperty(element, TCPSampler.CLOSE_CONNECTION);
         soLinger.setText(element.getPropertyAsString(TCPSampler.SO_LINGER));
         eolByte.setText(element.getPropertyAsString(TCPSampler.EOL_BYTE));
+        pooled.setSelected(element.getPropertyAsBoolean(TCPSampler.POOLED, TCPSampler.POOLED_DEFAULT));
+        poolSize.setText(element.getPropertyAsString(TCPSampler.POOL_SIZE));
+        maxInFlight.setText(element.getPropertyAsString(TCPSampler.MAX_IN_FLIGHT));
+        framing.setSelectedItem(element.getPropertyAsString(TCPSampler.FRAMING, FrameCodec.LENGTH_PREFIXED));
+        framingParameter.setText(element.getPropertyAsString(TCPSampler.FRAMING_PARAMETER));
     }
 
     @Override
@@ -125,6 +143,11 @@ public class TCPConfigGui extends AbstractConfigGui {
         closeConnection.setPropertyFromTristate(element, TCPSampler.CLOSE_CONNECTION); // Don't use default for saving tristates
         element.setProperty(TCPSampler.SO_LINGER, soLinger.getText(), "");
         element.setProperty(TCPSampler.EOL_BYTE, eolByte.getText(), "");
+        element.setProperty(TCPSampler.POOLED, pooled.isSelected(), TCPSampler.POOLED_DEFAULT);
+        element.setProperty(TCPSampler.POOL_SIZE, poolSize.getText(), "");
+        element.setProperty(TCPSampler.MAX_IN_FLIGHT, maxInFlight.getText(), "");
+        element.setProperty(TCPSampler.FRAMING, (String) framing.getSelectedItem(), FrameCodec.LENGTH_PREFIXED);
+        element.setProperty(TCPSampler.FRAMING_PARAMETER, framingParameter.getText(), "");
     }
 
     /**
@@ -142,6 +165,11 @@ public class TCPConfigGui extends AbstractConfigGui {
         closeConnection.setSelected(TCPSampler.CLOSE_CONNECTION_DEFAULT); // TODO should this be indeterminate?
         soLinger.setText(""); //$NON-NLS-1$
         eolByte.setText(""); //$NON-NLS-1$
+        pooled.setSelected(TCPSampler.POOLED_DEFAULT);
+        poolSize.setText(""); //$NON-NLS-1$
+        maxInFlight.setText(""); //$NON-NLS-1$
+        framing.setSelectedItem(FrameCodec.LENGTH_PREFIXED);
+        framingParameter.setText(""); //$NON-NLS-1$
     }
 
 
@@ -214,6 +242,44 @@ public class TCPConfigGui extends AbstractConfigGui {
         return eolBytePanel;
     }
 
+    private JPanel createPoolPanel() {
+        pooled = new JCheckBox(JMeterUtils.getResString("tcp_pooled"), TCPSampler.POOLED_DEFAULT); // $NON-NLS-1$
+        poolSize = new JTextField(3);
+        maxInFlight = new JTextField(3);
+        framing = new JComboBox<>(new String[]{
+                FrameCodec.LENGTH_PREFIXED, FrameCodec.DELIMITER, FrameCodec.FIXED_LENGTH});
+        framingParameter = new JTextField(5);
+        pooled.addItemListener(e -> setPoolFieldsEnabled(e.getStateChange() == ItemEvent.SELECTED));
+        setPoolFieldsEnabled(TCPSampler.POOLED_DEFAULT);
+
+        HorizontalPanel poolPanel = new HorizontalPanel();
+        poolPanel.setBorder(BorderFactory.createTitledBorder(""));
+        poolPanel.add(pooled);
+        poolPanel.add(createLabeledPanel("tcp_pool_size", poolSize)); // $NON-NLS-1$
+        poolPanel.add(createLabeledPanel("tcp_pool_max_in_flight", maxInFlight)); // $NON-NLS-1$
+        poolPanel.add(createLabeledPanel("tcp_framing", framing)); // $NON-NLS-1$
+        poolPanel.add(createLabeledPanel("tcp_framing_parameter", framingParameter)); // $NON-NLS-1$
+        return poolPanel;
+    }
+
+    private void setPoolFieldsEnabled(boolean enabled) {
+        poolSize.setEnabled(enabled);
+        maxInFlight.setEnabled(enabled);
+        framing.setEnabled(enabled);
+        framingParameter.setEnabled(enabled);
+    }
+
+    private static JPanel createLabeledPanel(String resource, JComponent field) {
+        JLabel label = new JLabel(JMeterUtils.getResString(resource));
+        field.setMaximumSize(new Dimension(field.getPreferredSize()));
+        label.setLabelFor(field);
+
+        JPanel panel = new JPanel(new FlowLayout());
+        panel.add(label);
+        panel.add(field);
+        return panel;
+    }
+
     private JPanel createRequestPanel() {
         JLabel reqLabel = new JLabel(JMeterUtils.getResString("tcp_request_data")); // $NON-NLS-1$
         requestData = JSyntaxTextArea.getInstance(15, 80);
@@ -251,6 +317,7 @@ public class TCPConfigGui extends AbstractConfigGui {
         optionsPanel.add(createSoLingerOption());
         optionsPanel.add(createEolBytePanel());
         mainPanel.add(optionsPanel);
+        mainPanel.add(createPoolPanel());
         mainPanel.add(createRequestPanel());
 
         add(mainPanel, BorderLayout.CENTER);
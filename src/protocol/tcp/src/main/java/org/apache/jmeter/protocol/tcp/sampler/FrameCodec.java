@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.tcp.sampler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Splits the byte stream of a pooled connection into messages.
+ * <p>
+ * Implementations are stateless and shared by all the connections of a pool.
+ *
+ * @see TCPConnectionPool
+ */
+public abstract class FrameCodec {
+
+    /** Each message is preceded by its length as a big-endian unsigned integer */
+    public static final String LENGTH_PREFIXED = "length"; //$NON-NLS-1$
+
+    /** Each message ends with a delimiter byte, which is part of the message */
+    public static final String DELIMITER = "delimiter"; //$NON-NLS-1$
+
+    /** All messages have the same length */
+    public static final String FIXED_LENGTH = "fixed"; //$NON-NLS-1$
+
+    /** Largest message accepted from a server, larger ones are taken as a corrupt stream */
+    static final int MAX_MESSAGE_SIZE =
+            Math.max(1, JMeterUtils.getPropDefault("tcp.pool.max_message_size", 16 * 1024 * 1024)); //$NON-NLS-1$
+
+    /**
+     * Create a codec.
+     *
+     * @param framing   one of {@link #LENGTH_PREFIXED}, {@link #DELIMITER} or {@link #FIXED_LENGTH}
+     * @param parameter number of bytes of the length prefix (1, 2 or 4),
+     *                  value of the delimiter byte or length of the messages
+     * @return the codec
+     * @throws IllegalArgumentException if framing or parameter is invalid
+     */
+    public static FrameCodec create(String framing, int parameter) {
+        if (LENGTH_PREFIXED.equals(framing)) {
+            return new LengthPrefixed(parameter);
+        } else if (DELIMITER.equals(framing)) {
+            return new Delimited(parameter);
+        } else if (FIXED_LENGTH.equals(framing)) {
+            return new FixedLength(parameter);
+        }
+        throw new IllegalArgumentException("Unknown framing: " + framing);
+    }
+
+    /**
+     * @param payload message content
+     * @return a buffer ready to be written containing the framed message
+     */
+    public abstract ByteBuffer encode(byte[] payload);
+
+    /**
+     * Extract the next message from the buffer.
+     * The buffer is in read mode; if a message is returned its bytes have been consumed,
+     * otherwise the position is left unchanged.
+     *
+     * @param buffer received bytes
+     * @return the message content or {@code null} if more bytes are needed
+     * @throws IOException if the bytes can not be the start of a valid message
+     */
+    public abstract byte[] decode(ByteBuffer buffer) throws IOException;
+
+    static final class LengthPrefixed extends FrameCodec {
+        private final int prefixLength;
+        private final int maxLength;
+
+        LengthPrefixed(int prefixLength) {
+            this(prefixLength, MAX_MESSAGE_SIZE);
+        }
+
+        LengthPrefixed(int prefixLength, int maxLength) {
+            if (prefixLength != 1 && prefixLength != 2 && prefixLength != 4) {
+                throw new IllegalArgumentException("Length prefix must be 1, 2 or 4 bytes, got " + prefixLength);
+            }
+            this.prefixLength = prefixLength;
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public ByteBuffer encode(byte[] payload) {
+            long max = prefixLength == 4 ? Integer.MAX_VALUE : (1L << (8 * prefixLength)) - 1;
+            if (payload.length > max) {
+                throw new IllegalArgumentException("Message of " + payload.length
+                        + " bytes does not fit a " + prefixLength + " byte length prefix");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(prefixLength + payload.length);
+            switch (prefixLength) {
+                case 1:
+                    buffer.put((byte) payload.length);
+                    break;
+                case 2:
+                    buffer.putShort((short) payload.length);
+                    break;
+                default:
+                    buffer.putInt(payload.length);
+                    break;
+            }
+            buffer.put(payload);
+            buffer.flip();
+            return buffer;
+        }
+
+        @Override
+        public byte[] decode(ByteBuffer buffer) throws IOException {
+            if (buffer.remaining() < prefixLength) {
+                return null;
+            }
+            int start = buffer.position();
+            int length;
+            switch (prefixLength) {
+                case 1:
+                    length = buffer.get(start) & 0xFF;
+                    break;
+                case 2:
+                    length = buffer.getShort(start) & 0xFFFF;
+                    break;
+                default:
+                    length = buffer.getInt(start);
+                    break;
+            }
+            if (length < 0 || length > maxLength) {
+                throw new IOException("Invalid message length " + length + ", maximum is " + maxLength);
+            }
+            if (buffer.remaining() < prefixLength + length) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            buffer.position(start + prefixLength);
+            buffer.get(payload);
+            return payload;
+        }
+    }
+
+    static final class Delimited extends FrameCodec {
+        private final byte delimiter;
+
+        Delimited(int delimiter) {
+            if (delimiter < Byte.MIN_VALUE || delimiter > 255) {
+                throw new IllegalArgumentException("Delimiter must be a byte value, got " + delimiter);
+            }
+            this.delimiter = (byte) delimiter;
+        }
+
+        @Override
+        public ByteBuffer encode(byte[] payload) {
+            if (payload.length > 0 && payload[payload.length - 1] == delimiter) {
+                return ByteBuffer.wrap(payload);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(payload.length + 1);
+            buffer.put(payload).put(delimiter);
+            buffer.flip();
+            return buffer;
+        }
+
+        @Override
+        public byte[] decode(ByteBuffer buffer) {
+            int start = buffer.position();
+            for (int i = start; i < buffer.limit(); i++) {
+                if (buffer.get(i) == delimiter) {
+                    byte[] payload = new byte[i - start + 1];
+                    buffer.get(payload);
+                    return payload;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final class FixedLength extends FrameCodec {
+        private final int length;
+
+        FixedLength(int length) {
+            if (length <= 0) {
+                throw new IllegalArgumentException("Message length must be positive, got " + length);
+            }
+            this.length = length;
+        }
+
+        @Override
+        public ByteBuffer encode(byte[] payload) {
+            if (payload.length != length) {
+                throw new IllegalArgumentException("Message has " + payload.length
+                        + " bytes, expected " + length);
+            }
+            return ByteBuffer.wrap(payload);
+        }
+
+        @Override
+        public byte[] decode(ByteBuffer buffer) {
+            if (buffer.remaining() < length) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.tcp.sampler;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A connection of a {@link TCPConnectionPool}, shared by several threads.
+ * <p>
+ * Requests are written in the order they are sent, possibly before the responses
+ * of previous requests have been read (pipelining). A reader thread decodes the
+ * responses and completes the pending requests in the same order, so the server
+ * must answer requests in the order it receives them.
+ * <p>
+ * Reads and writes go through direct buffers to avoid copies between the Java heap
+ * and the socket.
+ */
+final class PipelinedConnection implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PipelinedConnection.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+    private final SocketChannel channel;
+    private final FrameCodec codec;
+    private final Object writeLock = new Object();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // only used by the reader thread
+    private final Queue<CompletableFuture<byte[]>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean open = true;
+
+    private PipelinedConnection(String name, SocketChannel channel, FrameCodec codec) {
+        this.name = name;
+        this.channel = channel;
+        this.codec = codec;
+    }
+
+    /**
+     * Open a connection and start its reader thread.
+     *
+     * @param name           name of the connection, used for the reader thread and logging
+     * @param address        server address
+     * @param connectTimeout connect timeout in milliseconds, 0 for none
+     * @param noDelay        whether to disable Nagle's algorithm
+     * @param codec          framing of the messages
+     * @return the open connection
+     * @throws IOException if the connection cannot be established
+     */
+    static PipelinedConnection open(String name, InetSocketAddress address, int connectTimeout,
+            boolean noDelay, FrameCodec codec) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, noDelay);
+            // SocketChannel.connect has no timeout, the socket adaptor has one
+            channel.socket().connect(address, connectTimeout);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        PipelinedConnection connection = new PipelinedConnection(name, channel, codec);
+        Thread reader = new Thread(connection::readLoop, name);
+        reader.setDaemon(true);
+        reader.start();
+        log.debug("Opened {}", name);
+        return connection;
+    }
+
+    /**
+     * Write a request.
+     *
+     * @param payload request content, framed by the codec of this connection
+     * @return a future completed with the response content
+     */
+    CompletableFuture<byte[]> send(byte[] payload) {
+        ByteBuffer frame = codec.encode(payload);
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        synchronized (writeLock) {
+            if (!open) {
+                response.completeExceptionally(new IOException(name + " is closed"));
+                return response;
+            }
+            // Enqueue under the write lock so the queue order matches the wire order
+            inFlight.incrementAndGet();
+            pending.add(response);
+            try {
+                write(frame);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return response;
+    }
+
+    private void write(ByteBuffer frame) throws IOException {
+        if (frame.remaining() > writeBuffer.capacity()) {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            return;
+        }
+        writeBuffer.clear();
+        writeBuffer.put(frame);
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (open) {
+                if (channel.read(readBuffer) < 0) {
+                    throw new EOFException(name + " closed by server");
+                }
+                readBuffer.flip();
+                byte[] message;
+                while ((message = codec.decode(readBuffer)) != null) {
+                    complete(message);
+                }
+                if (readBuffer.position() == 0 && readBuffer.limit() == readBuffer.capacity()) {
+                    // A single message does not fit, grow the buffer
+                    if (readBuffer.capacity() > FrameCodec.MAX_MESSAGE_SIZE) {
+                        throw new IOException("Message larger than " + FrameCodec.MAX_MESSAGE_SIZE
+                                + " bytes received from " + name);
+                    }
+                    ByteBuffer larger = ByteBuffer.allocateDirect(readBuffer.capacity() * 2);
+                    larger.put(readBuffer);
+                    readBuffer = larger;
+                } else {
+                    readBuffer.compact();
+                }
+            }
+        } catch (IOException e) {
+            if (open) {
+                log.warn("Error reading from {}", name, e);
+            }
+            fail(e);
+        } catch (RuntimeException e) {
+            // Do not leave the pending requests waiting for a reader which is gone
+            log.error("Unexpected error reading from {}", name, e);
+            fail(new IOException("Unexpected error reading from " + name, e));
+        }
+    }
+
+    private void complete(byte[] message) {
+        CompletableFuture<byte[]> response = pending.poll();
+        if (response == null) {
+            log.warn("Dropping unexpected message of {} bytes received on {}", message.length, name);
+            return;
+        }
+        inFlight.decrementAndGet();
+        response.complete(message);
+    }
+
+    /**
+     * Close the connection and fail all pending requests
+     */
+    private void fail(IOException cause) {
+        open = false;
+        // Closing first unblocks a writer holding the lock
+        closeChannel();
+        synchronized (writeLock) {
+            CompletableFuture<byte[]> response;
+            while ((response = pending.poll()) != null) {
+                inFlight.decrementAndGet();
+                response.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Error closing {}", name, e);
+        }
+    }
+
+    /**
+     * @return number of requests waiting for their response
+     */
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        fail(new IOException(name + " is closed"));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.tcp.sampler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of {@link PipelinedConnection} shared by all the threads sampling the same server
+ * with the same settings.
+ * <p>
+ * Each request goes to the connection with the fewest requests in flight.
+ * At most {@code maxInFlight} requests are in flight on a connection,
+ * a value of 1 disables pipelining.
+ * Broken connections are replaced on the next request.
+ */
+public final class TCPConnectionPool {
+    private static final Logger log = LoggerFactory.getLogger(TCPConnectionPool.class);
+
+    private static final ConcurrentMap<String, TCPConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final InetSocketAddress address;
+    private final FrameCodec codec;
+    private final int connectTimeout;
+    private final boolean noDelay;
+    private final AtomicReferenceArray<PipelinedConnection> connections;
+    private final Object[] connectLocks;
+    private final Semaphore permits;
+
+    TCPConnectionPool(String name, InetSocketAddress address, FrameCodec codec,
+            int size, int maxInFlight, int connectTimeout, boolean noDelay) {
+        if (size <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Pool size and max in flight must be positive, got "
+                    + size + " and " + maxInFlight);
+        }
+        this.name = name;
+        this.address = address;
+        this.codec = codec;
+        this.connectTimeout = connectTimeout;
+        this.noDelay = noDelay;
+        this.connections = new AtomicReferenceArray<>(size);
+        this.connectLocks = new Object[size];
+        for (int i = 0; i < size; i++) {
+            connectLocks[i] = new Object();
+        }
+        this.permits = new Semaphore(size * maxInFlight, true);
+    }
+
+    /**
+     * Get the pool for the given settings, creating it if needed.
+     *
+     * @param host           server host
+     * @param port           server port
+     * @param framing        framing, see {@link FrameCodec#create(String, int)}
+     * @param parameter      framing parameter, see {@link FrameCodec#create(String, int)}
+     * @param size           number of connections
+     * @param maxInFlight    maximum number of requests in flight per connection
+     * @param connectTimeout connect timeout in milliseconds, 0 for none
+     * @param noDelay        whether to disable Nagle's algorithm
+     * @return the shared pool
+     */
+    public static TCPConnectionPool getPool(String host, int port, String framing, int parameter,
+            int size, int maxInFlight, int connectTimeout, boolean noDelay) {
+        String key = host + ":" + port + "#" + framing + "#" + parameter // $NON-NLS-1$ $NON-NLS-2$
+                + "#" + size + "#" + maxInFlight + "#" + connectTimeout + "#" + noDelay; // $NON-NLS-1$
+        return POOLS.computeIfAbsent(key, k -> new TCPConnectionPool(host + ":" + port, // $NON-NLS-1$
+                InetSocketAddress.createUnresolved(host, port), FrameCodec.create(framing, parameter),
+                size, maxInFlight, connectTimeout, noDelay));
+    }
+
+    /**
+     * Close all the pools, pending requests fail.
+     */
+    public static void closeAll() {
+        for (TCPConnectionPool pool : POOLS.values()) {
+            pool.close();
+        }
+        POOLS.clear();
+    }
+
+    /**
+     * Wait for a request slot and return the least loaded connection, opening it if needed.
+     * The slot must be given back by {@link #send(PipelinedConnection, byte[])} or {@link #release()}.
+     *
+     * @param timeout maximum time to wait for a slot in milliseconds, 0 to wait forever
+     * @return the connection to use
+     * @throws IOException if no slot is available in time or the connection cannot be opened
+     * @throws InterruptedException if interrupted while waiting for a slot
+     */
+    PipelinedConnection acquire(int timeout) throws IOException, InterruptedException {
+        if (timeout > 0) {
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new IOException("No connection of " + name + " available within " + timeout + " ms");
+            }
+        } else {
+            permits.acquire();
+        }
+        try {
+            return leastLoaded();
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PipelinedConnection leastLoaded() throws IOException {
+        int best = 0;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < connections.length(); i++) {
+            PipelinedConnection connection = connections.get(i);
+            int load = connection == null || !connection.isOpen() ? 0 : connection.getInFlight();
+            if (load < bestLoad) {
+                best = i;
+                bestLoad = load;
+            }
+        }
+        PipelinedConnection connection = connections.get(best);
+        if (connection != null && connection.isOpen()) {
+            return connection;
+        }
+        synchronized (connectLocks[best]) {
+            connection = connections.get(best);
+            if (connection == null || !connection.isOpen()) {
+                InetSocketAddress resolved = new InetSocketAddress(address.getHostString(), address.getPort());
+                connection = PipelinedConnection.open(name + "#" + best, resolved, connectTimeout, noDelay, codec);
+                connections.set(best, connection);
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * Send a request on a connection returned by {@link #acquire(int)}.
+     * The slot is given back when the response arrives or the request fails.
+     *
+     * @param connection connection returned by {@link #acquire(int)}
+     * @param payload    request content
+     * @return a future completed with the response content
+     */
+    CompletableFuture<byte[]> send(PipelinedConnection connection, byte[] payload) {
+        CompletableFuture<byte[]> response;
+        try {
+            response = connection.send(payload);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        // The returned stage can be completed by the caller (e.g. on interrupt)
+        // without releasing the slot before the response is read
+        return response.whenComplete((data, error) -> permits.release());
+    }
+
+    /**
+     * Give back a slot obtained by {@link #acquire(int)} when no request is sent
+     */
+    void release() {
+        permits.release();
+    }
+
+    private void close() {
+        for (int i = 0; i < connections.length(); i++) {
+            PipelinedConnection connection = connections.getAndSet(i, null);
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        log.debug("Closed pool {}", name);
+    }
+
+    @Override
+    public String toString() {
+        return "TCPConnectionPool[" + name + "]"; // $NON-NLS-1$
+    }
+}
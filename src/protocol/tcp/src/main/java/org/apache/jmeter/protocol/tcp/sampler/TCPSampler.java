@@ -28,6 +28,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,6 +36,10 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.config.ConfigTestElement;
@@ -43,8 +48,10 @@ import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.Interruptible;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.ThreadListener;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JOrphanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,7 +59,7 @@ import org.slf4j.LoggerFactory;
  * A sampler which understands Tcp requests.
  *
  */
-public class TCPSampler extends AbstractSampler implements ThreadListener, Interruptible {
+public class TCPSampler extends AbstractSampler implements ThreadListener, TestStateListener, Interruptible {
     private static final long serialVersionUID = 280L;
 
     private static final Logger log = LoggerFactory.getLogger(TCPSampler.class);
@@ -90,6 +97,21 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
 
     public static final String EOL_BYTE = "TCPSampler.EolByte"; //$NON-NLS-1$
 
+    /** Use a {@link TCPConnectionPool} shared by all threads instead of a connection per thread */
+    public static final String POOLED = "TCPSampler.pooled"; //$NON-NLS-1$
+    public static final boolean POOLED_DEFAULT = false;
+
+    public static final String POOL_SIZE = "TCPSampler.poolSize"; //$NON-NLS-1$
+    public static final int POOL_SIZE_DEFAULT = 4;
+
+    public static final String MAX_IN_FLIGHT = "TCPSampler.maxInFlight"; //$NON-NLS-1$
+    public static final int MAX_IN_FLIGHT_DEFAULT = 1;
+
+    /** One of {@link FrameCodec#LENGTH_PREFIXED}, {@link FrameCodec#DELIMITER} or {@link FrameCodec#FIXED_LENGTH} */
+    public static final String FRAMING = "TCPSampler.framing"; //$NON-NLS-1$
+
+    public static final String FRAMING_PARAMETER = "TCPSampler.framingParameter"; //$NON-NLS-1$
+
     private static final String TCPKEY = "TCP"; //$NON-NLS-1$ key for HashMap
 
     private static final String ERRKEY = "ERR"; //$NON-NLS-1$ key for HashMap
@@ -137,6 +159,8 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
 
     private transient volatile Socket currentSocket; // used for handling interrupt
 
+    private transient volatile CompletableFuture<byte[]> currentResponse; // used for handling interrupt in pooled mode
+
     public TCPSampler() {
         log.debug("Created {}", this); //$NON-NLS-1$
     }
@@ -285,6 +309,59 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
         return getPropertyAsInt(TIMEOUT_CONNECT, 0);
     }
 
+    public boolean isPooled() {
+        return getPropertyAsBoolean(POOLED, POOLED_DEFAULT);
+    }
+
+    public void setPooled(boolean pooled) {
+        setProperty(POOLED, pooled, POOLED_DEFAULT);
+    }
+
+    public int getPoolSize() {
+        return getPropertyAsInt(POOL_SIZE, POOL_SIZE_DEFAULT);
+    }
+
+    public void setPoolSize(String poolSize) {
+        setProperty(POOL_SIZE, poolSize, "");
+    }
+
+    public int getMaxInFlight() {
+        return getPropertyAsInt(MAX_IN_FLIGHT, MAX_IN_FLIGHT_DEFAULT);
+    }
+
+    public void setMaxInFlight(String maxInFlight) {
+        setProperty(MAX_IN_FLIGHT, maxInFlight, "");
+    }
+
+    public String getFraming() {
+        return getPropertyAsString(FRAMING, FrameCodec.LENGTH_PREFIXED);
+    }
+
+    public void setFraming(String framing) {
+        setProperty(FRAMING, framing, "");
+    }
+
+    /**
+     * @return the framing parameter, defaulting to a 2 byte length prefix
+     * or to the EOL byte (newline if not set) as delimiter
+     */
+    public int getFramingParameter() {
+        if (getPropertyAsString(FRAMING_PARAMETER, "").length() > 0) {
+            return getPropertyAsInt(FRAMING_PARAMETER);
+        }
+        String framing = getFraming();
+        if (FrameCodec.LENGTH_PREFIXED.equals(framing)) {
+            return 2;
+        } else if (FrameCodec.DELIMITER.equals(framing)) {
+            return getPropertyAsString(EOL_BYTE, "").length() > 0 ? getEolByte() : '\n';
+        }
+        return 0;
+    }
+
+    public void setFramingParameter(String parameter) {
+        setProperty(FRAMING_PARAMETER, parameter, "");
+    }
+
     public boolean getNoDelay() {
         return getPropertyAsBoolean(NODELAY);
     }
@@ -364,6 +441,9 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
         SampleResult res = new SampleResult();
         boolean isSuccessful = false;
         res.setSampleLabel(getName());// Use the test element name for the label
+        if (isPooled()) {
+            return samplePooled(res);
+        }
         String sb = "Host: " + getServer() +
                 " Port: " + getPort() + "\n" +
                 "Reuse: " + reUseConnection +
@@ -421,6 +501,90 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
         return res;
     }
 
+    /**
+     * Sends the request on a connection of the shared pool and waits for the response
+     * at most the response timeout.
+     */
+    private SampleResult samplePooled(SampleResult res) {
+        boolean isSuccessful = false;
+        String req = getRequestData();
+        res.setSamplerData(req);
+        res.sampleStart();
+        try {
+            if (protocolHandler == null) {
+                res.connectEnd();
+                res.setResponseCode("500"); //$NON-NLS-1$
+                res.setResponseMessage("Protocol handler not found");
+                return res;
+            }
+            TCPConnectionPool pool;
+            PipelinedConnection connection;
+            try {
+                pool = TCPConnectionPool.getPool(getServer(), getPort(), getFraming(), getFramingParameter(),
+                        getPoolSize(), getMaxInFlight(), getConnectTimeout(), getNoDelay());
+                connection = pool.acquire(getTimeout());
+            } finally {
+                res.connectEnd();
+            }
+            byte[] payload;
+            try {
+                payload = encodePayload(req);
+            } catch (RuntimeException ex) {
+                pool.release();
+                throw ex;
+            }
+            CompletableFuture<byte[]> response = pool.send(connection, payload);
+            currentResponse = response;
+            byte[] data = getTimeout() > 0
+                    ? response.get(getTimeout(), TimeUnit.MILLISECONDS)
+                    : response.get();
+            res.latencyEnd();
+            isSuccessful = setupSampleResult(res, decodePayload(data), null, protocolHandler);
+        } catch (ExecutionException ex) {
+            Exception cause = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+            log.error("", cause);
+            isSuccessful = setupSampleResult(res, "", cause, protocolHandler);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            isSuccessful = setupSampleResult(res, "", ex, protocolHandler);
+        } catch (TimeoutException | IOException | RuntimeException ex) {
+            log.error("", ex);
+            isSuccessful = setupSampleResult(res, "", ex, protocolHandler);
+        } finally {
+            currentResponse = null;
+            res.sampleEnd();
+            res.setSuccessful(isSuccessful);
+        }
+        return res;
+    }
+
+    /**
+     * Convert the request to bytes the same way the protocol handler writes it
+     */
+    private byte[] encodePayload(String req) {
+        if (isBinaryProtocol()) {
+            return BinaryTCPClientImpl.hexStringToByteArray(req);
+        }
+        return req.getBytes(getProtocolCharset());
+    }
+
+    private String decodePayload(byte[] data) {
+        if (isBinaryProtocol()) {
+            return JOrphanUtils.baToHexString(data);
+        }
+        return new String(data, getProtocolCharset());
+    }
+
+    private boolean isBinaryProtocol() {
+        return protocolHandler instanceof BinaryTCPClientImpl
+                || protocolHandler instanceof LengthPrefixedBinaryTCPClientImpl;
+    }
+
+    private Charset getProtocolCharset() {
+        String charset = protocolHandler.getCharset();
+        return StringUtils.isEmpty(charset) ? Charset.defaultCharset() : Charset.forName(charset);
+    }
+
     /**
      * Fills SampleResult object
      * @param sampleResult {@link SampleResult}
@@ -539,6 +703,29 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
         tp.remove();
     }
 
+    @Override
+    public void testStarted() {
+        testStarted(""); //$NON-NLS-1$
+    }
+
+    @Override
+    public void testStarted(String host) {
+        // NOOP pools are created on first use
+    }
+
+    @Override
+    public void testEnded() {
+        testEnded(""); //$NON-NLS-1$
+    }
+
+    /**
+     * Closes the shared connection pools
+     */
+    @Override
+    public void testEnded(String host) {
+        TCPConnectionPool.closeAll();
+    }
+
     /**
      * @see org.apache.jmeter.samplers.AbstractSampler#applies(org.apache.jmeter.config.ConfigTestElement)
      */
@@ -550,6 +737,11 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
 
     @Override
     public boolean interrupt() {
+        CompletableFuture<byte[]> response = currentResponse;
+        if (response != null) {
+            // Only the waiting thread gives up, the pooled connection is left to other threads
+            return response.completeExceptionally(new InterruptedException("Sampler interrupted"));
+        }
         Optional<Socket> sock = Optional.ofNullable(currentSocket); // fetch in case gets nulled later
         if (sock.isPresent()) {
             try {
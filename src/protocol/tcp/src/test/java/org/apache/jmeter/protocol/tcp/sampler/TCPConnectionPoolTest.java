@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.tcp.sampler;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TCPConnectionPoolTest {
+
+    private ServerSocket server;
+
+    /** Echoes back all received bytes, on any number of connections */
+    @BeforeEach
+    public void startEchoServer() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread echo = new Thread(() -> echo(socket));
+                    echo.setDaemon(true);
+                    echo.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private static void echo(Socket socket) {
+        try (Socket s = socket;
+                InputStream in = s.getInputStream();
+                OutputStream out = s.getOutputStream()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    @AfterEach
+    public void stopEchoServer() throws IOException {
+        TCPConnectionPool.closeAll();
+        server.close();
+    }
+
+    private TCPConnectionPool createPool(String framing, int parameter, int size, int maxInFlight) {
+        return new TCPConnectionPool("test",
+                InetSocketAddress.createUnresolved(server.getInetAddress().getHostAddress(), server.getLocalPort()),
+                FrameCodec.create(framing, parameter), size, maxInFlight, 1000, true);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPipelinedResponsesMatchRequests() throws Exception {
+        TCPConnectionPool pool = createPool(FrameCodec.LENGTH_PREFIXED, 2, 1, 100);
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            responses.add(pool.send(pool.acquire(1000), bytes("message " + i)));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            assertArrayEquals(bytes("message " + i), responses.get(i).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testPoolIsSharedByThreads() throws Exception {
+        TCPConnectionPool pool = createPool(FrameCodec.DELIMITER, '\n', 2, 4);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int id = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        byte[] expected = bytes(id + "-" + i + "\n");
+                        byte[] actual = pool.send(pool.acquire(5000), expected).get(5, TimeUnit.SECONDS);
+                        assertArrayEquals(expected, actual);
+                    }
+                } catch (Throwable e) { // NOSONAR reported by the test thread
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.size(), errors.toString());
+    }
+
+    @Test
+    public void testLargeMessage() throws Exception {
+        TCPConnectionPool pool = createPool(FrameCodec.LENGTH_PREFIXED, 4, 1, 1);
+        byte[] payload = new byte[300 * 1024];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        assertArrayEquals(payload, pool.send(pool.acquire(1000), payload).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPendingRequestFailsWhenConnectionIsClosed() throws Exception {
+        // Connections are queued in the backlog but never accepted, so no response comes
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            PipelinedConnection connection = PipelinedConnection.open("silent",
+                    new InetSocketAddress(silent.getInetAddress(), silent.getLocalPort()), 1000, true,
+                    FrameCodec.create(FrameCodec.LENGTH_PREFIXED, 2));
+            CompletableFuture<byte[]> response = connection.send(bytes("abc"));
+            assertEquals(1, connection.getInFlight());
+            connection.close();
+            ExecutionException e = assertThrows(ExecutionException.class, response::get);
+            assertEquals(IOException.class, e.getCause().getClass());
+            assertEquals(0, connection.getInFlight());
+        }
+    }
+
+    @Test
+    public void testPendingRequestFailsOnInvalidLength() throws Exception {
+        PipelinedConnection connection = PipelinedConnection.open("echo",
+                new InetSocketAddress(server.getInetAddress(), server.getLocalPort()), 1000, true,
+                new FrameCodec.LengthPrefixed(4, 10));
+        try {
+            // The echoed length is above the maximum accepted by the codec
+            CompletableFuture<byte[]> response = connection.send(new byte[20]);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+            assertEquals(IOException.class, e.getCause().getClass());
+            assertEquals(0, connection.getInFlight());
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testNoSlotAvailable() throws Exception {
+        TCPConnectionPool pool = createPool(FrameCodec.LENGTH_PREFIXED, 2, 1, 1);
+        pool.acquire(1000);
+        assertThrows(IOException.class, () -> pool.acquire(10));
+    }
+
+    @Test
+    public void testInvalidLengthIsRejected() {
+        FrameCodec length = new FrameCodec.LengthPrefixed(4, 10);
+        assertThrows(IOException.class, () -> length.decode(ByteBuffer.wrap(new byte[] {-1, -1, -1, -1, 0})));
+        assertThrows(IOException.class, () -> length.decode(ByteBuffer.wrap(new byte[] {0, 0, 0, 11})));
+    }
+
+    @Test
+    public void testCodecs() throws Exception {
+        FrameCodec length = FrameCodec.create(FrameCodec.LENGTH_PREFIXED, 2);
+        ByteBuffer frame = length.encode(bytes("abc"));
+        assertEquals(5, frame.remaining());
+        ByteBuffer partial = ByteBuffer.wrap(frame.array(), 0, 4);
+        assertNull(length.decode(partial));
+        assertEquals(0, partial.position());
+        assertArrayEquals(bytes("abc"), length.decode(frame));
+
+        FrameCodec delimiter = FrameCodec.create(FrameCodec.DELIMITER, ';');
+        ByteBuffer two = ByteBuffer.wrap(bytes("ab;cd;e"));
+        assertArrayEquals(bytes("ab;"), delimiter.decode(two));
+        assertArrayEquals(bytes("cd;"), delimiter.decode(two));
+        assertNull(delimiter.decode(two));
+        assertEquals(1, two.remaining());
+
+        FrameCodec fixed = FrameCodec.create(FrameCodec.FIXED_LENGTH, 2);
+        assertThrows(IllegalArgumentException.class, () -> fixed.encode(bytes("abc")));
+        assertThrows(IllegalArgumentException.class, () -> FrameCodec.create(FrameCodec.LENGTH_PREFIXED, 3));
+        assertThrows(IllegalArgumentException.class, () -> FrameCodec.create("unknown", 1));
+    }
+}